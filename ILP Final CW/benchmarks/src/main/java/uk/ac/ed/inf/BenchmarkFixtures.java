@@ -0,0 +1,131 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Class that loads the fixture no-fly zones and landmarks used by the benchmarks from the resources of this module,
+ * so that the benchmarks do not need the web server nor the database, and that builds seeded random orders between
+ * them. The no-fly zones and landmarks are read instead from the buildings folder of the inputs written by the
+ * {@link WorkloadGenerator} when the system property {@value FIXTURES_FOLDER_PROPERTY} is set to their folder.
+ */
+public class BenchmarkFixtures {
+
+    /** String representing the system property with the folder of the generated inputs to benchmark */
+    public static final String FIXTURES_FOLDER_PROPERTY = "fixtures.folder";
+
+    /** String representing the resource with the fixture no-fly zones */
+    private static final String NO_FLY_ZONES_RESOURCE = "/buildings/no-fly-zones.geojson";
+
+    /** String representing the resource with the fixture landmarks */
+    private static final String LANDMARKS_RESOURCE = "/buildings/landmarks.geojson";
+
+    /** Integer representing the number of restaurants the generated orders are picked up from */
+    private static final int NUMBER_OF_RESTAURANTS = 8;
+
+    /** Long representing the seed of the generated orders, so that every run benchmarks the same orders */
+    private static final long SEED = 42;
+
+    /** LongLat representing a destination reached from Appleton Tower by flying straight to it */
+    public static final LongLat DIRECT_DESTINATION = new LongLat(-3.186663, 55.943027);
+
+    /** LongLat representing a destination only reached from Appleton Tower by flying through a landmark */
+    public static final LongLat LANDMARK_DESTINATION = new LongLat(-3.19034, 55.944913);
+
+    /** LongLat representing a destination inside a no-fly zone, which can not be reached at all */
+    public static final LongLat UNREACHABLE_DESTINATION = new LongLat(-3.1894, 55.9447);
+
+
+    /**
+     * Method that returns the fixture no-fly zones.
+     * @return the endpoints of the borders of the fixture no-fly zones.
+     */
+    public static ArrayList<ArrayList<LongLat>> getNoFlyZonesPoints() {
+        String jsonString = readResource(NO_FLY_ZONES_RESOURCE);
+        return new NoFlyZones(HTTPClient.getNoFlyZonesFromJsonString(jsonString)).getNoFlyZonesPoints();
+    }
+
+    /**
+     * Method that returns the fixture landmarks.
+     * @return the locations of the fixture landmarks.
+     */
+    public static ArrayList<LongLat> getLandmarks() {
+        String jsonString = readResource(LANDMARKS_RESOURCE);
+        return LongLat.translateLandmarksToLongLat(HTTPClient.getLandmarksFromJsonString(jsonString));
+    }
+
+    /**
+     * Method that generates the given number of orders with every field already set, each of them delivered from one
+     * or two restaurants to a location that can be reached from Appleton Tower.
+     * @param numberOfOrders the number of orders to generate.
+     * @param pathFinder the PathFinder used to discard the locations that can not be reached.
+     * @return the generated orders.
+     */
+    public static ArrayList<OrderDetails> getOrders(int numberOfOrders, PathFinder pathFinder) {
+        Random random = new Random(SEED);
+        ArrayList<LongLat> restaurants = new ArrayList<>();
+        while (restaurants.size() < NUMBER_OF_RESTAURANTS) {
+            restaurants.add(getReachableLocation(random, pathFinder));
+        }
+
+        ArrayList<OrderDetails> orders = new ArrayList<>();
+        for (int i = 0; i < numberOfOrders; i++) {
+            OrderDetails order = new OrderDetails(String.format("%08x", i), "s0000000", "fixture", new ArrayList<>());
+            ArrayList<LongLat> deliverFromLongLat = new ArrayList<>();
+            deliverFromLongLat.add(restaurants.get(random.nextInt(NUMBER_OF_RESTAURANTS)));
+            if (random.nextBoolean()) {
+                LongLat secondRestaurant = restaurants.get(random.nextInt(NUMBER_OF_RESTAURANTS));
+                if (!deliverFromLongLat.contains(secondRestaurant)) {
+                    deliverFromLongLat.add(secondRestaurant);
+                }
+            }
+            order.setPrice(50 + 100 * (1 + random.nextInt(30)));
+            order.setDeliverFrom(new ArrayList<>());
+            order.setDeliverToLongLat(getReachableLocation(random, pathFinder));
+            order.setDeliverFromLongLat(deliverFromLongLat);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+
+    /**
+     * Helper method that returns a random location of the confinement area that can be reached from Appleton Tower.
+     * @param random the Random used to pick the location.
+     * @param pathFinder the PathFinder used to discard the locations that can not be reached.
+     * @return the random reachable location.
+     */
+    private static LongLat getReachableLocation(Random random, PathFinder pathFinder) {
+        while (true) {
+            double longitude = -3.1920 + random.nextDouble() * 0.0073;
+            double latitude = 55.9428 + random.nextDouble() * 0.0032;
+            LongLat location = new LongLat(longitude, latitude);
+            if (pathFinder.isReachable(Drone.APPLETON_TOWER_COORDINATES, location)) {
+                return location;
+            }
+        }
+    }
+
+    /**
+     * Helper method that reads the given resource as a String, from the folder of the generated inputs if it is set,
+     * or from the resources of this module otherwise.
+     * @param resource the name of the resource.
+     * @return the content of the resource.
+     */
+    private static String readResource(String resource) {
+        String fixturesFolder = System.getProperty(FIXTURES_FOLDER_PROPERTY);
+        try (InputStream inputStream = fixturesFolder == null
+                ? BenchmarkFixtures.class.getResourceAsStream("/fixtures" + resource)
+                : Files.newInputStream(Paths.get(fixturesFolder, resource))) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
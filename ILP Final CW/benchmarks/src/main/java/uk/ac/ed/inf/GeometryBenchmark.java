@@ -0,0 +1,97 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class with the benchmarks of the geometric primitives of {@link LongLat} called for every move the drone tries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeometryBenchmark {
+
+    /** ArrayList of ArrayList of LongLat representing the borders of the fixture no-fly zones */
+    private ArrayList<ArrayList<LongLat>> noFlyZonesPoints;
+
+    /** OccupancyGrid of the fixture no-fly zones */
+    private OccupancyGrid occupancyGrid;
+
+    /** LongLat representing a position away from every no-fly zone */
+    private LongLat openAirPosition;
+
+    /** LongLat representing a position right next to the border of a no-fly zone */
+    private LongLat boundaryPosition;
+
+    /** LongLat representing the destination the next angle is computed towards */
+    private LongLat destination;
+
+
+    /**
+     * Method that loads the fixture no-fly zones and sets the positions used by the benchmarks.
+     */
+    @Setup
+    public void setUp() {
+        noFlyZonesPoints = BenchmarkFixtures.getNoFlyZonesPoints();
+        occupancyGrid = new OccupancyGrid(noFlyZonesPoints);
+        openAirPosition = new LongLat(-3.1870, 55.9440);
+        boundaryPosition = new LongLat(-3.18995, 55.9450);
+        destination = BenchmarkFixtures.LANDMARK_DESTINATION;
+    }
+
+    @Benchmark
+    public boolean intersectsWithCrossing() {
+        return openAirPosition.intersectsWith(new LongLat(-3.1900, 55.9440), new LongLat(-3.1890, 55.9455),
+                new LongLat(-3.1900, 55.9450), new LongLat(-3.1890, 55.9452));
+    }
+
+    @Benchmark
+    public boolean intersectsWithDisjoint() {
+        return openAirPosition.intersectsWith(new LongLat(-3.1870, 55.9440), new LongLat(-3.18685, 55.9440),
+                new LongLat(-3.1900, 55.9450), new LongLat(-3.1890, 55.9452));
+    }
+
+    @Benchmark
+    public boolean isValidMovementOpenAir() {
+        return openAirPosition.isValidMovement(openAirPosition.nextPosition(0), noFlyZonesPoints);
+    }
+
+    @Benchmark
+    public boolean isValidMovementNearBoundary() {
+        return boundaryPosition.isValidMovement(boundaryPosition.nextPosition(0), noFlyZonesPoints);
+    }
+
+    @Benchmark
+    public boolean isValidMovementOpenAirWithGrid() {
+        return openAirPosition.isValidMovement(openAirPosition.nextPosition(0), occupancyGrid);
+    }
+
+    @Benchmark
+    public boolean isValidMovementNearBoundaryWithGrid() {
+        return boundaryPosition.isValidMovement(boundaryPosition.nextPosition(0), occupancyGrid);
+    }
+
+    @Benchmark
+    public int nextAngle() {
+        return openAirPosition.nextAngle(destination);
+    }
+
+    @Benchmark
+    public LongLat nextPosition() {
+        return openAirPosition.nextPosition(130);
+    }
+}
@@ -0,0 +1,79 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class with the benchmarks of a single leg computed by {@link PathFinder#travelToDestination}, which is what the drone
+ * calls for every leg it considers. Every invocation uses a new PathFinder, so that the leg is always computed and
+ * never read from the cache of legs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathFindingBenchmark {
+
+    /** String representing the kind of leg benchmarked: flying straight, through a landmark, or unreachable */
+    @Param({"direct", "landmark", "unreachable"})
+    public String leg;
+
+    /** Boolean representing whether the movements are validated using an {@link OccupancyGrid} */
+    @Param({"false", "true"})
+    public boolean useOccupancyGrid;
+
+    /** ArrayList of ArrayList of LongLat representing the borders of the fixture no-fly zones */
+    private ArrayList<ArrayList<LongLat>> noFlyZonesPoints;
+
+    /** ArrayList of LongLat representing the fixture landmarks */
+    private ArrayList<LongLat> landmarks;
+
+    /** OccupancyGrid of the fixture no-fly zones, or null if it is not used */
+    private OccupancyGrid occupancyGrid;
+
+    /** LongLat representing the destination of the leg */
+    private LongLat destination;
+
+
+    /**
+     * Method that loads the fixtures and picks the destination of the benchmarked leg.
+     */
+    @Setup
+    public void setUp() {
+        noFlyZonesPoints = BenchmarkFixtures.getNoFlyZonesPoints();
+        landmarks = BenchmarkFixtures.getLandmarks();
+        if (useOccupancyGrid) {
+            occupancyGrid = new OccupancyGrid(noFlyZonesPoints);
+        }
+        switch (leg) {
+            case "direct":
+                destination = BenchmarkFixtures.DIRECT_DESTINATION;
+                break;
+            case "landmark":
+                destination = BenchmarkFixtures.LANDMARK_DESTINATION;
+                break;
+            default:
+                destination = BenchmarkFixtures.UNREACHABLE_DESTINATION;
+        }
+    }
+
+    @Benchmark
+    public ArrayList<LongLat> travelToDestination() {
+        PathFinder pathFinder = new PathFinder(noFlyZonesPoints, landmarks, occupancyGrid);
+        return pathFinder.travelToDestination(Drone.APPLETON_TOWER_COORDINATES, destination, new ArrayList<>());
+    }
+}
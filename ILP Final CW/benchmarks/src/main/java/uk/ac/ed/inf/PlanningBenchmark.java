@@ -0,0 +1,73 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class with the benchmarks of a single round of the greedy selection made by {@link Drone#getNextOrder}, which
+ * computes the legs of every remaining order from the current location of the drone. Every invocation uses a drone
+ * with a new PathFinder, so that the legs are computed and not read from the cache of legs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlanningBenchmark {
+
+    /** Integer representing the number of remaining orders the next order is chosen from */
+    @Param({"10", "25", "50"})
+    public int numberOfOrders;
+
+    /** ArrayList of ArrayList of LongLat representing the borders of the fixture no-fly zones */
+    private ArrayList<ArrayList<LongLat>> noFlyZonesPoints;
+
+    /** ArrayList of LongLat representing the fixture landmarks */
+    private ArrayList<LongLat> landmarks;
+
+    /** ArrayList of OrderDetails representing the remaining orders */
+    private ArrayList<OrderDetails> remainingOrders;
+
+    /** Drone whose next order is chosen, with a PathFinder that has not computed any of the benchmarked legs */
+    private Drone drone;
+
+
+    /**
+     * Method that loads the fixtures and generates the remaining orders.
+     */
+    @Setup(Level.Trial)
+    public void setUpOrders() {
+        noFlyZonesPoints = BenchmarkFixtures.getNoFlyZonesPoints();
+        landmarks = BenchmarkFixtures.getLandmarks();
+        remainingOrders = BenchmarkFixtures.getOrders(numberOfOrders, new PathFinder(noFlyZonesPoints, landmarks));
+    }
+
+    /**
+     * Method that creates, before every invocation, a drone planning a single order with a new PathFinder.
+     */
+    @Setup(Level.Invocation)
+    public void setUpDrone() {
+        ArrayList<OrderDetails> firstOrder = new ArrayList<>(List.of(remainingOrders.get(0)));
+        drone = new Drone(firstOrder, new PathFinder(noFlyZonesPoints, landmarks));
+    }
+
+    @Benchmark
+    public OrderDetails getNextOrder() {
+        return drone.getNextOrder(Drone.APPLETON_TOWER_COORDINATES, remainingOrders);
+    }
+}
@@ -1,7 +1,11 @@
 package uk.ac.ed.inf;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This is the main class of the java application.
@@ -18,16 +22,94 @@ public class App
     /** String representing the machine name */
     private static final String machineName  = "localhost";
 
+    /** Path representing the folder the inputs are read from instead of the web server and the database, or null if
+     * they are read from the web server and the database */
+    private static Path offlineFolder = null;
+
     /** String representing the machine name */
     private static final String DATE_SEPARATOR = "-";
 
+    /** Integer representing the number of positional arguments, after which the optional arguments are given */
+    private static final int NUMBER_OF_POSITIONAL_ARGUMENTS = 5;
+
+    /** String representing the optional argument that validates the movements using an {@link OccupancyGrid} */
+    static final String OCCUPANCY_GRID_OPTION = "--occupancy-grid";
+
+    /** String representing the optional argument, followed by a folder, that reads the inputs from that folder */
+    static final String OFFLINE_OPTION = "--offline";
+
+    /** String representing the optional argument, followed by a file, that writes a snapshot of the metrics to it */
+    static final String METRICS_OPTION = "--metrics";
+
+    /** String representing the optional argument, followed by the number of items the drone can carry, that groups the
+     * orders sharing a restaurant into tours */
+    static final String CONSOLIDATE_OPTION = "--consolidate";
+
+    /** String representing the optional argument, followed by a number, that limits the stops of every tour */
+    static final String MAXIMUM_STOPS_OPTION = "--max-stops";
+
+    /** String representing the optional argument, followed by a file, that keeps the legs flown in a {@link LegStore}
+     * from one run to the next */
+    static final String LEG_STORE_OPTION = "--leg-store";
+
+    /** String representing the optional argument, followed by a folder, that restores the plan of a day from a
+     * {@link PlanCache} when none of its inputs has changed */
+    static final String PLAN_CACHE_OPTION = "--plan-cache";
+
+    /** String representing the optional argument that resolves the locations and the menus of the orders with
+     * concurrent I/O tasks, each with a timeout. The tasks run on virtual threads only when the Java runtime has them
+     * (JDK 21 and later), as they are looked up by reflection; on the JDK 17 the application is built with, they run
+     * on a cached thread pool */
+    static final String VIRTUAL_IO_OPTION = "--virtual-io";
+
+    /** String representing the optional argument, followed by a number of seconds, that sets the timeout of every I/O
+     * task of {@value VIRTUAL_IO_OPTION} */
+    static final String IO_TIMEOUT_OPTION = "--io-timeout";
+
+    /** Integer representing the default number of seconds every I/O task of {@value VIRTUAL_IO_OPTION} may run for */
+    private static final int DEFAULT_IO_TIMEOUT_SECONDS = 10;
+
+    /** String representing the optional argument, followed by a folder, that keeps the no-fly zones, the landmarks and
+     * the menus in an {@link HttpCache} and only downloads them again when they have changed */
+    static final String HTTP_CACHE_OPTION = "--http-cache";
+
+    /** HttpCache the resources of the web server that change rarely are kept in, or null if they are always
+     * downloaded */
+    private static HttpCache httpCache = null;
+
+    /** Duration representing the time every I/O task may run for, or null if the I/O tasks run one at a time on the
+     * thread that needs them, without a timeout */
+    private static Duration ioTimeout = null;
+
+    /** List of the optional arguments of the application that are given on their own */
+    private static final List<String> FLAG_OPTIONS = List.of(OCCUPANCY_GRID_OPTION, VIRTUAL_IO_OPTION);
+
+    /** List of the optional arguments of the application that are followed by a value */
+    private static final List<String> VALUE_OPTIONS = List.of(OFFLINE_OPTION, METRICS_OPTION, CONSOLIDATE_OPTION,
+            MAXIMUM_STOPS_OPTION, LEG_STORE_OPTION, PLAN_CACHE_OPTION, IO_TIMEOUT_OPTION, HTTP_CACHE_OPTION);
+
 
     /**
      * Main method that takes as user inputs 5 different values: the day, month, and the year, the web server port
      * number and the database port number, and outputs a .geojson file detailing the deliveries of the drone for that
-     * given day and two databases logging the relevant information about the drone’s path.
+     * given day and two databases logging the relevant information about the drone’s path. The optional argument
+     * {@value OCCUPANCY_GRID_OPTION} can be given after the 5 values to validate the movements of the drone using a
+     * precomputed {@link OccupancyGrid} of the no-fly zones, and {@value OFFLINE_OPTION} followed by a folder can be given
+     * to read the inputs from that folder, laid out as the web server with an extra database folder, instead of the web
+     * server and the database. {@value METRICS_OPTION} followed by a file writes a snapshot of the {@link PlanningMetrics}
+     * to that file once the day is planned. {@value CONSOLIDATE_OPTION} followed by the number of items the drone can
+     * carry groups the orders sharing a restaurant into tours, with at most
+     * {@value ConsolidationSettings#DEFAULT_MAXIMUM_STOPS} stops each unless {@value MAXIMUM_STOPS_OPTION} is given.
+     * {@value LEG_STORE_OPTION} followed by a file reads the legs flown by previous runs from that file, and adds the
+     * legs flown by this run to it. {@value PLAN_CACHE_OPTION} followed by a folder restores the plan of the day from
+     * that folder if it was planned before from the same inputs, and stores the plan there otherwise.
+     * {@value VIRTUAL_IO_OPTION} resolves the locations and the menus of the orders with concurrent I/O tasks, which
+     * run on virtual threads on JDK 21 and later and on a cached thread pool otherwise, and gives every request to the web server and every query to the database a timeout of
+     * {@value DEFAULT_IO_TIMEOUT_SECONDS} seconds, or of the number of seconds following {@value IO_TIMEOUT_OPTION}.
+     * {@value HTTP_CACHE_OPTION} followed by a folder keeps the no-fly zones, the landmarks and the menus in that folder,
+     * and only downloads them again when the web server reports that they have changed.
      * @param args the arguments given by the user, should be 5 integers representing the day, month, and the year, the
-     *             web server port number and the database port number
+     *             web server port number and the database port number, followed by the optional arguments
      * @throws IOException if an I/O exception occurs
      * @throws InterruptedException if the process was interrupted.
      */
@@ -42,6 +124,13 @@ public class App
 
         setDatabasePort(databasePort);
         setWebServerPort(webServerPort);
+        checkOptions(args, NUMBER_OF_POSITIONAL_ARGUMENTS, FLAG_OPTIONS, VALUE_OPTIONS);
+        String offlineFolder = getOptionValue(args, OFFLINE_OPTION);
+        if (offlineFolder != null) {
+            setOfflineFolder(Paths.get(offlineFolder));
+        }
+        setIoMode(hasOption(args, VIRTUAL_IO_OPTION), getOptionValue(args, IO_TIMEOUT_OPTION));
+        setHttpCache(openHttpCache(getOptionValue(args, HTTP_CACHE_OPTION)));
 
         String date = buildDate(day, month, year);
 
@@ -53,16 +142,40 @@ public class App
         NoFlyZones noFlyZones = HTTPClient.getNoFlyZones();
         ArrayList<ArrayList<LongLat>> noFlyZonesPoints = noFlyZones.getNoFlyZonesPoints();
 
-        Drone drone = new Drone(listOrderDetails, noFlyZonesPoints);
+        boolean useOccupancyGrid = hasOption(args, OCCUPANCY_GRID_OPTION);
+        PathFinder pathFinder = PathFinder.forZones(noFlyZonesPoints, HTTPClient.getLandmarks(), useOccupancyGrid);
+        LegStore legStore = openLegStore(getOptionValue(args, LEG_STORE_OPTION));
+        pathFinder.setLegStore(legStore);
+
+        Drone drone = planOrRestore(listOrderDetails, pathFinder, getConsolidationSettings(
+                getOptionValue(args, CONSOLIDATE_OPTION), getOptionValue(args, MAXIMUM_STOPS_OPTION)),
+                openPlanCache(getOptionValue(args, PLAN_CACHE_OPTION)));
 
 
         System.out.println("The sample monetary value is:");
         System.out.println(drone.getPercentageMonetaryValue());
+        boolean validRoute = FlightPathValidator.validatePlan(drone, date);
 
 
-        OutputFiles.writeGeoJSONFile(day, month, year, drone);
-        Database.writeDatabaseTableDeliveries(drone.getOrderDetailsToDo());
-        Database.writeDatabaseTableFlightpath(drone.getRoute(), drone.getOrderNumbers(), drone.getAngles());
+        if (validRoute) {
+            OutputFiles.writeGeoJSONFile(day, month, year, drone);
+            database.writeDatabaseTableDeliveries(drone.getOrderDetailsToDo());
+            database.writeDatabaseTableFlightpath(drone.getRoute(), drone.getOrderNumbers(), drone.getAngles());
+        } else {
+            System.err.println("The route for " + date + " is not valid, so it is not written");
+        }
+        database.close();
+
+        String metricsFile = getOptionValue(args, METRICS_OPTION);
+        if (metricsFile != null) {
+            PlanningMetrics.writeSnapshot(metricsFile);
+        }
+        if (legStore != null) {
+            legStore.close();
+        }
+        if (!validRoute) {
+            System.exit(1);
+        }
 
 
 
@@ -84,6 +197,219 @@ public class App
     }
 
 
+    /**
+     * Method that sets the I/O mode from the {@value VIRTUAL_IO_OPTION} and {@value IO_TIMEOUT_OPTION} optional
+     * arguments.
+     * @param virtualIo true if {@value VIRTUAL_IO_OPTION} was given.
+     * @param timeoutSeconds the value of {@value IO_TIMEOUT_OPTION}, or null if it was not given.
+     * @throws IllegalArgumentException if the timeout is not a positive whole number of seconds.
+     */
+    static void setIoMode(boolean virtualIo, String timeoutSeconds) {
+        int seconds = timeoutSeconds == null ? DEFAULT_IO_TIMEOUT_SECONDS
+                : getPositiveValue(IO_TIMEOUT_OPTION, timeoutSeconds);
+        if (virtualIo) {
+            ioTimeout = Duration.ofSeconds(seconds);
+        }
+    }
+
+    /**
+     * Method that builds the consolidation settings from the values of the {@value CONSOLIDATE_OPTION} and
+     * {@value MAXIMUM_STOPS_OPTION} optional arguments.
+     * @param capacity the value of {@value CONSOLIDATE_OPTION}, or null if it was not given.
+     * @param maximumStops the value of {@value MAXIMUM_STOPS_OPTION}, or null if it was not given.
+     * @return the ConsolidationSettings, or null if the orders are done one at a time.
+     */
+    static ConsolidationSettings getConsolidationSettings(String capacity, String maximumStops) {
+        if (capacity == null) {
+            return null;
+        }
+        return new ConsolidationSettings(Integer.parseInt(capacity),
+                maximumStops == null ? ConsolidationSettings.DEFAULT_MAXIMUM_STOPS : Integer.parseInt(maximumStops));
+    }
+
+    /**
+     * Method that opens the LegStore given with the {@value LEG_STORE_OPTION} optional argument. A store that can not
+     * be opened is reported and not used, as the legs can always be flown again.
+     * @param file the value of {@value LEG_STORE_OPTION}, or null if it was not given.
+     * @return the LegStore of the file, or null if it was not given or could not be opened.
+     */
+    static LegStore openLegStore(String file) {
+        if (file == null) {
+            return null;
+        }
+        try {
+            return LegStore.open(Paths.get(file));
+        } catch (IOException e) {
+            System.err.println("The leg store " + file + " could not be opened, so every leg is flown again");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Method that opens the PlanCache given with the {@value PLAN_CACHE_OPTION} optional argument. A cache that can not
+     * be opened is reported and not used, as the day can always be planned again.
+     * @param folder the value of {@value PLAN_CACHE_OPTION}, or null if it was not given.
+     * @return the PlanCache of the folder, or null if it was not given or could not be opened.
+     */
+    static PlanCache openPlanCache(String folder) {
+        if (folder == null) {
+            return null;
+        }
+        try {
+            return new PlanCache(Paths.get(folder));
+        } catch (IOException e) {
+            System.err.println("The plan cache " + folder + " could not be opened, so the day is planned again");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Method that opens the HttpCache given with the {@value HTTP_CACHE_OPTION} optional argument. A cache that can not
+     * be opened is reported and not used, as the resources can always be downloaded again.
+     * @param folder the value of {@value HTTP_CACHE_OPTION}, or null if it was not given.
+     * @return the HttpCache of the folder, or null if it was not given or could not be opened.
+     */
+    static HttpCache openHttpCache(String folder) {
+        if (folder == null) {
+            return null;
+        }
+        try {
+            return new HttpCache(Paths.get(folder));
+        } catch (IOException e) {
+            System.err.println("The HTTP cache " + folder + " could not be opened, so the resources are downloaded");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Method that restores the plan of the given orders from the given PlanCache if it was planned before from the same
+     * inputs, and plans the orders and stores their plan in the cache otherwise.
+     * @param listOrderDetails the orders of the day, with their prices and locations already resolved.
+     * @param pathFinder the PathFinder of the no-fly zones and landmarks of the day.
+     * @param consolidation the consolidation settings of the plan, or null if the orders are done one at a time.
+     * @param planCache the PlanCache, or null if every day is planned.
+     * @return the Drone with the plan of the day.
+     */
+    static Drone planOrRestore(ArrayList<OrderDetails> listOrderDetails, PathFinder pathFinder,
+                               ConsolidationSettings consolidation, PlanCache planCache) {
+        if (planCache == null) {
+            return new Drone(listOrderDetails, pathFinder, consolidation);
+        }
+        String inputHash = PlanCache.getInputHash(listOrderDetails, pathFinder, consolidation);
+        Drone drone = planCache.load(inputHash, listOrderDetails, pathFinder);
+        if (drone == null) {
+            drone = new Drone(listOrderDetails, pathFinder, consolidation);
+            planCache.store(inputHash, drone);
+        }
+        return drone;
+    }
+
+    /**
+     * Method that checks that every argument from the given index on is one of the given optional arguments, so that a
+     * mistyped option is reported instead of being ignored or read as another argument. The entry points of the
+     * application check their optional arguments with this method before reading them with
+     * {@link #hasOption(String[], int, String)} and {@link #getOptionValue(String[], int, String)}.
+     * @param args the arguments given by the user.
+     * @param firstOption the index of the first optional argument, after the positional arguments.
+     * @param flagOptions the optional arguments that are given on their own.
+     * @param valueOptions the optional arguments that are followed by a value.
+     * @throws IllegalArgumentException if an argument is not one of the optional arguments, or if an optional argument
+     * that takes a value is the last argument.
+     */
+    static void checkOptions(String[] args, int firstOption, List<String> flagOptions, List<String> valueOptions) {
+        for (int i = firstOption; i < args.length; i++) {
+            if (valueOptions.contains(args[i])) {
+                if (i == args.length - 1) {
+                    throw new IllegalArgumentException("The option " + args[i] + " must be followed by a value");
+                }
+                i++;
+            } else if (!flagOptions.contains(args[i])) {
+                List<String> options = new ArrayList<>(flagOptions);
+                options.addAll(valueOptions);
+                throw new IllegalArgumentException("Unknown option " + args[i] + ", the options are " + options);
+            }
+        }
+    }
+
+    /**
+     * Method that reads the value of the given optional argument as a positive whole number, such as a number of days
+     * or of seconds, for which zero or a negative number has no meaning.
+     * @param option the optional argument.
+     * @param value the value given after the optional argument.
+     * @return the value as a positive int.
+     * @throws IllegalArgumentException if the value is not a whole number, or is smaller than 1.
+     */
+    static int getPositiveValue(String option, String value) {
+        int number;
+        try {
+            number = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            number = 0;
+        }
+        if (number < 1) {
+            throw new IllegalArgumentException("The option " + option + " must be followed by a positive whole number,"
+                    + " not " + value);
+        }
+        return number;
+    }
+
+    /**
+     * Method that checks whether the given optional argument was given after the positional arguments.
+     * @param args the arguments given by the user.
+     * @param firstOption the index of the first optional argument, after the positional arguments.
+     * @param option the optional argument we are looking for.
+     * @return true if the optional argument was given, false otherwise.
+     */
+    static boolean hasOption(String[] args, int firstOption, String option) {
+        for (int i = firstOption; i < args.length; i++) {
+            if (args[i].equals(option)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method that returns the value given after the given optional argument.
+     * @param args the arguments given by the user.
+     * @param firstOption the index of the first optional argument, after the positional arguments.
+     * @param option the optional argument we are looking for.
+     * @return the argument following the optional argument, or null if the optional argument was not given.
+     */
+    static String getOptionValue(String[] args, int firstOption, String option) {
+        for (int i = firstOption; i < args.length - 1; i++) {
+            if (args[i].equals(option)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helper method that checks whether the given optional argument was given after the positional arguments of the
+     * application.
+     * @param args the arguments given by the user.
+     * @param option the optional argument we are looking for.
+     * @return true if the optional argument was given, false otherwise.
+     */
+    private static boolean hasOption(String[] args, String option) {
+        return hasOption(args, NUMBER_OF_POSITIONAL_ARGUMENTS, option);
+    }
+
+    /**
+     * Helper method that returns the value given after the given optional argument of the application.
+     * @param args the arguments given by the user.
+     * @param option the optional argument we are looking for.
+     * @return the argument following the optional argument, or null if the optional argument was not given.
+     */
+    private static String getOptionValue(String[] args, String option) {
+        return getOptionValue(args, NUMBER_OF_POSITIONAL_ARGUMENTS, option);
+    }
+
+
     public static void setDatabasePort(String databasePort) {
         App.databasePort = databasePort;
     }
@@ -103,4 +429,24 @@ public class App
     public static String getMachineName() {
         return machineName;
     }
+
+    public static void setOfflineFolder(Path offlineFolder) {
+        App.offlineFolder = offlineFolder;
+    }
+
+    public static Path getOfflineFolder() {
+        return offlineFolder;
+    }
+
+    public static void setHttpCache(HttpCache httpCache) {
+        App.httpCache = httpCache;
+    }
+
+    public static HttpCache getHttpCache() {
+        return httpCache;
+    }
+
+    public static Duration getIoTimeout() {
+        return ioTimeout;
+    }
 }
@@ -0,0 +1,244 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class of the batch entry point of the application, which plans every day of a range of dates in a single run. The
+ * no-fly zones, the landmarks and the menus are only loaded once, and the days are planned in parallel while sharing
+ * the menus, the What3Words locations and the legs computed by the {@link PathFinder}.
+ */
+public class BatchApp {
+
+    /** String representing the separator between the name of a per-day output table and the date of the day */
+    private static final String TABLE_DATE_SEPARATOR = "_";
+
+    /** Integer returned by {@link #planDay} for a day whose route is not valid, and which is not written */
+    private static final int INVALID_DAY = -1;
+
+    /** String representing the optional argument that plans the days through a {@link DayPipeline}, so that the loading,
+     * the planning and the writing of different days overlap */
+    private static final String PIPELINE_OPTION = "--pipeline";
+
+    /** String representing the optional argument, followed by a file, that checkpoints the progress of the run to that
+     * file and resumes the run from it */
+    private static final String CHECKPOINT_OPTION = "--checkpoint";
+
+    /** String representing the optional argument, followed by a number of seconds, that sets the minimum time between
+     * two checkpoints */
+    private static final String CHECKPOINT_SECONDS_OPTION = "--checkpoint-seconds";
+
+    /** Integer representing the default minimum number of seconds between two checkpoints */
+    private static final int DEFAULT_CHECKPOINT_SECONDS = 30;
+
+    /** Integer representing the number of positional arguments, after which the number of threads and the optional
+     * arguments are given */
+    private static final int NUMBER_OF_POSITIONAL_ARGUMENTS = 4;
+
+    /** String representing the start of every optional argument, which tells them apart from the number of threads */
+    private static final String OPTION_PREFIX = "--";
+
+    /** List of the optional arguments of the batch runner that are given on their own */
+    private static final List<String> FLAG_OPTIONS = List.of(App.OCCUPANCY_GRID_OPTION, PIPELINE_OPTION,
+            App.VIRTUAL_IO_OPTION);
+
+    /** List of the optional arguments of the batch runner that are followed by a value */
+    private static final List<String> VALUE_OPTIONS = List.of(App.OFFLINE_OPTION, App.METRICS_OPTION,
+            App.CONSOLIDATE_OPTION, App.MAXIMUM_STOPS_OPTION, App.LEG_STORE_OPTION, App.PLAN_CACHE_OPTION,
+            CHECKPOINT_OPTION, CHECKPOINT_SECONDS_OPTION, App.IO_TIMEOUT_OPTION, App.HTTP_CACHE_OPTION);
+
+
+    /**
+     * Main method that takes as user inputs the first and the last date of the range of dates to plan, in format
+     * YYYY-MM-DD, the web server port number and the database port number, and optionally the number of days planned
+     * at the same time. For every day of the range with orders, it outputs the same .geojson file as {@link App} and
+     * the tables deliveries_YYYYMMDD and flightpath_YYYYMMDD.
+     * @param args the arguments given by the user: the first date, the last date, the web server port number, the
+     *             database port number, and optionally the number of threads right after them, {@value App#OCCUPANCY_GRID_OPTION},
+     *             {@value App#OFFLINE_OPTION} followed by the folder the inputs are read from, and
+     *             {@value App#METRICS_OPTION} followed by the file the snapshot of the metrics is written to, and
+     *             {@value App#CONSOLIDATE_OPTION} and {@value App#MAXIMUM_STOPS_OPTION} followed by the capacity of
+     *             the drone and the maximum number of stops of a tour, and {@value App#LEG_STORE_OPTION} followed by
+     *             the file the legs are kept in from one run to the next, and {@value App#PLAN_CACHE_OPTION} followed
+     *             by the folder the plans are restored from and stored in, and {@value PIPELINE_OPTION} to plan the
+     *             days through a {@link DayPipeline}, and {@value CHECKPOINT_OPTION} followed by the file the
+     *             {@link BatchCheckpoint} of the run is written to and resumed from, at most every
+     *             {@value CHECKPOINT_SECONDS_OPTION} seconds, and {@value App#VIRTUAL_IO_OPTION} and
+     *             {@value App#IO_TIMEOUT_OPTION} and {@value App#HTTP_CACHE_OPTION} as for {@link App}.
+     * @throws IOException if an I/O exception occurs
+     * @throws InterruptedException if the process was interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LocalDate firstDate = LocalDate.parse(args[0]);
+        LocalDate lastDate = LocalDate.parse(args[1]);
+        App.setWebServerPort(args[2]);
+        App.setDatabasePort(args[3]);
+
+        int numberOfThreads = Runtime.getRuntime().availableProcessors();
+        int firstOption = NUMBER_OF_POSITIONAL_ARGUMENTS;
+        if (args.length > firstOption && !args[firstOption].startsWith(OPTION_PREFIX)) {
+            numberOfThreads = Integer.parseInt(args[firstOption]);
+            firstOption++;
+        }
+        App.checkOptions(args, firstOption, FLAG_OPTIONS, VALUE_OPTIONS);
+        String offlineFolder = App.getOptionValue(args, firstOption, App.OFFLINE_OPTION);
+        if (offlineFolder != null) {
+            App.setOfflineFolder(Paths.get(offlineFolder));
+        }
+        boolean useOccupancyGrid = App.hasOption(args, firstOption, App.OCCUPANCY_GRID_OPTION);
+        String metricsFile = App.getOptionValue(args, firstOption, App.METRICS_OPTION);
+        String capacity = App.getOptionValue(args, firstOption, App.CONSOLIDATE_OPTION);
+        String maximumStops = App.getOptionValue(args, firstOption, App.MAXIMUM_STOPS_OPTION);
+        String legStoreFile = App.getOptionValue(args, firstOption, App.LEG_STORE_OPTION);
+        String planCacheFolder = App.getOptionValue(args, firstOption, App.PLAN_CACHE_OPTION);
+        boolean usePipeline = App.hasOption(args, firstOption, PIPELINE_OPTION);
+        String checkpointFile = App.getOptionValue(args, firstOption, CHECKPOINT_OPTION);
+        String checkpointSeconds = App.getOptionValue(args, firstOption, CHECKPOINT_SECONDS_OPTION);
+        String httpCacheFolder = App.getOptionValue(args, firstOption, App.HTTP_CACHE_OPTION);
+
+        App.setIoMode(App.hasOption(args, firstOption, App.VIRTUAL_IO_OPTION),
+                App.getOptionValue(args, firstOption, App.IO_TIMEOUT_OPTION));
+        App.setHttpCache(App.openHttpCache(httpCacheFolder));
+        long startTime = System.nanoTime();
+
+        // The inputs shared by every day are loaded once, before planning any day
+        Database database = new Database();
+        NoFlyZones noFlyZones = HTTPClient.getNoFlyZones();
+        PathFinder pathFinder = PathFinder.forZones(noFlyZones.getNoFlyZonesPoints(), HTTPClient.getLandmarks(),
+                useOccupancyGrid);
+        LegStore legStore = App.openLegStore(legStoreFile);
+        pathFinder.setLegStore(legStore);
+        new Menus(App.getMachineName(), App.getWebServerPort());
+        ConsolidationSettings consolidation = App.getConsolidationSettings(capacity, maximumStops);
+        PlanCache planCache = App.openPlanCache(planCacheFolder);
+        long checkpointMillis = 1000L * (checkpointSeconds == null ? DEFAULT_CHECKPOINT_SECONDS
+                : Integer.parseInt(checkpointSeconds));
+        BatchCheckpoint checkpoint = checkpointFile == null ? null : BatchCheckpoint.open(Paths.get(checkpointFile),
+                firstDate, lastDate, pathFinder, consolidation, checkpointMillis);
+
+        int numberOfPlannedDays = 0;
+        AtomicInteger numberOfInvalidDays = new AtomicInteger();
+        int numberOfFailedDays = 0;
+        if (usePipeline) {
+            DayPipeline pipeline = new DayPipeline(database, pathFinder, consolidation, planCache, checkpoint,
+                    numberOfThreads);
+            numberOfPlannedDays = pipeline.run(firstDate, lastDate);
+            numberOfInvalidDays.set(pipeline.getNumberOfInvalidDays());
+            numberOfFailedDays = pipeline.getNumberOfFailedDays();
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+            List<Future<Integer>> plannedDays = new ArrayList<>();
+            for (LocalDate date = firstDate; !date.isAfter(lastDate); date = date.plusDays(1)) {
+                if (checkpoint != null && checkpoint.isCompleted(date)) {
+                    continue;
+                }
+                LocalDate dayToPlan = date;
+                plannedDays.add(executor.submit(() -> {
+                    int plannedDay = planDay(dayToPlan, database, pathFinder, consolidation, planCache);
+                    if (plannedDay == INVALID_DAY) {
+                        numberOfInvalidDays.incrementAndGet();
+                        return 0;
+                    }
+                    if (checkpoint != null) {
+                        checkpoint.markCompleted(dayToPlan);
+                    }
+                    return plannedDay;
+                }));
+            }
+            executor.shutdown();
+
+            for (Future<Integer> plannedDay : plannedDays) {
+                try {
+                    numberOfPlannedDays += plannedDay.get();
+                } catch (ExecutionException e) {
+                    System.err.println("Planning a day failed, so it is not written");
+                    e.getCause().printStackTrace();
+                    numberOfFailedDays++;
+                }
+            }
+        }
+
+        long elapsedMilliseconds = (System.nanoTime() - startTime) / 1_000_000;
+        System.out.println("Planned " + numberOfPlannedDays + " days in " + elapsedMilliseconds + " ms using "
+                + numberOfThreads + " threads");
+        if (checkpoint != null) {
+            checkpoint.write();
+        }
+        database.close();
+        if (metricsFile != null) {
+            PlanningMetrics.writeSnapshot(metricsFile);
+        }
+        if (legStore != null) {
+            legStore.close();
+        }
+        if (numberOfInvalidDays.get() > 0) {
+            System.err.println(numberOfInvalidDays.get() + " days were not written, as their routes are not valid");
+        }
+        if (numberOfFailedDays > 0) {
+            System.err.println(numberOfFailedDays + " days were not written, as planning or writing them failed");
+        }
+        if (numberOfInvalidDays.get() > 0 || numberOfFailedDays > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Method that plans the given day and writes its outputs: the .geojson file and the per-day deliveries and
+     * flightpath tables.
+     * @param date the date of the day to plan.
+     * @param database the Database from which we read the orders and to which we write the tables.
+     * @param pathFinder the PathFinder shared by every day.
+     * @param consolidation the limits of the tours serving several orders at once, or null to do the orders one at a
+     *                      time.
+     * @param planCache the PlanCache the plan of the day is restored from or stored in, or null to plan every day.
+     * @return 1 if the day had orders and was planned, {@value INVALID_DAY} if its route is not valid and it was not
+     * written, 0 otherwise.
+     * @throws IOException if the .geojson file could not be written.
+     */
+    private static int planDay(LocalDate date, Database database, PathFinder pathFinder,
+                               ConsolidationSettings consolidation, PlanCache planCache) throws IOException {
+        ArrayList<OrderDetails> listOrderDetails = database.getOrderDetails(date.toString());
+        if (listOrderDetails.isEmpty()) {
+            System.out.println("There are no orders for " + date);
+            return 0;
+        }
+        OrderDetails.setOrderDetailsFields(listOrderDetails);
+
+        Drone drone = App.planOrRestore(listOrderDetails, pathFinder, consolidation, planCache);
+        System.out.println("The sample monetary value for " + date + " is: " + drone.getPercentageMonetaryValue());
+        if (!FlightPathValidator.validatePlan(drone, date.toString())) {
+            System.err.println("The route for " + date + " is not valid, so it is not written");
+            return INVALID_DAY;
+        }
+        writeDay(date, drone, database);
+        return 1;
+    }
+
+    /**
+     * Method that writes the outputs of the given planned day: the .geojson file and the per-day deliveries and
+     * flightpath tables.
+     * @param date the date of the day.
+     * @param drone the drone with the plan of the day.
+     * @param database the Database to which we write the tables.
+     * @throws IOException if the .geojson file could not be written.
+     */
+    static void writeDay(LocalDate date, Drone drone, Database database) throws IOException {
+        String day = String.format("%02d", date.getDayOfMonth());
+        String month = String.format("%02d", date.getMonthValue());
+        String year = String.valueOf(date.getYear());
+        String tableSuffix = TABLE_DATE_SEPARATOR + year + month + day;
+
+        OutputFiles.writeGeoJSONFile(day, month, year, drone);
+        database.writeDatabaseTableDeliveries(drone.getOrderDetailsToDo(), Database.DELIVERIES_TABLE + tableSuffix);
+        database.writeDatabaseTableFlightpath(drone.getRoute(), drone.getOrderNumbers(), drone.getAngles(),
+                Database.FLIGHTPATH_TABLE + tableSuffix);
+    }
+}
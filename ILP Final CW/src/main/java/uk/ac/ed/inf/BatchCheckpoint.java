@@ -0,0 +1,201 @@
+package uk.ac.ed.inf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Class that represents the checkpoint of a {@link BatchApp} run, written to a small binary file every few seconds so
+ * that a run that crashed resumes where it stopped instead of planning the whole range again. The checkpoint holds the
+ * dates whose outputs are already written and the What3Words locations resolved so far, and is only resumed by a run
+ * over the same range of dates, no-fly zones, landmarks and consolidation settings. Every file is written to a
+ * temporary file first and then moved in place, so that a checkpoint cut short by a crash is never read.
+ */
+public class BatchCheckpoint {
+
+    /** Integer written at the start of the file to recognise it as a checkpoint */
+    private static final int MAGIC = 0x43484B50;
+
+    /** Integer representing the version of the layout of the file, which is not resumed if it has another version */
+    private static final int VERSION = 1;
+
+    /** String representing the suffix of the name of the temporary file every checkpoint is written to */
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    /** Path representing the file of the checkpoint */
+    private final Path file;
+
+    /** LocalDate representing the first date of the range of the run */
+    private final LocalDate firstDate;
+
+    /** LocalDate representing the last date of the range of the run */
+    private final LocalDate lastDate;
+
+    /** Long representing the fingerprint of the no-fly zones, the landmarks and the way of validating the movements */
+    private final long zonesFingerprint;
+
+    /** Integers representing the capacity and the maximum number of stops of the tours, or -1 if the orders are done
+     * one at a time */
+    private final int capacity;
+    private final int maximumStops;
+
+    /** Long representing the minimum number of milliseconds between two writes of the checkpoint */
+    private final long intervalMillis;
+
+    /** Set of the dates whose outputs are written */
+    private final Set<LocalDate> completedDates = new ConcurrentSkipListSet<>();
+
+    /** Long representing the time the checkpoint was last written, as given by {@link System#currentTimeMillis()} */
+    private long lastWriteMillis = System.currentTimeMillis();
+
+
+    /**
+     * Constructor of the BatchCheckpoint class.
+     * @param file the file of the checkpoint.
+     * @param firstDate the first date of the range of the run.
+     * @param lastDate the last date of the range of the run.
+     * @param pathFinder the PathFinder of the no-fly zones and landmarks of the run.
+     * @param consolidation the consolidation settings of the run, or null if the orders are done one at a time.
+     * @param intervalMillis the minimum number of milliseconds between two writes of the checkpoint.
+     */
+    private BatchCheckpoint(Path file, LocalDate firstDate, LocalDate lastDate, PathFinder pathFinder,
+                            ConsolidationSettings consolidation, long intervalMillis) {
+        this.file = file;
+        this.firstDate = firstDate;
+        this.lastDate = lastDate;
+        this.zonesFingerprint = LegStore.getFingerprint(pathFinder.getNoFlyZonesPoints(), pathFinder.getLandmarks(),
+                pathFinder.getOccupancyGrid() != null);
+        this.capacity = consolidation == null ? -1 : consolidation.getCapacity();
+        this.maximumStops = consolidation == null ? -1 : consolidation.getMaximumStops();
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Method that opens the checkpoint of the given file for a run over the given range and inputs. If the file holds the
+     * checkpoint of a run over the same range and inputs, its completed dates are resumed and its What3Words locations
+     * are added to the cache of the {@link HTTPClient}. Otherwise the run starts from scratch, and the file is written
+     * again at its first checkpoint.
+     * @param file the file of the checkpoint.
+     * @param firstDate the first date of the range of the run.
+     * @param lastDate the last date of the range of the run.
+     * @param pathFinder the PathFinder of the no-fly zones and landmarks of the run.
+     * @param consolidation the consolidation settings of the run, or null if the orders are done one at a time.
+     * @param intervalMillis the minimum number of milliseconds between two writes of the checkpoint.
+     * @return the BatchCheckpoint of the run.
+     */
+    public static BatchCheckpoint open(Path file, LocalDate firstDate, LocalDate lastDate, PathFinder pathFinder,
+                                       ConsolidationSettings consolidation, long intervalMillis) {
+        BatchCheckpoint checkpoint = new BatchCheckpoint(file, firstDate, lastDate, pathFinder, consolidation,
+                intervalMillis);
+        if (!Files.exists(file)) {
+            return checkpoint;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println(file + " is not a checkpoint of this version, so the run starts from scratch");
+                return checkpoint;
+            }
+            if (in.readLong() != firstDate.toEpochDay() || in.readLong() != lastDate.toEpochDay()
+                    || in.readLong() != checkpoint.zonesFingerprint || in.readInt() != checkpoint.capacity
+                    || in.readInt() != checkpoint.maximumStops) {
+                System.err.println(file + " is the checkpoint of another run, so the run starts from scratch");
+                return checkpoint;
+            }
+            int numberOfCompletedDates = in.readInt();
+            for (int i = 0; i < numberOfCompletedDates; i++) {
+                checkpoint.completedDates.add(LocalDate.ofEpochDay(in.readLong()));
+            }
+            int numberOfLocations = in.readInt();
+            Map<String, LongLat> locations = new HashMap<>();
+            for (int i = 0; i < numberOfLocations; i++) {
+                locations.put(in.readUTF(), new LongLat(in.readDouble(), in.readDouble()));
+            }
+            HTTPClient.addWhat3WordsLocations(locations);
+            System.out.println("Resuming " + file + ", which has " + numberOfCompletedDates + " completed dates");
+        } catch (IOException e) {
+            System.err.println("The checkpoint " + file + " could not be read, so the run starts from scratch");
+            e.printStackTrace();
+            checkpoint.completedDates.clear();
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Method that checks whether the outputs of the given date were written before the checkpoint was resumed or since.
+     * @param date the date.
+     * @return true if the date is done, false otherwise.
+     */
+    public boolean isCompleted(LocalDate date) {
+        return completedDates.contains(date);
+    }
+
+    /**
+     * Method that records that the outputs of the given date are written, and writes the checkpoint if it was not
+     * written for longer than the interval of the checkpoint.
+     * @param date the date.
+     */
+    public void markCompleted(LocalDate date) {
+        completedDates.add(date);
+        synchronized (this) {
+            if (System.currentTimeMillis() - lastWriteMillis < intervalMillis) {
+                return;
+            }
+        }
+        write();
+    }
+
+    /**
+     * Method that writes the checkpoint to its file. A checkpoint that can not be written is reported, and the run
+     * goes on.
+     */
+    public synchronized void write() {
+        lastWriteMillis = System.currentTimeMillis();
+        Path temporaryFile = file.resolveSibling(file.getFileName() + TEMPORARY_FILE_SUFFIX);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(firstDate.toEpochDay());
+                out.writeLong(lastDate.toEpochDay());
+                out.writeLong(zonesFingerprint);
+                out.writeInt(capacity);
+                out.writeInt(maximumStops);
+                // The set is concurrent, so it is copied once so that its size matches the dates written
+                LocalDate[] dates = completedDates.toArray(new LocalDate[0]);
+                out.writeInt(dates.length);
+                for (LocalDate date : dates) {
+                    out.writeLong(date.toEpochDay());
+                }
+                Map<String, LongLat> locations = HTTPClient.getWhat3WordsLocations();
+                out.writeInt(locations.size());
+                for (Map.Entry<String, LongLat> location : locations.entrySet()) {
+                    out.writeUTF(location.getKey());
+                    out.writeDouble(location.getValue().getLongitude());
+                    out.writeDouble(location.getValue().getLatitude());
+                }
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("The checkpoint " + file + " could not be written");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Getter method for the number of dates whose outputs are written.
+     * @return the number of dates done.
+     */
+    public int getNumberOfCompletedDates() {
+        return completedDates.size();
+    }
+}
@@ -0,0 +1,161 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+
+/**
+ * Class that represents the connected components of the free space of the confinement area. The confinement area is
+ * divided into the cells of an {@link OccupancyGrid}, a cell is blocked if it lies fully inside a no-fly zone, and
+ * every other cell is labelled, with a flood fill, with the component of the free cells it is connected to. Any flight
+ * between two points crosses a chain of neighbouring cells that are not blocked, so two points in different components
+ * can not be joined by any flight, and legs between them are known to be unreachable without simulating a single
+ * move.
+ */
+public class ConnectivityMap {
+
+    /** Integer representing the component of the blocked cells */
+    private static final int BLOCKED = -1;
+
+    /** Integer representing the component of the cells that have not been labelled yet */
+    private static final int UNLABELLED = 0;
+
+    /** Integer representing the number of columns of the grid, going from west to east */
+    private final int columns;
+
+    /** Integer representing the number of rows of the grid, going from south to north */
+    private final int rows;
+
+    /** Array with the component of every cell, or {@value BLOCKED} for the blocked cells */
+    private final int[] components;
+
+    /** Integer representing the number of components of the free space */
+    private int numberOfComponents = 0;
+
+
+    /**
+     * Constructor of the ConnectivityMap class, which labels the components of the free space around the given no-fly
+     * zones.
+     * @param noFlyZonesPoints ArrayList of ArrayList of LongLat representing the coordinates of the points forming the
+     *                         boundaries of the no-fly zones.
+     * @param occupancyGrid the OccupancyGrid of the same no-fly zones, whose cells are labelled.
+     */
+    public ConnectivityMap(ArrayList<ArrayList<LongLat>> noFlyZonesPoints, OccupancyGrid occupancyGrid) {
+        columns = occupancyGrid.getColumns();
+        rows = occupancyGrid.getRows();
+        components = new int[columns * rows];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                // A cell no border crosses lies fully on one side of every border, so its centre tells which side
+                if (!occupancyGrid.isBoundaryCell(column, row) && isInsideNoFlyZone(getCellCentre(column, row), noFlyZonesPoints)) {
+                    components[row * columns + column] = BLOCKED;
+                }
+            }
+        }
+        for (int cell = 0; cell < components.length; cell++) {
+            if (components[cell] == UNLABELLED) {
+                numberOfComponents++;
+                floodFill(cell, numberOfComponents);
+            }
+        }
+    }
+
+    /**
+     * Method that returns false if no flight can join the two given points, because they lie in different components
+     * of the free space. It returns true otherwise, including for points outside the confinement area or inside a no-fly
+     * zone, for which nothing is known.
+     * @param origin the first point.
+     * @param destination the second point.
+     * @return false if the two points can not be joined by any flight, true if they may be.
+     */
+    public boolean mayBeConnected(LongLat origin, LongLat destination) {
+        int originComponent = getComponent(origin);
+        int destinationComponent = getComponent(destination);
+        if (originComponent == BLOCKED || destinationComponent == BLOCKED) {
+            return true;
+        }
+        return originComponent == destinationComponent;
+    }
+
+    public int getNumberOfComponents() {
+        return numberOfComponents;
+    }
+
+
+    /**
+     * Helper method that labels with the given component every cell that is not blocked and is connected to the given
+     * cell, including through the corners of the cells.
+     * @param firstCell the cell the flood fill starts from.
+     * @param component the component the cells are labelled with.
+     */
+    private void floodFill(int firstCell, int component) {
+        int[] queue = new int[components.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = firstCell;
+        components[firstCell] = component;
+        while (head < tail) {
+            int cell = queue[head++];
+            int column = cell % columns;
+            int row = cell / columns;
+            for (int neighbourRow = Math.max(0, row - 1); neighbourRow <= Math.min(rows - 1, row + 1); neighbourRow++) {
+                for (int neighbourColumn = Math.max(0, column - 1); neighbourColumn <= Math.min(columns - 1, column + 1); neighbourColumn++) {
+                    int neighbour = neighbourRow * columns + neighbourColumn;
+                    if (components[neighbour] == UNLABELLED) {
+                        components[neighbour] = component;
+                        queue[tail++] = neighbour;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method that returns the component of the cell containing the given point.
+     * @param point the point.
+     * @return the component of the cell of the point, or {@value BLOCKED} if it is outside the grid or blocked.
+     */
+    private int getComponent(LongLat point) {
+        int column = (int) Math.floor((point.getLongitude() - LongLat.WESTERN_LONGITUDE_CONFINEMENT_LIMIT) / OccupancyGrid.CELL_SIZE);
+        int row = (int) Math.floor((point.getLatitude() - LongLat.SOUTHERN_LATITUDE_CONFINEMENT_LIMIT) / OccupancyGrid.CELL_SIZE);
+        if (column < 0 || column >= columns || row < 0 || row >= rows) {
+            return BLOCKED;
+        }
+        return components[row * columns + column];
+    }
+
+    /**
+     * Helper method that returns the centre of the given cell.
+     * @param column the column of the cell.
+     * @param row the row of the cell.
+     * @return the LongLat of the centre of the cell.
+     */
+    private static LongLat getCellCentre(int column, int row) {
+        return new LongLat(LongLat.WESTERN_LONGITUDE_CONFINEMENT_LIMIT + (column + 0.5) * OccupancyGrid.CELL_SIZE,
+                LongLat.SOUTHERN_LATITUDE_CONFINEMENT_LIMIT + (row + 0.5) * OccupancyGrid.CELL_SIZE);
+    }
+
+    /**
+     * Helper method that checks, by casting a ray to the east, whether the given point is inside any of the no-fly
+     * zones.
+     * @param point the point.
+     * @param noFlyZonesPoints the points forming the boundaries of the no-fly zones.
+     * @return true if the point is inside a no-fly zone, false otherwise.
+     */
+    private static boolean isInsideNoFlyZone(LongLat point, ArrayList<ArrayList<LongLat>> noFlyZonesPoints) {
+        for (ArrayList<LongLat> zone : noFlyZonesPoints) {
+            boolean inside = false;
+            for (int i = 0, j = zone.size() - 1; i < zone.size(); j = i++) {
+                LongLat a = zone.get(i);
+                LongLat b = zone.get(j);
+                if ((a.getLatitude() > point.getLatitude()) != (b.getLatitude() > point.getLatitude())
+                        && point.getLongitude() < (b.getLongitude() - a.getLongitude()) * (point.getLatitude() - a.getLatitude())
+                        / (b.getLatitude() - a.getLatitude()) + a.getLongitude()) {
+                    inside = !inside;
+                }
+            }
+            if (inside) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
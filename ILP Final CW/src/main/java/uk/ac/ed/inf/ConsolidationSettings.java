@@ -0,0 +1,60 @@
+package uk.ac.ed.inf;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class that represents the limits of the consolidation mode of the {@link Drone}, where several orders sharing a
+ * restaurant are served by a single {@link DeliveryTour}: the number of items the drone can carry at the same time, and
+ * the number of stops, restaurants and customers together, a single tour can make.
+ */
+public class ConsolidationSettings {
+
+    /** Integer representing the number of stops of a tour when no maximum is given */
+    public static final int DEFAULT_MAXIMUM_STOPS = 6;
+
+    /** Integer representing the number of items the drone can carry at the same time */
+    private final int capacity;
+
+    /** Integer representing the number of stops, restaurants and customers together, a single tour can make */
+    private final int maximumStops;
+
+
+    /**
+     * Constructor of the ConsolidationSettings class.
+     * @param capacity the number of items the drone can carry at the same time.
+     * @param maximumStops the number of stops, restaurants and customers together, a single tour can make.
+     */
+    public ConsolidationSettings(int capacity, int maximumStops) {
+        this.capacity = capacity;
+        this.maximumStops = maximumStops;
+    }
+
+    /**
+     * Method that returns true if the given orders can be served by a single tour: the drone can carry all of their
+     * items at the same time, and their restaurants and customers do not make more than {@link #maximumStops} stops.
+     * Restaurants and customers shared by several orders are only counted once.
+     * @param orders the orders of the tour.
+     * @return true if the orders fit in a single tour, false otherwise.
+     */
+    public boolean allows(List<OrderDetails> orders) {
+        int numberOfItems = 0;
+        Set<LongLat> restaurants = new HashSet<>();
+        Set<LongLat> customers = new HashSet<>();
+        for (OrderDetails order : orders) {
+            numberOfItems += order.getItems().size();
+            restaurants.addAll(order.getDeliverFromLongLat());
+            customers.add(order.getDeliverToLongLat());
+        }
+        return numberOfItems <= capacity && restaurants.size() + customers.size() <= maximumStops;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getMaximumStops() {
+        return maximumStops;
+    }
+}
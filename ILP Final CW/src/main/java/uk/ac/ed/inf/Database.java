@@ -1,5 +1,6 @@
 package uk.ac.ed.inf;
 
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.ArrayList;
 
@@ -7,7 +8,11 @@ import static java.sql.Date.valueOf;
 
 
 /**
- * Class handling the queries regarding the databases
+ * Class handling the queries regarding the databases. When an offline folder is set in {@link App}, the Derby network
+ * server is not used: the tables orders and orderDetails are created in an embedded in-memory Derby database, with the
+ * same schema, and filled from the .csv files of the database subfolder of the offline folder.
+ * Every Database has its own connection, and its methods are synchronized on it, as a JDBC connection is not used by
+ * several threads at once. Threads that should query and write the database at the same time use a Database each.
  */
 public class Database {
 
@@ -17,19 +22,62 @@ public class Database {
     /** String representing the database of the jdbc string */
     private static final String JDBC_STRING_DATABASE = "/derbyDB";
 
+    /** String representing the jdbc String of the embedded in-memory database used when an offline folder is set */
+    private static final String EMBEDDED_JDBC_STRING = "jdbc:derby:memory:derbyDB;create=true";
+
+    /** String representing the statement that creates the orders table */
+    static final String CREATE_ORDERS_TABLE =
+            "create table orders(orderNo char(8), deliveryDate date, customer char(8), deliverTo varchar(19))";
+
+    /** String representing the statement that creates the orderDetails table */
+    static final String CREATE_ORDER_DETAILS_TABLE = "create table orderDetails(orderNo char(8), item varchar(58))";
+
+    /** String representing the subfolder of the offline folder with the rows of the orders and orderDetails tables */
+    static final String OFFLINE_DATABASE_FOLDER = "database";
+
+    /** String representing the .csv file with the rows of the orders table */
+    static final String ORDERS_FILE = "orders.csv";
+
+    /** String representing the .csv file with the rows of the orderDetails table */
+    static final String ORDER_DETAILS_FILE = "orderDetails.csv";
+
+    /** String representing the name of the output table with the deliveries */
+    static final String DELIVERIES_TABLE = "deliveries";
+
+    /** String representing the name of the output table with the flightpath */
+    static final String FLIGHTPATH_TABLE = "flightpath";
+
     /** String representing the jdbc String which we use to connect to the database */
     private static final String jdbcString = buildJdbcString();
 
-    /** java.sql.Connection object that represents a connection with the database */
-    private static Connection conn;
+    /** java.sql.Connection object that represents the connection of this Database with the database */
+    private final Connection conn;
 
 
     /**
-     * Constructor of the Database class.
+     * Constructor of the Database class, which opens a new connection with the database.
      */
     public Database() {
+        Connection connection = null;
+        try {
+            connection = DriverManager.getConnection(jdbcString);
+            if (App.getOfflineFolder() != null) {
+                loadOfflineTables(connection, App.getOfflineFolder().resolve(OFFLINE_DATABASE_FOLDER));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        conn = connection;
+    }
+
+    /**
+     * Method that closes the connection of this Database.
+     */
+    public synchronized void close() {
         try {
-            conn = DriverManager.getConnection(jdbcString);
+            if (conn != null) {
+                conn.close();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -40,9 +88,40 @@ public class Database {
      * @return the built jdbc String
      */
     private static String buildJdbcString() {
+        if (App.getOfflineFolder() != null) {
+            return EMBEDDED_JDBC_STRING;
+        }
         return JDBC_STRING_PROTOCOL + App.getMachineName() + ":" + App.getDatabasePort() + JDBC_STRING_DATABASE;
     }
 
+    /**
+     * Helper method that creates the orders and orderDetails tables in the embedded database and imports their rows
+     * from the .csv files of the given folder. Every connection of the process shares the same in-memory database,
+     * so the tables are only loaded once, by the first Database created.
+     * @param connection the connection of the Database being created.
+     * @param databaseFolder the folder with the .csv files of the orders and orderDetails tables.
+     * @throws SQLException if the tables could not be created or loaded.
+     */
+    private static synchronized void loadOfflineTables(Connection connection, Path databaseFolder) throws SQLException {
+        if (tableExists(connection, "orders")) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            execute(statement, CREATE_ORDERS_TABLE);
+            execute(statement, CREATE_ORDER_DETAILS_TABLE);
+        }
+
+        String importCall = "call SYSCS_UTIL.SYSCS_IMPORT_TABLE(null, ?, ?, null, null, null, 0)";
+        try (CallableStatement csImport = connection.prepareCall(importCall)) {
+            csImport.setString(1, "ORDERS");
+            csImport.setString(2, databaseFolder.resolve(ORDERS_FILE).toAbsolutePath().toString());
+            execute(csImport, importCall);
+            csImport.setString(1, "ORDERDETAILS");
+            csImport.setString(2, databaseFolder.resolve(ORDER_DETAILS_FILE).toAbsolutePath().toString());
+            execute(csImport, importCall);
+        }
+    }
+
 
 
     /**
@@ -50,28 +129,26 @@ public class Database {
      * @param date the date for the orders we want to obtain
      * @return an ArrayList of OrderDetails representing all of the orders in the database for a given date
      */
-    public ArrayList<OrderDetails> getOrderDetails(String date) {
+    public synchronized ArrayList<OrderDetails> getOrderDetails(String date) {
+        long startTime = System.nanoTime();
 
         Date sqlDate = valueOf(date);
         String dateQuery = "select * from orders where deliveryDate=(?)";
 
         ArrayList<OrderDetails> orderDetailsList = new ArrayList<>();
 
-        try {
-
-
-            PreparedStatement psOrderDetailsQuery = conn.prepareStatement(dateQuery);
+        try (PreparedStatement psOrderDetailsQuery = conn.prepareStatement(dateQuery)) {
 
             psOrderDetailsQuery.setDate(1, sqlDate);
 
-            ResultSet results = psOrderDetailsQuery.executeQuery();
-
-            while (results.next()) {
-                String orderNo = results.getString("orderNo");
-                String customer = results.getString("customer");
-                String deliverTo = results.getString("deliverTo");
-                OrderDetails dateOrderDetails = new OrderDetails(orderNo, customer, deliverTo, null);
-                orderDetailsList.add(dateOrderDetails);
+            try (ResultSet results = executeQuery(psOrderDetailsQuery, dateQuery)) {
+                while (results.next()) {
+                    String orderNo = results.getString("orderNo");
+                    String customer = results.getString("customer");
+                    String deliverTo = results.getString("deliverTo");
+                    OrderDetails dateOrderDetails = new OrderDetails(orderNo, customer, deliverTo, null);
+                    orderDetailsList.add(dateOrderDetails);
+                }
             }
         } catch (SQLException sqlexception) {
             sqlexception.printStackTrace();
@@ -79,6 +156,7 @@ public class Database {
 
         var completedOrderDetailsList = getCompletedOrderDetailsList(orderDetailsList);
 
+        PlanningMetrics.DATABASE_LOAD.recordSince(startTime);
         return completedOrderDetailsList;
     }
 
@@ -100,18 +178,17 @@ public class Database {
 
             ArrayList<String> items = new ArrayList<>();
 
-            try {
-                PreparedStatement psOrderDetailsQuery = conn.prepareStatement(orderNoQuery);
+            try (PreparedStatement psOrderDetailsQuery = conn.prepareStatement(orderNoQuery)) {
 
                 var orderNo = order.getOrderNo();
 
                 psOrderDetailsQuery.setString(1, orderNo);
 
-                ResultSet results = psOrderDetailsQuery.executeQuery();
-
-                while (results.next()) {
-                    String item = results.getString("item");
-                    items.add(item);
+                try (ResultSet results = executeQuery(psOrderDetailsQuery, orderNoQuery)) {
+                    while (results.next()) {
+                        String item = results.getString("item");
+                        items.add(item);
+                    }
                 }
             } catch (SQLException sqlexception) {
                 sqlexception.printStackTrace();
@@ -131,29 +208,42 @@ public class Database {
      * deliveries with the relevant information.
      * @param ordersToDo list of OrderDetails with the orders the drone is doing.
      */
-    public static void writeDatabaseTableDeliveries(ArrayList<OrderDetails> ordersToDo) {
-        try {
-            Statement statement = conn.createStatement();
-            DatabaseMetaData databaseMetadata = conn.getMetaData();
-            ResultSet resultSet = databaseMetadata.getTables(null, null, "DELIVERIES", null);
-            // If the resultSet is not empty then the table exists, so we can drop it
-            if (resultSet.next()) {
-                statement.execute("drop table deliveries");
-            }
-            statement.execute("create table deliveries(orderNo char(8), deliveredTo varchar(19), costInPence int)");
-
-            PreparedStatement psDeliveries = conn.prepareStatement("insert into deliveries values (?, ?, ?)");
+    public void writeDatabaseTableDeliveries(ArrayList<OrderDetails> ordersToDo) {
+        writeDatabaseTableDeliveries(ordersToDo, DELIVERIES_TABLE);
+    }
 
+    /**
+     * Method that, given the list of OrderDetails with the orders the drone is doing, writes the output database table
+     * with the given name with the relevant information, in the same format as the deliveries table.
+     * @param ordersToDo list of OrderDetails with the orders the drone is doing.
+     * @param tableName the name of the table we write.
+     */
+    public synchronized void writeDatabaseTableDeliveries(ArrayList<OrderDetails> ordersToDo, String tableName) {
+        long startTime = System.nanoTime();
+        String insert = "insert into " + tableName + " values (?, ?, ?)";
+        try (Statement statement = conn.createStatement()) {
+            // If the table exists, we drop it
+            if (tableExists(conn, tableName)) {
+                execute(statement, "drop table " + tableName);
+            }
+            execute(statement, "create table " + tableName + "(orderNo char(8), deliveredTo varchar(19), costInPence int)");
+        } catch (SQLException sqlException) {
+            sqlException.printStackTrace();
+            System.err.println("Could not write database table " + tableName);
+            return;
+        }
+        try (PreparedStatement psDeliveries = conn.prepareStatement(insert)) {
             for (OrderDetails order : ordersToDo) {
                 psDeliveries.setString(1, order.getOrderNo());
                 psDeliveries.setString(2, order.getDeliverTo());
                 psDeliveries.setInt(3, order.getPrice());
-                psDeliveries.execute();
+                execute(psDeliveries, insert);
             }
         } catch (SQLException sqlException) {
             sqlException.printStackTrace();
-            System.err.println("Could not write database table deliveries");
+            System.err.println("Could not write database table " + tableName);
         }
+        PlanningMetrics.OUTPUT_WRITE.recordSince(startTime);
 
 
     }
@@ -170,20 +260,37 @@ public class Database {
      *              ith move the drone does, the ith element of angles indicates the angle that the drone has travelled
      *              with for that movement.
      */
-    public static void writeDatabaseTableFlightpath(ArrayList<LongLat> route, ArrayList<String> orderNumbers, ArrayList<Integer> angles) {
-        try {
-            Statement statement = conn.createStatement();
-            DatabaseMetaData databaseMetadata = conn.getMetaData();
-            ResultSet resultSet = databaseMetadata.getTables(null, null, "FLIGHTPATH", null);
-            // If the resultSet is not empty then the table exists, so we can drop it
-            if (resultSet.next()) {
-                statement.execute("drop table flightpath");
+    public void writeDatabaseTableFlightpath(ArrayList<LongLat> route, ArrayList<String> orderNumbers, ArrayList<Integer> angles) {
+        writeDatabaseTableFlightpath(route, orderNumbers, angles, FLIGHTPATH_TABLE);
+    }
+
+    /**
+     * Method that, given the route of the moves the drone is doing, and the lists for the corresponding angles and
+     * order numbers for each of those moves, writes the output database table with the given name with the relevant
+     * information, in the same format as the flightpath table.
+     * @param route ArrayList of LongLat objects representing all of the coordinates the drone visits after making every
+     *              move
+     * @param orderNumbers ArrayList of Strings with the order number corresponding to every move.
+     * @param angles ArrayList of Integers with the angle the drone has travelled with for every move.
+     * @param tableName the name of the table we write.
+     */
+    public synchronized void writeDatabaseTableFlightpath(ArrayList<LongLat> route, ArrayList<String> orderNumbers,
+                                                          ArrayList<Integer> angles, String tableName) {
+        long startTime = System.nanoTime();
+        String insert = "insert into " + tableName + " values (?, ?, ?, ?, ?, ?)";
+        try (Statement statement = conn.createStatement()) {
+            // If the table exists, we drop it
+            if (tableExists(conn, tableName)) {
+                execute(statement, "drop table " + tableName);
             }
-            statement.execute("create table flightpath(orderNo char(8), fromLongitude double, fromLatitude double," +
+            execute(statement, "create table " + tableName + "(orderNo char(8), fromLongitude double, fromLatitude double," +
                     "angle integer, toLongitude double, toLatitude double)");
-
-            PreparedStatement psFlightpath = conn.prepareStatement("insert into flightpath values (?, ?, ?, ?, ?, ?)");
-
+        } catch (SQLException sqlException) {
+            sqlException.printStackTrace();
+            System.err.println("Could not write database table " + tableName);
+            return;
+        }
+        try (PreparedStatement psFlightpath = conn.prepareStatement(insert)) {
             for (int i = 0; i < angles.size(); i++) {
                 psFlightpath.setString(1, orderNumbers.get(i));
                 psFlightpath.setDouble(2, route.get(i).getLongitude());
@@ -191,17 +298,126 @@ public class Database {
                 psFlightpath.setInt(4, angles.get(i));
                 psFlightpath.setDouble(5, route.get(i+1).getLongitude());
                 psFlightpath.setDouble(6, route.get(i+1).getLatitude());
-                psFlightpath.execute();
+                execute(psFlightpath, insert);
             }
         } catch (SQLException sqlException) {
             sqlException.printStackTrace();
-            System.err.println("Could not write database table flightpath");
+            System.err.println("Could not write database table " + tableName);
         }
+        PlanningMetrics.OUTPUT_WRITE.recordSince(startTime);
 
 
     }
 
 
+    /**
+     * Method that reads the moves of a table written in the format of the flightpath table, in the order they were
+     * written.
+     * @param tableName the name of the table we read.
+     * @return an ArrayList of FlightPathValidator.Move with every move of the table, or an empty list if the table could
+     * not be read.
+     */
+    public synchronized ArrayList<FlightPathValidator.Move> getFlightpath(String tableName) {
+        String flightpathQuery = "select * from " + tableName;
+        ArrayList<FlightPathValidator.Move> moves = new ArrayList<>();
+        try (PreparedStatement psFlightpathQuery = conn.prepareStatement(flightpathQuery);
+             ResultSet results = executeQuery(psFlightpathQuery, flightpathQuery)) {
+            while (results.next()) {
+                LongLat from = new LongLat(results.getDouble("fromLongitude"), results.getDouble("fromLatitude"));
+                LongLat to = new LongLat(results.getDouble("toLongitude"), results.getDouble("toLatitude"));
+                moves.add(new FlightPathValidator.Move(from, results.getInt("angle"), to));
+            }
+        } catch (SQLException sqlexception) {
+            sqlexception.printStackTrace();
+            System.err.println("Could not read database table " + tableName);
+        }
+        return moves;
+    }
 
 
-}
\ No newline at end of file
+    /**
+     * Helper method that checks whether the table with the given name exists in the database of the given connection.
+     * @param connection the connection with the database.
+     * @param tableName the name of the table.
+     * @return true if the table exists, false otherwise.
+     * @throws SQLException if the metadata of the database could not be read.
+     */
+    private static boolean tableExists(Connection connection, String tableName) throws SQLException {
+        try (ResultSet resultSet = connection.getMetaData().getTables(null, null, tableName.toUpperCase(), null)) {
+            return resultSet.next();
+        }
+    }
+
+    /**
+     * Helper method that executes the given SQL statement, recording it as a {@link PlannerEvents.JdbcStatementEvent}.
+     * @param statement the Statement used to execute the SQL statement.
+     * @param sql the SQL statement.
+     * @return true if the result is a ResultSet, false otherwise.
+     * @throws SQLException if the statement could not be executed.
+     */
+    private static boolean execute(Statement statement, String sql) throws SQLException {
+        PlannerEvents.JdbcStatementEvent event = new PlannerEvents.JdbcStatementEvent();
+        event.begin();
+        setQueryTimeout(statement);
+        boolean result = statement.execute(sql);
+        commitStatementEvent(event, sql);
+        return result;
+    }
+
+    /**
+     * Helper method that executes the given prepared statement, recording it as a
+     * {@link PlannerEvents.JdbcStatementEvent}.
+     * @param preparedStatement the PreparedStatement, with its parameters already set.
+     * @param sql the SQL of the prepared statement.
+     * @return true if the result is a ResultSet, false otherwise.
+     * @throws SQLException if the statement could not be executed.
+     */
+    private static boolean execute(PreparedStatement preparedStatement, String sql) throws SQLException {
+        PlannerEvents.JdbcStatementEvent event = new PlannerEvents.JdbcStatementEvent();
+        event.begin();
+        setQueryTimeout(preparedStatement);
+        boolean result = preparedStatement.execute();
+        commitStatementEvent(event, sql);
+        return result;
+    }
+
+    /**
+     * Helper method that executes the given prepared query, recording it as a {@link PlannerEvents.JdbcStatementEvent}.
+     * @param preparedStatement the PreparedStatement, with its parameters already set.
+     * @param sql the SQL of the prepared query.
+     * @return the ResultSet of the query.
+     * @throws SQLException if the query could not be executed.
+     */
+    private static ResultSet executeQuery(PreparedStatement preparedStatement, String sql) throws SQLException {
+        PlannerEvents.JdbcStatementEvent event = new PlannerEvents.JdbcStatementEvent();
+        event.begin();
+        setQueryTimeout(preparedStatement);
+        ResultSet resultSet = preparedStatement.executeQuery();
+        commitStatementEvent(event, sql);
+        return resultSet;
+    }
+
+    /**
+     * Helper method that gives the given statement the I/O timeout set in {@link App}, if any, so that a query that
+     * takes longer fails instead of blocking the day.
+     * @param statement the Statement about to be executed.
+     * @throws SQLException if the timeout could not be set.
+     */
+    private static void setQueryTimeout(Statement statement) throws SQLException {
+        if (App.getIoTimeout() != null) {
+            statement.setQueryTimeout((int) Math.max(App.getIoTimeout().getSeconds(), 1));
+        }
+    }
+
+    /**
+     * Helper method that commits the given event with the given SQL, if a recording is running.
+     * @param event the JdbcStatementEvent started before the statement.
+     * @param sql the SQL of the statement.
+     */
+    private static void commitStatementEvent(PlannerEvents.JdbcStatementEvent event, String sql) {
+        if (event.shouldCommit()) {
+            event.sql = sql;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package uk.ac.ed.inf;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class that plans a range of days as a pipeline of four stages, so that the stages of different days overlap: while
+ * one day is being planned, the next one is being loaded and enriched and the previous one is being written. Every
+ * stage has its own workers and executor and takes the days from a bounded queue, so a stage that falls behind makes
+ * the stages before it wait instead of piling up days in memory:
+ * <ol>
+ *     <li>load: reads the orders of the day from the database.</li>
+ *     <li>enrich: resolves the prices and the locations of the orders from the web server.</li>
+ *     <li>plan: plans the day, or restores its plan from the {@link PlanCache}, and validates it. A day whose route
+ *     is not valid goes no further.</li>
+ *     <li>write: writes the .geojson file and the tables of the day.</li>
+ * </ol>
+ * The stages that wait on the database and the web server run on virtual threads when the Java runtime has them, and
+ * on a cached thread pool otherwise, and the planning stage runs on as many threads as it is given. The methods of a
+ * {@link Database} are synchronized on its connection, so the load stage reads the days one at a time with a single
+ * worker, and the workers of the write stage only overlap in writing the .geojson files. The write stage opens a
+ * Database of its own for every run, so that writing a day does not wait for the orders of the next days to be read
+ * from the same connection.
+ */
+public class DayPipeline {
+
+    /** Integer representing the number of days every queue between two stages holds before the stage before waits */
+    private static final int QUEUE_CAPACITY = 2;
+
+    /** Integer representing the number of workers of the enrich and write stages, which wait on the web server and
+     * the files */
+    private static final int IO_WORKERS = 4;
+
+    /** Integer representing the number of workers of the load stage, which reads from a single synchronized Database,
+     * so more workers would only wait for each other */
+    private static final int LOAD_WORKERS = 1;
+
+    /** Object put in a queue after the last day, so that the workers of the stage taking from it stop */
+    private static final Object END_OF_DAYS = new Object();
+
+    /** Database from which the orders are read */
+    private final Database database;
+
+    /** PathFinder shared by every day */
+    private final PathFinder pathFinder;
+
+    /** ConsolidationSettings of the plans, or null if the orders are done one at a time */
+    private final ConsolidationSettings consolidation;
+
+    /** PlanCache the plans are restored from or stored in, or null if every day is planned */
+    private final PlanCache planCache;
+
+    /** BatchCheckpoint of the run, whose completed days are skipped and which records the days written, or null if the
+     * run is not checkpointed */
+    private final BatchCheckpoint checkpoint;
+
+    /** Integer representing the number of days planned at the same time */
+    private final int planningThreads;
+
+    /** AtomicInteger with the number of days whose route is not valid, which are not written */
+    private final AtomicInteger numberOfInvalidDays = new AtomicInteger();
+
+    /** AtomicInteger with the number of days dropped because a stage failed on them, which are not written */
+    private final AtomicInteger numberOfFailedDays = new AtomicInteger();
+
+
+    /**
+     * Constructor of the DayPipeline class.
+     * @param database the Database from which the orders are read.
+     * @param pathFinder the PathFinder shared by every day.
+     * @param consolidation the consolidation settings of the plans, or null to do the orders one at a time.
+     * @param planCache the PlanCache the plans are restored from or stored in, or null to plan every day.
+     * @param checkpoint the BatchCheckpoint of the run, or null if the run is not checkpointed.
+     * @param planningThreads the number of days planned at the same time.
+     */
+    public DayPipeline(Database database, PathFinder pathFinder, ConsolidationSettings consolidation,
+                       PlanCache planCache, BatchCheckpoint checkpoint, int planningThreads) {
+        this.database = database;
+        this.pathFinder = pathFinder;
+        this.consolidation = consolidation;
+        this.planCache = planCache;
+        this.checkpoint = checkpoint;
+        this.planningThreads = planningThreads;
+    }
+
+    /**
+     * Method that plans every day of the given range of dates through the pipeline, and prints the throughput of
+     * every stage once the last day is written. The Database of the write stage is closed before returning.
+     * @param firstDate the first date of the range.
+     * @param lastDate the last date of the range.
+     * @return the number of days that had orders and were written.
+     * @throws InterruptedException if the thread was interrupted while waiting for the pipeline.
+     */
+    public int run(LocalDate firstDate, LocalDate lastDate) throws InterruptedException {
+        AtomicInteger numberOfWrittenDays = new AtomicInteger();
+        BlockingQueue<Object> dates = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Object> loadedDays = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Object> enrichedDays = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Object> plannedDays = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        Database writeDatabase = new Database();
+
+        List<Stage> stages = new ArrayList<>();
+        stages.add(new Stage("load", LOAD_WORKERS, IoScope.newIoExecutor(), dates, loadedDays, item -> {
+            LocalDate date = (LocalDate) item;
+            ArrayList<OrderDetails> listOrderDetails = database.getOrderDetails(date.toString());
+            if (listOrderDetails.isEmpty()) {
+                System.out.println("There are no orders for " + date);
+                if (checkpoint != null) {
+                    checkpoint.markCompleted(date);
+                }
+                return null;
+            }
+            return new Day(date, listOrderDetails);
+        }));
+        stages.add(new Stage("enrich", IO_WORKERS, IoScope.newIoExecutor(), loadedDays, enrichedDays, item -> {
+            OrderDetails.setOrderDetailsFields(((Day) item).listOrderDetails);
+            return item;
+        }));
+        stages.add(new Stage("plan", planningThreads, Executors.newFixedThreadPool(planningThreads), enrichedDays,
+                plannedDays, item -> {
+            Day day = (Day) item;
+            day.drone = App.planOrRestore(day.listOrderDetails, pathFinder, consolidation, planCache);
+            System.out.println("The sample monetary value for " + day.date + " is: " + day.drone.getPercentageMonetaryValue());
+            if (!FlightPathValidator.validatePlan(day.drone, day.date.toString())) {
+                System.err.println("The route for " + day.date + " is not valid, so it is not written");
+                numberOfInvalidDays.incrementAndGet();
+                return null;
+            }
+            return day;
+        }));
+        stages.add(new Stage("write", IO_WORKERS, IoScope.newIoExecutor(), plannedDays, null, item -> {
+            Day day = (Day) item;
+            BatchApp.writeDay(day.date, day.drone, writeDatabase);
+            if (checkpoint != null) {
+                checkpoint.markCompleted(day.date);
+            }
+            numberOfWrittenDays.incrementAndGet();
+            return null;
+        }));
+
+        try {
+            for (Stage stage : stages) {
+                stage.start();
+            }
+            for (LocalDate date = firstDate; !date.isAfter(lastDate); date = date.plusDays(1)) {
+                if (checkpoint != null && checkpoint.isCompleted(date)) {
+                    continue;
+                }
+                dates.put(date);
+            }
+            dates.put(END_OF_DAYS);
+            for (Stage stage : stages) {
+                stage.awaitTermination();
+            }
+        } finally {
+            writeDatabase.close();
+        }
+        for (Stage stage : stages) {
+            stage.printThroughput();
+        }
+        return numberOfWrittenDays.get();
+    }
+
+    /**
+     * Method that returns the number of days of the last run whose route is not valid, and which were not written.
+     * @return the number of days not written because their route is not valid.
+     */
+    public int getNumberOfInvalidDays() {
+        return numberOfInvalidDays.get();
+    }
+
+    /**
+     * Method that returns the number of days of the last run that a stage failed on, such as a database, web server
+     * or output error, and which were not written.
+     * @return the number of days not written because a stage failed on them.
+     */
+    public int getNumberOfFailedDays() {
+        return numberOfFailedDays.get();
+    }
+
+
+    /**
+     * Interface of the work a stage does on every day it takes from its queue.
+     */
+    private interface StageFunction {
+
+        /**
+         * Method that does the work of the stage on the given day.
+         * @param item the day taken from the queue of the stage.
+         * @return the day to put in the queue of the next stage, or null if the day does not go any further.
+         * @throws Exception if the work on the day failed, which is reported and drops the day.
+         */
+        Object apply(Object item) throws Exception;
+    }
+
+    /**
+     * Class that represents a day going through the pipeline: its date, its orders and, once it is planned, its drone.
+     */
+    private static class Day {
+
+        /** LocalDate representing the date of the day */
+        private final LocalDate date;
+
+        /** ArrayList of OrderDetails representing the orders of the day */
+        private final ArrayList<OrderDetails> listOrderDetails;
+
+        /** Drone with the plan of the day, or null until the day is planned */
+        private Drone drone;
+
+        private Day(LocalDate date, ArrayList<OrderDetails> listOrderDetails) {
+            this.date = date;
+            this.listOrderDetails = listOrderDetails;
+        }
+    }
+
+    /**
+     * Class that represents a stage of the pipeline: a number of workers that take the days from the queue of the stage,
+     * do the work of the stage on them and put them in the queue of the next stage. The time spent on every day is
+     * recorded in the histogram pipeline_&lt;name&gt; of the {@link PlanningMetrics}, and every day the stage fails on
+     * is counted in the failed days of the pipeline.
+     */
+    private class Stage {
+
+        /** String representing the name of the stage */
+        private final String name;
+
+        /** Integer representing the number of workers of the stage */
+        private final int workers;
+
+        /** ExecutorService the workers of the stage run on */
+        private final ExecutorService executor;
+
+        /** BlockingQueue the days are taken from */
+        private final BlockingQueue<Object> input;
+
+        /** BlockingQueue the days are put in, or null if this is the last stage */
+        private final BlockingQueue<Object> output;
+
+        /** StageFunction with the work of the stage */
+        private final StageFunction function;
+
+        /** Histogram of the time spent by the stage on every day */
+        private final PlanningMetrics.Histogram histogram;
+
+        /** AtomicInteger with the number of workers that have not stopped yet */
+        private final AtomicInteger activeWorkers;
+
+        /** AtomicLong with the time the first day was taken, as given by {@link System#nanoTime()}, or 0 if none was */
+        private final AtomicLong firstStartNanos = new AtomicLong();
+
+        /** AtomicLong with the time the last day was finished, as given by {@link System#nanoTime()} */
+        private final AtomicLong lastEndNanos = new AtomicLong();
+
+        /** AtomicInteger with the number of days the stage finished */
+        private final AtomicInteger numberOfDays = new AtomicInteger();
+
+        private Stage(String name, int workers, ExecutorService executor, BlockingQueue<Object> input,
+                      BlockingQueue<Object> output, StageFunction function) {
+            this.name = name;
+            this.workers = workers;
+            this.executor = executor;
+            this.input = input;
+            this.output = output;
+            this.function = function;
+            this.histogram = PlanningMetrics.histogram("pipeline_" + name);
+            this.activeWorkers = new AtomicInteger(workers);
+        }
+
+        /**
+         * Method that starts the workers of the stage.
+         */
+        private void start() {
+            for (int i = 0; i < workers; i++) {
+                executor.execute(this::work);
+            }
+            executor.shutdown();
+        }
+
+        /**
+         * Method that waits until every worker of the stage has stopped.
+         * @throws InterruptedException if the thread was interrupted while waiting.
+         */
+        private void awaitTermination() throws InterruptedException {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Method that prints the number of days the stage finished, and how many days per second it finished between
+         * taking its first day and finishing its last one.
+         */
+        private void printThroughput() {
+            double seconds = (lastEndNanos.get() - firstStartNanos.get()) / 1e9;
+            System.out.println(String.format("Stage %s: %d days, %.2f days per second, %.1f ms per day on average",
+                    name, numberOfDays.get(), seconds > 0 ? numberOfDays.get() / seconds : 0,
+                    histogram.getCount() == 0 ? 0 : histogram.getSumNanos() / 1e6 / histogram.getCount()));
+        }
+
+        /**
+         * Helper method with the loop of every worker of the stage, which takes the days until it takes the end of the
+         * days. The last worker to stop puts the end of the days in the queue of the next stage.
+         */
+        private void work() {
+            try {
+                while (true) {
+                    Object item = input.take();
+                    if (item == END_OF_DAYS) {
+                        // The end of the days is put back for the other workers of the stage
+                        input.put(END_OF_DAYS);
+                        if (activeWorkers.decrementAndGet() == 0 && output != null) {
+                            output.put(END_OF_DAYS);
+                        }
+                        return;
+                    }
+                    long startTime = System.nanoTime();
+                    firstStartNanos.compareAndSet(0, startTime);
+                    Object result = null;
+                    try {
+                        result = function.apply(item);
+                    } catch (Exception e) {
+                        System.err.println("The stage " + name + " failed for a day, which is dropped");
+                        e.printStackTrace();
+                        numberOfFailedDays.incrementAndGet();
+                    }
+                    histogram.recordSince(startTime);
+                    numberOfDays.incrementAndGet();
+                    lastEndNanos.accumulateAndGet(System.nanoTime(), Math::max);
+                    if (result != null && output != null) {
+                        output.put(result);
+                    }
+                }
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Class that represents a tour of the drone in consolidation mode: from its current location, the drone visits every
+ * restaurant of a group of orders once, picking up the items of all of them, and then drops the orders off at their
+ * customers one after another. Every leg of the tour is attributed to one of its orders, so that the flightpath still
+ * tells which order every move was made for: a leg to a customer is attributed to the order delivered there, and a leg
+ * to a restaurant to the first order of the tour picked up there.
+ */
+public class DeliveryTour {
+
+    /** ArrayList of OrderDetails representing the orders of the tour, in the order they are delivered */
+    private final ArrayList<OrderDetails> orders;
+
+    /** ArrayList of LongLat representing the restaurants and then the customers the tour visits, in order */
+    private final ArrayList<LongLat> stops;
+
+    /** ArrayList of Strings where the ith element is the order number the leg to the ith stop is attributed to */
+    private final ArrayList<String> stopOrderNumbers;
+
+    /** ArrayList of Integers where the ith element is the number of moves of the leg to the ith stop */
+    private final ArrayList<Integer> legMoves;
+
+    /** Integer representing the total number of moves of the tour */
+    private final int numberOfMoves;
+
+    /** Integer representing the total price of the orders of the tour */
+    private final int price;
+
+
+    /**
+     * Constructor of the DeliveryTour class.
+     * @param orders the orders of the tour, in the order they are delivered.
+     * @param stops the restaurants and then the customers the tour visits, in order.
+     * @param stopOrderNumbers the order number the leg to every stop is attributed to.
+     * @param legMoves the number of moves of the leg to every stop.
+     */
+    private DeliveryTour(ArrayList<OrderDetails> orders, ArrayList<LongLat> stops, ArrayList<String> stopOrderNumbers,
+                         ArrayList<Integer> legMoves) {
+        this.orders = orders;
+        this.stops = stops;
+        this.stopOrderNumbers = stopOrderNumbers;
+        this.legMoves = legMoves;
+        int numberOfMoves = 0;
+        for (int moves : legMoves) {
+            numberOfMoves += moves;
+        }
+        this.numberOfMoves = numberOfMoves;
+        int price = 0;
+        for (OrderDetails order : orders) {
+            price += order.getPrice();
+        }
+        this.price = price;
+    }
+
+    /**
+     * Method that builds the tour serving the given orders from the given location, with at most the given number of
+     * moves. The restaurants are visited first and the customers afterwards, each time flying to the nearest stop not
+     * visited yet, and every restaurant is tried as the first stop so that the restaurants of a single order are
+     * visited in the order that needs the fewest moves. Customers at the same location are served by the same stop.
+     * @param originalLocation the location the drone starts the tour from.
+     * @param orders the orders of the tour.
+     * @param pathFinder the PathFinder used to compute the legs between the stops.
+     * @param maximumMoves the largest number of moves the tour can use.
+     * @return the DeliveryTour with the fewest moves found, or null if the orders can not be served within
+     * maximumMoves moves.
+     */
+    static DeliveryTour build(LongLat originalLocation, List<OrderDetails> orders, PathFinder pathFinder, int maximumMoves) {
+        LinkedHashSet<LongLat> restaurants = new LinkedHashSet<>();
+        LinkedHashSet<LongLat> customers = new LinkedHashSet<>();
+        for (OrderDetails order : orders) {
+            restaurants.addAll(order.getDeliverFromLongLat());
+            customers.add(order.getDeliverToLongLat());
+        }
+
+        ArrayList<LongLat> bestStops = null;
+        ArrayList<Integer> bestLegMoves = null;
+        int bestNumberOfMoves = LegResult.UNREACHABLE;
+        for (LongLat firstRestaurant : restaurants) {
+            ArrayList<LongLat> stops = new ArrayList<>();
+            ArrayList<Integer> legMoves = new ArrayList<>();
+            int maximumMovesLeft = Math.min(maximumMoves, bestNumberOfMoves);
+            int moves = getLegMoves(pathFinder, originalLocation, firstRestaurant, maximumMovesLeft);
+            if (moves == LegResult.UNREACHABLE) {
+                continue;
+            }
+            stops.add(firstRestaurant);
+            legMoves.add(moves);
+            maximumMovesLeft -= moves;
+            LinkedHashSet<LongLat> restaurantsLeft = new LinkedHashSet<>(restaurants);
+            restaurantsLeft.remove(firstRestaurant);
+            maximumMovesLeft = visitNearestFirst(pathFinder, restaurantsLeft, stops, legMoves, maximumMovesLeft);
+            if (maximumMovesLeft >= 0) {
+                maximumMovesLeft = visitNearestFirst(pathFinder, new LinkedHashSet<>(customers), stops, legMoves, maximumMovesLeft);
+            }
+            if (maximumMovesLeft < 0) {
+                continue;
+            }
+            int numberOfMoves = Math.min(maximumMoves, bestNumberOfMoves) - maximumMovesLeft;
+            if (numberOfMoves < bestNumberOfMoves) {
+                bestNumberOfMoves = numberOfMoves;
+                bestStops = stops;
+                bestLegMoves = legMoves;
+            }
+        }
+        if (bestStops == null) {
+            return null;
+        }
+
+        // The orders are listed in the order they are delivered, and every stop is attributed to the first of them
+        ArrayList<OrderDetails> ordersInDeliveryOrder = new ArrayList<>();
+        for (LongLat stop : bestStops) {
+            for (OrderDetails order : orders) {
+                if (order.getDeliverToLongLat().equals(stop) && !ordersInDeliveryOrder.contains(order)) {
+                    ordersInDeliveryOrder.add(order);
+                }
+            }
+        }
+        ArrayList<String> stopOrderNumbers = new ArrayList<>();
+        for (int i = 0; i < bestStops.size(); i++) {
+            LongLat stop = bestStops.get(i);
+            boolean isRestaurant = i < restaurants.size();
+            for (OrderDetails order : ordersInDeliveryOrder) {
+                if (isRestaurant ? order.getDeliverFromLongLat().contains(stop) : order.getDeliverToLongLat().equals(stop)) {
+                    stopOrderNumbers.add(order.getOrderNo());
+                    break;
+                }
+            }
+        }
+        return new DeliveryTour(ordersInDeliveryOrder, bestStops, stopOrderNumbers, bestLegMoves);
+    }
+
+    /**
+     * Helper method of the {@link #build} method that, starting from the last stop of the tour, keeps flying to the
+     * nearest of the given points not visited yet until all of them are visited.
+     * @param pathFinder the PathFinder used to compute the legs between the stops.
+     * @param pointsLeft the points to visit, which are removed as they are visited.
+     * @param stops the stops of the tour so far, to which the points are added.
+     * @param legMoves the number of moves of the leg to every stop so far, to which the new legs are added.
+     * @param maximumMovesLeft the number of moves the rest of the tour can use.
+     * @return the number of moves left after visiting every point, or -1 if some point can not be reached within the
+     * moves left.
+     */
+    private static int visitNearestFirst(PathFinder pathFinder, LinkedHashSet<LongLat> pointsLeft, ArrayList<LongLat> stops,
+                                         ArrayList<Integer> legMoves, int maximumMovesLeft) {
+        while (!pointsLeft.isEmpty()) {
+            LongLat currentLocation = stops.get(stops.size() - 1);
+            LongLat nearestPoint = null;
+            int nearestMoves = LegResult.UNREACHABLE;
+            for (LongLat point : pointsLeft) {
+                int moves = getLegMoves(pathFinder, currentLocation, point, Math.min(maximumMovesLeft, nearestMoves));
+                if (moves < nearestMoves) {
+                    nearestPoint = point;
+                    nearestMoves = moves;
+                }
+            }
+            if (nearestPoint == null) {
+                return -1;
+            }
+            stops.add(nearestPoint);
+            legMoves.add(nearestMoves);
+            pointsLeft.remove(nearestPoint);
+            maximumMovesLeft -= nearestMoves;
+        }
+        return maximumMovesLeft;
+    }
+
+    /**
+     * Helper method that returns the number of moves of the leg between the two given points, if it is at most the
+     * given number of moves.
+     * @param pathFinder the PathFinder used to compute the leg.
+     * @param originalLocation the point the leg starts from.
+     * @param destination the point the leg ends at.
+     * @param maximumMoves the largest number of moves that is of any use.
+     * @return the number of moves of the leg, or {@value LegResult#UNREACHABLE} if it can not be flown within
+     * maximumMoves moves.
+     */
+    private static int getLegMoves(PathFinder pathFinder, LongLat originalLocation, LongLat destination, int maximumMoves) {
+        LegResult leg = pathFinder.getLeg(originalLocation, destination, maximumMoves);
+        if (!leg.isReachable() || leg.getNumberOfMoves() > maximumMoves) {
+            return LegResult.UNREACHABLE;
+        }
+        return leg.getNumberOfMoves();
+    }
+
+    /**
+     * Method that returns the price paid per move of the tour.
+     * @return the total price of the orders of the tour divided by its number of moves.
+     */
+    public double getPricePerMove() {
+        return (double) price / numberOfMoves;
+    }
+
+    /**
+     * Method that returns the last stop of the tour, where the drone is once the tour is done.
+     * @return the LongLat of the last customer of the tour.
+     */
+    public LongLat getLastStop() {
+        return stops.get(stops.size() - 1);
+    }
+
+    public ArrayList<OrderDetails> getOrders() {
+        return orders;
+    }
+
+    public ArrayList<LongLat> getStops() {
+        return stops;
+    }
+
+    public ArrayList<String> getStopOrderNumbers() {
+        return stopOrderNumbers;
+    }
+
+    public ArrayList<Integer> getLegMoves() {
+        return legMoves;
+    }
+
+    public int getNumberOfMoves() {
+        return numberOfMoves;
+    }
+
+    public int getPrice() {
+        return price;
+    }
+}
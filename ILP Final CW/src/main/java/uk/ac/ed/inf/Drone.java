@@ -3,6 +3,8 @@ package uk.ac.ed.inf;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -13,18 +15,18 @@ public class Drone {
 
 
     /** Integer representing the maximum number of shops the drone can visit. */
-    private static final int MAXIMUM_NUMBER_OF_SHOPS = 2;
+    static final int MAXIMUM_NUMBER_OF_SHOPS = 2;
 
     /** Integer representing the maximum number of moves the drone can perform. */
-    private static final int MAXIMUM_NUMBER_OF_MOVES = 1500;
+    static final int MAXIMUM_NUMBER_OF_MOVES = 1500;
+
+    /** String representing the order number the moves of the return to Appleton Tower are attributed to */
+    private static final String RETURN_ORDER_NUMBER = "--------";
 
     /** LongLat representing the coordinates of Appleton Tower, from where the drone starts the route and where it should
      * return after performing the orders for the days */
     public static final LongLat APPLETON_TOWER_COORDINATES = new LongLat(-3.186874, 55.944494);
 
-    /** Integer representing the angle which indicates that the drone is hovering*/
-    private static final int HOVERING_ANGLE = -999;
-
     /** ArrayList of OrderDetails representing the orders that the algorithm in {@link #setOrderDetailsToDo(ArrayList)}
      * decides to do. */
     public ArrayList<OrderDetails> orderDetailsToDo;
@@ -34,6 +36,10 @@ public class Drone {
      * the order to. */
     public ArrayList<LongLat> coordinatesToVisit;
 
+    /** ArrayList of Strings with the number of the order every coordinate of {@link #coordinatesToVisit} is visited
+     * for, so that the moves of the leg to every coordinate are attributed to its order. */
+    private ArrayList<String> stopOrderNumbers;
+
     /** ArrayList of LongLat objects representing all of the coordinates the drone visits after making every move. */
     public ArrayList<LongLat> route;
 
@@ -45,18 +51,24 @@ public class Drone {
      * the ith element of orderNumbers indicates the order number corresponding for that movement. */
     public ArrayList<String> orderNumbers = new ArrayList<>();
 
-    /** ArrayList of LongLat representing all the landmarks given by us in the web server */
-    private final ArrayList<LongLat> landmarks = HTTPClient.getLandmarks();
+    /** PathFinder used to construct the move-by-move legs between the coordinates the drone visits */
+    private final PathFinder pathFinder;
+
+    /** ReturnCostMemo with the number of moves needed to return to Appleton Tower from the locations seen so far */
+    private final ReturnCostMemo returnCostMemo;
+
+    /** ConsolidationSettings with the limits of the tours serving several orders at once, or null if the orders are
+     * done one at a time */
+    private final ConsolidationSettings consolidation;
+
+    /** ArrayList of DeliveryTour representing the tours the drone flies in consolidation mode, in order, or null if the
+     * orders are done one at a time */
+    private ArrayList<DeliveryTour> tours;
 
     /** Integer representing the total number of moves performed by the drone when doing the orders indicated in
      * {@link #orderDetailsToDo} */
     private Integer totalNumberOfMovesUsed = 0;
 
-    /** ArrayList that contains ArrayLists of LongLats. It represents all the endpoints of the different straight lines
-     * representing the borders of all no-fly zones, and therefore every smaller sub-ArrayList represents all the
-     * endpoints of the lines representing the borders of a particular enclosed No-fly zone area */
-    private final ArrayList<ArrayList<LongLat>> noFlyZonesPoints;
-
     /** Integer representing the total price that would be achieved if we were to do all of the orders that there are
      * in the database for the given date. */
     private Integer totalPrice = 0;
@@ -77,7 +89,32 @@ public class Drone {
      * @throws InterruptedException if the thread is interrupted
      */
     public Drone(ArrayList<OrderDetails> orderDetailsArrayList, ArrayList<ArrayList<LongLat>> noFlyZonesPoints) throws IOException, InterruptedException {
-        this.noFlyZonesPoints = noFlyZonesPoints;
+        this(orderDetailsArrayList, PathFinder.forZones(noFlyZonesPoints, HTTPClient.getLandmarks()));
+    }
+
+    /**
+     * Constructor of the Drone class that uses an already existing PathFinder, so that everything the PathFinder has
+     * precomputed for its no-fly zones and landmarks is reused.
+     * @param orderDetailsArrayList list of OrderDetails representing the orders that have been placed for the day.
+     * @param pathFinder PathFinder for the no-fly zones and landmarks of the day.
+     */
+    public Drone(ArrayList<OrderDetails> orderDetailsArrayList, PathFinder pathFinder) {
+        this(orderDetailsArrayList, pathFinder, null);
+    }
+
+    /**
+     * Constructor of the Drone class that, if consolidation settings are given, groups the orders sharing a restaurant
+     * into tours that pick up every order of the group before delivering any of them.
+     * @param orderDetailsArrayList list of OrderDetails representing the orders that have been placed for the day.
+     * @param pathFinder PathFinder for the no-fly zones and landmarks of the day.
+     * @param consolidation the limits of the tours serving several orders at once, or null to do the orders one at a
+     *                      time.
+     */
+    public Drone(ArrayList<OrderDetails> orderDetailsArrayList, PathFinder pathFinder, ConsolidationSettings consolidation) {
+        long startTime = System.nanoTime();
+        this.pathFinder = pathFinder;
+        this.returnCostMemo = pathFinder.getReturnCostMemo();
+        this.consolidation = consolidation;
 
 
         System.out.println("The total number of orders are:");
@@ -85,20 +122,51 @@ public class Drone {
 
         setTotalPrice(orderDetailsArrayList);
 
+        precomputeReturnCosts(orderDetailsArrayList);
 
         setOrderDetailsToDo(orderDetailsArrayList);
 
+        setFlownRoute();
+
         setPriceDone();
         setPercentageMonetaryValue();
 
         System.out.println("The total number of orders done are:");
         System.out.println(getOrderDetailsToDo().size());
 
-        setCoordinatesToVisit(getOrderDetailsToDo());
-        setRoute(getCoordinatesToVisit());
+        PlanningMetrics.PLANNING.recordSince(startTime);
 
     }
 
+    /**
+     * Constructor of the Drone class that restores a plan made before for the same orders, no-fly zones and landmarks,
+     * as stored by a {@link PlanCache}, instead of planning the orders again.
+     * @param orderDetailsArrayList list of OrderDetails representing the orders that have been placed for the day.
+     * @param pathFinder PathFinder for the no-fly zones and landmarks of the day.
+     * @param orderDetailsToDo the orders done by the plan, in the order they are done.
+     * @param coordinatesToVisit the stops of the plan, starting at Appleton Tower.
+     * @param route the coordinates of every point of the route of the plan.
+     * @param angles the angle of every move of the route.
+     * @param orderNumbers the number of the order every move of the route belongs to.
+     * @param totalNumberOfMovesUsed the number of moves used by the orders done.
+     */
+    public Drone(ArrayList<OrderDetails> orderDetailsArrayList, PathFinder pathFinder, ArrayList<OrderDetails> orderDetailsToDo,
+                 ArrayList<LongLat> coordinatesToVisit, ArrayList<LongLat> route, ArrayList<Integer> angles,
+                 ArrayList<String> orderNumbers, int totalNumberOfMovesUsed) {
+        this.pathFinder = pathFinder;
+        this.returnCostMemo = pathFinder.getReturnCostMemo();
+        this.consolidation = null;
+        this.orderDetailsToDo = orderDetailsToDo;
+        this.coordinatesToVisit = coordinatesToVisit;
+        this.route = route;
+        this.angles = angles;
+        this.orderNumbers = orderNumbers;
+        this.totalNumberOfMovesUsed = totalNumberOfMovesUsed;
+        setTotalPrice(orderDetailsArrayList);
+        setPriceDone();
+        setPercentageMonetaryValue();
+    }
+
 
     /**
      * Method that, given a list with all of the orderDetails that we could do for a given date, it chooses which orders
@@ -108,19 +176,25 @@ public class Drone {
      * the restaurant(s), as well as the distance to the location where we have to drop the items. That way, the order
      * will lean towards doing high-paying orders that are near where the drone is when finishing dropping off the
      * previous order, thus minimising lost moves. Finally, we also take into account whether we will be able to return
-     * to Appleton Tower after completing the next order, and if we can not do it then we do not do that order. The
+     * to Appleton Tower after completing the next order, and if we can not do it then we do not do that order, but we
+     * keep choosing among the orders that still fit in the moves left. The
      * implementation works for any amount of landmarks, as if we would not be able to access a location, we would
      * not perform that order. Once we have decided which orders to do, we store them in the ArrayList of OrderDetails
      * {@link #orderDetailsToDo}. In this method, we also count the number of moves we use, storing them in
-     * {@link #totalNumberOfMovesUsed}, as well as completing the {@link #orderNumbers} attribute.
+     * {@link #totalNumberOfMovesUsed}, as well as completing the {@link #orderNumbers} attribute. In consolidation mode,
+     * the orders are chosen a tour at a time by {@link #setToursToDo(ArrayList)} instead.
      * @param orderDetailsArrayList list with all the orderDetails that we could do for a given date.
      */
     public void setOrderDetailsToDo(ArrayList<OrderDetails> orderDetailsArrayList) {
+        if (consolidation != null) {
+            setToursToDo(orderDetailsArrayList);
+            return;
+        }
         ArrayList<OrderDetails> orderOfTheOrders = new ArrayList<>();
         ArrayList<OrderDetails> remainingOrders = orderDetailsArrayList;
         LongLat originalLocation = APPLETON_TOWER_COORDINATES;
         Integer totalNumberOfMovesUsed = 0;
-        OrderDetails nextOrder = getNextOrder(originalLocation, remainingOrders );
+        OrderDetails nextOrder = getNextOrder(originalLocation, remainingOrders, totalNumberOfMovesUsed);
         Integer movesAdded = 10000;
         if (nextOrder != null) {
             movesAdded = getNumberOfMoves(originalLocation, nextOrder, nextOrder.getDeliverFromLongLat());
@@ -131,7 +205,7 @@ public class Drone {
             totalNumberOfMovesUsed += movesAdded;
             setOrderNumbers(nextOrder.getOrderNo(), movesAdded);
             originalLocation = nextOrder.getDeliverToLongLat();
-            nextOrder = getNextOrder(originalLocation, remainingOrders);
+            nextOrder = getNextOrder(originalLocation, remainingOrders, totalNumberOfMovesUsed);
             if (nextOrder != null) {
                 movesAdded = getNumberOfMoves(originalLocation, nextOrder, nextOrder.getDeliverFromLongLat());
             }
@@ -145,21 +219,24 @@ public class Drone {
             originalLocation = nextOrder.getDeliverToLongLat();
             setOrderNumbers(nextOrder.getOrderNo(), movesAdded);
         }
-        if((nextOrder == null)) {
+        if((nextOrder == null) && !remainingOrders.isEmpty()) {
             nextOrder = remainingOrders.get(0);
-            if (canReturnToAppleton(movesAdded, nextOrder, totalNumberOfMovesUsed) && canPerformNextOrder(originalLocation, nextOrder)) {
-                orderOfTheOrders.add(nextOrder);
-                remainingOrders.remove(nextOrder);
+            if (canPerformNextOrder(originalLocation, nextOrder)) {
                 movesAdded = getNumberOfMoves(originalLocation, nextOrder, nextOrder.getDeliverFromLongLat());
-                totalNumberOfMovesUsed += movesAdded;
-                setOrderNumbers(nextOrder.getOrderNo(), movesAdded);
-
+                if (canReturnToAppleton(movesAdded, nextOrder, totalNumberOfMovesUsed)) {
+                    orderOfTheOrders.add(nextOrder);
+                    remainingOrders.remove(nextOrder);
+                    totalNumberOfMovesUsed += movesAdded;
+                    originalLocation = nextOrder.getDeliverToLongLat();
+                    setOrderNumbers(nextOrder.getOrderNo(), movesAdded);
+                }
             }
         }
         //We check if the original location is still Appleton Tower, that is, it has not moved at all. If not then we proceed as normal
-        if (originalLocation != APPLETON_TOWER_COORDINATES) {
-            totalNumberOfMovesUsed += travelToDestination(originalLocation, APPLETON_TOWER_COORDINATES).size();
-            setOrderNumbers("--------", travelToDestination(originalLocation, APPLETON_TOWER_COORDINATES).size());
+        if (!originalLocation.equals(APPLETON_TOWER_COORDINATES)) {
+            int movesToAppleton = returnCostMemo.getMovesToDepot(originalLocation);
+            totalNumberOfMovesUsed += movesToAppleton;
+            setOrderNumbers(RETURN_ORDER_NUMBER, movesToAppleton);
         }
 
         this.totalNumberOfMovesUsed = totalNumberOfMovesUsed;
@@ -167,25 +244,200 @@ public class Drone {
     }
 
     /**
-     * Given the current location and the remaining orders, this method iterates through a Hashmap it creates to return
-     * the next order that we should do, that is, the order has the highest the price per movement performed.
+     * Method that chooses the orders to perform in consolidation mode, a {@link DeliveryTour} at a time: in each
+     * iteration, we choose the tour that gives us the maximum price paid per move among the tours after which we can
+     * still return to Appleton Tower, as found by {@link #getNextTour}. The orders of the tours are stored in
+     * {@link #orderDetailsToDo} in the order they are delivered, the tours in {@link #tours}, and every leg of every
+     * tour is added to {@link #orderNumbers} under the order it is attributed to.
+     * @param orderDetailsArrayList list with all the orderDetails that we could do for a given date.
+     */
+    private void setToursToDo(ArrayList<OrderDetails> orderDetailsArrayList) {
+        ArrayList<OrderDetails> orderOfTheOrders = new ArrayList<>();
+        ArrayList<OrderDetails> remainingOrders = orderDetailsArrayList;
+        ArrayList<DeliveryTour> tours = new ArrayList<>();
+        LongLat originalLocation = APPLETON_TOWER_COORDINATES;
+        int totalNumberOfMovesUsed = 0;
+        DeliveryTour nextTour = getNextTour(originalLocation, remainingOrders, totalNumberOfMovesUsed);
+        while (nextTour != null) {
+            tours.add(nextTour);
+            orderOfTheOrders.addAll(nextTour.getOrders());
+            remainingOrders.removeAll(nextTour.getOrders());
+            for (int i = 0; i < nextTour.getStops().size(); i++) {
+                setOrderNumbers(nextTour.getStopOrderNumbers().get(i), nextTour.getLegMoves().get(i));
+            }
+            totalNumberOfMovesUsed += nextTour.getNumberOfMoves();
+            originalLocation = nextTour.getLastStop();
+            nextTour = getNextTour(originalLocation, remainingOrders, totalNumberOfMovesUsed);
+        }
+        if (!originalLocation.equals(APPLETON_TOWER_COORDINATES)) {
+            int movesToAppleton = returnCostMemo.getMovesToDepot(originalLocation);
+            totalNumberOfMovesUsed += movesToAppleton;
+            setOrderNumbers(RETURN_ORDER_NUMBER, movesToAppleton);
+        }
+
+        this.totalNumberOfMovesUsed = totalNumberOfMovesUsed;
+        this.tours = tours;
+        orderDetailsToDo = orderOfTheOrders;
+    }
+
+    /**
+     * Given the current location and the remaining orders, this method returns the next tour that we should do in
+     * consolidation mode. Every remaining order is tried as the first order of a tour, and the tour is then extended,
+     * one order at a time, with the remaining order sharing one of its restaurants that gives the highest price per
+     * move, as long as the orders fit in the {@link #consolidation} limits and the price per move of the tour does not
+     * drop. A tour of a single order is the same as doing the order on its own.
+     * @param originalLocation the current location of the drone
+     * @param remainingOrders the remaining orders that we can perform
+     * @param totalNumberOfMovesUsed the total number of moves used in the day so far
+     * @return the tour that has the highest price per move from our current location, or null if no remaining order
+     * fits in the moves left.
+     */
+    DeliveryTour getNextTour(LongLat originalLocation, ArrayList<OrderDetails> remainingOrders, int totalNumberOfMovesUsed) {
+        PlanningMetrics.SCHEDULING_ITERATIONS.increment();
+        PlannerEvents.SchedulingRoundEvent event = new PlannerEvents.SchedulingRoundEvent();
+        event.begin();
+        int feasibleOrders = 0;
+        DeliveryTour bestTour = null;
+        for (OrderDetails firstOrder : remainingOrders) {
+            DeliveryTour tour = getTourWithinMovesLeft(originalLocation, List.of(firstOrder), totalNumberOfMovesUsed);
+            if (tour == null) {
+                continue;
+            }
+            feasibleOrders++;
+            DeliveryTour extendedTour = tour;
+            while (extendedTour != null) {
+                tour = extendedTour;
+                extendedTour = null;
+                for (OrderDetails remainingOrder : remainingOrders) {
+                    if (tour.getOrders().contains(remainingOrder) || !sharesRestaurant(tour, remainingOrder)) {
+                        continue;
+                    }
+                    ArrayList<OrderDetails> orders = new ArrayList<>(tour.getOrders());
+                    orders.add(remainingOrder);
+                    if (!consolidation.allows(orders)) {
+                        continue;
+                    }
+                    DeliveryTour candidateTour = getTourWithinMovesLeft(originalLocation, orders, totalNumberOfMovesUsed);
+                    if (candidateTour != null && candidateTour.getPricePerMove() >= tour.getPricePerMove()
+                            && (extendedTour == null || candidateTour.getPricePerMove() > extendedTour.getPricePerMove())) {
+                        extendedTour = candidateTour;
+                    }
+                }
+            }
+            if (bestTour == null || tour.getPricePerMove() > bestTour.getPricePerMove()) {
+                bestTour = tour;
+            }
+        }
+        if (event.shouldCommit()) {
+            event.originLongitude = originalLocation.getLongitude();
+            event.originLatitude = originalLocation.getLatitude();
+            event.remainingOrders = remainingOrders.size();
+            event.feasibleOrders = feasibleOrders;
+            event.chosenOrderNo = bestTour == null ? null : bestTour.getOrders().get(0).getOrderNo();
+            event.commit();
+        }
+        return bestTour;
+    }
+
+    /**
+     * Helper method that builds the tour serving the given orders from the current location, if the drone can still
+     * return to Appleton Tower from its last stop afterwards.
+     * @param originalLocation the current location of the drone
+     * @param orders the orders of the tour
+     * @param totalNumberOfMovesUsed the total number of moves used in the day so far
+     * @return the DeliveryTour of the orders, or null if it does not fit in the moves left.
+     */
+    private DeliveryTour getTourWithinMovesLeft(LongLat originalLocation, List<OrderDetails> orders, int totalNumberOfMovesUsed) {
+        int movesLeft = MAXIMUM_NUMBER_OF_MOVES - 1 - totalNumberOfMovesUsed;
+        DeliveryTour tour = DeliveryTour.build(originalLocation, orders, pathFinder, movesLeft);
+        if (tour == null) {
+            return null;
+        }
+        int movesToAppleton = returnCostMemo.getMovesToDepot(tour.getLastStop());
+        if (movesToAppleton == ReturnCostMemo.UNREACHABLE || tour.getNumberOfMoves() + movesToAppleton > movesLeft) {
+            return null;
+        }
+        return tour;
+    }
+
+    /**
+     * Helper method that returns true if the given order is picked up from one of the restaurants of the given tour.
+     * @param tour the tour
+     * @param order the order
+     * @return true if the order shares a restaurant with the tour, false otherwise.
+     */
+    private static boolean sharesRestaurant(DeliveryTour tour, OrderDetails order) {
+        for (OrderDetails tourOrder : tour.getOrders()) {
+            for (LongLat restaurant : order.getDeliverFromLongLat()) {
+                if (tourOrder.getDeliverFromLongLat().contains(restaurant)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method that fills the {@link #returnCostMemo} with the number of moves needed to return to Appleton Tower from
+     * every location where we may deliver an order, so that every check made while choosing the orders is a lookup.
+     * @param orderDetailsArrayList list with all the orderDetails that we could do for a given date.
+     */
+    private void precomputeReturnCosts(ArrayList<OrderDetails> orderDetailsArrayList) {
+        ArrayList<LongLat> deliveryLocations = new ArrayList<>();
+        for (OrderDetails orderDetails : orderDetailsArrayList) {
+            deliveryLocations.add(orderDetails.getDeliverToLongLat());
+        }
+        returnCostMemo.precompute(deliveryLocations);
+    }
+
+    /**
+     * Given the current location and the remaining orders, this method returns the next order that we should do at the
+     * start of the day, when none of the moves of the drone have been used.
      * @param originalLocation the current location of the drone
      * @param remainingOrders the remaining orders that we can perform
      * @return the order that has the highest the price per movement performed from our current location.
      */
-    private OrderDetails getNextOrder(LongLat originalLocation, ArrayList<OrderDetails> remainingOrders) {
-        HashMap<OrderDetails, Double> pricePerMovementOfRemainingOrderDetails = new HashMap<OrderDetails, Double>();
+    OrderDetails getNextOrder(LongLat originalLocation, ArrayList<OrderDetails> remainingOrders) {
+        return getNextOrder(originalLocation, remainingOrders, 0);
+    }
+
+    /**
+     * Given the current location and the remaining orders, this method iterates through a Hashmap it creates to return
+     * the next order that we should do, that is, the order has the highest the price per movement performed among the
+     * orders after which the drone can still return to Appleton Tower. The moves left cap the legs flown for every
+     * order, so an order that can not fit in them is rejected with as few moves simulated as possible, and most of
+     * the time with none at all.
+     * @param originalLocation the current location of the drone
+     * @param remainingOrders the remaining orders that we can perform
+     * @param totalNumberOfMovesUsed the total number of moves used in the day so far
+     * @return the order that has the highest the price per movement performed from our current location, or null if
+     * no remaining order fits in the moves left.
+     */
+    OrderDetails getNextOrder(LongLat originalLocation, ArrayList<OrderDetails> remainingOrders, int totalNumberOfMovesUsed) {
+        PlanningMetrics.SCHEDULING_ITERATIONS.increment();
+        PlannerEvents.SchedulingRoundEvent event = new PlannerEvents.SchedulingRoundEvent();
+        event.begin();
+        // Insertion order, so that ties in the price per movement go to the first remaining order on every run
+        HashMap<OrderDetails, Double> pricePerMovementOfRemainingOrderDetails = new LinkedHashMap<OrderDetails, Double>();
         for (OrderDetails remainingOrder : remainingOrders){
-            if (canPerformNextOrder(originalLocation, remainingOrder)){
+            int maximumMoves = getMaximumMovesForOrder(remainingOrder, totalNumberOfMovesUsed);
+            int numberOfMoves = getNumberOfMovesWithin(originalLocation, remainingOrder, maximumMoves);
+            if (numberOfMoves != LegResult.UNREACHABLE){
                 Integer price = remainingOrder.getPrice();
-                var restaurants = remainingOrder.getDeliverFromLongLat();
-                Integer numberOfMoves = getNumberOfMoves(originalLocation, remainingOrder, restaurants);
                 Double pricePerMovement = (double) (price / numberOfMoves);
                 pricePerMovementOfRemainingOrderDetails.put(remainingOrder, pricePerMovement);
             }
 
         }
         OrderDetails nextOrder = getMaximumValueOfHashmap(pricePerMovementOfRemainingOrderDetails);
+        if (event.shouldCommit()) {
+            event.originLongitude = originalLocation.getLongitude();
+            event.originLatitude = originalLocation.getLatitude();
+            event.remainingOrders = remainingOrders.size();
+            event.feasibleOrders = pricePerMovementOfRemainingOrderDetails.size();
+            event.chosenOrderNo = nextOrder == null ? null : nextOrder.getOrderNo();
+            event.commit();
+        }
         return nextOrder;
     }
 
@@ -199,13 +451,31 @@ public class Drone {
      * @return True if we can do the next order and then return to Appleton, false otherwise
      */
     private boolean canReturnToAppleton(Integer movesAdded, OrderDetails nextOrder, Integer totalNumberOfMovesUsed){
-        int totalMovesNeededToReturnToAppleton = movesAdded
-                + travelToDestination(nextOrder.getDeliverToLongLat(), APPLETON_TOWER_COORDINATES).size();
+        int movesToAppleton = returnCostMemo.getMovesToDepot(nextOrder.getDeliverToLongLat());
+        if (movesToAppleton == ReturnCostMemo.UNREACHABLE) {
+            return false;
+        }
+        int totalMovesNeededToReturnToAppleton = movesAdded + movesToAppleton;
 
         return totalNumberOfMovesUsed + totalMovesNeededToReturnToAppleton < MAXIMUM_NUMBER_OF_MOVES;
     }
 
 
+    /**
+     * Helper method that returns the largest number of moves the drone can use to perform the given order, so that it
+     * can still return to Appleton Tower afterwards, as checked by {@link #canReturnToAppleton}.
+     * @param nextOrder OrderDetails representing the order
+     * @param totalNumberOfMovesUsed the total number of moves used in the day so far
+     * @return the largest number of moves the order can use, which is negative if it can not be performed at all.
+     */
+    private int getMaximumMovesForOrder(OrderDetails nextOrder, int totalNumberOfMovesUsed) {
+        int movesToAppleton = returnCostMemo.getMovesToDepot(nextOrder.getDeliverToLongLat());
+        if (movesToAppleton == ReturnCostMemo.UNREACHABLE) {
+            return -1;
+        }
+        return MAXIMUM_NUMBER_OF_MOVES - 1 - totalNumberOfMovesUsed - movesToAppleton;
+    }
+
     /**
      * Method that, given the current location the drone is in and the details of the next order, calculates if there is
      * a possible path connecting our original location, the restaurants of the next order and the coordinates where we
@@ -219,39 +489,108 @@ public class Drone {
      */
     private boolean canPerformNextOrder(LongLat originalLocation, OrderDetails nextOrder){
         var restaurants = nextOrder.getDeliverFromLongLat();
+        var deliverTo = nextOrder.getDeliverToLongLat();
         if (restaurants.size() == 1){
-            try {
-                var numberOfMoves = travelToDestination(originalLocation, restaurants.get(0)).size()
-                        + travelToDestination(restaurants.get(0), nextOrder.getDeliverToLongLat()).size();
-            }
-            catch (NullPointerException e){
-                return false;
-            }
-
+            return isReachable(originalLocation, restaurants.get(0), deliverTo);
         }
         else if (restaurants.size() == 2){
-            try {
-                var numberOfMoves1 = travelToDestination(originalLocation, restaurants.get(0)).size()
-                        + travelToDestination(restaurants.get(0), restaurants.get(1)).size()
-                        + travelToDestination(restaurants.get(1), nextOrder.getDeliverToLongLat()).size();
-            }
-            catch (NullPointerException e){
-                try {
-                    var numberOfMoves2 = travelToDestination(originalLocation, restaurants.get(1)).size()
-                            + travelToDestination(restaurants.get(1), restaurants.get(0)).size()
-                            + travelToDestination(restaurants.get(0), nextOrder.getDeliverToLongLat()).size();
-                }
-                catch (NullPointerException e2) {
-                    return false;
-                }
+            return isReachable(originalLocation, restaurants.get(0), restaurants.get(1), deliverTo)
+                    || isReachable(originalLocation, restaurants.get(1), restaurants.get(0), deliverTo);
+        }
+        return true;
+    }
+
+    /**
+     * Helper method that returns true if the drone can fly through every given point in order.
+     * @param points the points the drone flies through, starting with its current location.
+     * @return true if every leg between two consecutive points can be flown, false otherwise.
+     */
+    private boolean isReachable(LongLat... points) {
+        for (int i = 0; i + 1 < points.length; i++) {
+            if (!pathFinder.isReachable(points[i], points[i + 1])) {
+                return false;
             }
+        }
+        return true;
+    }
 
+    /**
+     * Helper method that returns the number of moves the drone needs to fly through every given point in order.
+     * @param points the points the drone flies through, starting with its current location.
+     * @return the total number of moves of the legs between consecutive points, or {@value LegResult#UNREACHABLE} if
+     * one of those legs can not be flown.
+     */
+    private int getNumberOfMovesThrough(LongLat... points) {
+        int numberOfMoves = 0;
+        for (int i = 0; i + 1 < points.length; i++) {
+            LegResult leg = pathFinder.getLeg(points[i], points[i + 1]);
+            if (!leg.isReachable()) {
+                return LegResult.UNREACHABLE;
+            }
+            numberOfMoves += leg.getNumberOfMoves();
         }
+        return numberOfMoves;
+    }
 
-        return true;
 
+    /**
+     * Helper method that returns the number of moves the drone needs to fly through every given point in order, if it
+     * is at most the given number of moves. The straight-line lower bound of the moves is checked before any leg is
+     * flown, and every leg is capped by the moves left after the previous ones.
+     * @param maximumMoves the largest number of moves that is of any use.
+     * @param points the points the drone flies through, starting with its current location.
+     * @return the total number of moves of the legs between consecutive points, or {@value LegResult#UNREACHABLE} if
+     * one of those legs can not be flown or they need more than maximumMoves moves.
+     */
+    private int getNumberOfMovesThrough(int maximumMoves, LongLat... points) {
+        int lowerBound = 0;
+        for (int i = 0; i + 1 < points.length; i++) {
+            lowerBound += PathFinder.getLowerBoundOfMoves(points[i], points[i + 1]);
+        }
+        if (lowerBound > maximumMoves) {
+            PlanningMetrics.LOWER_BOUND_REJECTIONS.increment();
+            return LegResult.UNREACHABLE;
+        }
+        int numberOfMoves = 0;
+        for (int i = 0; i + 1 < points.length; i++) {
+            LegResult leg = pathFinder.getLeg(points[i], points[i + 1], maximumMoves - numberOfMoves);
+            if (!leg.isReachable() || leg.getNumberOfMoves() > maximumMoves - numberOfMoves) {
+                return LegResult.UNREACHABLE;
+            }
+            numberOfMoves += leg.getNumberOfMoves();
+        }
+        return numberOfMoves;
     }
 
+    /**
+     * Helper method that, given the current location of the drone and the order we want to do, returns the shortest
+     * number of moves performed by the drone when performing that order, if it is at most the given number of moves.
+     * The second order of the restaurants is capped by the moves of the first one, as it is only of any use if it is
+     * shorter.
+     * @param originalLocation the current location of the drone
+     * @param remainingOrder the order we want to do
+     * @param maximumMoves the largest number of moves the order can use.
+     * @return the shortest number of moves performed by the drone when performing that order, or
+     * {@value LegResult#UNREACHABLE} if the order can not be performed within maximumMoves moves.
+     */
+    private int getNumberOfMovesWithin(LongLat originalLocation, OrderDetails remainingOrder, int maximumMoves) {
+        var restaurants = remainingOrder.getDeliverFromLongLat();
+        var deliverTo = remainingOrder.getDeliverToLongLat();
+        if (maximumMoves < 0) {
+            return LegResult.UNREACHABLE;
+        }
+        if (restaurants.size() == 1){
+            return getNumberOfMovesThrough(maximumMoves, originalLocation, restaurants.get(0), deliverTo);
+        }
+        else if (restaurants.size() == 2){
+            int numberOfMoves1 = getNumberOfMovesThrough(maximumMoves, originalLocation, restaurants.get(0), restaurants.get(1), deliverTo);
+            int numberOfMoves2 = getNumberOfMovesThrough(Math.min(maximumMoves, numberOfMoves1), originalLocation,
+                    restaurants.get(1), restaurants.get(0), deliverTo);
+            return Math.min(numberOfMoves1, numberOfMoves2);
+        }
+        System.err.println("The maximum number of restaurants for an order is :" + MAXIMUM_NUMBER_OF_SHOPS);
+        return LegResult.UNREACHABLE;
+    }
 
     /**
      * Helper method that, given the current location of the drone, the order we want to do and the restaurants of that
@@ -263,34 +602,15 @@ public class Drone {
      */
     private Integer getNumberOfMoves(LongLat originalLocation, OrderDetails remainingOrder, ArrayList<LongLat> restaurants) {
         Integer numberOfMoves = 10000;
+        var deliverTo = remainingOrder.getDeliverToLongLat();
         if (restaurants.size() == 1){
-            numberOfMoves = travelToDestination(originalLocation, restaurants.get(0)).size()
-                    + travelToDestination(restaurants.get(0), remainingOrder.getDeliverToLongLat()).size();
+            numberOfMoves = getNumberOfMovesThrough(originalLocation, restaurants.get(0), deliverTo);
         }
         else if (restaurants.size() == 2){
-            //The try and catch are performed to catch NullPointerExceptions that happen when we have some moves that we
-            //unable to perform. However, we only use this method when we know we can make a move, so at least one of the
-            //paths must be legal.
-            try {
-                var numberOfMoves1 = travelToDestination(originalLocation, restaurants.get(0)).size()
-                        + travelToDestination(restaurants.get(0), restaurants.get(1)).size()
-                        + travelToDestination(restaurants.get(1), remainingOrder.getDeliverToLongLat()).size();
-                var numberOfMoves2 = travelToDestination(originalLocation, restaurants.get(1)).size()
-                        + travelToDestination(restaurants.get(1), restaurants.get(0)).size()
-                        + travelToDestination(restaurants.get(0), remainingOrder.getDeliverToLongLat()).size();
-                numberOfMoves = Math.min(numberOfMoves1, numberOfMoves2);
-            } catch (NullPointerException e) {
-                try {
-                    numberOfMoves = travelToDestination(originalLocation, restaurants.get(0)).size()
-                            + travelToDestination(restaurants.get(0), restaurants.get(1)).size()
-                            + travelToDestination(restaurants.get(1), remainingOrder.getDeliverToLongLat()).size();
-                }
-                catch (NullPointerException e1){
-                    numberOfMoves = travelToDestination(originalLocation, restaurants.get(1)).size()
-                            + travelToDestination(restaurants.get(1), restaurants.get(0)).size()
-                            + travelToDestination(restaurants.get(0), remainingOrder.getDeliverToLongLat()).size();
-                }
-            }
+            // We only use this method when we know we can make the order, so at least one of the two orders of the
+            // restaurants can be flown
+            numberOfMoves = Math.min(getNumberOfMovesThrough(originalLocation, restaurants.get(0), restaurants.get(1), deliverTo),
+                    getNumberOfMovesThrough(originalLocation, restaurants.get(1), restaurants.get(0), deliverTo));
         }
         else{
             System.err.println("The maximum number of restaurants for an order is :" + MAXIMUM_NUMBER_OF_SHOPS);
@@ -317,7 +637,9 @@ public class Drone {
      */
     public void setCoordinatesToVisit(ArrayList<OrderDetails> orderDetailsArrayList){
         ArrayList<LongLat> coordinatesToVisit = new ArrayList<LongLat>();
+        ArrayList<String> stopOrderNumbers = new ArrayList<>();
         coordinatesToVisit.add(APPLETON_TOWER_COORDINATES);
+        stopOrderNumbers.add(RETURN_ORDER_NUMBER);
         for (OrderDetails orderDetails: orderDetailsArrayList){
             var restaurantsLongLats = orderDetails.getDeliverFromLongLat();
             var destinationLongLat = orderDetails.getDeliverToLongLat();
@@ -326,38 +648,20 @@ public class Drone {
             }
             else if (restaurantsLongLats.size() == 2) {
                 //We need to find the shortest path for visiting from our current location the two restaurants and then
-                // deliver the order. The try and catch are performed to catch NullPointerExceptions that happen when we
-                // have some moves that we are unable to perform. However, if we set the coordinates then when we know
-                // we can make a move, so at least one of the paths must be legal.
-                try {
-                    var numberOfMoves1 = travelToDestination(coordinatesToVisit.get(coordinatesToVisit.size() - 1), restaurantsLongLats.get(0)).size()
-                            + travelToDestination(restaurantsLongLats.get(0), restaurantsLongLats.get(1)).size()
-                            + travelToDestination(restaurantsLongLats.get(1), destinationLongLat).size();
-                    var numberOfMoves2 = travelToDestination(coordinatesToVisit.get(coordinatesToVisit.size() - 1), restaurantsLongLats.get(1)).size()
-                            + travelToDestination(restaurantsLongLats.get(1), restaurantsLongLats.get(0)).size()
-                            + travelToDestination(restaurantsLongLats.get(0), destinationLongLat).size();
-                    if (numberOfMoves1 < numberOfMoves2) {
-                        coordinatesToVisit.add(restaurantsLongLats.get(0));
-                        coordinatesToVisit.add(restaurantsLongLats.get(1));
-                    } else {
-                        coordinatesToVisit.add(restaurantsLongLats.get(1));
-                        coordinatesToVisit.add(restaurantsLongLats.get(0));
-                    }
-                }
-                catch (NullPointerException e){
-                    try {
-                        var numberOfMoves1 = travelToDestination(coordinatesToVisit.get(coordinatesToVisit.size() - 1), restaurantsLongLats.get(0)).size()
-                                + travelToDestination(restaurantsLongLats.get(0), restaurantsLongLats.get(1)).size()
-                                + travelToDestination(restaurantsLongLats.get(1), destinationLongLat).size();
-                        coordinatesToVisit.add(restaurantsLongLats.get(0));
-                        coordinatesToVisit.add(restaurantsLongLats.get(1));
-                    }
-                    catch (NullPointerException e1){
-                        coordinatesToVisit.add(restaurantsLongLats.get(1));
-                        coordinatesToVisit.add(restaurantsLongLats.get(0));
-                    }
+                // deliver the order. If one of the two orders of the restaurants can not be flown, its number of moves
+                // is LegResult.UNREACHABLE, so the other one is chosen.
+                var currentLocation = coordinatesToVisit.get(coordinatesToVisit.size() - 1);
+                var numberOfMoves1 = getNumberOfMovesThrough(currentLocation, restaurantsLongLats.get(0),
+                        restaurantsLongLats.get(1), destinationLongLat);
+                var numberOfMoves2 = getNumberOfMovesThrough(currentLocation, restaurantsLongLats.get(1),
+                        restaurantsLongLats.get(0), destinationLongLat);
+                if (numberOfMoves1 < numberOfMoves2) {
+                    coordinatesToVisit.add(restaurantsLongLats.get(0));
+                    coordinatesToVisit.add(restaurantsLongLats.get(1));
+                } else {
+                    coordinatesToVisit.add(restaurantsLongLats.get(1));
+                    coordinatesToVisit.add(restaurantsLongLats.get(0));
                 }
-
             }
             else{
                 System.err.println("The maximum number of restaurants for an order is :" + MAXIMUM_NUMBER_OF_SHOPS);
@@ -365,170 +669,103 @@ public class Drone {
             }
 
             coordinatesToVisit.add(destinationLongLat);
+            while (stopOrderNumbers.size() < coordinatesToVisit.size()) {
+                stopOrderNumbers.add(orderDetails.getOrderNo());
+            }
         }
         this.coordinatesToVisit = coordinatesToVisit;
+        this.stopOrderNumbers = stopOrderNumbers;
+    }
+
+    /**
+     * Method that populates the {@link #coordinatesToVisit} field in consolidation mode with Appleton Tower followed by
+     * the stops of every tour in {@link #tours}.
+     */
+    private void setCoordinatesToVisitOfTours() {
+        ArrayList<LongLat> coordinatesToVisit = new ArrayList<LongLat>();
+        ArrayList<String> stopOrderNumbers = new ArrayList<>();
+        coordinatesToVisit.add(APPLETON_TOWER_COORDINATES);
+        stopOrderNumbers.add(RETURN_ORDER_NUMBER);
+        for (DeliveryTour tour : tours) {
+            coordinatesToVisit.addAll(tour.getStops());
+            stopOrderNumbers.addAll(tour.getStopOrderNumbers());
+        }
+        this.coordinatesToVisit = coordinatesToVisit;
+        this.stopOrderNumbers = stopOrderNumbers;
+    }
+
+    /**
+     * Method that flies the route of the orders chosen, and drops the last order, or the last tour in consolidation
+     * mode, until the route fits in {@link #MAXIMUM_NUMBER_OF_MOVES} moves. The orders are chosen with the legs
+     * between the stops themselves, but the drone only gets close to every stop and flies the next leg from there, so
+     * the route flown may need more moves than the legs it was chosen with, or even find a leg blocked.
+     */
+    private void setFlownRoute() {
+        while (true) {
+            if (tours != null) {
+                setCoordinatesToVisitOfTours();
+            } else {
+                setCoordinatesToVisit(getOrderDetailsToDo());
+            }
+            boolean flown = setRoute(getCoordinatesToVisit());
+            if ((flown && route.size() - 1 <= MAXIMUM_NUMBER_OF_MOVES) || orderDetailsToDo.isEmpty()) {
+                return;
+            }
+            if (tours != null) {
+                DeliveryTour lastTour = tours.remove(tours.size() - 1);
+                orderDetailsToDo.removeAll(lastTour.getOrders());
+            } else {
+                orderDetailsToDo.remove(orderDetailsToDo.size() - 1);
+            }
+        }
     }
 
     /**
      * Given the key coordinates we need to visit, the setRoute method constructs a move-by-move route by avoiding
-     * the no-fly zones and staying inside the confinement area while visiting each coordinate to visit in order. It
-     * then populates the {@link #route} field with the resulting route.
+     * the no-fly zones and staying inside the confinement area while visiting each coordinate to visit in order. Every
+     * leg starts where the drone ended the previous one, close to the previous coordinate. It then populates the
+     * {@link #route} field with the resulting route, and the {@link #orderNumbers} and {@link #totalNumberOfMovesUsed}
+     * fields with the moves it flies.
      * @param coordinatesToVisit the list of coordinates we need to visit.
+     * @return true if every coordinate could be reached, false if the route stops at a coordinate it can not reach.
      */
-    public void setRoute(ArrayList<LongLat> coordinatesToVisit) {
+    public boolean setRoute(ArrayList<LongLat> coordinatesToVisit) {
         angles.clear();
+        orderNumbers = new ArrayList<>();
         ArrayList<LongLat> route = new ArrayList<>();
         route.add(coordinatesToVisit.get(0));
+        this.route = route;
         for (int i = 0; i < coordinatesToVisit.size(); i++) {
             int nextIndex= i+1;
             if(i == coordinatesToVisit.size()-1){
                 nextIndex = 0;
             }
             var nextDestination = coordinatesToVisit.get(nextIndex);
-            var currentPosition = coordinatesToVisit.get(i);
+            var currentPosition = route.get(route.size() - 1);
             var movementsArray = travelToDestination(currentPosition, nextDestination);
-            if (movementsArray != null) {
-                route.addAll(movementsArray);
+            if (movementsArray == null) {
+                totalNumberOfMovesUsed = route.size() - 1;
+                return false;
             }
-
+            route.addAll(movementsArray);
+            setOrderNumbers(stopOrderNumbers == null ? RETURN_ORDER_NUMBER : stopOrderNumbers.get(nextIndex),
+                    movementsArray.size());
         }
-        this.route = route;
+        totalNumberOfMovesUsed = route.size() - 1;
+        return true;
     }
 
     /**
-     * Method that given two LongLat coordinates, constructs a move-by-move route between those two points by avoiding
-     * the no-fly zones and staying inside the confinement area. It first tries to go directly using no landmarks, and
-     * if the route would not be possible, then it tries to reach the destination by choosing (if possible) the shortest
-     * route to reach the destination using one landmark.
+     * Method that given two LongLat coordinates, constructs a move-by-move route between those two points using the
+     * {@link #pathFinder}, and adds the angles of every move of that route to {@link #angles}.
      * @param originalLocation the point the drone is currently in.
      * @param destination the point the drone wants to reach.
      * @return an ArrayList of objects of type LongLat that represents the coordinates of the move-by-move route
-     * between those two points by avoiding the no-fly zones and staying inside the confinement area.
+     * between those two points by avoiding the no-fly zones and staying inside the confinement area, or null if the
+     * destination can not be reached.
      */
     private ArrayList<LongLat> travelToDestination(LongLat originalLocation, LongLat destination){
-
-        ArrayList<LongLat> movesList = travelToDestinationWithNoLandmarks(originalLocation, destination);
-        // We first see if it is possible to go directly to the destination with no Landmarks
-        if (movesList.size() != 0) {
-            angles.addAll(getMovesAngles(originalLocation, destination));
-            return movesList;
-        }
-        // If not, we then try to go to the destination using only one landmark
-        else{
-            // For every landmark we check if we can go there and with how many moves, and we choose the one which gives us the shortest path
-            HashMap<ArrayList<LongLat>, ArrayList<Integer>> arrayOfMovesAndOfAngles = new HashMap<ArrayList<LongLat>, ArrayList<Integer>>();
-            for (LongLat landmark : landmarks){
-                ArrayList<LongLat> moves = travelToDestinationWithNoLandmarks(originalLocation, landmark);
-                ArrayList<LongLat> fromLandmarkToDestination = travelToDestinationWithNoLandmarks(landmark, destination);
-
-                ArrayList<Integer> anglesToDestination = getMovesAngles(originalLocation, landmark);
-                ArrayList<Integer> anglesFromLandmarkToDestination = getMovesAngles(landmark, destination);
-
-                if(moves.size() != 0 && fromLandmarkToDestination.size() != 0) {
-                    //We eliminate the hovering over the landmark
-                    moves.remove(moves.size()-1);
-                    anglesToDestination.remove(anglesToDestination.size()-1);
-
-                    moves.addAll(fromLandmarkToDestination);
-                    anglesToDestination.addAll(anglesFromLandmarkToDestination);
-                    arrayOfMovesAndOfAngles.put(moves, anglesToDestination);
-                }
-            }
-            // We iterate over the Hashmap to choose the non-zero path with the least moves
-            return getShortestPathUsingLandmarks(arrayOfMovesAndOfAngles);
-        }
-
-    }
-
-
-    /**
-     * Helper method of the travelToDestination method. This method constructs a move-by-move route between the two given points
-     * by trying to go directly to the destination using no landmarks.
-     * @param originalLocation the point the drone is currently in.
-     * @param destination the point the drone wants to reach.
-     * @return null if we can not go to the Destination with no landmarks, the direct move-by-move route between the two
-     * given points otherwise
-     */
-    private ArrayList<LongLat> travelToDestinationWithNoLandmarks(LongLat originalLocation, LongLat destination){
-        ArrayList<LongLat> movesList = new ArrayList<>();
-        var currentPosition = originalLocation;
-        while (!currentPosition.closeTo(destination)){
-            var nextAngle = currentPosition.nextAngle(destination);
-            var possibleNextPosition = currentPosition.nextPosition(nextAngle);
-            if (currentPosition.isValidMovement(possibleNextPosition, noFlyZonesPoints)) {
-                movesList.add(possibleNextPosition);
-
-                //If we reach the next destination we have to hover in the same place for one turn
-                if(possibleNextPosition.closeTo(destination)){
-                    movesList.add(possibleNextPosition);
-                }
-                currentPosition = possibleNextPosition;
-
-            }
-            else{
-                movesList.clear();
-                return movesList;
-            }
-        }
-        return movesList;
-    }
-
-
-    /**
-     * Method that, given the current drone location and the intended destination, it returns an ArrayList whose length
-     * equals the number of moves we would need to perform to arrive to that destination, and where the ith element of
-     * the resulting ArrayList represents the angle we would need to perform the ith move from the current drone location
-     * to the intended destination
-     * @param originalLocation the point the drone is currently in.
-     * @param destination the point the drone wants to reach.
-     * @return An ArrayList of every angle the drone would perform when travelling from originalLocation to destination.
-     */
-    private ArrayList<Integer> getMovesAngles(LongLat originalLocation, LongLat destination){
-        var currentPosition = originalLocation;
-        ArrayList<Integer> movementAngles = new ArrayList<>();
-        while (!currentPosition.closeTo(destination)){
-            var nextAngle = currentPosition.nextAngle(destination);
-            var possibleNextPosition = currentPosition.nextPosition(nextAngle);
-            if (currentPosition.isValidMovement(possibleNextPosition, noFlyZonesPoints)) {
-                movementAngles.add(nextAngle);
-                currentPosition = possibleNextPosition;
-
-            }
-            else{
-                movementAngles.clear();
-                return movementAngles;
-            }
-        }
-        //We account for the hovering at the end
-        movementAngles.add(HOVERING_ANGLE);
-        return movementAngles;
-    }
-
-
-    /**
-     * Helper method of the {@link #travelToDestination(LongLat, LongLat)} where, given a Hashmap with all the different
-     * possible paths to perform using landmarks, and the corresponding list of angles for each of those paths, it
-     * returns the shortest path of all and sets the corresponding values of {@link #angles}.
-     * @param arrayOfMovesAndOfAngles the Hashmap with all the different possible paths to perform using landmarks,
-     *                                and the corresponding list of angles for each of those paths
-     * @return null if the ArrayList is empty, the shortest path of the Hashmap otherwise.
-     */
-    private ArrayList<LongLat> getShortestPathUsingLandmarks(HashMap<ArrayList<LongLat>, ArrayList<Integer>> arrayOfMovesAndOfAngles) {
-        Map.Entry<ArrayList<LongLat>, ArrayList<Integer>> minEntry = null;
-        for (Map.Entry<ArrayList<LongLat>, ArrayList<Integer>> entry : arrayOfMovesAndOfAngles.entrySet()) {
-            if (minEntry == null || (entry.getValue().size() < minEntry.getValue().size() && entry.getValue().size() != 0)) {
-                minEntry = entry;
-            }
-        }
-        ArrayList<LongLat> shortestPathUsingLandmarks = new ArrayList<>();
-        try {
-            shortestPathUsingLandmarks = minEntry.getKey();
-            angles.addAll(minEntry.getValue());
-            return shortestPathUsingLandmarks;
-        }
-        catch (NullPointerException e) {
-            return null;
-        }
+        return pathFinder.travelToDestination(originalLocation, destination, angles);
     }
 
 
@@ -548,13 +785,10 @@ public class Drone {
                 maxEntry = entry;
             }
         }
-        try {
-            return maxEntry.getKey();
-        }
-        catch (NullPointerException e){
+        if (maxEntry == null) {
             return null;
         }
-
+        return maxEntry.getKey();
     }
 
 
@@ -617,7 +851,15 @@ public class Drone {
         return priceDone;
     }
 
+    public PathFinder getPathFinder() {
+        return pathFinder;
+    }
+
     public double getPercentageMonetaryValue() {
         return percentageMonetaryValue;
     }
+
+    public ArrayList<DeliveryTour> getTours() {
+        return tours;
+    }
 }
@@ -0,0 +1,152 @@
+package uk.ac.ed.inf;
+
+import com.mapbox.geojson.Point;
+
+/**
+ * Immutable class that represents the location of a point using its longitude and latitude stored as fixed-point
+ * longs, where every unit is {@value #DEGREES_PER_UNIT} degrees. Two FixedPointLongLat objects are equal if and only
+ * if they represent the same snapped location, which makes them cheap and safe to use as keys of caches, closed sets
+ * and any other structure keyed on positions.
+ */
+public final class FixedPointLongLat {
+
+    /** Double representing the number of degrees that a single fixed-point unit represents */
+    public static final double DEGREES_PER_UNIT = 1e-9;
+
+    /** Double representing the number of fixed-point units in a degree */
+    private static final double UNITS_PER_DEGREE = 1e9;
+
+    /** Long representing the longitude of the location of the point in fixed-point units */
+    private final long longitudeUnits;
+
+    /** Long representing the latitude of the location of the point in fixed-point units */
+    private final long latitudeUnits;
+
+
+    /**
+     * Constructor of the FixedPointLongLat class.
+     * @param longitudeUnits the longitude of the location of the point in fixed-point units.
+     * @param latitudeUnits the latitude of the location of the point in fixed-point units.
+     */
+    public FixedPointLongLat(long longitudeUnits, long latitudeUnits) {
+        this.longitudeUnits = longitudeUnits;
+        this.latitudeUnits = latitudeUnits;
+    }
+
+    /**
+     * Method that snaps a longitude and a latitude in degrees to the nearest fixed-point location.
+     * @param longitude the longitude in degrees.
+     * @param latitude the latitude in degrees.
+     * @return the nearest FixedPointLongLat to the given longitude and latitude.
+     */
+    public static FixedPointLongLat fromDegrees(double longitude, double latitude) {
+        return new FixedPointLongLat(toUnits(longitude), toUnits(latitude));
+    }
+
+    /**
+     * Method that snaps the given LongLat object to the nearest fixed-point location.
+     * @param longLat the LongLat object we want to snap.
+     * @return the nearest FixedPointLongLat to the given LongLat.
+     */
+    public static FixedPointLongLat fromLongLat(LongLat longLat) {
+        return fromDegrees(longLat.getLongitude(), longLat.getLatitude());
+    }
+
+    /**
+     * Method that snaps the given mapbox.geojson.Point to the nearest fixed-point location.
+     * @param point the mapbox.geojson.Point we want to snap.
+     * @return the nearest FixedPointLongLat to the given point.
+     */
+    public static FixedPointLongLat fromPoint(Point point) {
+        return fromDegrees(point.longitude(), point.latitude());
+    }
+
+    /**
+     * Helper method that transforms a value in degrees into fixed-point units.
+     * @param degrees the value in degrees.
+     * @return the value in fixed-point units, rounded to the nearest unit.
+     */
+    public static long toUnits(double degrees) {
+        return Math.round(degrees * UNITS_PER_DEGREE);
+    }
+
+    /**
+     * Helper method that transforms a value in fixed-point units into degrees.
+     * @param units the value in fixed-point units.
+     * @return the value in degrees.
+     */
+    public static double toDegrees(long units) {
+        return units / UNITS_PER_DEGREE;
+    }
+
+    /**
+     * Method that transforms this fixed-point location back into a LongLat object.
+     * @return the LongLat object representing this location.
+     */
+    public LongLat toLongLat() {
+        return new LongLat(getLongitude(), getLatitude());
+    }
+
+    /**
+     * Method that transforms this fixed-point location into a mapbox.geojson.Point.
+     * @return the mapbox.geojson.Point representing this location.
+     */
+    public Point toPoint() {
+        return Point.fromLngLat(getLongitude(), getLatitude());
+    }
+
+    public long getLongitudeUnits() {
+        return longitudeUnits;
+    }
+
+    public long getLatitudeUnits() {
+        return latitudeUnits;
+    }
+
+    public double getLongitude() {
+        return toDegrees(longitudeUnits);
+    }
+
+    public double getLatitude() {
+        return toDegrees(latitudeUnits);
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof FixedPointLongLat)) {
+            return false;
+        }
+        FixedPointLongLat that = (FixedPointLongLat) other;
+        return longitudeUnits == that.longitudeUnits && latitudeUnits == that.latitudeUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash(longitudeUnits, latitudeUnits);
+    }
+
+    /**
+     * Helper method that mixes the two fixed-point coordinates of a location into a single hash code, so that the
+     * hash codes of nearby locations are spread over the whole range of integers.
+     * @param longitudeUnits the longitude of the location in fixed-point units.
+     * @param latitudeUnits the latitude of the location in fixed-point units.
+     * @return the hash code of the location.
+     */
+    static int hash(long longitudeUnits, long latitudeUnits) {
+        long mixed = longitudeUnits * 0x9E3779B97F4A7C15L + latitudeUnits;
+        mixed ^= (mixed >>> 32);
+        return (int) mixed;
+    }
+
+    @Override
+    public String toString() {
+        return "FixedPointLongLat{" +
+                "longitude=" + getLongitude() +
+                ", latitude=" + getLatitude() +
+                '}';
+    }
+}
@@ -0,0 +1,134 @@
+package uk.ac.ed.inf;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Executors;
+
+/**
+ * Class of a local stand-in for the web server, which serves the files of a fixture folder laid out as the web server
+ * (the menus, words and buildings folders), such as the folders written by the {@link WorkloadGenerator}. It lets the
+ * application, the batch runner and the benchmarks run against fixed inputs through the same HTTP requests as with the
+ * real web server.
+ */
+public class FixtureServer {
+
+    /** Path representing the folder whose files are served */
+    private final Path fixtureFolder;
+
+    /** HttpServer that receives the requests */
+    private final HttpServer server;
+
+
+    /**
+     * Constructor of the FixtureServer class, which creates the HTTP server serving the given folder on the given port.
+     * @param fixtureFolder the folder whose files are served.
+     * @param port the port where the server listens.
+     * @throws IOException if the server could not be created.
+     */
+    public FixtureServer(Path fixtureFolder, int port) throws IOException {
+        this.fixtureFolder = fixtureFolder.toAbsolutePath().normalize();
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handleFile);
+        server.setExecutor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Main method that takes as user inputs the fixture folder and the port where the server listens, and starts
+     * serving the folder.
+     * @param args the arguments given by the user: the fixture folder and the port.
+     * @throws IOException if the server could not be started.
+     */
+    public static void main(String[] args) throws IOException {
+        FixtureServer fixtureServer = new FixtureServer(Paths.get(args[0]), Integer.parseInt(args[1]));
+        fixtureServer.start();
+        System.out.println("Serving " + args[0] + " on port " + args[1]);
+    }
+
+    /**
+     * Method that starts receiving requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Method that stops receiving requests.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+
+    /**
+     * Handler of every request, which responds with the file of the fixture folder with the same path as the request,
+     * or with a 404 status code if there is no such file. Every file is sent with an ETag and a Last-Modified date
+     * taken from its size and its modification time, and a conditional request whose validators still match the file
+     * gets a 304 status code without a body.
+     * @param exchange the HttpExchange of the request.
+     * @throws IOException if the response could not be sent.
+     */
+    private void handleFile(HttpExchange exchange) throws IOException {
+        Path file = fixtureFolder.resolve(exchange.getRequestURI().getPath().substring(1)).normalize();
+        // Paths with .. are not allowed to leave the fixture folder
+        if (!exchange.getRequestMethod().equals("GET") || !file.startsWith(fixtureFolder) || !Files.isRegularFile(file)) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        Instant lastModified = Files.getLastModifiedTime(file).toInstant().truncatedTo(ChronoUnit.SECONDS);
+        String etag = "\"" + Long.toHexString(lastModified.getEpochSecond()) + "-" + Long.toHexString(Files.size(file))
+                + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Last-Modified",
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(lastModified.atZone(ZoneOffset.UTC)));
+        if (isNotModified(exchange, etag, lastModified)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = Files.readAllBytes(file);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    /**
+     * Helper method that checks whether the validators of the given conditional request still match the file. The
+     * If-None-Match header is used when given, and the If-Modified-Since header otherwise, as in RFC 7232.
+     * @param exchange the HttpExchange of the request.
+     * @param etag the ETag of the file.
+     * @param lastModified the modification time of the file, truncated to seconds.
+     * @return true if the file has not been modified since the client got it, false otherwise.
+     */
+    private static boolean isNotModified(HttpExchange exchange, String etag, Instant lastModified) {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.equals(etag);
+        }
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            try {
+                return !lastModified.isAfter(ZonedDateTime.parse(ifModifiedSince,
+                        DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
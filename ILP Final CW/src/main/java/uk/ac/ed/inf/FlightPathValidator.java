@@ -0,0 +1,401 @@
+package uk.ac.ed.inf;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Class that validates a flight path independently of the {@link PathFinder} that built it, by replaying every move
+ * against the no-fly zones, the confinement area and the limit of moves. Every move must be either a hover or a move
+ * of exactly {@value MOVE_DISTANCE} degrees in a direction that is a multiple of 10 degrees, must start where the
+ * previous move ended, must end inside the confinement area and must not touch any border of a no-fly zone. The
+ * crossings are found with an exact orientation test, so unlike {@link LongLat#intersectsWith} they do not depend on
+ * slopes, and vertical or horizontal borders are handled like every other border. The moves are checked in parallel
+ * chunks, so that a route can be validated after every plan.
+ */
+public class FlightPathValidator {
+
+    /** Double representing the length in degrees of the distance we fly in a move */
+    private static final double MOVE_DISTANCE = 0.00015;
+
+    /** Double representing the largest difference in degrees between the length of a move and
+     * {@value MOVE_DISTANCE}, which allows for the 7 decimals the coordinates of the .geojson files are written with */
+    private static final double MOVE_DISTANCE_TOLERANCE = 1e-6;
+
+    /** Double representing the largest difference in degrees between the direction of a move and its angle */
+    private static final double ANGLE_TOLERANCE = 0.5;
+
+    /** Integer representing the angle which indicates that the drone is hovering */
+    private static final int HOVERING_ANGLE = -999;
+
+    /** Integer representing the number of moves checked together by a single task */
+    private static final int CHUNK_SIZE = 128;
+
+    /** Double representing the relative error bound of the orientation computed with doubles, below which the sign of
+     * the orientation is computed again exactly */
+    private static final double ORIENTATION_ERROR_BOUND = 3.3306690738754716e-16;
+
+    /** String representing the extension of the files read as .geojson routes */
+    private static final String GEOJSON_FILE_EXTENSION = ".geojson";
+
+    /** Array of arrays of doubles where every element is a border line of a no-fly zone, as its origin longitude and
+     * latitude followed by its end longitude and latitude */
+    private final double[][] borderLines;
+
+
+    /**
+     * Constructor of the FlightPathValidator class.
+     * @param noFlyZonesPoints ArrayList of ArrayList of LongLat representing the coordinates of the points forming the
+     *                         boundaries of the no-fly zones.
+     */
+    public FlightPathValidator(ArrayList<ArrayList<LongLat>> noFlyZonesPoints) {
+        ArrayList<double[]> lines = new ArrayList<>();
+        for (ArrayList<LongLat> zone : noFlyZonesPoints) {
+            for (int i = 0; i < zone.size(); i++) {
+                LongLat origin = zone.get(i);
+                LongLat end = zone.get((i + 1) % zone.size());
+                lines.add(new double[]{origin.longitude, origin.latitude, end.longitude, end.latitude});
+            }
+        }
+        borderLines = lines.toArray(new double[0][]);
+    }
+
+    /**
+     * Main method that takes as user inputs a .geojson route or the name of a table in the format of the flightpath
+     * table, the web server port number and the database port number, and prints every violation of the route.
+     * @param args the arguments given by the user: the .geojson file or the table, the web server port number, the
+     *             database port number, and optionally {@value App#OFFLINE_OPTION} followed by the folder the inputs
+     *             are read from.
+     * @throws IOException if the .geojson file could not be read.
+     * @throws InterruptedException if the process was interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        App.setWebServerPort(args[1]);
+        App.setDatabasePort(args[2]);
+        if (args.length > 4 && args[3].equals(App.OFFLINE_OPTION)) {
+            App.setOfflineFolder(Paths.get(args[4]));
+        }
+
+        ArrayList<Move> moves;
+        if (args[0].endsWith(GEOJSON_FILE_EXTENSION)) {
+            moves = toMoves(readGeoJSONRoute(Paths.get(args[0])), null);
+        } else {
+            moves = new Database().getFlightpath(args[0]);
+        }
+        FlightPathValidator validator = new FlightPathValidator(HTTPClient.getNoFlyZones().getNoFlyZonesPoints());
+        List<String> violations = validator.validate(moves);
+        violations.forEach(System.err::println);
+        System.out.println(moves.size() + " moves validated, " + violations.size() + " violations");
+        if (!violations.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Method that validates the route planned by the given drone against the no-fly zones of its PathFinder, printing
+     * every violation found. It is run after every plan, and its time and violations are recorded in the
+     * {@link PlanningMetrics}.
+     * @param drone the drone whose route is validated.
+     * @param planName the name of the plan, such as its date, used when printing the violations.
+     * @return true if the route is valid, false otherwise.
+     */
+    public static boolean validatePlan(Drone drone, String planName) {
+        long startTime = System.nanoTime();
+        FlightPathValidator validator = new FlightPathValidator(drone.getPathFinder().getNoFlyZonesPoints());
+        List<String> violations = validator.validate(drone.getRoute(), drone.getAngles());
+        PlanningMetrics.ROUTE_VALIDATION.recordSince(startTime);
+        PlanningMetrics.ROUTE_VIOLATIONS.add(violations.size());
+        for (String violation : violations) {
+            System.err.println("Invalid route for " + planName + ": " + violation);
+        }
+        return violations.isEmpty();
+    }
+
+    /**
+     * Method that turns a move-by-move route into its moves.
+     * @param route ArrayList of LongLat objects representing all of the coordinates the drone visits, starting with
+     *              the point where it takes off.
+     * @param angles ArrayList of Integers with the angle of every move, or null if the angles are not known, as with
+     *               the .geojson files.
+     * @return an ArrayList of Move with every move of the route.
+     */
+    public static ArrayList<Move> toMoves(List<LongLat> route, List<Integer> angles) {
+        ArrayList<Move> moves = new ArrayList<>();
+        for (int i = 0; i + 1 < route.size(); i++) {
+            Integer angle = angles != null && i < angles.size() ? angles.get(i) : null;
+            moves.add(new Move(route.get(i), angle, route.get(i + 1)));
+        }
+        return moves;
+    }
+
+    /**
+     * Method that validates the given route and its angles.
+     * @param route ArrayList of LongLat objects representing all of the coordinates the drone visits.
+     * @param angles ArrayList of Integers with the angle of every move, or null if the angles are not known.
+     * @return the violations of the route, in the order of the moves, or an empty list if the route is valid.
+     */
+    public List<String> validate(List<LongLat> route, List<Integer> angles) {
+        List<String> violations = new ArrayList<>();
+        if (angles != null && angles.size() != route.size() - 1) {
+            violations.add("The route has " + (route.size() - 1) + " moves but " + angles.size() + " angles");
+        }
+        violations.addAll(validate(toMoves(route, angles)));
+        return violations;
+    }
+
+    /**
+     * Method that validates the given moves, checking chunks of {@value CHUNK_SIZE} moves in parallel.
+     * @param moves the moves of the route, in the order they are flown.
+     * @return the violations of the moves, in the order of the moves, or an empty list if every move is valid.
+     */
+    public List<String> validate(List<Move> moves) {
+        List<String> violations = new ArrayList<>();
+        if (moves.size() > Drone.MAXIMUM_NUMBER_OF_MOVES) {
+            violations.add("The route has " + moves.size() + " moves, over the limit of " + Drone.MAXIMUM_NUMBER_OF_MOVES);
+        }
+        int numberOfChunks = (moves.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        violations.addAll(IntStream.range(0, numberOfChunks).parallel()
+                .mapToObj(chunk -> validateChunk(moves, chunk * CHUNK_SIZE, Math.min(moves.size(), (chunk + 1) * CHUNK_SIZE)))
+                .flatMap(List::stream)
+                .collect(Collectors.toList()));
+        return violations;
+    }
+
+
+    /**
+     * Helper method that validates the moves between the given indexes.
+     * @param moves the moves of the route.
+     * @param start the index of the first move to validate.
+     * @param end the index after the last move to validate.
+     * @return the violations of the moves between the given indexes.
+     */
+    private List<String> validateChunk(List<Move> moves, int start, int end) {
+        List<String> violations = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            Move move = moves.get(i);
+            String prefix = "Move " + i + ": ";
+            if (i > 0 && !sameCoordinates(moves.get(i - 1).to, move.from)) {
+                violations.add(prefix + "does not start where the previous move ended");
+            }
+            String stepViolation = getStepViolation(move);
+            if (stepViolation != null) {
+                violations.add(prefix + stepViolation);
+            }
+            if (!move.to.isConfined()) {
+                violations.add(prefix + "ends outside the confinement area");
+            }
+            if (touchesNoFlyZone(move.from, move.to)) {
+                violations.add(prefix + "touches a no-fly zone");
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Helper method that checks that a move is either a hover or a move of {@value MOVE_DISTANCE} degrees in a
+     * direction that is a multiple of 10 degrees and, if the angle of the move is known, that it agrees with it.
+     * @param move the move to check.
+     * @return a description of the violation, or null if the move is valid.
+     */
+    private static String getStepViolation(Move move) {
+        double x = move.to.longitude - move.from.longitude;
+        double y = move.to.latitude - move.from.latitude;
+        if (x == 0 && y == 0) {
+            if (move.angle != null && move.angle != HOVERING_ANGLE) {
+                return "hovers with angle " + move.angle;
+            }
+            return null;
+        }
+        double length = Math.hypot(x, y);
+        if (Math.abs(length - MOVE_DISTANCE) > MOVE_DISTANCE_TOLERANCE) {
+            return "has length " + length + " instead of " + MOVE_DISTANCE;
+        }
+        double direction = (Math.toDegrees(Math.atan2(y, x)) + 360) % 360;
+        if (move.angle == null) {
+            double offset = direction % 10;
+            if (Math.min(offset, 10 - offset) > ANGLE_TOLERANCE) {
+                return "has direction " + direction + ", which is not a multiple of 10";
+            }
+            return null;
+        }
+        if (move.angle < 0 || move.angle >= 360 || move.angle % 10 != 0) {
+            return "has angle " + move.angle + ", which is not a multiple of 10 between 0 and 350";
+        }
+        double difference = Math.abs(direction - move.angle);
+        if (Math.min(difference, 360 - difference) > ANGLE_TOLERANCE) {
+            return "has direction " + direction + " but angle " + move.angle;
+        }
+        return null;
+    }
+
+    /**
+     * Helper method that checks whether the segment between two points touches any border line of the no-fly zones,
+     * including touching it at a single point or running along it.
+     * @param from the point where the segment starts.
+     * @param to the point where the segment ends.
+     * @return true if the segment touches a border line, false otherwise.
+     */
+    private boolean touchesNoFlyZone(LongLat from, LongLat to) {
+        double minLongitude = Math.min(from.longitude, to.longitude);
+        double maxLongitude = Math.max(from.longitude, to.longitude);
+        double minLatitude = Math.min(from.latitude, to.latitude);
+        double maxLatitude = Math.max(from.latitude, to.latitude);
+        for (double[] line : borderLines) {
+            // Lines whose bounding boxes do not overlap can not touch
+            if (Math.max(line[0], line[2]) < minLongitude || Math.min(line[0], line[2]) > maxLongitude
+                    || Math.max(line[1], line[3]) < minLatitude || Math.min(line[1], line[3]) > maxLatitude) {
+                continue;
+            }
+            if (segmentsTouch(from.longitude, from.latitude, to.longitude, to.latitude, line[0], line[1], line[2], line[3])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Helper method that checks whether the closed segments pq and ab have at least one point in common.
+     * @return true if the segments have a point in common, false otherwise.
+     */
+    static boolean segmentsTouch(double px, double py, double qx, double qy,
+                                 double ax, double ay, double bx, double by) {
+        int orientationA = orientation(px, py, qx, qy, ax, ay);
+        int orientationB = orientation(px, py, qx, qy, bx, by);
+        int orientationP = orientation(ax, ay, bx, by, px, py);
+        int orientationQ = orientation(ax, ay, bx, by, qx, qy);
+        if (orientationA * orientationB < 0 && orientationP * orientationQ < 0) {
+            return true;
+        }
+        // Otherwise the segments only touch if an end of one of them lies on the other
+        return (orientationA == 0 && inBoundingBox(ax, ay, px, py, qx, qy))
+                || (orientationB == 0 && inBoundingBox(bx, by, px, py, qx, qy))
+                || (orientationP == 0 && inBoundingBox(px, py, ax, ay, bx, by))
+                || (orientationQ == 0 && inBoundingBox(qx, qy, ax, ay, bx, by));
+    }
+
+    /**
+     * Helper method that returns the sign of the orientation of the point c with respect to the line from a to b,
+     * which is positive if c is to the left of the line, negative if it is to the right and zero if it is on the line.
+     * The orientation is computed with doubles, and computed again exactly with BigDecimal only when it is too close
+     * to zero for the sign computed with doubles to be trusted.
+     * @return 1, -1 or 0 if the point c is to the left of, to the right of or on the line from a to b.
+     */
+    static int orientation(double ax, double ay, double bx, double by, double cx, double cy) {
+        double left = (bx - ax) * (cy - ay);
+        double right = (by - ay) * (cx - ax);
+        double determinant = left - right;
+        if (Math.abs(determinant) > ORIENTATION_ERROR_BOUND * (Math.abs(left) + Math.abs(right))) {
+            return determinant > 0 ? 1 : -1;
+        }
+        BigDecimal exactLeft = new BigDecimal(bx).subtract(new BigDecimal(ax))
+                .multiply(new BigDecimal(cy).subtract(new BigDecimal(ay)));
+        BigDecimal exactRight = new BigDecimal(by).subtract(new BigDecimal(ay))
+                .multiply(new BigDecimal(cx).subtract(new BigDecimal(ax)));
+        return exactLeft.compareTo(exactRight);
+    }
+
+    /**
+     * Helper method that checks whether the point c lies in the bounding box of the points a and b.
+     * @return true if the point c lies in the bounding box, false otherwise.
+     */
+    private static boolean inBoundingBox(double cx, double cy, double ax, double ay, double bx, double by) {
+        return cx >= Math.min(ax, bx) && cx <= Math.max(ax, bx) && cy >= Math.min(ay, by) && cy <= Math.max(ay, by);
+    }
+
+    /**
+     * Helper method that checks whether two points have exactly the same coordinates.
+     * @return true if the points have the same longitude and latitude, false otherwise.
+     */
+    private static boolean sameCoordinates(LongLat first, LongLat second) {
+        return first.longitude == second.longitude && first.latitude == second.latitude;
+    }
+
+    /**
+     * Helper method that streams the coordinates of the LineString of a .geojson route, as written by
+     * {@link OutputFiles}, without building the GeoJSON objects.
+     * @param file the .geojson file.
+     * @return an ArrayList of LongLat with every point of the route.
+     * @throws IOException if the file could not be read.
+     */
+    static ArrayList<LongLat> readGeoJSONRoute(Path file) throws IOException {
+        ArrayList<LongLat> route = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(file))) {
+            readCoordinates(reader, route);
+        }
+        return route;
+    }
+
+    /**
+     * Helper method of {@link #readGeoJSONRoute} that reads the next JSON value, adding to the route the points of
+     * every coordinates array found in it.
+     * @param reader the JsonReader positioned before the value.
+     * @param route the route the points are added to.
+     * @throws IOException if the value could not be read.
+     */
+    private static void readCoordinates(JsonReader reader, ArrayList<LongLat> route) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("coordinates")) {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            reader.beginArray();
+                            route.add(new LongLat(reader.nextDouble(), reader.nextDouble()));
+                            reader.endArray();
+                        }
+                        reader.endArray();
+                    } else {
+                        readCoordinates(reader, route);
+                    }
+                }
+                reader.endObject();
+                break;
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readCoordinates(reader, route);
+                }
+                reader.endArray();
+                break;
+            default:
+                reader.skipValue();
+        }
+    }
+
+
+    /**
+     * Class that represents a single move of a flight path.
+     */
+    public static class Move {
+
+        /** LongLat representing the point where the move starts */
+        private final LongLat from;
+
+        /** Integer representing the angle of the move, or null if it is not known */
+        private final Integer angle;
+
+        /** LongLat representing the point where the move ends */
+        private final LongLat to;
+
+        /**
+         * Constructor of the Move class.
+         * @param from the point where the move starts.
+         * @param angle the angle of the move, or null if it is not known.
+         * @param to the point where the move ends.
+         */
+        public Move(LongLat from, Integer angle, LongLat to) {
+            this.from = from;
+            this.angle = angle;
+            this.to = to;
+        }
+    }
+}
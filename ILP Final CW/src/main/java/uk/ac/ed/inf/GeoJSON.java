@@ -21,8 +21,7 @@ public class GeoJSON {
         ArrayList<LongLat> route = drone.getRoute();
         List<Point> points = new ArrayList<>();
         for (var longLatPoint : route){
-            var point = Point.fromLngLat(longLatPoint.getLongitude(), longLatPoint.getLatitude());
-            points.add(point);
+            points.add(longLatPoint.toPoint());
         }
         LineString lines = LineString.fromLngLats(points);
         Geometry geometry = (Geometry)lines;
@@ -1,7 +1,9 @@
 package uk.ac.ed.inf;
 
 import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import com.mapbox.geojson.Feature;
 import com.mapbox.geojson.FeatureCollection;
 import com.mapbox.geojson.Point;
@@ -9,17 +11,27 @@ import com.mapbox.geojson.Polygon;
 
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
- * Class that is responsible for performing web server operations.
+ * Class that is responsible for performing web server operations. When an offline folder is set in {@link App}, every
+ * operation reads the file of that folder with the same path as the requested URL instead, without using the web
+ * server at all.
  */
 public class HTTPClient {
 
@@ -27,6 +39,21 @@ public class HTTPClient {
     /** Unique HttpClient that sends the requests and receives the responses from the web server.*/
     private static final HttpClient client = HttpClient.newHttpClient();
 
+    /** Gson shared by every response read from the web server */
+    private static final Gson GSON = new Gson();
+
+    /** TypeAdapter of the list of restaurants of the menus, built once from {@link #GSON} */
+    private static final TypeAdapter<List<Restaurant>> RESTAURANTS_ADAPTER =
+            GSON.getAdapter(new TypeToken<List<Restaurant>>() {});
+
+    /** Types the menus, the no-fly zones and the landmarks are stored as in the {@link HttpCache} */
+    private static final Type RESTAURANTS_TYPE = new TypeToken<List<Restaurant>>() {}.getType();
+    private static final Type NO_FLY_ZONES_POINTS_TYPE = new TypeToken<ArrayList<ArrayList<LongLat>>>() {}.getType();
+    private static final Type LANDMARKS_TYPE = new TypeToken<ArrayList<LongLat>>() {}.getType();
+
+    /** Integer representing the status code of a response to a conditional request whose resource has not changed */
+    private static final int NOT_MODIFIED = 304;
+
     /** String representing the Url prefix */
     private static final String URL_PREFIX = "http://";
 
@@ -48,66 +75,58 @@ public class HTTPClient {
     /** String representing the Landmarks suffix of the url */
     private static final String LANDMARKS_URL_SUFFIX = "landmarks.geojson";
 
+    /** Map where the keys are the What3Words URLs already translated and the values their LongLat locations, so that
+     * every What3Words location is only requested once from the web server */
+    private static final Map<String, LongLat> what3WordsCache = new ConcurrentHashMap<>();
+
 
 
     /**
-     * Method that downloads the list of restaurants from the server.
+     * Method that downloads the list of restaurants from the server. The restaurants are read as the response arrives,
+     * without reading the whole response into a String first, or from the {@link HttpCache} if they have not changed.
+     * A thread interrupted while downloading, such as a task of a cancelled {@link IoScope}, keeps its interrupt flag.
      * @param menusURL string representing the URL of the webserver.
      * @return The list of downloaded restaurants .
+     * @throws IllegalStateException if the restaurants could not be obtained, or the thread was interrupted.
      */
     public static List<Restaurant> getRestaurantRequest(String menusURL) {
-        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(menusURL)).build();
-
-        List<Restaurant> restaurantList = null;
-
-        HttpResponse<String> response;
+        List<Restaurant> restaurantList;
 
+        long startTime = System.nanoTime();
         try {
-            response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-            //If the status code is correct.
-            if (response.statusCode() == 200){
-
-                String jsonString = response.body();
-
-                Type listType = new TypeToken<List<Restaurant>>() {}.getType();
-
-                restaurantList = new Gson().fromJson(jsonString, listType);
-            }
-            else {
-                System.out.println("The data could not be obtained");
-                System.exit(1);
-            }
-        } catch (IOException | InterruptedException | IllegalArgumentException e) {
-            e.printStackTrace();
-            System.exit(1);
+            restaurantList = getValidated(menusURL, RESTAURANTS_TYPE,
+                    body -> RESTAURANTS_ADAPTER.read(newJsonReader(body)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The request of " + menusURL + " was interrupted", e);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("The menus could not be obtained from " + menusURL, e);
         }
-
+        //If the menus could not be obtained.
+        if (restaurantList == null) {
+            throw new IllegalStateException("The menus could not be obtained from " + menusURL);
+        }
+        PlanningMetrics.MENU_FETCH.recordSince(startTime);
         return restaurantList;
     }
 
 
     /**
      * Method that obtains the noFlyZones as NoFlyZones objects from the web server by connecting to the
-     * {@link #buildNoFlyZonesUrl()} url.
+     * {@link #buildNoFlyZonesUrl()} url, or from the {@link HttpCache} if they have not changed.
      * @return the noFlyZones as NoFlyZones objects.
      * @throws IOException if the noFlyZones could not be obtained.
      * @throws InterruptedException if the process was interrupted.
      */
     public static NoFlyZones getNoFlyZones() throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(buildNoFlyZonesUrl())).build();
-        HttpResponse<String> response;
         try {
-            response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() == 200) {
-
-                String noFlyZoneJsonString = response.body();
-                ArrayList<Polygon> noFlyZonesArray = getNoFlyZonesFromJsonString(noFlyZoneJsonString);
-                NoFlyZones noFlyZones = new NoFlyZones(noFlyZonesArray);
-                return noFlyZones;
+            ArrayList<ArrayList<LongLat>> noFlyZonesPoints = getValidated(buildNoFlyZonesUrl(), NO_FLY_ZONES_POINTS_TYPE,
+                    body -> new NoFlyZones(getNoFlyZonesFromJsonString(readString(body))).getNoFlyZonesPoints());
+            if (noFlyZonesPoints != null) {
+                return NoFlyZones.fromPoints(noFlyZonesPoints);
             }
 
-        } catch (IOException | InterruptedException | IllegalArgumentException e) {
+        } catch (IOException | IllegalArgumentException e) {
             e.printStackTrace();
             System.exit(1);
         }
@@ -148,29 +167,67 @@ public class HTTPClient {
 
     /**
      * Method that, given a location in form What3Words String, it transforms it into a LongLat Location by reading from
-     * the words folder in the web server.
+     * the words folder in the web server. Every location is only requested once, and then read from a cache.
      * @param location the location in What3Words form.
      * @return the corresponding LongLat location
+     * @throws IllegalStateException if the thread was interrupted while requesting the location.
      */
     public static LongLat translateLocation(String location) {
-        HttpClient client = HttpClient.newHttpClient();
         String[] words = location.split("\\.");
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(buildWhat3WordsUrl(words))).build();
-        HttpResponse<String> response;
-        try {
-            response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            int statusCode = response.statusCode();
-            if (statusCode == 200) {
-                What3Words word = new Gson().fromJson(response.body(), What3Words.class);
-                LongLat coordinate = word.getCoordinates();
-                return coordinate;
-            } else if (statusCode == 404){
-                System.err.println("Error 404: The server cannot find the requested resource");
-            } else {
-                System.err.println("The status code is " + statusCode);
+        String what3WordsUrl = buildWhat3WordsUrl(words);
+        LongLat cachedCoordinate = what3WordsCache.get(what3WordsUrl);
+        if (cachedCoordinate != null) {
+            PlanningMetrics.WHAT3WORDS_CACHE_HITS.increment();
+            return cachedCoordinate;
+        }
+        PlanningMetrics.WHAT3WORDS_CACHE_MISSES.increment();
+        LongLat coordinate = requestLocation(what3WordsUrl);
+        if (coordinate != null) {
+            what3WordsCache.put(what3WordsUrl, coordinate);
+        }
+        return coordinate;
+    }
+
+    /**
+     * Method that returns a copy of the What3Words locations translated so far, so that they can be kept in a
+     * {@link BatchCheckpoint}.
+     * @return a Map where the keys are the What3Words URLs and the values their LongLat locations.
+     */
+    static Map<String, LongLat> getWhat3WordsLocations() {
+        return new HashMap<>(what3WordsCache);
+    }
+
+    /**
+     * Method that adds the given What3Words locations, translated by a previous run, to the cache, so that they are not
+     * requested again from the web server.
+     * @param locations a Map where the keys are the What3Words URLs and the values their LongLat locations.
+     */
+    static void addWhat3WordsLocations(Map<String, LongLat> locations) {
+        what3WordsCache.putAll(locations);
+    }
+
+    /**
+     * Helper method of the {@link #translateLocation(String)} method that requests the given What3Words URL from the
+     * web server and reads the LongLat location from its response. Only the coordinates are read from the response,
+     * as it arrives, and the rest of the response is not parsed. A thread interrupted while requesting, such as a task
+     * of a cancelled {@link IoScope}, keeps its interrupt flag.
+     * @param what3WordsUrl the URL of the What3Words location.
+     * @return the corresponding LongLat location, or null if it could not be obtained.
+     * @throws IllegalStateException if the thread was interrupted.
+     */
+    private static LongLat requestLocation(String what3WordsUrl) {
+        long startTime = System.nanoTime();
+        try (InputStream body = getResponseStream(what3WordsUrl)) {
+            if (body != null) {
+                LongLat coordinate = What3Words.readCoordinates(newJsonReader(body));
+                PlanningMetrics.WHAT3WORDS_RESOLUTION.recordSince(startTime);
+                // We snap the coordinate to the fixed-point grid so that equal locations compare equal by value
+                return coordinate == null ? null : coordinate.toFixedPoint().toLongLat();
             }
-        } catch (IOException | InterruptedException exception) {
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The request of " + what3WordsUrl + " was interrupted", exception);
+        } catch (IOException | IllegalStateException exception) {
             exception.printStackTrace();
         }
         return null;
@@ -190,24 +247,20 @@ public class HTTPClient {
 
     /**
      * Method that obtains the landmarks as ArrayList of LongLat objects from the web server by connecting to the
-     * {@link #buildLandmarksUrl()} url.
+     * {@link #buildLandmarksUrl()} url, or from the {@link HttpCache} if they have not changed.
      * @return the landmarks as ArrayList of LongLat objects
      * @throws IOException if the landmarks could not be obtained.
      * @throws InterruptedException if the process was interrupted.
      */
     public static ArrayList<LongLat> getLandmarks() throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(buildLandmarksUrl())).build();
-        HttpResponse<String> response;
         try {
-            response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() == 200) {
-
-                String landmarksJsonString = response.body();
-                ArrayList<Point> landmarksPointsArray = getLandmarksFromJsonString(landmarksJsonString);
-                return LongLat.translateLandmarksToLongLat(landmarksPointsArray);
+            ArrayList<LongLat> landmarks = getValidated(buildLandmarksUrl(), LANDMARKS_TYPE,
+                    body -> LongLat.translateLandmarksToLongLat(getLandmarksFromJsonString(readString(body))));
+            if (landmarks != null) {
+                return landmarks;
             }
 
-        } catch (IOException | InterruptedException | IllegalArgumentException e) {
+        } catch (IOException | IllegalArgumentException e) {
             e.printStackTrace();
             System.exit(1);
         }
@@ -245,4 +298,195 @@ public class HTTPClient {
     }
 
 
+    /**
+     * Helper method that returns the given resource of the web server, parsed by the given parser. If an
+     * {@link HttpCache} is set in {@link App}, the ETag and the Last-Modified date of the stored resource are sent
+     * with the request, and when the web server answers that the resource has not been modified, the stored resource
+     * is returned without downloading or parsing anything. Otherwise, the resource is parsed as it arrives and stored
+     * with its new validators.
+     * @param url the URL requested from the web server.
+     * @param type the type the parsed resource is stored as in the {@link HttpCache}.
+     * @param parser the parser of the body of the response.
+     * @param <T> the type of the parsed resource.
+     * @return the parsed resource, or null if it could not be obtained.
+     * @throws IOException if the web server or the offline file could not be read.
+     * @throws InterruptedException if the process was interrupted.
+     */
+    private static <T> T getValidated(String url, Type type, BodyParser<T> parser)
+            throws IOException, InterruptedException {
+        HttpCache httpCache = App.getHttpCache();
+        if (httpCache == null || App.getOfflineFolder() != null) {
+            try (InputStream body = getResponseStream(url)) {
+                return body == null ? null : parser.parse(body);
+            }
+        }
+
+        HttpCache.Entry entry = httpCache.lookup(url);
+        HttpResponse<InputStream> response = send(url, entry);
+        if (response.statusCode() == NOT_MODIFIED) {
+            response.body().close();
+            T value = entry == null ? null : entry.getValue(type);
+            if (value != null) {
+                PlanningMetrics.HTTP_CACHE_HITS.increment();
+                return value;
+            }
+            // The stored resource could not be read, so it is requested again without validators
+            response = send(url, null);
+        }
+        PlanningMetrics.HTTP_CACHE_MISSES.increment();
+        try (InputStream body = getBody(response)) {
+            if (body == null) {
+                return null;
+            }
+            T value = parser.parse(body);
+            String etag = response.headers().firstValue("ETag").orElse(null);
+            String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+            if (value != null && (etag != null || lastModified != null)) {
+                httpCache.store(url, etag, lastModified, value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Helper method that reads the given body of a response into a String, for the responses read by a parser that
+     * needs the whole document, such as the GeoJSON of the buildings.
+     * @param body the InputStream of the body.
+     * @return the body as a String.
+     * @throws IOException if the body could not be read.
+     */
+    private static String readString(InputStream body) throws IOException {
+        return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Helper method that returns the body of the response of the web server to the given URL as a stream, which is
+     * read as it arrives. If an offline folder is set in {@link App}, the body is read from the file of the offline
+     * folder with the same path as the URL instead. If an I/O timeout is set in {@link App}, a request to the web
+     * server that takes longer fails.
+     * @param url the URL requested from the web server.
+     * @return the InputStream of the body, to be closed by the caller, or null if the status code is not 200 or the
+     * offline file does not exist.
+     * @throws IOException if the web server or the offline file could not be read.
+     * @throws InterruptedException if the process was interrupted.
+     */
+    private static InputStream getResponseStream(String url) throws IOException, InterruptedException {
+        Path offlineFolder = App.getOfflineFolder();
+        if (offlineFolder != null) {
+            PlannerEvents.HttpFetchEvent event = new PlannerEvents.HttpFetchEvent();
+            event.begin();
+            Path file = offlineFolder.resolve(URI.create(url).getPath().substring(1));
+            if (!Files.isRegularFile(file)) {
+                commitFetchEvent(event, url, 404, true, 0);
+                System.err.println("Error 404: The offline folder does not contain " + file);
+                return null;
+            }
+            commitFetchEvent(event, url, 200, true, Files.size(file));
+            return Files.newInputStream(file);
+        }
+
+        return getBody(send(url, null));
+    }
+
+    /**
+     * Helper method that sends a request for the given URL to the web server, recording it as a
+     * {@link PlannerEvents.HttpFetchEvent}. If an I/O timeout is set in {@link App}, a request that takes longer fails.
+     * @param url the URL requested from the web server.
+     * @param entry the resource stored in the {@link HttpCache} whose validators are sent with the request to make it
+     *              conditional, or null to request the resource unconditionally.
+     * @return the HttpResponse, whose body is read as it arrives.
+     * @throws IOException if the web server could not be reached.
+     * @throws InterruptedException if the process was interrupted.
+     */
+    private static HttpResponse<InputStream> send(String url, HttpCache.Entry entry)
+            throws IOException, InterruptedException {
+        PlannerEvents.HttpFetchEvent event = new PlannerEvents.HttpFetchEvent();
+        event.begin();
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder().uri(URI.create(url));
+        if (App.getIoTimeout() != null) {
+            requestBuilder.timeout(App.getIoTimeout());
+        }
+        if (entry != null && entry.getETag() != null) {
+            requestBuilder.header("If-None-Match", entry.getETag());
+        }
+        if (entry != null && entry.getLastModified() != null) {
+            requestBuilder.header("If-Modified-Since", entry.getLastModified());
+        }
+        HttpResponse<InputStream> response = client.send(requestBuilder.build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        commitFetchEvent(event, url, response.statusCode(), false,
+                response.headers().firstValueAsLong("Content-Length").orElse(0));
+        return response;
+    }
+
+    /**
+     * Helper method that returns the body of the given response if its status code is 200, and reports the status code
+     * and closes the body otherwise.
+     * @param response the HttpResponse.
+     * @return the InputStream of the body, to be closed by the caller, or null if the status code is not 200.
+     * @throws IOException if the body could not be closed.
+     */
+    private static InputStream getBody(HttpResponse<InputStream> response) throws IOException {
+        int statusCode = response.statusCode();
+        if (statusCode == 200) {
+            return response.body();
+        }
+        response.body().close();
+        if (statusCode == 404) {
+            System.err.println("Error 404: The server cannot find the requested resource");
+        } else {
+            System.err.println("The status code is " + statusCode);
+        }
+        return null;
+    }
+
+    /**
+     * Interface of a parser of the body of a response of the web server.
+     * @param <T> the type of the parsed resource.
+     */
+    private interface BodyParser<T> {
+
+        /**
+         * Method that parses the given body.
+         * @param body the InputStream of the body, closed by the caller.
+         * @return the parsed resource.
+         * @throws IOException if the body could not be read.
+         */
+        T parse(InputStream body) throws IOException;
+    }
+
+    /**
+     * Helper method that returns a JsonReader reading the given body of a response as UTF-8. The reader is lenient, as
+     * {@link Gson#fromJson(String, Class)} is, so that it accepts the same responses.
+     * @param body the InputStream of the body.
+     * @return the JsonReader of the body.
+     */
+    private static JsonReader newJsonReader(InputStream body) {
+        JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /**
+     * Helper method of the {@link #getResponseStream(String)} and {@link #send} methods that commits the given event with the details of
+     * the request, if a recording is running.
+     * @param event the HttpFetchEvent started before the request.
+     * @param url the URL requested from the web server.
+     * @param statusCode the status code of the response.
+     * @param offline true if the body was read from the offline folder.
+     * @param bodySize the size in bytes of the body, as given by the offline file or the Content-Length of the
+     *                 response, or 0 if there is none or it is not known.
+     */
+    private static void commitFetchEvent(PlannerEvents.HttpFetchEvent event, String url, int statusCode, boolean offline,
+                                         long bodySize) {
+        if (event.shouldCommit()) {
+            event.url = url;
+            event.statusCode = statusCode;
+            event.offline = offline;
+            event.bodySize = bodySize;
+            event.commit();
+        }
+    }
+
+
 }
@@ -0,0 +1,178 @@
+package uk.ac.ed.inf;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Class that represents a folder of the resources of the web server that change rarely, such as the no-fly zones, the
+ * landmarks and the menus, kept from one run to the next. Every resource is stored already parsed, together with the
+ * ETag and the Last-Modified date the web server sent with it. On the next run, the {@link HTTPClient} sends them back
+ * in a conditional request, and when the web server answers that the resource has not been modified, the parsed
+ * resource is read from the folder instead of being downloaded and parsed again.
+ */
+public class HttpCache {
+
+    /** String representing the prefix of the name of the file of every resource, followed by the hash of its URL */
+    private static final String ENTRY_FILE_PREFIX = "resource-";
+
+    /** String representing the suffix of the name of the file of every resource */
+    private static final String ENTRY_FILE_SUFFIX = ".json";
+
+    /** Strings representing the fields of the file of every resource */
+    private static final String URL_FIELD = "url";
+    private static final String ETAG_FIELD = "etag";
+    private static final String LAST_MODIFIED_FIELD = "lastModified";
+    private static final String VALUE_FIELD = "value";
+
+    /** Gson shared by every read and write of a resource */
+    private static final Gson GSON = new Gson();
+
+    /** Path representing the folder the resources are stored in */
+    private final Path folder;
+
+
+    /**
+     * Constructor of the HttpCache class.
+     * @param folder the folder the resources are stored in, which is created if it does not exist.
+     * @throws IOException if the folder could not be created.
+     */
+    public HttpCache(Path folder) throws IOException {
+        this.folder = Files.createDirectories(folder);
+    }
+
+    /**
+     * Method that returns the resource stored for the given URL.
+     * @param url the URL of the resource.
+     * @return the Entry of the resource, or null if none is stored or it could not be read.
+     */
+    public Entry lookup(String url) {
+        Path entryFile = getEntryFile(url);
+        if (!Files.exists(entryFile)) {
+            return null;
+        }
+        try {
+            JsonObject entry = GSON.fromJson(Files.readString(entryFile), JsonObject.class);
+            // Two URLs with the same hash are never mixed up
+            if (entry == null || !url.equals(getString(entry, URL_FIELD))) {
+                return null;
+            }
+            return new Entry(getString(entry, ETAG_FIELD), getString(entry, LAST_MODIFIED_FIELD), entry.get(VALUE_FIELD));
+        } catch (IOException | JsonParseException e) {
+            System.err.println("The cached resource " + entryFile + " could not be read, so it is downloaded again");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Method that stores the given parsed resource with its validators. The resource is written to a temporary file
+     * first and then moved in place, so that a resource cut short is never read.
+     * @param url the URL of the resource.
+     * @param etag the ETag sent by the web server with the resource, or null if there is none.
+     * @param lastModified the Last-Modified date sent by the web server with the resource, or null if there is none.
+     * @param value the parsed resource.
+     */
+    public void store(String url, String etag, String lastModified, Object value) {
+        JsonObject entry = new JsonObject();
+        entry.addProperty(URL_FIELD, url);
+        entry.addProperty(ETAG_FIELD, etag);
+        entry.addProperty(LAST_MODIFIED_FIELD, lastModified);
+        entry.add(VALUE_FIELD, GSON.toJsonTree(value));
+        Path entryFile = getEntryFile(url);
+        try {
+            Path temporaryFile = Files.createTempFile(folder, ENTRY_FILE_PREFIX, ENTRY_FILE_SUFFIX);
+            Files.writeString(temporaryFile, GSON.toJson(entry));
+            Files.move(temporaryFile, entryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("The resource " + url + " could not be stored in " + entryFile);
+            e.printStackTrace();
+        }
+    }
+
+
+    /**
+     * Helper method that returns the file of the resource of the given URL.
+     * @param url the URL of the resource.
+     * @return the Path of the file of the resource.
+     */
+    private Path getEntryFile(String url) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest(url.getBytes(StandardCharsets.UTF_8))) {
+            hash.append(String.format("%02x", b));
+        }
+        return folder.resolve(ENTRY_FILE_PREFIX + hash + ENTRY_FILE_SUFFIX);
+    }
+
+    /**
+     * Helper method that returns the given field of the file of a resource as a String.
+     * @param entry the contents of the file.
+     * @param field the name of the field.
+     * @return the value of the field, or null if it is missing or null.
+     */
+    private static String getString(JsonObject entry, String field) {
+        JsonElement element = entry.get(field);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+
+    /**
+     * Class that represents a resource read from the folder: its validators and its parsed value.
+     */
+    public static class Entry {
+
+        /** String representing the ETag of the resource, or null if the web server sent none */
+        private final String etag;
+
+        /** String representing the Last-Modified date of the resource, or null if the web server sent none */
+        private final String lastModified;
+
+        /** JsonElement of the parsed resource */
+        private final JsonElement value;
+
+        private Entry(String etag, String lastModified, JsonElement value) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.value = value;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Method that returns the parsed resource as the given type.
+         * @param type the type the resource was stored as.
+         * @param <T> the type of the resource.
+         * @return the parsed resource, or null if it could not be read as the given type.
+         */
+        public <T> T getValue(Type type) {
+            try {
+                return value == null ? null : GSON.fromJson(value, type);
+            } catch (JsonParseException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class that evaluates where a new order would best be inserted in an already planned sequence of orders, by counting
+ * the moves the drone needs to fly the sequence with and without the new order.
+ */
+public class InsertionEvaluator {
+
+    /** Integer representing the number of moves of a sequence of orders that the drone can not fly */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /** PathFinder used to compute the legs between the coordinates the drone visits */
+    private final PathFinder pathFinder;
+
+
+    /**
+     * Constructor of the InsertionEvaluator class.
+     * @param pathFinder the PathFinder used to compute the legs between the coordinates the drone visits.
+     */
+    public InsertionEvaluator(PathFinder pathFinder) {
+        this.pathFinder = pathFinder;
+    }
+
+    /**
+     * Method that, given a sequence of orders whose prices and locations have been set, returns the number of moves
+     * needed to do all of them in order, starting and finishing at Appleton Tower. For orders with two restaurants,
+     * the restaurants are visited in the order that needs the fewest moves. As in the {@link Drone}, an order without
+     * restaurants or with more than two can not be done.
+     * @param orders the sequence of orders.
+     * @return the number of moves needed to do the sequence of orders, or {@value UNREACHABLE} if some of the
+     * coordinates of the sequence can not be reached.
+     */
+    public int getNumberOfMoves(List<OrderDetails> orders) {
+        LongLat currentLocation = Drone.APPLETON_TOWER_COORDINATES;
+        long numberOfMoves = 0;
+        for (OrderDetails order : orders) {
+            numberOfMoves += getNumberOfMovesOfOrder(currentLocation, order);
+            currentLocation = order.getDeliverToLongLat();
+        }
+        numberOfMoves += getNumberOfMovesOfLeg(currentLocation, Drone.APPLETON_TOWER_COORDINATES);
+        return (int) Math.min(numberOfMoves, UNREACHABLE);
+    }
+
+    /**
+     * Method that finds the position of the given sequence of orders where inserting the new order adds the fewest
+     * moves.
+     * @param plannedOrders the sequence of orders already planned.
+     * @param newOrder the order we want to insert.
+     * @return the Insertion with the best position, or with position -1 if the new order can not be inserted anywhere.
+     */
+    public Insertion evaluateInsertion(List<OrderDetails> plannedOrders, OrderDetails newOrder) {
+        int numberOfMovesBefore = getNumberOfMoves(plannedOrders);
+        int bestPosition = -1;
+        int bestNumberOfMoves = UNREACHABLE;
+        for (int position = 0; position <= plannedOrders.size(); position++) {
+            List<OrderDetails> ordersWithInsertion = new ArrayList<>(plannedOrders);
+            ordersWithInsertion.add(position, newOrder);
+            int numberOfMoves = getNumberOfMoves(ordersWithInsertion);
+            if (numberOfMoves < bestNumberOfMoves) {
+                bestNumberOfMoves = numberOfMoves;
+                bestPosition = position;
+            }
+        }
+        return new Insertion(bestPosition, numberOfMovesBefore, bestNumberOfMoves);
+    }
+
+    /**
+     * Helper method that returns the number of moves needed to do the given order from the given location.
+     * @param currentLocation the location the drone is in.
+     * @param order the order to do.
+     * @return the number of moves needed to do the order, or {@value UNREACHABLE} if it can not be done.
+     */
+    private long getNumberOfMovesOfOrder(LongLat currentLocation, OrderDetails order) {
+        ArrayList<LongLat> restaurants = order.getDeliverFromLongLat();
+        LongLat deliverTo = order.getDeliverToLongLat();
+        if (restaurants.isEmpty() || restaurants.size() > Drone.MAXIMUM_NUMBER_OF_SHOPS) {
+            return UNREACHABLE;
+        }
+        if (restaurants.size() == 1) {
+            return (long) getNumberOfMovesOfLeg(currentLocation, restaurants.get(0))
+                    + getNumberOfMovesOfLeg(restaurants.get(0), deliverTo);
+        }
+        long numberOfMoves1 = (long) getNumberOfMovesOfLeg(currentLocation, restaurants.get(0))
+                + getNumberOfMovesOfLeg(restaurants.get(0), restaurants.get(1))
+                + getNumberOfMovesOfLeg(restaurants.get(1), deliverTo);
+        long numberOfMoves2 = (long) getNumberOfMovesOfLeg(currentLocation, restaurants.get(1))
+                + getNumberOfMovesOfLeg(restaurants.get(1), restaurants.get(0))
+                + getNumberOfMovesOfLeg(restaurants.get(0), deliverTo);
+        return Math.min(numberOfMoves1, numberOfMoves2);
+    }
+
+    /**
+     * Helper method that returns the number of moves of the leg between the two given points.
+     * @param originalLocation the point the drone is currently in.
+     * @param destination the point the drone wants to reach.
+     * @return the number of moves of the leg, or {@value UNREACHABLE} if the destination can not be reached.
+     */
+    private int getNumberOfMovesOfLeg(LongLat originalLocation, LongLat destination) {
+        LegResult leg = pathFinder.getLeg(originalLocation, destination);
+        if (!leg.isReachable()) {
+            return UNREACHABLE;
+        }
+        return leg.getNumberOfMoves();
+    }
+
+
+    /**
+     * Class that represents the result of evaluating the insertion of a new order in a sequence of orders.
+     */
+    public static class Insertion {
+
+        /** Integer representing the position where the new order is best inserted, or -1 if it can not be inserted */
+        private final int position;
+
+        /** Integer representing the number of moves of the sequence of orders without the new order */
+        private final int numberOfMovesBefore;
+
+        /** Integer representing the number of moves of the sequence of orders with the new order inserted */
+        private final int numberOfMovesAfter;
+
+        /**
+         * Constructor of the Insertion class.
+         * @param position the position where the new order is best inserted.
+         * @param numberOfMovesBefore the number of moves of the sequence without the new order.
+         * @param numberOfMovesAfter the number of moves of the sequence with the new order inserted.
+         */
+        public Insertion(int position, int numberOfMovesBefore, int numberOfMovesAfter) {
+            this.position = position;
+            this.numberOfMovesBefore = numberOfMovesBefore;
+            this.numberOfMovesAfter = numberOfMovesAfter;
+        }
+
+        /**
+         * Method that returns true if the sequence with the new order inserted can be flown before the drone runs out
+         * of moves.
+         * @return true if the sequence with the new order fits in the maximum number of moves, false otherwise.
+         */
+        public boolean fitsInMaximumNumberOfMoves() {
+            return position >= 0 && numberOfMovesAfter < Drone.MAXIMUM_NUMBER_OF_MOVES;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public int getNumberOfMovesBefore() {
+            return numberOfMovesBefore;
+        }
+
+        public int getNumberOfMovesAfter() {
+            return numberOfMovesAfter;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Class that represents a group of I/O tasks, such as What3Words lookups and menu downloads, that run at the same time
+ * and are waited for together. Every task runs on its own virtual thread when the Java runtime has them, and on a
+ * cached thread pool otherwise. The group is structured: if a task fails or runs for longer than the timeout of the
+ * tasks, every other task of the group is cancelled and {@link #join()} reports the failure, and no task outlives the
+ * try-with-resources block of its group.
+ */
+public class IoScope implements AutoCloseable {
+
+    /** ExecutorService the tasks of the group run on */
+    private final ExecutorService executor = newIoExecutor();
+
+    /** Long representing the number of nanoseconds a task may run for before it is cancelled */
+    private final long taskTimeoutNanos;
+
+    /** List of the tasks forked so far, in the order they were forked */
+    private final List<Task<?>> tasks = new ArrayList<>();
+
+
+    /**
+     * Constructor of the IoScope class.
+     * @param taskTimeout the time every task may run for before the group is cancelled.
+     */
+    public IoScope(Duration taskTimeout) {
+        this.taskTimeoutNanos = taskTimeout.toNanos();
+    }
+
+    /**
+     * Method that starts the given task in the group.
+     * @param task the task.
+     * @param <T> the type of the result of the task.
+     * @return the Future of the result of the task, which is only read after {@link #join()}.
+     */
+    public <T> Future<T> fork(Callable<T> task) {
+        Future<T> future = executor.submit(task);
+        tasks.add(new Task<>(future, System.nanoTime() + taskTimeoutNanos));
+        return future;
+    }
+
+    /**
+     * Method that waits until every task of the group has finished. The first task that fails or times out cancels
+     * every other task.
+     * @throws IOException if a task failed or timed out, with the failure of the task as cause.
+     * @throws InterruptedException if the thread was interrupted while waiting, which also cancels every task.
+     */
+    public void join() throws IOException, InterruptedException {
+        try {
+            for (Task<?> task : tasks) {
+                long remainingNanos = task.deadlineNanos - System.nanoTime();
+                task.future.get(Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            cancelAll();
+            PlanningMetrics.IO_TASK_TIMEOUTS.increment();
+            throw new IOException("An I/O task ran for longer than " + Duration.ofNanos(taskTimeoutNanos), e);
+        } catch (ExecutionException | CancellationException e) {
+            cancelAll();
+            throw new IOException("An I/O task failed", e.getCause() == null ? e : e.getCause());
+        } catch (InterruptedException e) {
+            cancelAll();
+            throw e;
+        }
+    }
+
+    /**
+     * Method that cancels every task of the group that has not finished yet, and stops its threads.
+     */
+    @Override
+    public void close() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Method that returns an executor that starts a virtual thread for every task if the Java runtime has virtual
+     * threads, and a cached thread pool otherwise. Virtual threads are looked up by reflection, so that the
+     * application still builds for Java 14, which means that they are only used when it runs on JDK 21 or later: on
+     * the JDK 17 it is built with, the tasks always run on the cached thread pool. The methods of a {@link Database}
+     * are synchronized, so a virtual thread waiting on a query stays pinned to its carrier thread.
+     * @return the ExecutorService of the I/O tasks.
+     */
+    static ExecutorService newIoExecutor() {
+        try {
+            Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+
+    /**
+     * Helper method that cancels every task of the group that has not finished yet, interrupting its thread.
+     */
+    private void cancelAll() {
+        for (Task<?> task : tasks) {
+            task.future.cancel(true);
+        }
+    }
+
+
+    /**
+     * Class that represents a task of the group: its Future and the time it is cancelled at if it has not finished.
+     * @param <T> the type of the result of the task.
+     */
+    private static class Task<T> {
+
+        /** Future of the result of the task */
+        private final Future<T> future;
+
+        /** Long representing the time the task times out at, as given by {@link System#nanoTime()} */
+        private final long deadlineNanos;
+
+        private Task(Future<T> future, long deadlineNanos) {
+            this.future = future;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
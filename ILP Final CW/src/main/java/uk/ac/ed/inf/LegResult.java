@@ -0,0 +1,146 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+
+/**
+ * Class that represents the result of flying a leg between two points with the {@link PathFinder}: whether the
+ * destination can be reached and how, and if it can, the coordinates and the angle of every move of the leg. Legs are
+ * shared through the cache of legs of the PathFinder, so their moves and angles must not be modified. A leg asked for
+ * with a cap on its number of moves may also be known only to need more moves than the cap.
+ */
+public class LegResult {
+
+    /** Integer representing the number of moves returned for legs whose destination can not be reached */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /** LegResult shared by every leg whose destination can not be reached */
+    private static final LegResult UNREACHABLE_LEG = new LegResult(null, null, Status.UNREACHABLE, -1, 0);
+
+    /** LegResult shared by every leg known to need more moves than the cap it was asked for with */
+    private static final LegResult EXCEEDS_MOVE_CAP_LEG = new LegResult(null, null, Status.EXCEEDS_MOVE_CAP, -1, 0);
+
+    /** ArrayList of LongLat representing the coordinates of the moves of the leg, or null if it is unreachable */
+    private final ArrayList<LongLat> moves;
+
+    /** ArrayList of Integers representing the angle of every move of the leg, or null if it is unreachable */
+    private final ArrayList<Integer> angles;
+
+    /** Status representing whether and how the destination of the leg is reached */
+    private final Status status;
+
+    /** Integer representing the index of the landmark the leg goes through, or -1 if it does not go through one */
+    private final int landmarkIndex;
+
+    /** Integer representing the number of moves of the leg flown before the landmark, whose hovering is removed, after
+     * which the drone flies on from where it got close to the landmark */
+    private final int movesToLandmark;
+
+
+    /**
+     * Constructor of the LegResult class.
+     * @param moves the coordinates of the moves of the leg.
+     * @param angles the angle of every move of the leg.
+     * @param status whether and how the destination of the leg is reached.
+     * @param landmarkIndex the index of the landmark the leg goes through, or -1 if it does not go through one.
+     * @param movesToLandmark the number of moves of the leg flown before the landmark.
+     */
+    private LegResult(ArrayList<LongLat> moves, ArrayList<Integer> angles, Status status, int landmarkIndex,
+                      int movesToLandmark) {
+        this.moves = moves;
+        this.angles = angles;
+        this.status = status;
+        this.landmarkIndex = landmarkIndex;
+        this.movesToLandmark = movesToLandmark;
+    }
+
+    /**
+     * Method that returns the result of a leg flown straight to its destination.
+     * @param moves the coordinates of the moves of the leg.
+     * @param angles the angle of every move of the leg.
+     * @return the LegResult of the leg.
+     */
+    static LegResult direct(ArrayList<LongLat> moves, ArrayList<Integer> angles) {
+        return new LegResult(moves, angles, Status.DIRECT, -1, 0);
+    }
+
+    /**
+     * Method that returns the result of a leg flown to its destination through a landmark.
+     * @param moves the coordinates of the moves of the leg.
+     * @param angles the angle of every move of the leg.
+     * @param landmarkIndex the index of the landmark the leg goes through, in the landmarks of the PathFinder.
+     * @param movesToLandmark the number of moves of the leg flown before the landmark, without its hovering.
+     * @return the LegResult of the leg.
+     */
+    static LegResult throughLandmark(ArrayList<LongLat> moves, ArrayList<Integer> angles, int landmarkIndex,
+                                     int movesToLandmark) {
+        return new LegResult(moves, angles, Status.THROUGH_LANDMARK, landmarkIndex, movesToLandmark);
+    }
+
+    /**
+     * Method that returns the result of a leg whose destination can not be reached.
+     * @return the LegResult shared by every unreachable leg.
+     */
+    static LegResult unreachable() {
+        return UNREACHABLE_LEG;
+    }
+
+    /**
+     * Method that returns the result of a leg that needs more moves than the cap it was asked for with.
+     * @return the LegResult shared by every leg over its move cap.
+     */
+    static LegResult exceedsMoveCap() {
+        return EXCEEDS_MOVE_CAP_LEG;
+    }
+
+    /**
+     * Method that returns true if the destination of the leg is reached, and its moves are known.
+     * @return true if the leg is direct or goes through a landmark, false if it is unreachable or over its move cap.
+     */
+    public boolean isReachable() {
+        return status == Status.DIRECT || status == Status.THROUGH_LANDMARK;
+    }
+
+    /**
+     * Method that returns the number of moves of the leg, including the final hovering move.
+     * @return the number of moves of the leg, or {@value UNREACHABLE} if its destination can not be reached or the leg
+     * is over its move cap.
+     */
+    public int getNumberOfMoves() {
+        return isReachable() ? moves.size() : UNREACHABLE;
+    }
+
+    public ArrayList<LongLat> getMoves() {
+        return moves;
+    }
+
+    public ArrayList<Integer> getAngles() {
+        return angles;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getLandmarkIndex() {
+        return landmarkIndex;
+    }
+
+    public int getMovesToLandmark() {
+        return movesToLandmark;
+    }
+
+
+    /**
+     * Enum of the ways the destination of a leg can be reached.
+     */
+    public enum Status {
+        /** The leg goes straight to the destination, without any landmark */
+        DIRECT,
+        /** The leg goes to the destination through one landmark */
+        THROUGH_LANDMARK,
+        /** The destination can not be reached, neither straight nor through one landmark */
+        UNREACHABLE,
+        /** The leg needs more moves than the cap it was asked for with, so it was not flown to the end */
+        EXCEEDS_MOVE_CAP
+    }
+}
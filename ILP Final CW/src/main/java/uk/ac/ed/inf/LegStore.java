@@ -0,0 +1,380 @@
+package uk.ac.ed.inf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class that represents a file, kept from one run to the next, of the legs flown by every {@link PathFinder} that uses
+ * it, so that a new run over no-fly zones seen before starts with the legs of the previous runs instead of flying them
+ * again. Every leg is keyed by the fingerprint of the no-fly zones, the landmarks and the way of validating the
+ * movements it was flown with, and by its snapped origin and destination. The file is memory-mapped and only ever
+ * appended to: a leg is stored as its number of moves and its headings, run-length encoded, and its moves are replayed
+ * from the headings when it is read back. The file is locked while it is open, so that it is only written by one
+ * process at a time, and stops growing once it reaches the largest size a file can be mapped with.
+ */
+public class LegStore implements Closeable {
+
+    /** Integer written at the start of the file to recognise it as a leg store */
+    private static final int MAGIC = 0x4C454753;
+
+    /** Integer representing the version of the layout of the file, which is not read if it has another version */
+    private static final int VERSION = 3;
+
+    /** Integer representing the offset of the end of the last record in the header, which is only moved after the
+     * record is fully written, so that a record cut short by a crash is never read */
+    private static final int END_OFFSET = 8;
+
+    /** Integer representing the size of the header: the magic number, the version and the end of the last record */
+    private static final int HEADER_SIZE = 16;
+
+    /** Integer representing the size of a record before its headings: its length, its fingerprint, its origin and
+     * destination, its status, its landmark, its moves before the landmark, its number of moves and its runs */
+    private static final int RECORD_HEADER_SIZE = 4 + 5 * 8 + 1 + 4 + 4 + 4 + 2;
+
+    /** Integer representing the offset of the status in a record, after its length, fingerprint, origin and
+     * destination */
+    private static final int STATUS_OFFSET = 44;
+
+    /** Long representing the size the file is mapped with when it is created */
+    private static final long INITIAL_SIZE = 1 << 20;
+
+    /** Long representing the largest size the file is mapped with, as a MappedByteBuffer is indexed by an int */
+    private static final long MAXIMUM_SIZE = Integer.MAX_VALUE;
+
+    /** Integer representing the heading code of the hovering move, the other codes being the angle over 10 */
+    private static final int HOVERING_CODE = 36;
+
+    /** Integer representing the longest run of the same heading stored in a single pair of bytes */
+    private static final int MAXIMUM_RUN = 255;
+
+    /** Bytes representing the status of a stored leg */
+    private static final byte DIRECT = 0;
+    private static final byte THROUGH_LANDMARK = 1;
+    private static final byte UNREACHABLE = 2;
+
+    /** FileChannel of the file of the store */
+    private final FileChannel channel;
+
+    /** MappedByteBuffer of the file, mapped again with a larger size when a record does not fit */
+    private MappedByteBuffer buffer;
+
+    /** Integer representing the offset of the end of the last record */
+    private int end;
+
+    /** Boolean representing whether a record did not fit in the largest size of the file, after which no more legs
+     * are appended */
+    private boolean full;
+
+    /** Map where the keys are the fingerprints, origins and destinations of the stored legs and the values are the
+     * offsets of their records */
+    private final Map<RecordKey, Integer> offsets = new HashMap<>();
+
+
+    /**
+     * Constructor of the LegStore class, which maps the given file and indexes the records already in it.
+     * @param channel the FileChannel of the file, open for reading and writing.
+     * @throws IOException if the file is open in another LegStore, could not be mapped, or is not a leg store of this
+     * version.
+     */
+    private LegStore(FileChannel channel) throws IOException {
+        this.channel = channel;
+        try {
+            if (channel.tryLock() == null) {
+                throw new IOException("The leg store is already open in another process");
+            }
+        } catch (OverlappingFileLockException e) {
+            throw new IOException("The leg store is already open in this process", e);
+        }
+        boolean created = channel.size() == 0;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), INITIAL_SIZE));
+        if (created) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(END_OFFSET, HEADER_SIZE);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("The file is not a leg store of version " + VERSION);
+        }
+        long storedEnd = buffer.getLong(END_OFFSET);
+        if (storedEnd < HEADER_SIZE || storedEnd > buffer.capacity()) {
+            throw new IOException("The leg store is corrupted, as its records end at " + storedEnd);
+        }
+        end = (int) storedEnd;
+        for (int offset = HEADER_SIZE; offset < end; offset += buffer.getInt(offset)) {
+            if (buffer.getInt(offset) < RECORD_HEADER_SIZE) {
+                throw new IOException("The leg store is corrupted at offset " + offset);
+            }
+            offsets.put(new RecordKey(buffer.getLong(offset + 4), buffer.getLong(offset + 12),
+                    buffer.getLong(offset + 20), buffer.getLong(offset + 28), buffer.getLong(offset + 36)), offset);
+        }
+    }
+
+    /**
+     * Method that opens the leg store in the given file, creating the file if it does not exist, and locks the file
+     * until the store is closed.
+     * @param file the file of the store.
+     * @return the LegStore of the file.
+     * @throws IOException if the file is open in another LegStore, could not be opened or mapped, or is not a leg
+     * store of this version.
+     */
+    public static LegStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            return new LegStore(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Method that returns the fingerprint of the given no-fly zones, landmarks and way of validating the movements,
+     * which are everything the legs of a PathFinder depend on.
+     * @param noFlyZonesPoints the points forming the boundaries of the no-fly zones.
+     * @param landmarks the landmarks the drone can use to avoid the no-fly zones.
+     * @param useOccupancyGrid true if the movements are validated using an {@link OccupancyGrid}, false otherwise.
+     * @return the first 8 bytes of the SHA-256 digest of the exact coordinates of the zones and the landmarks.
+     */
+    public static long getFingerprint(ArrayList<ArrayList<LongLat>> noFlyZonesPoints, ArrayList<LongLat> landmarks,
+                                      boolean useOccupancyGrid) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(16);
+        digest.update((byte) (useOccupancyGrid ? 1 : 0));
+        for (ArrayList<LongLat> zone : noFlyZonesPoints) {
+            bytes.clear();
+            digest.update(bytes.putInt(zone.size()).flip());
+            for (LongLat point : zone) {
+                bytes.clear();
+                digest.update(bytes.putDouble(point.getLongitude()).putDouble(point.getLatitude()).flip());
+            }
+        }
+        bytes.clear();
+        digest.update(bytes.putInt(-landmarks.size()).flip());
+        for (LongLat landmark : landmarks) {
+            bytes.clear();
+            digest.update(bytes.putDouble(landmark.getLongitude()).putDouble(landmark.getLatitude()).flip());
+        }
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    /**
+     * Method that returns the stored leg between the two given points, replaying its moves from its headings.
+     * @param fingerprint the fingerprint of the no-fly zones and landmarks the leg is flown around.
+     * @param origin the point the drone is currently in.
+     * @param destination the point the drone wants to reach.
+     * @param landmarks the landmarks of the fingerprint, in the order the PathFinder was given them.
+     * @return the LegResult of the leg, or null if the leg is not stored.
+     */
+    public synchronized LegResult get(long fingerprint, LongLat origin, LongLat destination, ArrayList<LongLat> landmarks) {
+        Integer offset = offsets.get(new RecordKey(fingerprint, origin, destination));
+        if (offset == null) {
+            return null;
+        }
+        int position = offset + STATUS_OFFSET;
+        byte status = buffer.get(position);
+        if (status == UNREACHABLE) {
+            return LegResult.unreachable();
+        }
+        int landmarkIndex = buffer.getInt(position + 1);
+        int movesToLandmark = buffer.getInt(position + 5);
+        int numberOfMoves = buffer.getInt(position + 9);
+        int runs = buffer.getShort(position + 13) & 0xFFFF;
+        position += 15;
+
+        ArrayList<LongLat> moves = new ArrayList<>(numberOfMoves);
+        ArrayList<Integer> angles = new ArrayList<>(numberOfMoves);
+        LongLat currentPosition = origin;
+        for (int run = 0; run < runs; run++) {
+            int code = buffer.get(position++);
+            int length = buffer.get(position++) & 0xFF;
+            int angle = code == HOVERING_CODE ? LongLat.HOVERING_ANGLE : code * 10;
+            for (int i = 0; i < length; i++) {
+                currentPosition = currentPosition.nextPosition(angle);
+                moves.add(currentPosition);
+                angles.add(angle);
+            }
+        }
+        if (status == THROUGH_LANDMARK) {
+            return LegResult.throughLandmark(moves, angles, landmarkIndex, movesToLandmark);
+        }
+        return LegResult.direct(moves, angles);
+    }
+
+    /**
+     * Method that appends the given leg to the store, unless it is already stored or the store is full. Legs over
+     * their move cap are not stored, as they were not flown to the end.
+     * @param fingerprint the fingerprint of the no-fly zones and landmarks the leg was flown around.
+     * @param origin the point the leg starts from.
+     * @param destination the point the leg goes to.
+     * @param leg the leg.
+     */
+    public synchronized void put(long fingerprint, LongLat origin, LongLat destination, LegResult leg) {
+        RecordKey key = new RecordKey(fingerprint, origin, destination);
+        if (leg.getStatus() == LegResult.Status.EXCEEDS_MOVE_CAP || offsets.containsKey(key)) {
+            return;
+        }
+        byte[] headings = leg.isReachable() ? encodeHeadings(leg.getAngles()) : new byte[0];
+        int length = RECORD_HEADER_SIZE + headings.length;
+        try {
+            if (!ensureCapacity(length)) {
+                return;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        int position = end;
+        buffer.putInt(position, length);
+        buffer.putLong(position + 4, key.fingerprint);
+        buffer.putLong(position + 12, key.originLongitudeUnits);
+        buffer.putLong(position + 20, key.originLatitudeUnits);
+        buffer.putLong(position + 28, key.destinationLongitudeUnits);
+        buffer.putLong(position + 36, key.destinationLatitudeUnits);
+        buffer.put(position + STATUS_OFFSET, !leg.isReachable() ? UNREACHABLE
+                : leg.getStatus() == LegResult.Status.THROUGH_LANDMARK ? THROUGH_LANDMARK : DIRECT);
+        buffer.putInt(position + STATUS_OFFSET + 1, leg.getLandmarkIndex());
+        buffer.putInt(position + STATUS_OFFSET + 5, leg.getMovesToLandmark());
+        buffer.putInt(position + STATUS_OFFSET + 9, leg.isReachable() ? leg.getNumberOfMoves() : 0);
+        buffer.putShort(position + STATUS_OFFSET + 13, (short) (headings.length / 2));
+        buffer.put(position + RECORD_HEADER_SIZE, headings);
+        end += length;
+        buffer.putLong(END_OFFSET, end);
+        offsets.put(key, position);
+    }
+
+    /**
+     * Method that returns the number of legs in the store, over every fingerprint.
+     * @return the number of stored legs.
+     */
+    public synchronized int getNumberOfLegs() {
+        return offsets.size();
+    }
+
+    /**
+     * Method that writes every record appended to the store to the disk and closes the file.
+     * @throws IOException if the file could not be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+
+    /**
+     * Helper method that encodes the given angles as runs of the same heading, every run being a pair of bytes with
+     * the heading code and the length of the run.
+     * @param angles the angles of the moves of a leg.
+     * @return the bytes of the runs.
+     */
+    private static byte[] encodeHeadings(ArrayList<Integer> angles) {
+        ArrayList<Byte> runs = new ArrayList<>();
+        int i = 0;
+        while (i < angles.size()) {
+            int angle = angles.get(i);
+            int length = 1;
+            while (i + length < angles.size() && angles.get(i + length) == angle && length < MAXIMUM_RUN) {
+                length++;
+            }
+            runs.add((byte) (angle == LongLat.HOVERING_ANGLE ? HOVERING_CODE : angle / 10));
+            runs.add((byte) length);
+            i += length;
+        }
+        byte[] bytes = new byte[runs.size()];
+        for (int j = 0; j < bytes.length; j++) {
+            bytes[j] = runs.get(j);
+        }
+        return bytes;
+    }
+
+    /**
+     * Helper method that maps the file again with a larger size if a record of the given length does not fit after
+     * the last record, up to the largest size of the file. The first record that does not fit in the largest size is
+     * reported, and the store is full from then on.
+     * @param length the length of the record about to be appended.
+     * @return true if the record fits after the last record, false if the store is full.
+     * @throws IOException if the file could not be mapped again.
+     */
+    private boolean ensureCapacity(int length) throws IOException {
+        if (full || (long) end + length > MAXIMUM_SIZE) {
+            if (!full) {
+                System.err.println("The leg store is full at " + end + " bytes, so no more legs are stored in it");
+                full = true;
+            }
+            return false;
+        }
+        if (end + length <= buffer.capacity()) {
+            return true;
+        }
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.min(MAXIMUM_SIZE, Math.max(2L * buffer.capacity(), (long) end + length)));
+        return true;
+    }
+
+
+    /**
+     * Class that represents the key of a stored leg: the fingerprint it was flown with, and its origin and destination
+     * snapped to fixed-point coordinates.
+     */
+    private static final class RecordKey {
+
+        /** Long representing the fingerprint of the no-fly zones and landmarks of the leg */
+        private final long fingerprint;
+
+        /** Longs representing the origin and the destination of the leg in fixed-point units */
+        private final long originLongitudeUnits;
+        private final long originLatitudeUnits;
+        private final long destinationLongitudeUnits;
+        private final long destinationLatitudeUnits;
+
+        private RecordKey(long fingerprint, long originLongitudeUnits, long originLatitudeUnits,
+                          long destinationLongitudeUnits, long destinationLatitudeUnits) {
+            this.fingerprint = fingerprint;
+            this.originLongitudeUnits = originLongitudeUnits;
+            this.originLatitudeUnits = originLatitudeUnits;
+            this.destinationLongitudeUnits = destinationLongitudeUnits;
+            this.destinationLatitudeUnits = destinationLatitudeUnits;
+        }
+
+        private RecordKey(long fingerprint, LongLat origin, LongLat destination) {
+            this(fingerprint, FixedPointLongLat.toUnits(origin.getLongitude()), FixedPointLongLat.toUnits(origin.getLatitude()),
+                    FixedPointLongLat.toUnits(destination.getLongitude()), FixedPointLongLat.toUnits(destination.getLatitude()));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof RecordKey)) {
+                return false;
+            }
+            RecordKey that = (RecordKey) other;
+            return fingerprint == that.fingerprint
+                    && originLongitudeUnits == that.originLongitudeUnits && originLatitudeUnits == that.originLatitudeUnits
+                    && destinationLongitudeUnits == that.destinationLongitudeUnits
+                    && destinationLatitudeUnits == that.destinationLatitudeUnits;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Long.hashCode(fingerprint)
+                    + FixedPointLongLat.hash(originLongitudeUnits, originLatitudeUnits))
+                    + FixedPointLongLat.hash(destinationLongitudeUnits, destinationLatitudeUnits);
+        }
+    }
+}
@@ -16,11 +16,11 @@ public class LongLat {
 
     /** Double representing the longitude of the location of the point*/
     @SerializedName("lng")
-    public double longitude;
+    public final double longitude;
 
     /** Double representing the latitude of the location of the point*/
     @SerializedName("lat")
-    public double latitude;
+    public final double latitude;
 
     /** Double representing the length in degrees of the distance we fly in a move*/
     private static final double MOVE_DISTANCE = 0.00015;
@@ -32,20 +32,20 @@ public class LongLat {
     private static final double DISTANCE_TOLERANCE = 0.00015;
 
     /** Integer representing the angle which indicates that the drone is hovering*/
-    private static final int HOVERING_ANGLE = -999;
+    static final int HOVERING_ANGLE = -999;
 
 
     /** Double representing the northern limit of the confinement area*/
-    private static final double NORTHERN_LATITUDE_CONFINEMENT_LIMIT = 55.946233;
+    static final double NORTHERN_LATITUDE_CONFINEMENT_LIMIT = 55.946233;
 
     /** Double representing the southern limit of the confinement area*/
-    private static final double SOUTHERN_LATITUDE_CONFINEMENT_LIMIT = 55.942617;
+    static final double SOUTHERN_LATITUDE_CONFINEMENT_LIMIT = 55.942617;
 
     /** Double representing the western limit of the confinement area*/
-    private static final double WESTERN_LONGITUDE_CONFINEMENT_LIMIT = -3.192473;
+    static final double WESTERN_LONGITUDE_CONFINEMENT_LIMIT = -3.192473;
 
     /** Double representing the eastern limit of the confinement area*/
-    private static final double EASTERN_LONGITUDE_CONFINEMENT_LIMIT = -3.184319;
+    static final double EASTERN_LONGITUDE_CONFINEMENT_LIMIT = -3.184319;
 
 
 
@@ -68,13 +68,39 @@ public class LongLat {
         return latitude;
     }
 
+    /**
+     * Method that snaps this LongLat to the fixed-point representation used for value equality and hashing.
+     * @return the FixedPointLongLat nearest to this LongLat.
+     */
+    public FixedPointLongLat toFixedPoint() {
+        return FixedPointLongLat.fromLongLat(this);
+    }
+
+    /**
+     * Method that transforms this LongLat into a mapbox.geojson.Point, used when writing GeoJSON.
+     * @return the mapbox.geojson.Point representing this LongLat.
+     */
+    public Point toPoint() {
+        return Point.fromLngLat(longitude, latitude);
+    }
+
+    /**
+     * Method that transforms a mapbox.geojson.Point read from a GeoJSON file into a LongLat, snapping it to the
+     * fixed-point grid so that points read at the boundaries compare equal by value.
+     * @param point the mapbox.geojson.Point we want to transform.
+     * @return the LongLat representing the given point.
+     */
+    public static LongLat fromPoint(Point point) {
+        return FixedPointLongLat.fromPoint(point).toLongLat();
+    }
+
 
 
     /**
      * Method that returns true if the drone is within the drone confinement area and false if it is not.
      * @return True if the longitude and latitude are within the required parameters, false otherwise.
      */
-    private boolean isConfined(){
+    boolean isConfined(){
         if (longitude > WESTERN_LONGITUDE_CONFINEMENT_LIMIT && longitude < EASTERN_LONGITUDE_CONFINEMENT_LIMIT){
             if (latitude > SOUTHERN_LATITUDE_CONFINEMENT_LIMIT && latitude < NORTHERN_LATITUDE_CONFINEMENT_LIMIT){
                 return true;
@@ -113,6 +139,19 @@ public class LongLat {
         return true;
     }
 
+    /**
+     * Method that returns true if the next movement is within the drone confinement area and does not intersect with
+     * any of the no-fly zones, and false if it is not, by answering from the given precomputed occupancy grid of the
+     * no-fly zones instead of testing every line of every no-fly zone.
+     * @param nextPosition the next position
+     * @param occupancyGrid the occupancy grid built from the no-fly zones
+     * @return true if the next movement is within the drone confinement area and does not intersect with any of the
+     * no-fly zones, false otherwise.
+     */
+    public boolean isValidMovement(LongLat nextPosition, OccupancyGrid occupancyGrid){
+        return occupancyGrid.isValidMovement(this, nextPosition);
+    }
+
     /**
      * Calculates the pythagorean distance from our current position to the new location.
      * @param newLocation LongLat object from which we calculate the distance from.
@@ -306,15 +345,37 @@ public class LongLat {
     public static ArrayList<LongLat> translateLandmarksToLongLat(ArrayList<Point> landmarksPointsArray) {
         ArrayList<LongLat> landmarksLongLatArray= new ArrayList<>();
         for(Point point: landmarksPointsArray){
-            var coordinates = point.coordinates();
-            LongLat pointCoordinates = new LongLat(coordinates.get(0), coordinates.get(1));
-            landmarksLongLatArray.add(pointCoordinates);
+            landmarksLongLatArray.add(fromPoint(point));
         }
         return landmarksLongLatArray;
     }
 
 
 
+    /**
+     * Two LongLat objects are equal if they snap to the same {@link FixedPointLongLat}, that is, if they represent the
+     * same location up to {@value FixedPointLongLat#DEGREES_PER_UNIT} degrees.
+     * @param other the object we compare this LongLat with.
+     * @return true if both objects represent the same location, false otherwise.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof LongLat)) {
+            return false;
+        }
+        LongLat that = (LongLat) other;
+        return FixedPointLongLat.toUnits(longitude) == FixedPointLongLat.toUnits(that.longitude)
+                && FixedPointLongLat.toUnits(latitude) == FixedPointLongLat.toUnits(that.latitude);
+    }
+
+    @Override
+    public int hashCode() {
+        return FixedPointLongLat.hash(FixedPointLongLat.toUnits(longitude), FixedPointLongLat.toUnits(latitude));
+    }
+
     @Override
     public String toString() {
         return "LongLat{" +
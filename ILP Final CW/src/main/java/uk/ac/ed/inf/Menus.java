@@ -1,6 +1,7 @@
 package uk.ac.ed.inf;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class that represents the restaurant menu.
@@ -23,11 +24,16 @@ public class Menus {
     /** List of objects of type Restaurant representing all available restaurants */
     private final List<Restaurant> availableRestaurants;
 
+    /** Map where the keys are the URLs of the menus and the values the restaurants downloaded from them, shared by
+     * every Menus object so that the menus are only downloaded once per web server, until they are refreshed */
+    private static final Map<String, List<Restaurant>> restaurantsCache = new ConcurrentHashMap<>();
+
 
     /**
      * Class constructor of the class Menus.
      * @param MachineName The name of the machine where the web server is running.
      * @param WebServerPort The port where the web server is running.
+     * @throws IllegalStateException if the menus could not be obtained.
      */
     public Menus(String MachineName, String WebServerPort){
         this.MachineName = MachineName;
@@ -56,15 +62,43 @@ public class Menus {
 
     /**
      * Method that constructs the name of the URL and returns a list with all the different objects of type
-     * Restaurant.
+     * Restaurant. The restaurants are only downloaded the first time they are requested from a given web server.
      * @return the list of all the restaurants.
+     * @throws IllegalStateException if the menus could not be obtained, in which case they are requested again the
+     * next time.
      */
     public List<Restaurant> getRestaurants() {
 
-        String menusURL = "http://" + MachineName + ":" + WebServerPort + MENUS_SERVER_LOCATION;
+        String menusURL = getMenusURL(MachineName, WebServerPort);
+
+        return restaurantsCache.computeIfAbsent(menusURL, HTTPClient::getRestaurantRequest);
+
+    }
 
-        return HTTPClient.getRestaurantRequest(menusURL);
 
+    /**
+     * Method that downloads the menus of the given web server again and replaces the restaurants kept for it, so that
+     * every Menus created afterwards has the current menus. With an {@link HttpCache}, the menus are revalidated, and
+     * only downloaded and parsed again if they have changed.
+     * @param MachineName The name of the machine where the web server is running.
+     * @param WebServerPort The port where the web server is running.
+     * @throws IllegalStateException if the menus could not be obtained, in which case the restaurants kept are not
+     * changed.
+     */
+    public static void refresh(String MachineName, String WebServerPort) {
+        String menusURL = getMenusURL(MachineName, WebServerPort);
+        restaurantsCache.put(menusURL, HTTPClient.getRestaurantRequest(menusURL));
+    }
+
+
+    /**
+     * Helper method that constructs the URL of the menus of the given web server.
+     * @param MachineName The name of the machine where the web server is running.
+     * @param WebServerPort The port where the web server is running.
+     * @return the URL of the menus.
+     */
+    private static String getMenusURL(String MachineName, String WebServerPort) {
+        return "http://" + MachineName + ":" + WebServerPort + MENUS_SERVER_LOCATION;
     }
 
 
@@ -0,0 +1,164 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class that represents a change to the no-fly zones of a {@link PathFinder} made while it is in use: the zones added,
+ * the zones removed, and how much of what the PathFinder had computed had to be thrown away because of it. It also
+ * checks whether a route planned before the change is still clear of the added zones, as removing a zone can never
+ * make a route invalid.
+ */
+public class NoFlyZoneUpdate {
+
+    /** Double representing the margin, in degrees, by which the bounding boxes are grown before testing whether they
+     * touch, so that the moves of a leg slightly away from the straight line between its ends are still covered */
+    static final double BOUNDING_BOX_MARGIN = 2 * 0.00015;
+
+    /** ArrayList of ArrayList of LongLat representing the points of the borders of the zones added */
+    private final ArrayList<ArrayList<LongLat>> addedZones;
+
+    /** ArrayList of ArrayList of LongLat representing the points of the borders of the zones removed */
+    private final ArrayList<ArrayList<LongLat>> removedZones;
+
+    /** Integer representing the number of cached legs thrown away */
+    private int legsInvalidated = 0;
+
+    /** Integer representing the number of return costs to Appleton Tower thrown away */
+    private int returnCostsInvalidated = 0;
+
+
+    /**
+     * Constructor of the NoFlyZoneUpdate class.
+     * @param addedZones the points of the borders of the zones added.
+     * @param removedZones the points of the borders of the zones removed, as they were given to the PathFinder.
+     */
+    NoFlyZoneUpdate(ArrayList<ArrayList<LongLat>> addedZones, ArrayList<ArrayList<LongLat>> removedZones) {
+        this.addedZones = addedZones;
+        this.removedZones = removedZones;
+    }
+
+    /**
+     * Method that returns true if some move of the given route touches the border of one of the added zones, so that
+     * a plan made before the change can no longer be flown. Moves are tested exactly, as by the
+     * {@link FlightPathValidator}.
+     * @param route the coordinates the drone visits, in order.
+     * @return true if the route crosses an added zone, false if it is still clear of every added zone.
+     */
+    public boolean crosses(List<LongLat> route) {
+        for (ArrayList<LongLat> zone : addedZones) {
+            double[] zoneBox = getBoundingBox(zone, 0);
+            for (int i = 0; i + 1 < route.size(); i++) {
+                LongLat from = route.get(i);
+                LongLat to = route.get(i + 1);
+                if (!touches(zoneBox, getBoundingBox(List.of(from, to), 0))) {
+                    continue;
+                }
+                for (int j = 0; j < zone.size(); j++) {
+                    LongLat borderEnd = zone.get(j == zone.size() - 1 ? 0 : j + 1);
+                    if (FlightPathValidator.segmentsTouch(from.getLongitude(), from.getLatitude(), to.getLongitude(),
+                            to.getLatitude(), zone.get(j).getLongitude(), zone.get(j).getLatitude(),
+                            borderEnd.getLongitude(), borderEnd.getLatitude())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method that returns true if the given bounding box touches the bounding box of one of the added zones.
+     * @param box the bounding box, as returned by {@link #getBoundingBox}.
+     * @return true if the box touches an added zone, false otherwise.
+     */
+    boolean touchesAddedZone(double[] box) {
+        return touchesAny(box, addedZones);
+    }
+
+    /**
+     * Method that returns true if the given bounding box touches the bounding box of one of the removed zones.
+     * @param box the bounding box, as returned by {@link #getBoundingBox}.
+     * @return true if the box touches a removed zone, false otherwise.
+     */
+    boolean touchesRemovedZone(double[] box) {
+        return touchesAny(box, removedZones);
+    }
+
+    /**
+     * Method that returns the bounding box of the given points, grown by the given margin on every side.
+     * @param points the points.
+     * @param margin the margin in degrees.
+     * @return an array with the minimum longitude, the minimum latitude, the maximum longitude and the maximum
+     * latitude of the box.
+     */
+    static double[] getBoundingBox(List<LongLat> points, double margin) {
+        double[] box = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (LongLat point : points) {
+            box[0] = Math.min(box[0], point.getLongitude());
+            box[1] = Math.min(box[1], point.getLatitude());
+            box[2] = Math.max(box[2], point.getLongitude());
+            box[3] = Math.max(box[3], point.getLatitude());
+        }
+        box[0] -= margin;
+        box[1] -= margin;
+        box[2] += margin;
+        box[3] += margin;
+        return box;
+    }
+
+    /**
+     * Helper method that returns true if the given bounding box touches the bounding box of one of the given zones.
+     * @param box the bounding box.
+     * @param zones the zones.
+     * @return true if the box touches a zone, false otherwise.
+     */
+    private static boolean touchesAny(double[] box, ArrayList<ArrayList<LongLat>> zones) {
+        for (ArrayList<LongLat> zone : zones) {
+            if (touches(box, getBoundingBox(zone, 0))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Helper method that returns true if the two given bounding boxes overlap or touch.
+     * @param first the first bounding box.
+     * @param second the second bounding box.
+     * @return true if the boxes touch, false otherwise.
+     */
+    private static boolean touches(double[] first, double[] second) {
+        return first[0] <= second[2] && second[0] <= first[2] && first[1] <= second[3] && second[1] <= first[3];
+    }
+
+    /**
+     * Method that counts a cached leg thrown away because of the change.
+     */
+    void addInvalidatedLeg() {
+        legsInvalidated++;
+    }
+
+    /**
+     * Method that counts a return cost to Appleton Tower thrown away because of the change.
+     */
+    void addInvalidatedReturnCost() {
+        returnCostsInvalidated++;
+    }
+
+    public ArrayList<ArrayList<LongLat>> getAddedZones() {
+        return addedZones;
+    }
+
+    public ArrayList<ArrayList<LongLat>> getRemovedZones() {
+        return removedZones;
+    }
+
+    public int getLegsInvalidated() {
+        return legsInvalidated;
+    }
+
+    public int getReturnCostsInvalidated() {
+        return returnCostsInvalidated;
+    }
+}
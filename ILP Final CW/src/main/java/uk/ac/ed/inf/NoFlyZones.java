@@ -30,6 +30,24 @@ public class NoFlyZones {
         setNoFlyZonesPoints(noFlyZonesPolygons);
     }
 
+    /**
+     * Method that builds the no-fly zones from the endpoints of the lines of their borders, as returned by
+     * {@link #getNoFlyZonesPoints()}, without parsing any GeoJSON. Every no-fly zone becomes a polygon with a single ring.
+     * @param noFlyZonesPoints the endpoints of the lines of the borders of every no-fly zone.
+     * @return the NoFlyZones.
+     */
+    public static NoFlyZones fromPoints(ArrayList<ArrayList<LongLat>> noFlyZonesPoints) {
+        ArrayList<Polygon> noFlyZonesPolygons = new ArrayList<>();
+        for (ArrayList<LongLat> noFlyZonePoints : noFlyZonesPoints) {
+            List<Point> ring = new ArrayList<>();
+            for (LongLat point : noFlyZonePoints) {
+                ring.add(point.toPoint());
+            }
+            noFlyZonesPolygons.add(Polygon.fromLngLats(List.of(ring)));
+        }
+        return new NoFlyZones(noFlyZonesPolygons);
+    }
+
 
     /**
      * Getter of the {@link #noFlyZonesPoints} ArrayList
@@ -52,9 +70,7 @@ public class NoFlyZones {
             ArrayList<LongLat> noFlyZonePolygonPoints = new ArrayList<>();
             for (List<Point> listOfPoints : polygon.coordinates()){
                 for(Point point:listOfPoints){
-                    var coordinates = point.coordinates();
-                    LongLat pointCoordinates = new LongLat(coordinates.get(0), coordinates.get(1));
-                    noFlyZonePolygonPoints.add(pointCoordinates);
+                    noFlyZonePolygonPoints.add(LongLat.fromPoint(point));
                 }
             }
             noFlyZonesPointsArray.add(noFlyZonePolygonPoints);
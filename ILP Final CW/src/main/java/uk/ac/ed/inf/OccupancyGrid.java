@@ -0,0 +1,312 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class that represents a rasterized occupancy map of the confinement area. The confinement area is divided into
+ * square cells of {@value #CELL_SIZE} degrees, and a bit is set for every cell that is crossed by the border of a
+ * no-fly zone. For those cells only, the grid also keeps the list of the border lines that cross them. A movement
+ * whose cells are all clear can not cross any no-fly zone, so it is validated without any intersection test, and a
+ * movement near a border is only tested against the few border lines of the cells it touches.
+ */
+public class OccupancyGrid {
+
+    /** Double representing the length in degrees of the side of every cell of the grid */
+    static final double CELL_SIZE = 0.00005;
+
+    /** Integer representing the number of columns of the grid, going from west to east */
+    private final int columns;
+
+    /** Integer representing the number of rows of the grid, going from south to north */
+    private final int rows;
+
+    /** BitSet where the bit of a cell is set if that cell is crossed by the border of a no-fly zone */
+    private final BitSet boundaryCells;
+
+    /** List where, for every cell crossed by the border of a no-fly zone, we store the border lines that cross that
+     * cell as pairs of LongLat (origin and end of every line). It is null for every cell that is not crossed. */
+    private final List<List<LongLat[]>> cellBorderLines;
+
+
+    /**
+     * Constructor of the OccupancyGrid class, which rasterizes the borders of the given no-fly zones.
+     * @param noFlyZonesPoints ArrayList of ArrayList of LongLat representing the coordinates of the points forming the
+     *                         boundaries of the no-fly zones.
+     */
+    public OccupancyGrid(ArrayList<ArrayList<LongLat>> noFlyZonesPoints) {
+        columns = (int) Math.ceil((LongLat.EASTERN_LONGITUDE_CONFINEMENT_LIMIT - LongLat.WESTERN_LONGITUDE_CONFINEMENT_LIMIT) / CELL_SIZE);
+        rows = (int) Math.ceil((LongLat.NORTHERN_LATITUDE_CONFINEMENT_LIMIT - LongLat.SOUTHERN_LATITUDE_CONFINEMENT_LIMIT) / CELL_SIZE);
+        boundaryCells = new BitSet(columns * rows);
+        cellBorderLines = new ArrayList<>(Collections.nCopies(columns * rows, null));
+
+        for (ArrayList<LongLat> longLatArrayList : noFlyZonesPoints) {
+            addNoFlyZone(longLatArrayList);
+        }
+    }
+
+
+    /**
+     * Method that rasterizes the borders of a new no-fly zone into the grid.
+     * @param noFlyZonePoints ArrayList of LongLat representing the coordinates of the points forming the boundary of
+     *                        the no-fly zone.
+     */
+    public void addNoFlyZone(ArrayList<LongLat> noFlyZonePoints) {
+        for (int i = 0; i < noFlyZonePoints.size(); i++) {
+            int nextIndex;
+            if (i == noFlyZonePoints.size() - 1) {
+                nextIndex = 0;
+            } else {
+                nextIndex = i + 1;
+            }
+            addBorderLine(noFlyZonePoints.get(i), noFlyZonePoints.get(nextIndex));
+        }
+    }
+
+    /**
+     * Method that removes the borders of a no-fly zone from the grid, clearing every cell no other border crosses.
+     * @param noFlyZonePoints ArrayList of LongLat representing the coordinates of the points forming the boundary of
+     *                        the no-fly zone, as they were added.
+     */
+    public void removeNoFlyZone(ArrayList<LongLat> noFlyZonePoints) {
+        for (int i = 0; i < noFlyZonePoints.size(); i++) {
+            int nextIndex;
+            if (i == noFlyZonePoints.size() - 1) {
+                nextIndex = 0;
+            } else {
+                nextIndex = i + 1;
+            }
+            removeBorderLine(noFlyZonePoints.get(i), noFlyZonePoints.get(nextIndex));
+        }
+    }
+
+
+    /**
+     * Method that returns true if the given position is within the drone confinement area. Positions in a cell that
+     * lies fully inside the confinement area are answered from the grid, and only positions in the cells along the
+     * edges of the confinement area are compared against its limits.
+     * @param position the position we want to check.
+     * @return true if the position is within the drone confinement area, false otherwise.
+     */
+    public boolean isConfined(LongLat position) {
+        int column = getColumn(position.getLongitude());
+        int row = getRow(position.getLatitude());
+        if (column < 0 || column >= columns || row < 0 || row >= rows) {
+            return false;
+        }
+        if (column > 0 && column < columns - 1 && row > 0 && row < rows - 1) {
+            return true;
+        }
+        return position.isConfined();
+    }
+
+    /**
+     * Method that returns true if the movement from the current position to the next position stays within the drone
+     * confinement area and does not cross any of the no-fly zones. Only the border lines of the cells touched by the
+     * movement are tested for intersection, and none at all if those cells are clear.
+     * @param currentPosition the position the drone is currently in.
+     * @param nextPosition the position the drone would move to.
+     * @return true if the movement is valid, false otherwise.
+     */
+    public boolean isValidMovement(LongLat currentPosition, LongLat nextPosition) {
+        if (!isConfined(nextPosition)) {
+            return false;
+        }
+        int firstColumn = clampColumn(getColumn(Math.min(currentPosition.getLongitude(), nextPosition.getLongitude())));
+        int lastColumn = clampColumn(getColumn(Math.max(currentPosition.getLongitude(), nextPosition.getLongitude())));
+        int firstRow = clampRow(getRow(Math.min(currentPosition.getLatitude(), nextPosition.getLatitude())));
+        int lastRow = clampRow(getRow(Math.max(currentPosition.getLatitude(), nextPosition.getLatitude())));
+
+        // Border lines are compared by identity, as every line is a single array shared by all the cells it crosses
+        Set<LongLat[]> testedLines = null;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                if (!boundaryCells.get(cell)) {
+                    continue;
+                }
+                if (testedLines == null) {
+                    testedLines = Collections.newSetFromMap(new IdentityHashMap<>());
+                }
+                for (LongLat[] borderLine : cellBorderLines.get(cell)) {
+                    // The same border line can cross several of the cells the movement touches
+                    if (!testedLines.add(borderLine)) {
+                        continue;
+                    }
+                    if (currentPosition.intersectsWith(currentPosition, nextPosition, borderLine[0], borderLine[1])) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method that returns true if the cell containing the given position is crossed by the border of a no-fly zone.
+     * @param position the position we want to check.
+     * @return true if the cell of the position is crossed by a border, false if it is clear or outside the grid.
+     */
+    public boolean isBoundaryCell(LongLat position) {
+        int column = getColumn(position.getLongitude());
+        int row = getRow(position.getLatitude());
+        if (column < 0 || column >= columns || row < 0 || row >= rows) {
+            return false;
+        }
+        return boundaryCells.get(row * columns + column);
+    }
+
+
+    /**
+     * Method that returns true if the given cell is crossed by the border of a no-fly zone.
+     * @param column the column of the cell.
+     * @param row the row of the cell.
+     * @return true if the cell is crossed by a border, false otherwise.
+     */
+    boolean isBoundaryCell(int column, int row) {
+        return boundaryCells.get(row * columns + column);
+    }
+
+    /**
+     * Helper method that marks every cell crossed by the border line between the two given points, and adds the line
+     * to the list of border lines of those cells.
+     * @param origin the origin point of the border line.
+     * @param end the end point of the border line.
+     */
+    private void addBorderLine(LongLat origin, LongLat end) {
+        LongLat[] borderLine = new LongLat[]{origin, end};
+        int firstColumn = clampColumn(getColumn(Math.min(origin.getLongitude(), end.getLongitude())));
+        int lastColumn = clampColumn(getColumn(Math.max(origin.getLongitude(), end.getLongitude())));
+        int firstRow = clampRow(getRow(Math.min(origin.getLatitude(), end.getLatitude())));
+        int lastRow = clampRow(getRow(Math.max(origin.getLatitude(), end.getLatitude())));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                if (crossesCell(origin, end, column, row)) {
+                    int cell = row * columns + column;
+                    boundaryCells.set(cell);
+                    if (cellBorderLines.get(cell) == null) {
+                        cellBorderLines.set(cell, new ArrayList<>());
+                    }
+                    cellBorderLines.get(cell).add(borderLine);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method that removes the border line between the two given points from the list of border lines of every
+     * cell it crosses, and clears the cells left without any border line.
+     * @param origin the origin point of the border line.
+     * @param end the end point of the border line.
+     */
+    private void removeBorderLine(LongLat origin, LongLat end) {
+        int firstColumn = clampColumn(getColumn(Math.min(origin.getLongitude(), end.getLongitude())));
+        int lastColumn = clampColumn(getColumn(Math.max(origin.getLongitude(), end.getLongitude())));
+        int firstRow = clampRow(getRow(Math.min(origin.getLatitude(), end.getLatitude())));
+        int lastRow = clampRow(getRow(Math.max(origin.getLatitude(), end.getLatitude())));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                List<LongLat[]> borderLines = cellBorderLines.get(cell);
+                if (borderLines == null) {
+                    continue;
+                }
+                // Only one copy is removed, as another zone may share the same border line
+                for (int i = 0; i < borderLines.size(); i++) {
+                    LongLat[] borderLine = borderLines.get(i);
+                    if (borderLine[0].equals(origin) && borderLine[1].equals(end)) {
+                        borderLines.remove(i);
+                        break;
+                    }
+                }
+                if (borderLines.isEmpty()) {
+                    cellBorderLines.set(cell, null);
+                    boundaryCells.clear(cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method that checks whether the line between the two given points crosses the given cell, by clipping the
+     * line against the rectangle of the cell. The rectangle is grown by a small margin so that lines running exactly
+     * along the side of a cell are added to the cells on both sides.
+     * @param origin the origin point of the line.
+     * @param end the end point of the line.
+     * @param column the column of the cell.
+     * @param row the row of the cell.
+     * @return true if the line crosses the cell, false otherwise.
+     */
+    private boolean crossesCell(LongLat origin, LongLat end, int column, int row) {
+        double margin = CELL_SIZE * 1e-3;
+        double minLongitude = LongLat.WESTERN_LONGITUDE_CONFINEMENT_LIMIT + column * CELL_SIZE - margin;
+        double maxLongitude = minLongitude + CELL_SIZE + 2 * margin;
+        double minLatitude = LongLat.SOUTHERN_LATITUDE_CONFINEMENT_LIMIT + row * CELL_SIZE - margin;
+        double maxLatitude = minLatitude + CELL_SIZE + 2 * margin;
+
+        double deltaLongitude = end.getLongitude() - origin.getLongitude();
+        double deltaLatitude = end.getLatitude() - origin.getLatitude();
+        double[] p = {-deltaLongitude, deltaLongitude, -deltaLatitude, deltaLatitude};
+        double[] q = {origin.getLongitude() - minLongitude, maxLongitude - origin.getLongitude(),
+                origin.getLatitude() - minLatitude, maxLatitude - origin.getLatitude()};
+        double entering = 0.0;
+        double leaving = 1.0;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    return false;
+                }
+            } else {
+                double t = q[i] / p[i];
+                if (p[i] < 0) {
+                    entering = Math.max(entering, t);
+                } else {
+                    leaving = Math.min(leaving, t);
+                }
+            }
+        }
+        return entering <= leaving;
+    }
+
+    /**
+     * Helper method that returns the column of the grid containing the given longitude.
+     * @param longitude the longitude.
+     * @return the column containing the longitude, which is outside the grid if the longitude is not confined.
+     */
+    private int getColumn(double longitude) {
+        return (int) Math.floor((longitude - LongLat.WESTERN_LONGITUDE_CONFINEMENT_LIMIT) / CELL_SIZE);
+    }
+
+    /**
+     * Helper method that returns the row of the grid containing the given latitude.
+     * @param latitude the latitude.
+     * @return the row containing the latitude, which is outside the grid if the latitude is not confined.
+     */
+    private int getRow(double latitude) {
+        return (int) Math.floor((latitude - LongLat.SOUTHERN_LATITUDE_CONFINEMENT_LIMIT) / CELL_SIZE);
+    }
+
+    private int clampColumn(int column) {
+        return Math.max(0, Math.min(columns - 1, column));
+    }
+
+    private int clampRow(int row) {
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getNumberOfBoundaryCells() {
+        return boundaryCells.cardinality();
+    }
+}
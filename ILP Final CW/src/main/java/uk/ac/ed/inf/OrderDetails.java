@@ -1,6 +1,9 @@
 package uk.ac.ed.inf;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 
 /**
@@ -49,15 +52,60 @@ public class OrderDetails {
     }
 
     /**
-     * Method that sets all the OrderDetails fields that were not set up by the constructor.
+     * Method that sets all the OrderDetails fields that were not set up by the constructor. If an I/O timeout is set in
+     * {@link App}, the menus and the What3Words locations are first requested concurrently in an {@link IoScope}, so
+     * that the fields are then set from the caches.
      * @param listOrderDetails list with all the orderDetails that we could do for a given date.
      */
     public static void setOrderDetailsFields(ArrayList<OrderDetails> listOrderDetails) {
+        boolean concurrentIo = App.getIoTimeout() != null;
+        if (concurrentIo) {
+            Set<String> deliverToLocations = new LinkedHashSet<>();
+            for (OrderDetails order : listOrderDetails) {
+                deliverToLocations.add(order.getDeliverTo());
+            }
+            prefetch(deliverToLocations, true);
+        }
         setPrices(listOrderDetails);
         setWhat3WordsLocations(listOrderDetails);
+        if (concurrentIo) {
+            // The restaurants are only known once the menus are, so their locations are requested in a second group
+            Set<String> deliverFromLocations = new LinkedHashSet<>();
+            for (OrderDetails order : listOrderDetails) {
+                deliverFromLocations.addAll(order.getDeliverFrom());
+            }
+            prefetch(deliverFromLocations, false);
+        }
         setLongLatLocations(listOrderDetails);
     }
 
+    /**
+     * Helper method that requests the given What3Words locations, and optionally the menus, concurrently in an
+     * {@link IoScope}. If a request fails or times out, the other requests are cancelled and the remaining locations
+     * are requested one at a time when the fields are set.
+     * @param locations the What3Words locations to request.
+     * @param withMenus true if the menus are also requested.
+     */
+    private static void prefetch(Set<String> locations, boolean withMenus) {
+        try (IoScope scope = new IoScope(App.getIoTimeout())) {
+            if (withMenus) {
+                scope.fork(() -> new Menus(App.getMachineName(), App.getWebServerPort()));
+            }
+            for (String location : locations) {
+                if (location != null) {
+                    scope.fork(() -> HTTPClient.translateLocation(location));
+                }
+            }
+            scope.join();
+        } catch (IOException e) {
+            System.err.println("The concurrent requests failed, so the remaining ones are made one at a time");
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Method that sets the price field for every OrderDetails object in listOrderDetails.
      * @param listOrderDetails list with all the orderDetails that we could do for a given date.
@@ -2,6 +2,8 @@ package uk.ac.ed.inf;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * Class responsible for handling the output files.
@@ -29,12 +31,28 @@ public class OutputFiles {
      * @throws IOException exception obtained when the GeoJson file could not be written correctly.
      */
     protected static void writeGeoJSONFile(String day, String month, String year, Drone drone) throws IOException {
+        writeGeoJSONFile(Paths.get(""), day, month, year, drone);
+    }
+
+    /**
+     * Method that given the date of the flight, and the drone movements for that day, writes a GeoJSON file for the
+     * movements of the drone for that given date in the given folder.
+     * @param folder the folder the GeoJSON file is written in.
+     * @param day day of the date of the flight
+     * @param month month of the date of the flight
+     * @param year year of the date of the flight
+     * @param drone object of type Drone that represents the drone and its movements for the given day
+     * @throws IOException exception obtained when the GeoJson file could not be written correctly.
+     */
+    protected static void writeGeoJSONFile(Path folder, String day, String month, String year, Drone drone) throws IOException {
 
+        long startTime = System.nanoTime();
         String filename = GEOJSON_FILE_PREFIX + day + "-" + month + "-" + year + GEOJSON_FILE_SUFFIX;
-        FileWriter readings = new FileWriter(filename);
+        FileWriter readings = new FileWriter(folder.resolve(filename).toFile());
 
         readings.write(GeoJSON.translateRouteToGeoJSON(drone).toJson());
         readings.close();
+        PlanningMetrics.OUTPUT_WRITE.recordSince(startTime);
 
     }
 
@@ -0,0 +1,701 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Class that, for a given set of no-fly zones and landmarks, constructs the move-by-move legs the drone flies between
+ * two points while avoiding the no-fly zones and staying inside the confinement area. A PathFinder only depends on
+ * the no-fly zones and the landmarks, so the same instance (and everything it precomputes) can be shared by every
+ * drone flying over the same area. The no-fly zones can be changed while the PathFinder is in use with
+ * {@link #updateNoFlyZones}, which only throws away what the change may have made wrong.
+ */
+public class PathFinder {
+
+    /** Integer representing the angle which indicates that the drone is hovering*/
+    private static final int HOVERING_ANGLE = -999;
+
+    /** Double representing the distance covered by every move of the drone, in degrees */
+    private static final double MOVE_DISTANCE = 0.00015;
+
+    /** Double representing the fraction of a move the lower bound of the number of moves is lowered by, so that the
+     * rounding of the coordinates can not make it exceed the actual number of moves */
+    private static final double LOWER_BOUND_TOLERANCE = 1e-6;
+
+    /** Map with the PathFinder objects that have already been created, keyed by their no-fly zones and landmarks, so
+     * that days sharing the same no-fly zones and landmarks also share the same PathFinder. */
+    private static final Map<List<Object>, PathFinder> pathFinders = new ConcurrentHashMap<>();
+
+    /** ArrayList that contains ArrayLists of LongLats. It represents all the endpoints of the different straight lines
+     * representing the borders of all no-fly zones, and therefore every smaller sub-ArrayList represents all the
+     * endpoints of the lines representing the borders of a particular enclosed No-fly zone area. It is replaced by a
+     * new ArrayList, and never modified, when the no-fly zones change */
+    private volatile ArrayList<ArrayList<LongLat>> noFlyZonesPoints;
+
+    /** ArrayList of LongLat representing all the landmarks given by us in the web server */
+    private final ArrayList<LongLat> landmarks;
+
+    /** Optional OccupancyGrid of the no-fly zones used to validate the movements, or null if every movement is tested
+     * against every line of every no-fly zone */
+    private final OccupancyGrid occupancyGrid;
+
+    /** Map where the keys are the snapped origin and destination of every leg computed so far and the values are
+     * those legs, so that a leg is only flown once for every drone sharing this PathFinder */
+    private final Map<LegKey, LegResult> legs = new ConcurrentHashMap<>();
+
+    /** ReturnCostMemo with the number of moves needed to return to Appleton Tower, created the first time it is
+     * needed */
+    private ReturnCostMemo returnCostMemo;
+
+    /** ConnectivityMap of the free space around the no-fly zones, created the first time it is needed. It is only
+     * read or created while holding the read lock of the {@link #zonesLock}, and only thrown away while holding its
+     * write lock */
+    private ConnectivityMap connectivityMap;
+
+    /** ReadWriteLock held for reading while a leg is looked up or flown or the {@link #connectivityMap} is read, and
+     * for writing while the no-fly zones change, so that no leg flown around the old no-fly zones is cached after the
+     * change */
+    private final ReadWriteLock zonesLock = new ReentrantReadWriteLock();
+
+    /** LegStore the legs are read from before being flown, and written to once flown, or null if the legs are only
+     * kept for as long as the PathFinder */
+    private volatile LegStore legStore;
+
+    /** Long representing the fingerprint of the no-fly zones, the landmarks and the way of validating the movements,
+     * which keys the legs of this PathFinder in the {@link #legStore} */
+    private volatile long legStoreFingerprint;
+
+
+    /**
+     * Constructor of the PathFinder class.
+     * @param noFlyZonesPoints ArrayList of ArrayList of LongLat representing the coordinates of the points forming the
+     *                         boundaries of the no-fly zones.
+     * @param landmarks ArrayList of LongLat representing the landmarks the drone can use to avoid the no-fly zones.
+     */
+    public PathFinder(ArrayList<ArrayList<LongLat>> noFlyZonesPoints, ArrayList<LongLat> landmarks) {
+        this(noFlyZonesPoints, landmarks, null);
+    }
+
+    /**
+     * Constructor of the PathFinder class that validates the movements using the given occupancy grid.
+     * @param noFlyZonesPoints ArrayList of ArrayList of LongLat representing the coordinates of the points forming the
+     *                         boundaries of the no-fly zones.
+     * @param landmarks ArrayList of LongLat representing the landmarks the drone can use to avoid the no-fly zones.
+     * @param occupancyGrid the OccupancyGrid built from the no-fly zones, or null to test every movement against every
+     *                      line of every no-fly zone.
+     */
+    public PathFinder(ArrayList<ArrayList<LongLat>> noFlyZonesPoints, ArrayList<LongLat> landmarks, OccupancyGrid occupancyGrid) {
+        this.noFlyZonesPoints = noFlyZonesPoints;
+        this.landmarks = landmarks;
+        this.occupancyGrid = occupancyGrid;
+    }
+
+    /**
+     * Method that returns the PathFinder for the given no-fly zones and landmarks, creating it only if no PathFinder
+     * has been created before for the same no-fly zones and landmarks.
+     * @param noFlyZonesPoints ArrayList of ArrayList of LongLat representing the coordinates of the points forming the
+     *                         boundaries of the no-fly zones.
+     * @param landmarks ArrayList of LongLat representing the landmarks the drone can use to avoid the no-fly zones.
+     * @return the shared PathFinder for the given no-fly zones and landmarks.
+     */
+    public static PathFinder forZones(ArrayList<ArrayList<LongLat>> noFlyZonesPoints, ArrayList<LongLat> landmarks) {
+        return forZones(noFlyZonesPoints, landmarks, false);
+    }
+
+    /**
+     * Method that returns the PathFinder for the given no-fly zones and landmarks, creating it only if no PathFinder
+     * has been created before for the same no-fly zones, landmarks and way of validating the movements.
+     * @param noFlyZonesPoints ArrayList of ArrayList of LongLat representing the coordinates of the points forming the
+     *                         boundaries of the no-fly zones.
+     * @param landmarks ArrayList of LongLat representing the landmarks the drone can use to avoid the no-fly zones.
+     * @param useOccupancyGrid true if the movements should be validated using an {@link OccupancyGrid} built from the
+     *                         no-fly zones, false otherwise.
+     * @return the shared PathFinder for the given no-fly zones and landmarks.
+     */
+    public static PathFinder forZones(ArrayList<ArrayList<LongLat>> noFlyZonesPoints, ArrayList<LongLat> landmarks,
+                                      boolean useOccupancyGrid) {
+        return pathFinders.computeIfAbsent(List.of(noFlyZonesPoints, landmarks, useOccupancyGrid),
+                key -> new PathFinder(noFlyZonesPoints, landmarks,
+                        useOccupancyGrid ? new OccupancyGrid(noFlyZonesPoints) : null));
+    }
+
+    /**
+     * Method that makes the PathFinder read its legs from the given LegStore before flying them, and write every leg
+     * it flies to it, so that later runs over the same no-fly zones and landmarks do not fly them again.
+     * @param legStore the LegStore, or null to stop using one.
+     */
+    public void setLegStore(LegStore legStore) {
+        zonesLock.writeLock().lock();
+        try {
+            legStoreFingerprint = LegStore.getFingerprint(noFlyZonesPoints, landmarks, occupancyGrid != null);
+            this.legStore = legStore;
+        } finally {
+            zonesLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Getter of the ReturnCostMemo of Appleton Tower for these no-fly zones and landmarks. The memo is created the
+     * first time it is needed and then reused by every drone sharing this PathFinder.
+     * @return the ReturnCostMemo of Appleton Tower.
+     */
+    public synchronized ReturnCostMemo getReturnCostMemo() {
+        if (returnCostMemo == null) {
+            returnCostMemo = new ReturnCostMemo(Drone.APPLETON_TOWER_COORDINATES, this);
+        }
+        return returnCostMemo;
+    }
+
+    /**
+     * Getter of the ConnectivityMap of the free space around the no-fly zones. The map is created the first time it is
+     * needed, from the {@link #occupancyGrid} if there is one, and then reused by every drone sharing this PathFinder.
+     * Without an occupancy grid, a grid of the no-fly zones is still built to label the map, and then thrown away. The
+     * map is created while holding the read lock of the {@link #zonesLock}, so the no-fly zones and the occupancy grid
+     * can not change while it is labelled.
+     * @return the ConnectivityMap of the free space.
+     */
+    public ConnectivityMap getConnectivityMap() {
+        zonesLock.readLock().lock();
+        try {
+            synchronized (this) {
+                if (connectivityMap == null) {
+                    connectivityMap = new ConnectivityMap(noFlyZonesPoints,
+                            occupancyGrid != null ? occupancyGrid : new OccupancyGrid(noFlyZonesPoints));
+                }
+                return connectivityMap;
+            }
+        } finally {
+            zonesLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method that returns true if the drone can fly from the given origin to the given destination, either straight or
+     * through one landmark. Points in different components of the free space are answered from the
+     * {@link ConnectivityMap} without flying any move, which is only cheap once the map is built. Every other pair of
+     * points, including every pair in the same component, is answered by flying the full leg between them, unless it
+     * is already in the cache of legs. The map and the leg are read while holding the read lock of the
+     * {@link #zonesLock}, so both are read around the same no-fly zones.
+     * @param originalLocation the point the drone is currently in.
+     * @param destination the point the drone wants to reach.
+     * @return true if the destination can be reached, false otherwise.
+     */
+    public boolean isReachable(LongLat originalLocation, LongLat destination) {
+        zonesLock.readLock().lock();
+        try {
+            if (!getConnectivityMap().mayBeConnected(originalLocation, destination)) {
+                return false;
+            }
+            return getLeg(originalLocation, destination).isReachable();
+        } finally {
+            zonesLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method that returns a lower bound of the number of moves of any leg between the two given points, including the
+     * final hovering move, without flying a single move. Every move covers {@value MOVE_DISTANCE} degrees, so a direct
+     * leg has at least as many moves as the straight-line distance over the length of a move, and by the triangle
+     * inequality a leg through a landmark has at most one move fewer, because its hovering over the landmark is removed.
+     * @param originalLocation the point the drone is currently in.
+     * @param destination the point the drone wants to reach.
+     * @return the smallest number of moves any leg between the two points can have.
+     */
+    public static int getLowerBoundOfMoves(LongLat originalLocation, LongLat destination) {
+        double moves = originalLocation.distanceTo(destination) / MOVE_DISTANCE;
+        return (int) Math.max(0, Math.ceil(moves - 1 - LOWER_BOUND_TOLERANCE));
+    }
+
+    /**
+     * Method that returns the leg between the two given points, flying it only the first time it is asked for. The leg
+     * is read from the store or flown without holding any lock of the cache of legs, so that the legs asked for by
+     * other threads are not held up; if two threads fly the same leg at the same time, both get the one cached first.
+     * The moves and the angles of the returned leg are shared and must not be modified.
+     * @param originalLocation the point the drone is currently in.
+     * @param destination the point the drone wants to reach.
+     * @return the LegResult of the leg, which is unreachable if the destination can not be reached.
+     */
+    public LegResult getLeg(LongLat originalLocation, LongLat destination) {
+        zonesLock.readLock().lock();
+        try {
+            LegKey key = new LegKey(originalLocation, destination);
+            LegResult leg = legs.get(key);
+            if (leg != null) {
+                PlanningMetrics.LEG_CACHE_HITS.increment();
+                return leg;
+            }
+            PlanningMetrics.LEG_CACHE_MISSES.increment();
+            leg = getStoredOrComputedLeg(originalLocation, destination, Integer.MAX_VALUE);
+            LegResult cachedLeg = legs.putIfAbsent(key, leg);
+            return cachedLeg != null ? cachedLeg : leg;
+        } finally {
+            zonesLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method that returns the leg between the two given points if it has at most the given number of moves, flying as
+     * few moves as possible otherwise: a leg whose lower bound of moves already exceeds the cap is not flown at all,
+     * and the flight of a leg is abandoned as soon as it needs more moves than the cap. Only the legs flown to the end
+     * are added to the cache of legs, so a leg over its cap is flown again if it is asked for with a larger cap. The
+     * moves and the angles of the returned leg are shared and must not be modified.
+     * @param originalLocation the point the drone is currently in.
+     * @param destination the point the drone wants to reach.
+     * @param maximumMoves the largest number of moves the leg is of any use with.
+     * @return the LegResult of the leg, which is unreachable if the destination can not be reached, and exceeds its
+     * move cap if it is known to need more than maximumMoves moves. A leg found in the cache is returned even if it
+     * needs more moves than the cap.
+     */
+    public LegResult getLeg(LongLat originalLocation, LongLat destination, int maximumMoves) {
+        zonesLock.readLock().lock();
+        try {
+            LegKey key = new LegKey(originalLocation, destination);
+            LegResult leg = legs.get(key);
+            if (leg != null) {
+                PlanningMetrics.LEG_CACHE_HITS.increment();
+                return leg;
+            }
+            if (getLowerBoundOfMoves(originalLocation, destination) > maximumMoves) {
+                PlanningMetrics.LOWER_BOUND_REJECTIONS.increment();
+                return LegResult.exceedsMoveCap();
+            }
+            PlanningMetrics.LEG_CACHE_MISSES.increment();
+            leg = getStoredOrComputedLeg(originalLocation, destination, maximumMoves);
+            if (leg.getStatus() == LegResult.Status.EXCEEDS_MOVE_CAP) {
+                PlanningMetrics.MOVE_CAP_ABORTS.increment();
+                return leg;
+            }
+            LegResult cachedLeg = legs.putIfAbsent(key, leg);
+            return cachedLeg != null ? cachedLeg : leg;
+        } finally {
+            zonesLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method that adds and removes no-fly zones while the PathFinder is in use, and throws away only what the change
+     * may have made wrong:
+     * <ul>
+     *     <li>Adding a zone can only block legs, so a flown leg is thrown away if the bounding box of its moves
+     *     touches an added zone. Unreachable legs stay unreachable.</li>
+     *     <li>Removing a zone can only open legs, and a direct leg would still be chosen first, so every unreachable
+     *     leg is thrown away, and a leg through a landmark if the bounding box of its ends and of every landmark, which
+     *     holds every flight it could be replaced by, touches a removed zone.</li>
+     * </ul>
+     * These rules rely on the {@link OccupancyGrid}, which only tests a move against the border lines of the cells it
+     * crosses. Without it, a move is tested against every border line with {@link LongLat#intersectsWith}, which may
+     * report crossings away from the line, so every leg is thrown away.
+     * The return costs of the legs thrown away are also thrown away, and the {@link OccupancyGrid} is updated in
+     * place. The {@link ConnectivityMap} is built again the next time it is needed, as its labels are global. Legs
+     * being flown while the zones change finish before the change is made. The PathFinder is no longer returned by
+     * {@link #forZones} for its original no-fly zones.
+     * @param addedZones the points of the borders of the zones to add.
+     * @param removedZones the points of the borders of the zones to remove, as they were given to the PathFinder.
+     * Zones that the PathFinder does not have are ignored.
+     * @return the NoFlyZoneUpdate with the zones changed and the number of legs and return costs thrown away.
+     */
+    public NoFlyZoneUpdate updateNoFlyZones(ArrayList<ArrayList<LongLat>> addedZones, ArrayList<ArrayList<LongLat>> removedZones) {
+        zonesLock.writeLock().lock();
+        try {
+            ArrayList<ArrayList<LongLat>> newNoFlyZonesPoints = new ArrayList<>(noFlyZonesPoints);
+            ArrayList<ArrayList<LongLat>> zonesRemoved = new ArrayList<>();
+            for (ArrayList<LongLat> removedZone : removedZones) {
+                if (newNoFlyZonesPoints.remove(removedZone)) {
+                    zonesRemoved.add(removedZone);
+                    if (occupancyGrid != null) {
+                        occupancyGrid.removeNoFlyZone(removedZone);
+                    }
+                }
+            }
+            for (ArrayList<LongLat> addedZone : addedZones) {
+                newNoFlyZonesPoints.add(addedZone);
+                if (occupancyGrid != null) {
+                    occupancyGrid.addNoFlyZone(addedZone);
+                }
+            }
+            noFlyZonesPoints = newNoFlyZonesPoints;
+            legStoreFingerprint = LegStore.getFingerprint(noFlyZonesPoints, landmarks, occupancyGrid != null);
+            connectivityMap = null;
+            pathFinders.values().remove(this);
+
+            NoFlyZoneUpdate update = new NoFlyZoneUpdate(addedZones, zonesRemoved);
+            for (Map.Entry<LegKey, LegResult> entry : legs.entrySet()) {
+                LegKey key = entry.getKey();
+                if (isInvalidatedBy(update, key, entry.getValue())) {
+                    legs.remove(key);
+                    update.addInvalidatedLeg();
+                    if (returnCostMemo != null && key.destination.equals(returnCostMemo.getDepot().toFixedPoint())
+                            && returnCostMemo.invalidate(key.origin.toLongLat())) {
+                        update.addInvalidatedReturnCost();
+                    }
+                }
+            }
+            PlanningMetrics.LEGS_INVALIDATED.add(update.getLegsInvalidated());
+            return update;
+        } finally {
+            zonesLock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Method that given two LongLat coordinates, constructs a move-by-move route between those two points by avoiding
+     * the no-fly zones and staying inside the confinement area. It first tries to go directly using no landmarks, and
+     * if the route would not be possible, then it tries to reach the destination by choosing (if possible) the shortest
+     * route to reach the destination using one landmark. Every leg is only computed once and then reused, so the
+     * returned ArrayList is shared and must not be modified.
+     * @param originalLocation the point the drone is currently in.
+     * @param destination the point the drone wants to reach.
+     * @param angles ArrayList to which the angle of every move of the resulting route is added.
+     * @return an ArrayList of objects of type LongLat that represents the coordinates of the move-by-move route
+     * between those two points by avoiding the no-fly zones and staying inside the confinement area, or null if the
+     * destination can not be reached.
+     */
+    public ArrayList<LongLat> travelToDestination(LongLat originalLocation, LongLat destination, ArrayList<Integer> angles){
+        LegResult leg = getLeg(originalLocation, destination);
+        if (!leg.isReachable()) {
+            return null;
+        }
+        angles.addAll(leg.getAngles());
+        return leg.getMoves();
+    }
+
+    /**
+     * Helper method of the getLeg methods that reads the leg between the two given points from the {@link #legStore}
+     * if it is there, and flies it and appends it to the store otherwise.
+     * @param originalLocation the point the drone is currently in.
+     * @param destination the point the drone wants to reach.
+     * @param maximumMoves the largest number of moves the leg is of any use with.
+     * @return the LegResult with the moves and the angles of the leg.
+     */
+    private LegResult getStoredOrComputedLeg(LongLat originalLocation, LongLat destination, int maximumMoves) {
+        LegStore store = legStore;
+        if (store == null) {
+            return computeAndRecordLeg(originalLocation, destination, maximumMoves);
+        }
+        LegResult leg = store.get(legStoreFingerprint, originalLocation, destination, landmarks);
+        if (leg != null) {
+            PlanningMetrics.LEG_STORE_HITS.increment();
+            return leg;
+        }
+        leg = computeAndRecordLeg(originalLocation, destination, maximumMoves);
+        store.put(legStoreFingerprint, originalLocation, destination, leg);
+        return leg;
+    }
+
+    /**
+     * Helper method of the {@link #getStoredOrComputedLeg} method that flies the leg between the two given points, and
+     * records its duration in the {@link PlanningMetrics} and as a {@link PlannerEvents.LegEvent}.
+     * @param originalLocation the point the drone is currently in.
+     * @param destination the point the drone wants to reach.
+     * @param maximumMoves the largest number of moves the leg is of any use with.
+     * @return the LegResult with the moves and the angles of the leg.
+     */
+    private LegResult computeAndRecordLeg(LongLat originalLocation, LongLat destination, int maximumMoves) {
+        PlannerEvents.LegEvent event = new PlannerEvents.LegEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        LegResult leg = computeLeg(originalLocation, destination, maximumMoves);
+        PlanningMetrics.LEG_SIMULATION.recordSince(startTime);
+        if (event.shouldCommit()) {
+            event.originLongitude = originalLocation.getLongitude();
+            event.originLatitude = originalLocation.getLatitude();
+            event.destinationLongitude = destination.getLongitude();
+            event.destinationLatitude = destination.getLatitude();
+            if (leg.getStatus() == LegResult.Status.EXCEEDS_MOVE_CAP) {
+                event.kind = PlannerEvents.EXCEEDS_MOVE_CAP_LEG;
+            } else if (!leg.isReachable()) {
+                event.kind = PlannerEvents.UNREACHABLE_LEG;
+            } else {
+                event.kind = leg.getStatus() == LegResult.Status.DIRECT ? PlannerEvents.DIRECT_LEG : PlannerEvents.LANDMARK_LEG;
+                event.moves = leg.getNumberOfMoves();
+            }
+            event.commit();
+        }
+        return leg;
+    }
+
+    /**
+     * Helper method of the {@link #updateNoFlyZones} method that returns true if the given cached leg may no longer be
+     * the leg the PathFinder would fly after the given change to the no-fly zones.
+     * @param update the change to the no-fly zones.
+     * @param key the key of the leg in the cache of legs.
+     * @param leg the cached leg.
+     * @return true if the leg has to be thrown away, false if it is still right.
+     */
+    private boolean isInvalidatedBy(NoFlyZoneUpdate update, LegKey key, LegResult leg) {
+        // Without the grid every move is tested against every border line, and that test may also report crossings
+        // away from the line, so a zone can change legs nowhere near it
+        if (occupancyGrid == null) {
+            return true;
+        }
+        if (!leg.isReachable()) {
+            return !update.getRemovedZones().isEmpty();
+        }
+        ArrayList<LongLat> moves = new ArrayList<>(leg.getMoves());
+        moves.add(key.origin.toLongLat());
+        if (update.touchesAddedZone(NoFlyZoneUpdate.getBoundingBox(moves, NoFlyZoneUpdate.BOUNDING_BOX_MARGIN))) {
+            return true;
+        }
+        if (leg.getStatus() == LegResult.Status.THROUGH_LANDMARK && !update.getRemovedZones().isEmpty()) {
+            ArrayList<LongLat> landmarksAndEnds = new ArrayList<>(landmarks);
+            landmarksAndEnds.add(key.origin.toLongLat());
+            landmarksAndEnds.add(key.destination.toLongLat());
+            return update.touchesRemovedZone(NoFlyZoneUpdate.getBoundingBox(landmarksAndEnds, NoFlyZoneUpdate.BOUNDING_BOX_MARGIN));
+        }
+        return false;
+    }
+
+    /**
+     * Helper method of the {@link #computeAndRecordLeg(LongLat, LongLat, int)} method that flies the leg between the
+     * two given points, abandoning every flight as soon as it needs more than the given number of moves. It is only
+     * called from {@link #getLeg}, while holding the read lock of the {@link #zonesLock}.
+     * @param originalLocation the point the drone is currently in.
+     * @param destination the point the drone wants to reach.
+     * @param maximumMoves the largest number of moves the leg is of any use with.
+     * @return the LegResult with the moves and the angles of the leg, which is unreachable if the destination can not
+     * be reached, and exceeds its move cap if every way of reaching it needs more than maximumMoves moves.
+     */
+    private LegResult computeLeg(LongLat originalLocation, LongLat destination, int maximumMoves){
+        // Points in different components of the free space are not joined by any leg, so there is nothing to fly
+        if (!getConnectivityMap().mayBeConnected(originalLocation, destination)) {
+            PlanningMetrics.UNREACHABLE_LEGS_PRUNED.increment();
+            return LegResult.unreachable();
+        }
+        ArrayList<Integer> angles = new ArrayList<>();
+
+        ArrayList<LongLat> movesList = travelToDestinationWithNoLandmarks(originalLocation, destination, maximumMoves);
+        // The direct flight was abandoned over the cap, so the direct leg may still be possible and would be chosen
+        if (movesList.size() > maximumMoves) {
+            // A landmark is only used if the direct leg is blocked further on, so if some landmark fits in the cap the
+            // direct leg has to be flown to the end to know which of the two the leg is
+            if (getShortestLegThroughLandmarks(originalLocation, destination, maximumMoves).isReachable()) {
+                return computeLeg(originalLocation, destination, Integer.MAX_VALUE);
+            }
+            return LegResult.exceedsMoveCap();
+        }
+        // We first see if it is possible to go directly to the destination with no Landmarks
+        if (movesList.size() != 0) {
+            angles.addAll(getMovesAngles(originalLocation, destination));
+            return LegResult.direct(movesList, angles);
+        }
+        // If not, we then try to go to the destination using only one landmark
+        return getShortestLegThroughLandmarks(originalLocation, destination, maximumMoves);
+    }
+
+    /**
+     * Helper method of the {@link #computeLeg(LongLat, LongLat, int)} method that flies the leg between the two given
+     * points through every landmark, and chooses the one which gives the shortest leg.
+     * @param originalLocation the point the drone is currently in.
+     * @param destination the point the drone wants to reach.
+     * @param maximumMoves the largest number of moves the leg is of any use with.
+     * @return the LegResult of the shortest leg through a landmark, which is unreachable if no landmark can be used,
+     * and exceeds its move cap if every landmark that may be used needs more than maximumMoves moves.
+     */
+    private LegResult getShortestLegThroughLandmarks(LongLat originalLocation, LongLat destination, int maximumMoves) {
+        // For every landmark we check if we can go there and with how many moves, and we choose the one which gives us the shortest path
+        HashMap<ArrayList<LongLat>, LegResult> arrayOfMovesAndOfLegs = new HashMap<ArrayList<LongLat>, LegResult>();
+        boolean exceedsMoveCap = false;
+        for (int landmarkIndex = 0; landmarkIndex < landmarks.size(); landmarkIndex++){
+            LongLat landmark = landmarks.get(landmarkIndex);
+            ArrayList<LongLat> moves = travelToDestinationWithNoLandmarks(originalLocation, landmark, maximumMoves);
+            if (moves.size() > maximumMoves) {
+                exceedsMoveCap = true;
+                continue;
+            }
+            // The drone only gets close to the landmark, so it flies on to the destination from there
+            LongLat nearLandmark = moves.isEmpty() ? landmark : moves.get(moves.size() - 1);
+            ArrayList<LongLat> fromLandmarkToDestination = travelToDestinationWithNoLandmarks(nearLandmark, destination, maximumMoves);
+            if (fromLandmarkToDestination.size() > maximumMoves) {
+                exceedsMoveCap = true;
+                continue;
+            }
+
+            if(moves.size() != 0 && fromLandmarkToDestination.size() != 0) {
+                if (moves.size() - 1 + fromLandmarkToDestination.size() > maximumMoves) {
+                    exceedsMoveCap = true;
+                    continue;
+                }
+                ArrayList<Integer> anglesToDestination = getMovesAngles(originalLocation, landmark);
+                ArrayList<Integer> anglesFromLandmarkToDestination = getMovesAngles(nearLandmark, destination);
+
+                //We eliminate the hovering over the landmark
+                moves.remove(moves.size()-1);
+                anglesToDestination.remove(anglesToDestination.size()-1);
+
+                int movesToLandmark = moves.size();
+                moves.addAll(fromLandmarkToDestination);
+                anglesToDestination.addAll(anglesFromLandmarkToDestination);
+                arrayOfMovesAndOfLegs.put(moves, LegResult.throughLandmark(moves, anglesToDestination, landmarkIndex, movesToLandmark));
+            }
+        }
+        if (arrayOfMovesAndOfLegs.isEmpty() && exceedsMoveCap) {
+            return LegResult.exceedsMoveCap();
+        }
+        // We iterate over the Hashmap to choose the non-zero path with the least moves
+        return getShortestPathUsingLandmarks(arrayOfMovesAndOfLegs);
+    }
+
+
+    /**
+     * Helper method of the travelToDestination method. This method constructs a move-by-move route between the two given points
+     * by trying to go directly to the destination using no landmarks, and stops as soon as the route has more than the
+     * given number of moves.
+     * @param originalLocation the point the drone is currently in.
+     * @param destination the point the drone wants to reach.
+     * @param maximumMoves the largest number of moves the route is of any use with.
+     * @return an empty ArrayList if we can not go to the Destination with no landmarks, an ArrayList with more than
+     * maximumMoves moves if the route was abandoned over the cap, the direct move-by-move route between the two given
+     * points otherwise
+     */
+    private ArrayList<LongLat> travelToDestinationWithNoLandmarks(LongLat originalLocation, LongLat destination, int maximumMoves){
+        ArrayList<LongLat> movesList = new ArrayList<>();
+        var currentPosition = originalLocation;
+        while (!currentPosition.closeTo(destination)){
+            var nextAngle = currentPosition.nextAngle(destination);
+            var possibleNextPosition = currentPosition.nextPosition(nextAngle);
+            if (isValidMovement(currentPosition, possibleNextPosition)) {
+                movesList.add(possibleNextPosition);
+
+                //If we reach the next destination we have to hover in the same place for one turn
+                if(possibleNextPosition.closeTo(destination)){
+                    movesList.add(possibleNextPosition);
+                }
+                currentPosition = possibleNextPosition;
+
+                if (movesList.size() > maximumMoves) {
+                    return movesList;
+                }
+            }
+            else{
+                movesList.clear();
+                return movesList;
+            }
+        }
+        return movesList;
+    }
+
+
+    /**
+     * Helper method that returns true if the movement between the two given positions is valid, using the
+     * {@link #occupancyGrid} if there is one.
+     * @param currentPosition the position the drone is currently in.
+     * @param nextPosition the position the drone would move to.
+     * @return true if the movement stays inside the confinement area and does not cross any no-fly zone.
+     */
+    private boolean isValidMovement(LongLat currentPosition, LongLat nextPosition) {
+        PlanningMetrics.VALID_MOVEMENT_CALLS.increment();
+        if (occupancyGrid != null) {
+            return currentPosition.isValidMovement(nextPosition, occupancyGrid);
+        }
+        return currentPosition.isValidMovement(nextPosition, noFlyZonesPoints);
+    }
+
+    /**
+     * Method that, given the current drone location and the intended destination, it returns an ArrayList whose length
+     * equals the number of moves we would need to perform to arrive to that destination, and where the ith element of
+     * the resulting ArrayList represents the angle we would need to perform the ith move from the current drone location
+     * to the intended destination
+     * @param originalLocation the point the drone is currently in.
+     * @param destination the point the drone wants to reach.
+     * @return An ArrayList of every angle the drone would perform when travelling from originalLocation to destination.
+     */
+    private ArrayList<Integer> getMovesAngles(LongLat originalLocation, LongLat destination){
+        var currentPosition = originalLocation;
+        ArrayList<Integer> movementAngles = new ArrayList<>();
+        while (!currentPosition.closeTo(destination)){
+            var nextAngle = currentPosition.nextAngle(destination);
+            var possibleNextPosition = currentPosition.nextPosition(nextAngle);
+            if (isValidMovement(currentPosition, possibleNextPosition)) {
+                movementAngles.add(nextAngle);
+                currentPosition = possibleNextPosition;
+
+            }
+            else{
+                movementAngles.clear();
+                return movementAngles;
+            }
+        }
+        //We account for the hovering at the end
+        movementAngles.add(HOVERING_ANGLE);
+        return movementAngles;
+    }
+
+
+    /**
+     * Helper method of the {@link #getShortestLegThroughLandmarks(LongLat, LongLat, int)} method where, given a Hashmap with all
+     * the different possible paths to perform using landmarks, and the corresponding leg for each of those paths, it
+     * returns the leg of the shortest path of all.
+     * @param arrayOfMovesAndOfLegs the Hashmap with all the different possible paths to perform using landmarks,
+     *                              and the corresponding leg, with its angles and its landmark, for each of those paths
+     * @return an unreachable LegResult if the Hashmap is empty, the LegResult of the shortest path of the Hashmap
+     * otherwise.
+     */
+    private LegResult getShortestPathUsingLandmarks(HashMap<ArrayList<LongLat>, LegResult> arrayOfMovesAndOfLegs) {
+        Map.Entry<ArrayList<LongLat>, LegResult> minEntry = null;
+        for (Map.Entry<ArrayList<LongLat>, LegResult> entry : arrayOfMovesAndOfLegs.entrySet()) {
+            int numberOfAngles = entry.getValue().getAngles().size();
+            if (minEntry == null || (numberOfAngles < minEntry.getValue().getAngles().size() && numberOfAngles != 0)) {
+                minEntry = entry;
+            }
+        }
+        if (minEntry == null) {
+            return LegResult.unreachable();
+        }
+        return minEntry.getValue();
+    }
+
+    public ArrayList<ArrayList<LongLat>> getNoFlyZonesPoints() {
+        return noFlyZonesPoints;
+    }
+
+    public ArrayList<LongLat> getLandmarks() {
+        return landmarks;
+    }
+
+    public OccupancyGrid getOccupancyGrid() {
+        return occupancyGrid;
+    }
+
+    public int getNumberOfCachedLegs() {
+        return legs.size();
+    }
+
+
+    /**
+     * Class that represents the key of a leg in the cache of legs: its origin and its destination, both snapped to
+     * fixed-point coordinates.
+     */
+    private static final class LegKey {
+
+        /** FixedPointLongLat representing the origin of the leg */
+        private final FixedPointLongLat origin;
+
+        /** FixedPointLongLat representing the destination of the leg */
+        private final FixedPointLongLat destination;
+
+        private LegKey(LongLat origin, LongLat destination) {
+            this.origin = origin.toFixedPoint();
+            this.destination = destination.toFixedPoint();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof LegKey)) {
+                return false;
+            }
+            LegKey that = (LegKey) other;
+            return origin.equals(that.origin) && destination.equals(that.destination);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * origin.hashCode() + destination.hashCode();
+        }
+    }
+}
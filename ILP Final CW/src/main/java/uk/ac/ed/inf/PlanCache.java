@@ -0,0 +1,238 @@
+package uk.ac.ed.inf;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class that represents a folder of the plans made so far, keyed by a hash of everything a plan depends on: the rows of
+ * the orders with their resolved prices and locations, the no-fly zones and landmarks with the way of validating the
+ * movements, the move budget of the drone and the consolidation settings. When a day is planned again and none of its
+ * inputs has changed, for example to write its output again after a failure, the stored plan is restored as it was
+ * instead of being planned again.
+ */
+public class PlanCache {
+
+    /** Integer representing the version of the planner, which is part of the hash of the inputs and is increased
+     * whenever a change to the planner may change its plans, so that the plans of an older planner are not reused */
+    private static final int PLANNER_VERSION = 2;
+
+    /** String representing the prefix of the name of the file of every stored plan, followed by the hash of its inputs */
+    private static final String PLAN_FILE_PREFIX = "plan-";
+
+    /** String representing the suffix of the name of the file of every stored plan */
+    private static final String PLAN_FILE_SUFFIX = ".json";
+
+    /** Gson shared by every read and write of a stored plan */
+    private static final Gson GSON = new Gson();
+
+    /** Path representing the folder the plans are stored in */
+    private final Path folder;
+
+
+    /**
+     * Constructor of the PlanCache class.
+     * @param folder the folder the plans are stored in, which is created if it does not exist.
+     * @throws IOException if the folder could not be created.
+     */
+    public PlanCache(Path folder) throws IOException {
+        this.folder = Files.createDirectories(folder);
+    }
+
+    /**
+     * Method that returns the hash of every input the plan of the given orders depends on.
+     * @param orders the orders of the day, with their prices and locations already resolved.
+     * @param pathFinder the PathFinder of the no-fly zones and landmarks of the day.
+     * @param consolidation the consolidation settings of the plan, or null if the orders are done one at a time.
+     * @return the SHA-256 hash of the inputs, in hexadecimal.
+     */
+    public static String getInputHash(ArrayList<OrderDetails> orders, PathFinder pathFinder,
+                                      ConsolidationSettings consolidation) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+            out.writeInt(PLANNER_VERSION);
+            out.writeInt(Drone.MAXIMUM_NUMBER_OF_MOVES);
+            out.writeInt(consolidation == null ? -1 : consolidation.getCapacity());
+            out.writeInt(consolidation == null ? -1 : consolidation.getMaximumStops());
+            out.writeLong(LegStore.getFingerprint(pathFinder.getNoFlyZonesPoints(), pathFinder.getLandmarks(),
+                    pathFinder.getOccupancyGrid() != null));
+            out.writeInt(orders.size());
+            for (OrderDetails order : orders) {
+                out.writeUTF(order.getOrderNo());
+                out.writeUTF(order.getCustomer());
+                out.writeUTF(order.getDeliverTo());
+                out.writeInt(order.getItems().size());
+                for (String item : order.getItems()) {
+                    out.writeUTF(item);
+                }
+                out.writeInt(order.getPrice());
+                writeLongLat(out, order.getDeliverToLongLat());
+                out.writeInt(order.getDeliverFromLongLat().size());
+                for (LongLat restaurant : order.getDeliverFromLongLat()) {
+                    writeLongLat(out, restaurant);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Method that restores the plan stored for the given inputs, without planning anything.
+     * @param inputHash the hash of the inputs, as returned by {@link #getInputHash}.
+     * @param orders the orders of the day.
+     * @param pathFinder the PathFinder of the no-fly zones and landmarks of the day.
+     * @return the Drone with the stored plan, or null if no plan is stored for the inputs or it could not be read.
+     */
+    public Drone load(String inputHash, ArrayList<OrderDetails> orders, PathFinder pathFinder) {
+        Path planFile = getPlanFile(inputHash);
+        if (!Files.exists(planFile)) {
+            PlanningMetrics.PLAN_CACHE_MISSES.increment();
+            return null;
+        }
+        StoredPlan plan;
+        try {
+            plan = GSON.fromJson(Files.readString(planFile), StoredPlan.class);
+        } catch (IOException | JsonParseException e) {
+            System.err.println("The stored plan " + planFile + " could not be read, so the day is planned again");
+            e.printStackTrace();
+            PlanningMetrics.PLAN_CACHE_MISSES.increment();
+            return null;
+        }
+        Map<String, OrderDetails> ordersByNumber = new HashMap<>();
+        for (OrderDetails order : orders) {
+            ordersByNumber.put(order.getOrderNo(), order);
+        }
+        ArrayList<OrderDetails> orderDetailsToDo = new ArrayList<>();
+        for (String orderNo : plan.ordersDone) {
+            orderDetailsToDo.add(ordersByNumber.get(orderNo));
+        }
+        PlanningMetrics.PLAN_CACHE_HITS.increment();
+        return new Drone(orders, pathFinder, orderDetailsToDo, toLongLats(plan.stops), toLongLats(plan.route),
+                plan.angles, plan.orderNumbers, plan.movesUsed);
+    }
+
+    /**
+     * Method that stores the plan of the given drone for the given inputs. The plan is written to a temporary file
+     * first and then moved in place, so that a plan cut short is never read.
+     * @param inputHash the hash of the inputs, as returned by {@link #getInputHash}.
+     * @param drone the drone whose plan is stored.
+     */
+    public void store(String inputHash, Drone drone) {
+        StoredPlan plan = new StoredPlan();
+        plan.ordersDone = new ArrayList<>();
+        for (OrderDetails order : drone.getOrderDetailsToDo()) {
+            plan.ordersDone.add(order.getOrderNo());
+        }
+        plan.stops = toCoordinates(drone.getCoordinatesToVisit());
+        plan.route = toCoordinates(drone.getRoute());
+        plan.angles = drone.getAngles();
+        plan.orderNumbers = drone.getOrderNumbers();
+        plan.movesUsed = drone.getTotalNumberOfMovesUsed();
+        Path planFile = getPlanFile(inputHash);
+        try {
+            Path temporaryFile = Files.createTempFile(folder, PLAN_FILE_PREFIX, PLAN_FILE_SUFFIX);
+            Files.writeString(temporaryFile, GSON.toJson(plan));
+            Files.move(temporaryFile, planFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("The plan could not be stored in " + planFile);
+            e.printStackTrace();
+        }
+    }
+
+
+    /**
+     * Helper method that returns the file of the plan stored for the given inputs.
+     * @param inputHash the hash of the inputs.
+     * @return the Path of the file of the plan.
+     */
+    private Path getPlanFile(String inputHash) {
+        return folder.resolve(PLAN_FILE_PREFIX + inputHash + PLAN_FILE_SUFFIX);
+    }
+
+    /**
+     * Helper method that writes the exact longitude and latitude of the given point to the hash of the inputs.
+     * @param out the stream of the hash.
+     * @param point the point, which may be null if it could not be resolved.
+     * @throws IOException never, as the stream writes nowhere.
+     */
+    private static void writeLongLat(DataOutputStream out, LongLat point) throws IOException {
+        out.writeDouble(point == null ? Double.NaN : point.getLongitude());
+        out.writeDouble(point == null ? Double.NaN : point.getLatitude());
+    }
+
+    /**
+     * Helper method that transforms the given points into pairs of a longitude and a latitude.
+     * @param points the points.
+     * @return an array with the longitude and the latitude of every point.
+     */
+    private static double[][] toCoordinates(List<LongLat> points) {
+        double[][] coordinates = new double[points.size()][];
+        for (int i = 0; i < points.size(); i++) {
+            coordinates[i] = new double[]{points.get(i).getLongitude(), points.get(i).getLatitude()};
+        }
+        return coordinates;
+    }
+
+    /**
+     * Helper method that transforms the given pairs of a longitude and a latitude into points.
+     * @param coordinates the longitude and the latitude of every point.
+     * @return an ArrayList with the points.
+     */
+    private static ArrayList<LongLat> toLongLats(double[][] coordinates) {
+        ArrayList<LongLat> points = new ArrayList<>(coordinates.length);
+        for (double[] coordinate : coordinates) {
+            points.add(new LongLat(coordinate[0], coordinate[1]));
+        }
+        return points;
+    }
+
+
+    /**
+     * Class that represents a stored plan as it is written to its file. The route is stored as coordinates and not
+     * only as headings, so that a plan is restored exactly as it was written without flying it again.
+     */
+    private static class StoredPlan {
+
+        /** List of the numbers of the orders done, in the order they are done */
+        List<String> ordersDone;
+
+        /** Longitude and latitude of every stop of the drone, starting at Appleton Tower */
+        double[][] stops;
+
+        /** Longitude and latitude of every point of the route */
+        double[][] route;
+
+        /** ArrayList with the angle of every move of the route */
+        ArrayList<Integer> angles;
+
+        /** ArrayList with the number of the order every move of the route belongs to */
+        ArrayList<String> orderNumbers;
+
+        /** Integer representing the number of moves used by the orders done */
+        int movesUsed;
+    }
+}
@@ -0,0 +1,323 @@
+package uk.ac.ed.inf;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Class that groups the custom Java Flight Recorder events of the planner. The events are always compiled in, but they
+ * cost close to nothing unless a recording is running, for example when the application is started with
+ * -XX:StartFlightRecording. A recording then shows every leg computed, every round of the choice of the next order,
+ * every request to the web server and every statement sent to the database, with its duration.
+ * <p>
+ * The JFR events themselves are private, and the rest of the planner only sees the plain classes that wrap them. The
+ * JDK internal superclass of {@link Event} can not be seen when compiling with --release, so this is the only class
+ * compiled without it, and the rest of the planner is still checked against the Java 14 API.
+ */
+public class PlannerEvents {
+
+    /** String representing the category every event of the planner is shown under */
+    private static final String CATEGORY = "Drone Planner";
+
+    /** String representing the kind of leg flown straight to the destination */
+    static final String DIRECT_LEG = "direct";
+
+    /** String representing the kind of leg flown through a landmark */
+    static final String LANDMARK_LEG = "landmark";
+
+    /** String representing the kind of leg whose destination can not be reached */
+    static final String UNREACHABLE_LEG = "unreachable";
+
+    /** String representing the kind of leg abandoned because it needs more moves than its move cap */
+    static final String EXCEEDS_MOVE_CAP_LEG = "exceeds move cap";
+
+
+    /**
+     * Class of the event recorded every time a leg is computed, that is, every time a leg is not found in the cache of
+     * legs of the {@link PathFinder}.
+     */
+    public static class LegEvent {
+
+        /** Double representing the longitude of the origin of the leg */
+        double originLongitude;
+
+        /** Double representing the latitude of the origin of the leg */
+        double originLatitude;
+
+        /** Double representing the longitude of the destination of the leg */
+        double destinationLongitude;
+
+        /** Double representing the latitude of the destination of the leg */
+        double destinationLatitude;
+
+        /** String representing the kind of the leg */
+        String kind;
+
+        /** Integer representing the number of moves of the leg */
+        int moves;
+
+        /** JFR event this event is recorded as */
+        private final Leg event = new Leg();
+
+        /**
+         * Method that starts timing the event.
+         */
+        public void begin() {
+            event.begin();
+        }
+
+        /**
+         * Method that checks whether the event would be recorded, so that its fields are only set when it is.
+         * @return true if the event is enabled and lasted long enough to be recorded, false otherwise.
+         */
+        public boolean shouldCommit() {
+            return event.shouldCommit();
+        }
+
+        /**
+         * Method that records the event with the values of its fields.
+         */
+        public void commit() {
+            event.originLongitude = originLongitude;
+            event.originLatitude = originLatitude;
+            event.destinationLongitude = destinationLongitude;
+            event.destinationLatitude = destinationLatitude;
+            event.kind = kind;
+            event.moves = moves;
+            event.commit();
+        }
+    }
+
+    /**
+     * Class of the event recorded for every round of the greedy choice of the next order.
+     */
+    public static class SchedulingRoundEvent {
+
+        /** Double representing the longitude of the location the next order is chosen from */
+        double originLongitude;
+
+        /** Double representing the latitude of the location the next order is chosen from */
+        double originLatitude;
+
+        /** Integer representing the number of orders not done yet */
+        int remainingOrders;
+
+        /** Integer representing the number of remaining orders that can be performed from the origin */
+        int feasibleOrders;
+
+        /** String representing the order number of the chosen order, or null if none was chosen */
+        String chosenOrderNo;
+
+        /** JFR event this event is recorded as */
+        private final SchedulingRound event = new SchedulingRound();
+
+        /**
+         * Method that starts timing the event.
+         */
+        public void begin() {
+            event.begin();
+        }
+
+        /**
+         * Method that checks whether the event would be recorded, so that its fields are only set when it is.
+         * @return true if the event is enabled and lasted long enough to be recorded, false otherwise.
+         */
+        public boolean shouldCommit() {
+            return event.shouldCommit();
+        }
+
+        /**
+         * Method that records the event with the values of its fields.
+         */
+        public void commit() {
+            event.originLongitude = originLongitude;
+            event.originLatitude = originLatitude;
+            event.remainingOrders = remainingOrders;
+            event.feasibleOrders = feasibleOrders;
+            event.chosenOrderNo = chosenOrderNo;
+            event.commit();
+        }
+    }
+
+    /**
+     * Class of the event recorded for every request to the web server, or every read of the offline folder.
+     */
+    public static class HttpFetchEvent {
+
+        /** String representing the URL fetched */
+        String url;
+
+        /** Integer representing the status code of the response */
+        int statusCode;
+
+        /** Boolean representing whether the URL was read from the offline folder */
+        boolean offline;
+
+        /** Long representing the size of the body of the response, in bytes */
+        long bodySize;
+
+        /** JFR event this event is recorded as */
+        private final HttpFetch event = new HttpFetch();
+
+        /**
+         * Method that starts timing the event.
+         */
+        public void begin() {
+            event.begin();
+        }
+
+        /**
+         * Method that checks whether the event would be recorded, so that its fields are only set when it is.
+         * @return true if the event is enabled and lasted long enough to be recorded, false otherwise.
+         */
+        public boolean shouldCommit() {
+            return event.shouldCommit();
+        }
+
+        /**
+         * Method that records the event with the values of its fields.
+         */
+        public void commit() {
+            event.url = url;
+            event.statusCode = statusCode;
+            event.offline = offline;
+            event.bodySize = bodySize;
+            event.commit();
+        }
+    }
+
+    /**
+     * Class of the event recorded for every statement sent to the database.
+     */
+    public static class JdbcStatementEvent {
+
+        /** String representing the SQL of the statement */
+        String sql;
+
+        /** JFR event this event is recorded as */
+        private final JdbcStatement event = new JdbcStatement();
+
+        /**
+         * Method that starts timing the event.
+         */
+        public void begin() {
+            event.begin();
+        }
+
+        /**
+         * Method that checks whether the event would be recorded, so that its fields are only set when it is.
+         * @return true if the event is enabled and lasted long enough to be recorded, false otherwise.
+         */
+        public boolean shouldCommit() {
+            return event.shouldCommit();
+        }
+
+        /**
+         * Method that records the event with the values of its fields.
+         */
+        public void commit() {
+            event.sql = sql;
+            event.commit();
+        }
+    }
+
+
+    /**
+     * Class of the JFR event a {@link LegEvent} is recorded as.
+     */
+    @Name("uk.ac.ed.inf.Leg")
+    @Label("Leg Computation")
+    @Category(CATEGORY)
+    @Description("A leg flown move by move between two points, avoiding the no-fly zones")
+    @StackTrace(false)
+    private static class Leg extends Event {
+
+        @Label("Origin Longitude")
+        double originLongitude;
+
+        @Label("Origin Latitude")
+        double originLatitude;
+
+        @Label("Destination Longitude")
+        double destinationLongitude;
+
+        @Label("Destination Latitude")
+        double destinationLatitude;
+
+        @Label("Kind")
+        @Description("Whether the leg is direct, goes through a landmark, is unreachable or exceeds its move cap")
+        String kind;
+
+        @Label("Moves")
+        int moves;
+    }
+
+    /**
+     * Class of the JFR event a {@link SchedulingRoundEvent} is recorded as.
+     */
+    @Name("uk.ac.ed.inf.SchedulingRound")
+    @Label("Scheduling Round")
+    @Category(CATEGORY)
+    @Description("A round of the choice of the next order, which computes the legs of every remaining order")
+    @StackTrace(false)
+    private static class SchedulingRound extends Event {
+
+        @Label("Origin Longitude")
+        double originLongitude;
+
+        @Label("Origin Latitude")
+        double originLatitude;
+
+        @Label("Remaining Orders")
+        int remainingOrders;
+
+        @Label("Feasible Orders")
+        @Description("Number of remaining orders that can be performed from the origin")
+        int feasibleOrders;
+
+        @Label("Chosen Order")
+        String chosenOrderNo;
+    }
+
+    /**
+     * Class of the JFR event a {@link HttpFetchEvent} is recorded as.
+     */
+    @Name("uk.ac.ed.inf.HttpFetch")
+    @Label("HTTP Fetch")
+    @Category(CATEGORY)
+    @Description("A request to the web server, or a read of the same file from the offline folder")
+    @StackTrace(false)
+    private static class HttpFetch extends Event {
+
+        @Label("URL")
+        String url;
+
+        @Label("Status Code")
+        int statusCode;
+
+        @Label("Offline")
+        boolean offline;
+
+        @Label("Body Size")
+        @DataAmount
+        long bodySize;
+    }
+
+    /**
+     * Class of the JFR event a {@link JdbcStatementEvent} is recorded as.
+     */
+    @Name("uk.ac.ed.inf.JdbcStatement")
+    @Label("JDBC Statement")
+    @Category(CATEGORY)
+    @Description("A statement sent to the database")
+    @StackTrace(false)
+    private static class JdbcStatement extends Event {
+
+        @Label("SQL")
+        String sql;
+    }
+}
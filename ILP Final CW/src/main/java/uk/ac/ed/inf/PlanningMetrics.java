@@ -0,0 +1,338 @@
+package uk.ac.ed.inf;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class that represents the registry of the metrics of the application: the counters of the events of every phase of
+ * the planning and the latency histograms of those phases. Every metric is created once, the first time it is asked
+ * for, and then updated without locking, so the metrics can be recorded from every thread planning a day. A snapshot
+ * of every metric can be exported as JSON or as Prometheus text.
+ */
+public class PlanningMetrics {
+
+    /** String representing the prefix of the name of every metric in the Prometheus text */
+    private static final String PROMETHEUS_PREFIX = "drone_";
+
+    /** String representing the extension of the files the snapshot is written to as JSON */
+    private static final String JSON_FILE_EXTENSION = ".json";
+
+    /** Array of doubles representing the upper bounds in milliseconds of the buckets of every histogram */
+    private static final double[] BUCKET_BOUNDS_MS = {0.01, 0.1, 0.5, 1, 5, 10, 50, 100, 500, 1000, 5000, 10000};
+
+    /** Map with every counter, keyed by its name */
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /** Map with every histogram, keyed by its name */
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /** Histogram of the time spent reading the orders of a date from the database */
+    public static final Histogram DATABASE_LOAD = histogram("database_load");
+
+    /** Histogram of the time spent requesting a What3Words location that was not cached */
+    public static final Histogram WHAT3WORDS_RESOLUTION = histogram("what3words_resolution");
+
+    /** Histogram of the time spent downloading the menus */
+    public static final Histogram MENU_FETCH = histogram("menu_fetch");
+
+    /** Histogram of the time spent simulating a leg that was not cached */
+    public static final Histogram LEG_SIMULATION = histogram("leg_simulation");
+
+    /** Histogram of the time spent choosing the orders of a day and building the route */
+    public static final Histogram PLANNING = histogram("planning");
+
+    /** Histogram of the time spent writing an output, either the .geojson file or a database table */
+    public static final Histogram OUTPUT_WRITE = histogram("output_write");
+
+    /** Histogram of the time spent validating a planned route with the {@link FlightPathValidator} */
+    public static final Histogram ROUTE_VALIDATION = histogram("route_validation");
+
+    /** Counter of the movements validated against the no-fly zones */
+    public static final Counter VALID_MOVEMENT_CALLS = counter("valid_movement_calls");
+
+    /** Counter of the legs found in the cache of legs */
+    public static final Counter LEG_CACHE_HITS = counter("leg_cache_hits");
+
+    /** Counter of the legs not found in the cache of legs, and therefore simulated or read from the {@link LegStore} */
+    public static final Counter LEG_CACHE_MISSES = counter("leg_cache_misses");
+
+    /** Counter of the legs read from the {@link LegStore} of a previous run instead of being simulated */
+    public static final Counter LEG_STORE_HITS = counter("leg_store_hits");
+
+    /** Counter of the legs known to be unreachable from the {@link ConnectivityMap}, without simulating any move */
+    public static final Counter UNREACHABLE_LEGS_PRUNED = counter("unreachable_legs_pruned");
+
+    /** Counter of the legs and orders rejected because the lower bound of their number of moves exceeds the moves
+     * left, without simulating any move */
+    public static final Counter LOWER_BOUND_REJECTIONS = counter("lower_bound_rejections");
+
+    /** Counter of the legs whose simulation was abandoned as soon as they needed more moves than the moves left */
+    public static final Counter MOVE_CAP_ABORTS = counter("move_cap_aborts");
+
+    /** Counter of the cached legs thrown away because the no-fly zones around them changed */
+    public static final Counter LEGS_INVALIDATED = counter("legs_invalidated");
+
+    /** Counter of the days whose plan was restored from the {@link PlanCache} instead of being planned */
+    public static final Counter PLAN_CACHE_HITS = counter("plan_cache_hits");
+
+    /** Counter of the days looked up in the {@link PlanCache} and planned because no plan was stored for their inputs */
+    public static final Counter PLAN_CACHE_MISSES = counter("plan_cache_misses");
+
+    /** Counter of the groups of I/O tasks of an {@link IoScope} cancelled because a task ran for longer than its
+     * timeout */
+    public static final Counter IO_TASK_TIMEOUTS = counter("io_task_timeouts");
+
+    /** Counter of the resources of the web server read from the {@link HttpCache} because they had not changed */
+    public static final Counter HTTP_CACHE_HITS = counter("http_cache_hits");
+
+    /** Counter of the resources of the web server downloaded and parsed while an {@link HttpCache} is used */
+    public static final Counter HTTP_CACHE_MISSES = counter("http_cache_misses");
+
+    /** Counter of the What3Words locations found in the cache */
+    public static final Counter WHAT3WORDS_CACHE_HITS = counter("what3words_cache_hits");
+
+    /** Counter of the What3Words locations not found in the cache, and therefore requested */
+    public static final Counter WHAT3WORDS_CACHE_MISSES = counter("what3words_cache_misses");
+
+    /** Counter of the numbers of moves to Appleton Tower found in the return cost memo */
+    public static final Counter RETURN_COST_HITS = counter("return_cost_hits");
+
+    /** Counter of the numbers of moves to Appleton Tower not found in the return cost memo, and therefore computed */
+    public static final Counter RETURN_COST_MISSES = counter("return_cost_misses");
+
+    /** Counter of the iterations of the greedy choice of the next order */
+    public static final Counter SCHEDULING_ITERATIONS = counter("scheduling_iterations");
+
+    /** Counter of the violations found in the planned routes by the {@link FlightPathValidator} */
+    public static final Counter ROUTE_VIOLATIONS = counter("route_violations");
+
+
+    /**
+     * Method that returns the counter with the given name, creating it the first time it is asked for.
+     * @param name the name of the counter.
+     * @return the counter with the given name.
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * Method that returns the histogram with the given name, creating it the first time it is asked for.
+     * @param name the name of the histogram.
+     * @return the histogram with the given name.
+     */
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Method that returns a snapshot of every metric as a JSON object, with the value of every counter and, for every
+     * histogram, the number of recorded times, their sum, mean and maximum in milliseconds and the number of recorded
+     * times in every bucket.
+     * @return the snapshot of every metric.
+     */
+    public static JsonObject toJson() {
+        JsonObject snapshot = new JsonObject();
+        JsonObject countersObject = new JsonObject();
+        for (Map.Entry<String, Counter> counter : new TreeMap<>(counters).entrySet()) {
+            countersObject.addProperty(counter.getKey(), counter.getValue().get());
+        }
+        JsonObject histogramsObject = new JsonObject();
+        for (Map.Entry<String, Histogram> histogram : new TreeMap<>(histograms).entrySet()) {
+            histogramsObject.add(histogram.getKey(), histogram.getValue().toJson());
+        }
+        snapshot.add("counters", countersObject);
+        snapshot.add("histograms", histogramsObject);
+        return snapshot;
+    }
+
+    /**
+     * Method that returns a snapshot of every metric in the Prometheus text format, where the times are in seconds.
+     * @return the snapshot of every metric.
+     */
+    public static String toPrometheusText() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Counter> counter : new TreeMap<>(counters).entrySet()) {
+            String name = PROMETHEUS_PREFIX + counter.getKey() + "_total";
+            text.append("# TYPE ").append(name).append(" counter\n");
+            text.append(name).append(' ').append(counter.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> histogram : new TreeMap<>(histograms).entrySet()) {
+            histogram.getValue().appendPrometheusText(text, PROMETHEUS_PREFIX + histogram.getKey() + "_seconds");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Method that writes a snapshot of every metric to the given file, as JSON if the file name ends with
+     * {@value JSON_FILE_EXTENSION} or as Prometheus text otherwise.
+     * @param fileName the name of the file.
+     * @throws IOException if the file could not be written.
+     */
+    public static void writeSnapshot(String fileName) throws IOException {
+        String snapshot;
+        if (fileName.endsWith(JSON_FILE_EXTENSION)) {
+            snapshot = new GsonBuilder().setPrettyPrinting().create().toJson(toJson());
+        } else {
+            snapshot = toPrometheusText();
+        }
+        FileWriter writer = new FileWriter(fileName);
+        writer.write(snapshot);
+        writer.close();
+    }
+
+    /**
+     * Method that sets every metric back to zero.
+     */
+    public static void reset() {
+        counters.values().forEach(Counter::reset);
+        histograms.values().forEach(Histogram::reset);
+    }
+
+
+    /**
+     * Class that represents a counter of events, which can be incremented concurrently.
+     */
+    public static class Counter {
+
+        /** LongAdder with the number of events counted */
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * Method that counts one more event.
+         */
+        public void increment() {
+            count.increment();
+        }
+
+        /**
+         * Method that counts the given number of events.
+         * @param events the number of events.
+         */
+        public void add(long events) {
+            count.add(events);
+        }
+
+        public long get() {
+            return count.sum();
+        }
+
+        private void reset() {
+            count.reset();
+        }
+    }
+
+    /**
+     * Class that represents a latency histogram, with the number of recorded times in every bucket given by
+     * {@link #BUCKET_BOUNDS_MS} and an extra bucket for the longer times, which can be recorded concurrently.
+     */
+    public static class Histogram {
+
+        /** Array of LongAdder with the number of times recorded in every bucket */
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MS.length + 1];
+
+        /** LongAdder with the sum in nanoseconds of every recorded time */
+        private final LongAdder sumNanos = new LongAdder();
+
+        /** AtomicLong with the longest recorded time in nanoseconds */
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        /**
+         * Constructor of the Histogram class.
+         */
+        private Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Method that records the time elapsed since the given start time.
+         * @param startNanos the start time, as given by {@link System#nanoTime()}.
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Method that records the given time.
+         * @param nanos the time in nanoseconds.
+         */
+        public void record(long nanos) {
+            double milliseconds = nanos / 1e6;
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MS.length && milliseconds > BUCKET_BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            sumNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getCount() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        public long getSumNanos() {
+            return sumNanos.sum();
+        }
+
+        /**
+         * Helper method that returns the snapshot of the histogram as a JSON object.
+         * @return the snapshot of the histogram.
+         */
+        private JsonObject toJson() {
+            long count = getCount();
+            JsonObject histogram = new JsonObject();
+            histogram.addProperty("count", count);
+            histogram.addProperty("sumMs", sumNanos.sum() / 1e6);
+            histogram.addProperty("meanMs", count == 0 ? 0 : sumNanos.sum() / 1e6 / count);
+            histogram.addProperty("maxMs", maxNanos.get() / 1e6);
+            JsonObject bucketsObject = new JsonObject();
+            for (int i = 0; i < buckets.length; i++) {
+                String bound = i < BUCKET_BOUNDS_MS.length ? String.valueOf(BUCKET_BOUNDS_MS[i]) : "+Inf";
+                bucketsObject.addProperty(bound, buckets[i].sum());
+            }
+            histogram.add("bucketsMs", bucketsObject);
+            return histogram;
+        }
+
+        /**
+         * Helper method that appends the snapshot of the histogram in the Prometheus text format, where the buckets are
+         * cumulative and the times are in seconds.
+         * @param text the StringBuilder the snapshot is appended to.
+         * @param name the name of the histogram.
+         */
+        private void appendPrometheusText(StringBuilder text, String name) {
+            text.append("# TYPE ").append(name).append(" histogram\n");
+            long cumulativeCount = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulativeCount += buckets[i].sum();
+                String bound = i < BUCKET_BOUNDS_MS.length ? String.valueOf(BUCKET_BOUNDS_MS[i] / 1000) : "+Inf";
+                text.append(name).append("_bucket{le=\"").append(bound).append("\"} ").append(cumulativeCount).append('\n');
+            }
+            text.append(name).append("_sum ").append(sumNanos.sum() / 1e9).append('\n');
+            text.append(name).append("_count ").append(cumulativeCount).append('\n');
+        }
+
+        private void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            sumNanos.reset();
+            maxNanos.set(0);
+        }
+    }
+}
@@ -0,0 +1,527 @@
+package uk.ac.ed.inf;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+/**
+ * Class of the long-running planning service, a small embedded HTTP server that plans days and orders on request.
+ * The no-fly zones and the landmarks are loaded once when the service starts, and the What3Words locations and the
+ * legs computed by the {@link PathFinder} stay cached between requests, so that every plan after the first one only
+ * pays for the planning itself. The menus are refreshed before every request that prices orders, through the
+ * {@link HttpCache} if one is given, so that a change of the menus is picked up without restarting the service. The
+ * service answers to:
+ * <ul>
+ *     <li>GET /plan?date=YYYY-MM-DD, which plans the orders of the given date in the database.</li>
+ *     <li>POST /plan-orders, whose body is a JSON array of orders (orderNo, customer, deliverTo and items), which
+ *     plans the given orders.</li>
+ *     <li>POST /evaluate-insertion, whose body is a JSON object with the planned sequence of orders in "orders" and
+ *     a new order in "order", which finds where the new order is best inserted in the sequence.</li>
+ *     <li>POST /no-fly-zones, whose body is a JSON object with GeoJSON feature collections of the no-fly zones to
+ *     add in "add" and to remove in "remove", which changes the no-fly zones of the service without restarting it,
+ *     and replans the last plan made if it crosses an added zone.</li>
+ *     <li>GET /metrics, which returns a snapshot of the {@link PlanningMetrics} as Prometheus text, or as JSON with
+ *     /metrics?format=json.</li>
+ * </ul>
+ * The service has no authentication, so it only listens on the loopback address unless another address is given.
+ */
+public class PlanningService {
+
+    /** String representing the path of the endpoint that plans a date */
+    private static final String PLAN_DATE_PATH = "/plan";
+
+    /** String representing the path of the endpoint that plans the given orders */
+    private static final String PLAN_ORDERS_PATH = "/plan-orders";
+
+    /** String representing the path of the endpoint that evaluates the insertion of an order */
+    private static final String EVALUATE_INSERTION_PATH = "/evaluate-insertion";
+
+    /** String representing the path of the endpoint that changes the no-fly zones */
+    private static final String NO_FLY_ZONES_PATH = "/no-fly-zones";
+
+    /** String representing the path of the endpoint that returns the metrics */
+    private static final String METRICS_PATH = "/metrics";
+
+    /** String representing the query that asks for the metrics as JSON */
+    private static final String JSON_FORMAT_QUERY = "format=json";
+
+    /** String representing the name of the query parameter with the date to plan */
+    private static final String DATE_PARAMETER = "date=";
+
+    /** String representing the optional argument, followed by an address, that sets the address the service listens
+     * on instead of the loopback address */
+    private static final String BIND_OPTION = "--bind";
+
+    /** Integer representing the number of positional arguments, after which the optional arguments are given */
+    private static final int NUMBER_OF_POSITIONAL_ARGUMENTS = 3;
+
+    /** List of the optional arguments of the service that are given on their own */
+    private static final List<String> FLAG_OPTIONS = List.of(App.OCCUPANCY_GRID_OPTION);
+
+    /** List of the optional arguments of the service that are followed by a value */
+    private static final List<String> VALUE_OPTIONS = List.of(App.OFFLINE_OPTION, BIND_OPTION, App.HTTP_CACHE_OPTION);
+
+    /** Gson object shared by every request to read and write JSON */
+    private static final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+
+    /** Type of the JSON array of orders read by the service */
+    private static final Type ORDER_LIST_TYPE = new TypeToken<ArrayList<OrderDetails>>() {}.getType();
+
+    /** PathFinder shared by every request, with the no-fly zones and landmarks loaded when the service starts */
+    private final PathFinder pathFinder;
+
+    /** Database from which the orders of a date are read, connected the first time a date is planned */
+    private Database database;
+
+    /** HttpServer that receives the requests */
+    private final HttpServer server;
+
+    /** ArrayList of OrderDetails representing the orders of the last plan made, which is the plan being flown, or null
+     * if no plan has been made yet */
+    private volatile ArrayList<OrderDetails> inFlightOrders;
+
+    /** Drone of the last plan made, which is the plan being flown, or null if no plan has been made yet */
+    private volatile Drone inFlightDrone;
+
+
+    /**
+     * Constructor of the PlanningService class, which loads the no-fly zones, the landmarks and the menus and creates
+     * the HTTP server listening on the given address and port.
+     * @param address the address where the service listens.
+     * @param port the port where the service listens.
+     * @param useOccupancyGrid true if the movements should be validated using an {@link OccupancyGrid}.
+     * @throws IOException if the inputs could not be loaded or the server could not be created.
+     * @throws InterruptedException if the process was interrupted.
+     */
+    public PlanningService(InetAddress address, int port, boolean useOccupancyGrid)
+            throws IOException, InterruptedException {
+        NoFlyZones noFlyZones = HTTPClient.getNoFlyZones();
+        pathFinder = PathFinder.forZones(noFlyZones.getNoFlyZonesPoints(), HTTPClient.getLandmarks(), useOccupancyGrid);
+        new Menus(App.getMachineName(), App.getWebServerPort());
+
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.createContext(PLAN_DATE_PATH, this::handlePlanDate);
+        server.createContext(PLAN_ORDERS_PATH, this::handlePlanOrders);
+        server.createContext(EVALUATE_INSERTION_PATH, this::handleEvaluateInsertion);
+        server.createContext(NO_FLY_ZONES_PATH, this::handleNoFlyZones);
+        server.createContext(METRICS_PATH, this::handleMetrics);
+        server.setExecutor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Main method that takes as user inputs the port where the service listens, the web server port number and the
+     * database port number, and starts the service.
+     * @param args the arguments given by the user: the service port, the web server port number and the database port
+     *             number, optionally followed by {@value App#OCCUPANCY_GRID_OPTION}, by {@value App#OFFLINE_OPTION} and
+     *             the folder the inputs are read from, by {@value App#HTTP_CACHE_OPTION} and the folder the no-fly
+     *             zones, the landmarks and the menus are kept in, and by {@value BIND_OPTION} and the address the
+     *             service listens on, which is the loopback address by default.
+     * @throws IOException if the service could not be started.
+     * @throws InterruptedException if the process was interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = Integer.parseInt(args[0]);
+        App.setWebServerPort(args[1]);
+        App.setDatabasePort(args[2]);
+        App.checkOptions(args, NUMBER_OF_POSITIONAL_ARGUMENTS, FLAG_OPTIONS, VALUE_OPTIONS);
+        String offlineFolder = App.getOptionValue(args, NUMBER_OF_POSITIONAL_ARGUMENTS, App.OFFLINE_OPTION);
+        if (offlineFolder != null) {
+            App.setOfflineFolder(Paths.get(offlineFolder));
+        }
+        boolean useOccupancyGrid = App.hasOption(args, NUMBER_OF_POSITIONAL_ARGUMENTS, App.OCCUPANCY_GRID_OPTION);
+        App.setHttpCache(App.openHttpCache(App.getOptionValue(args, NUMBER_OF_POSITIONAL_ARGUMENTS,
+                App.HTTP_CACHE_OPTION)));
+
+        String bindAddress = App.getOptionValue(args, NUMBER_OF_POSITIONAL_ARGUMENTS, BIND_OPTION);
+        InetAddress address = bindAddress == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bindAddress);
+
+        PlanningService planningService = new PlanningService(address, port, useOccupancyGrid);
+        planningService.start();
+        System.out.println("The planning service is listening on " + address.getHostAddress() + ":" + port);
+    }
+
+    /**
+     * Method that starts receiving requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Method that stops receiving requests.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+
+    /**
+     * Handler of the {@value PLAN_DATE_PATH} endpoint, which plans the orders of the date given as query parameter.
+     * @param exchange the HttpExchange of the request.
+     * @throws IOException if the response could not be sent.
+     */
+    private void handlePlanDate(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendError(exchange, 405, "Use GET " + PLAN_DATE_PATH + "?date=YYYY-MM-DD");
+            return;
+        }
+        String date = getDate(exchange.getRequestURI());
+        if (date == null) {
+            sendError(exchange, 400, "The date must be given as " + PLAN_DATE_PATH + "?date=YYYY-MM-DD");
+            return;
+        }
+        try {
+            refreshMenus();
+            ArrayList<OrderDetails> listOrderDetails = getDatabase().getOrderDetails(date);
+            JsonObject plan = plan(listOrderDetails);
+            plan.addProperty("date", date);
+            sendJson(exchange, 200, plan);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            sendError(exchange, 500, "The date could not be planned: " + e);
+        }
+    }
+
+    /**
+     * Handler of the {@value PLAN_ORDERS_PATH} endpoint, which plans the orders given in the body of the request.
+     * @param exchange the HttpExchange of the request.
+     * @throws IOException if the response could not be sent.
+     */
+    private void handlePlanOrders(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            sendError(exchange, 405, "Use POST " + PLAN_ORDERS_PATH + " with a JSON array of orders");
+            return;
+        }
+        try (Reader body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            ArrayList<OrderDetails> listOrderDetails = gson.fromJson(body, ORDER_LIST_TYPE);
+            if (listOrderDetails == null) {
+                sendError(exchange, 400, "The body must be a JSON array of orders");
+                return;
+            }
+            refreshMenus();
+            String invalidOrderReason = getInvalidOrderReason(listOrderDetails);
+            if (invalidOrderReason != null) {
+                sendError(exchange, 400, invalidOrderReason);
+                return;
+            }
+            sendJson(exchange, 200, plan(listOrderDetails));
+        } catch (JsonParseException e) {
+            sendError(exchange, 400, "The body must be a JSON array of orders: " + e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            sendError(exchange, 500, "The orders could not be planned: " + e);
+        }
+    }
+
+    /**
+     * Handler of the {@value EVALUATE_INSERTION_PATH} endpoint, which evaluates where the order given in the body of
+     * the request is best inserted in the sequence of orders given in the same body.
+     * @param exchange the HttpExchange of the request.
+     * @throws IOException if the response could not be sent.
+     */
+    private void handleEvaluateInsertion(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            sendError(exchange, 405, "Use POST " + EVALUATE_INSERTION_PATH + " with the orders and the new order");
+            return;
+        }
+        try (Reader body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            JsonObject request = gson.fromJson(body, JsonObject.class);
+            if (request == null || !request.has("orders") || !request.has("order")) {
+                sendError(exchange, 400, "The body must be a JSON object with \"orders\" and \"order\"");
+                return;
+            }
+            ArrayList<OrderDetails> plannedOrders = gson.fromJson(request.get("orders"), ORDER_LIST_TYPE);
+            OrderDetails newOrder = gson.fromJson(request.get("order"), OrderDetails.class);
+            if (plannedOrders == null) {
+                sendError(exchange, 400, "\"orders\" must be a JSON array of orders");
+                return;
+            }
+            ArrayList<OrderDetails> allOrders = new ArrayList<>(plannedOrders);
+            allOrders.add(newOrder);
+            refreshMenus();
+            String invalidOrderReason = getInvalidOrderReason(allOrders);
+            if (invalidOrderReason != null) {
+                sendError(exchange, 400, invalidOrderReason);
+                return;
+            }
+            OrderDetails.setOrderDetailsFields(allOrders);
+
+            InsertionEvaluator.Insertion insertion = new InsertionEvaluator(pathFinder).evaluateInsertion(plannedOrders, newOrder);
+            JsonObject response = new JsonObject();
+            response.addProperty("position", insertion.getPosition());
+            response.addProperty("numberOfMovesBefore", insertion.getNumberOfMovesBefore());
+            response.addProperty("numberOfMovesAfter", insertion.getNumberOfMovesAfter());
+            response.addProperty("fitsInMaximumNumberOfMoves", insertion.fitsInMaximumNumberOfMoves());
+            sendJson(exchange, 200, response);
+        } catch (JsonParseException e) {
+            sendError(exchange, 400, "The body could not be read: " + e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            sendError(exchange, 500, "The insertion could not be evaluated: " + e);
+        }
+    }
+
+
+    /**
+     * Handler of the {@value NO_FLY_ZONES_PATH} endpoint, which adds and removes the no-fly zones given in the body of
+     * the request, and then checks the plan being flown against the added zones, replanning its orders if it crosses
+     * any of them.
+     * @param exchange the HttpExchange of the request.
+     * @throws IOException if the response could not be sent.
+     */
+    private void handleNoFlyZones(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            sendError(exchange, 405, "Use POST " + NO_FLY_ZONES_PATH + " with the zones to add and to remove");
+            return;
+        }
+        try (Reader body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            JsonObject request = gson.fromJson(body, JsonObject.class);
+            if (request == null || (!request.has("add") && !request.has("remove"))) {
+                sendError(exchange, 400, "The body must be a JSON object with \"add\" or \"remove\"");
+                return;
+            }
+            NoFlyZoneUpdate update = pathFinder.updateNoFlyZones(getNoFlyZonesPoints(request, "add"),
+                    getNoFlyZonesPoints(request, "remove"));
+            JsonObject response = new JsonObject();
+            response.addProperty("zonesAdded", update.getAddedZones().size());
+            response.addProperty("zonesRemoved", update.getRemovedZones().size());
+            response.addProperty("legsInvalidated", update.getLegsInvalidated());
+            response.addProperty("returnCostsInvalidated", update.getReturnCostsInvalidated());
+            Drone drone = inFlightDrone;
+            if (drone != null) {
+                boolean inFlightPlanValid = !update.crosses(drone.getRoute());
+                response.addProperty("inFlightPlanValid", inFlightPlanValid);
+                if (!inFlightPlanValid) {
+                    response.add("replannedPlan", plan(new ArrayList<>(inFlightOrders)));
+                }
+            }
+            sendJson(exchange, 200, response);
+        } catch (JsonParseException | IllegalArgumentException e) {
+            sendError(exchange, 400, "The zones must be GeoJSON feature collections of polygons: " + e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            sendError(exchange, 500, "The no-fly zones could not be changed: " + e);
+        }
+    }
+
+    /**
+     * Helper method that reads the no-fly zones given as a GeoJSON feature collection in the given property of the
+     * given request.
+     * @param request the JSON object of the request.
+     * @param property the name of the property.
+     * @return the points of the borders of the no-fly zones, which is empty if the property is not given.
+     */
+    private static ArrayList<ArrayList<LongLat>> getNoFlyZonesPoints(JsonObject request, String property) {
+        if (!request.has(property)) {
+            return new ArrayList<>();
+        }
+        String featureCollection = request.get(property).toString();
+        return new NoFlyZones(HTTPClient.getNoFlyZonesFromJsonString(featureCollection)).getNoFlyZonesPoints();
+    }
+
+
+    /**
+     * Handler of the {@value METRICS_PATH} endpoint, which returns a snapshot of the metrics as Prometheus text, or as
+     * JSON if the query is {@value JSON_FORMAT_QUERY}.
+     * @param exchange the HttpExchange of the request.
+     * @throws IOException if the response could not be sent.
+     */
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendError(exchange, 405, "Use GET " + METRICS_PATH);
+            return;
+        }
+        if (JSON_FORMAT_QUERY.equals(exchange.getRequestURI().getQuery())) {
+            sendJson(exchange, 200, PlanningMetrics.toJson());
+            return;
+        }
+        byte[] body = PlanningMetrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+
+    /**
+     * Method that sets the prices and locations of the given orders, plans them with the shared {@link PathFinder},
+     * and returns the resulting plan as a JSON object. The plan becomes the plan being flown, which is checked again
+     * when the no-fly zones change.
+     * @param listOrderDetails the orders to plan.
+     * @return the JSON object with the orders delivered, the number of moves, the percentage monetary value, the
+     * planning time and the route of the drone.
+     */
+    private JsonObject plan(ArrayList<OrderDetails> listOrderDetails) {
+        long startTime = System.nanoTime();
+        JsonObject plan = new JsonObject();
+        plan.addProperty("numberOfOrders", listOrderDetails.size());
+        JsonArray ordersDelivered = new JsonArray();
+        JsonArray route = new JsonArray();
+        if (listOrderDetails.isEmpty()) {
+            plan.addProperty("numberOfMoves", 0);
+            plan.addProperty("percentageMonetaryValue", 0.0);
+            plan.addProperty("validRoute", true);
+        } else {
+            OrderDetails.setOrderDetailsFields(listOrderDetails);
+            ArrayList<OrderDetails> orders = new ArrayList<>(listOrderDetails);
+            Drone drone = new Drone(listOrderDetails, pathFinder);
+            inFlightOrders = orders;
+            inFlightDrone = drone;
+            for (OrderDetails order : drone.getOrderDetailsToDo()) {
+                JsonObject delivery = new JsonObject();
+                delivery.addProperty("orderNo", order.getOrderNo());
+                delivery.addProperty("deliveredTo", order.getDeliverTo());
+                delivery.addProperty("costInPence", order.getPrice());
+                ordersDelivered.add(delivery);
+            }
+            for (LongLat position : drone.getRoute()) {
+                JsonArray coordinates = new JsonArray();
+                coordinates.add(position.getLongitude());
+                coordinates.add(position.getLatitude());
+                route.add(coordinates);
+            }
+            plan.addProperty("numberOfMoves", drone.getRoute().size() - 1);
+            plan.addProperty("percentageMonetaryValue", drone.getPercentageMonetaryValue());
+            plan.addProperty("validRoute", FlightPathValidator.validatePlan(drone, "a request"));
+        }
+        plan.add("ordersDelivered", ordersDelivered);
+        plan.addProperty("planningTimeMs", (System.nanoTime() - startTime) / 1_000_000.0);
+        plan.add("route", route);
+        return plan;
+    }
+
+    /**
+     * Helper method that refreshes the menus before a request prices its orders. If the menus could not be obtained,
+     * the request goes on with the menus the service already has.
+     */
+    private static void refreshMenus() {
+        try {
+            Menus.refresh(App.getMachineName(), App.getWebServerPort());
+        } catch (IllegalStateException e) {
+            System.err.println("The menus could not be refreshed, so the menus already loaded are used");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Helper method that checks that every given order can be planned: it has a delivery location and items, every
+     * item is on a menu, and its items come from at most {@value Drone#MAXIMUM_NUMBER_OF_SHOPS} restaurants. The
+     * planner skips the orders that do not, but the orders of a request are rejected instead, so that the client
+     * knows why.
+     * @param orders the orders given in the body of a request.
+     * @return the reason why an order can not be planned, or null if every order can be planned.
+     */
+    private static String getInvalidOrderReason(List<OrderDetails> orders) {
+        Menus menus = new Menus(App.getMachineName(), App.getWebServerPort());
+        for (OrderDetails order : orders) {
+            if (order == null) {
+                return "Every order must be a JSON object";
+            }
+            if (order.getDeliverTo() == null) {
+                return "The order " + order.getOrderNo() + " has no deliverTo";
+            }
+            if (order.getItems() == null || order.getItems().isEmpty()) {
+                return "The order " + order.getOrderNo() + " has no items";
+            }
+            Set<String> restaurants = new HashSet<>();
+            for (String item : order.getItems()) {
+                String restaurant = menus.getRestaurantLocationOfItem(item);
+                if (restaurant == null) {
+                    return "The item " + item + " of the order " + order.getOrderNo() + " is not on any menu";
+                }
+                restaurants.add(restaurant);
+            }
+            if (restaurants.size() > Drone.MAXIMUM_NUMBER_OF_SHOPS) {
+                return "The order " + order.getOrderNo() + " has items from " + restaurants.size()
+                        + " restaurants, and the drone visits at most " + Drone.MAXIMUM_NUMBER_OF_SHOPS;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helper method that returns the database, connecting to it the first time it is needed.
+     * @return the Database from which the orders are read.
+     */
+    private synchronized Database getDatabase() {
+        if (database == null) {
+            database = new Database();
+        }
+        return database;
+    }
+
+    /**
+     * Helper method that reads the date from the query of the given URI.
+     * @param uri the URI of the request.
+     * @return the date in format YYYY-MM-DD, or null if the query does not contain a valid date.
+     */
+    private static String getDate(URI uri) {
+        String query = uri.getQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(DATE_PARAMETER)) {
+                try {
+                    return LocalDate.parse(parameter.substring(DATE_PARAMETER.length())).toString();
+                } catch (DateTimeParseException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helper method that sends the given JSON object as the response to the request.
+     * @param exchange the HttpExchange of the request.
+     * @param statusCode the status code of the response.
+     * @param json the JSON object to send.
+     * @throws IOException if the response could not be sent.
+     */
+    private static void sendJson(HttpExchange exchange, int statusCode, JsonObject json) throws IOException {
+        byte[] body = gson.toJson(json).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    /**
+     * Helper method that sends an error response with the given message.
+     * @param exchange the HttpExchange of the request.
+     * @param statusCode the status code of the response.
+     * @param message the message explaining the error.
+     * @throws IOException if the response could not be sent.
+     */
+    private static void sendError(HttpExchange exchange, int statusCode, String message) throws IOException {
+        JsonObject error = new JsonObject();
+        error.addProperty("error", message);
+        sendJson(exchange, statusCode, error);
+    }
+}
@@ -19,6 +19,9 @@ public class Restaurant {
     /** Menu of the restaurant which consists on a list of MenuItem objects */
     private final List<MenuItem> menu;
 
+    /** Hashmap of the items of the menu and their prices, built the first time it is needed */
+    private transient HashMap<String, Integer> menuHashmap;
+
 
     /**
      * Constructor for the Restaurant class.
@@ -46,13 +49,17 @@ public class Restaurant {
      * Method that creates a Hashmap where the keys are the items from the menu of the restaurant and the values are
      * the corresponding prices of those menu items.
      * @return Hashmap where the keys are the items from the menu of the restaurant and the values are the corresponding
-     * prices of those menu items.
+     * prices of those menu items. The Hashmap is only built once per restaurant and must not be modified.
      */
     public HashMap<String, Integer> getMenuHashmap(){
-        HashMap<String, Integer> itemsPrice = new HashMap<String, Integer>();
-        for (MenuItem item : menu){
-            int price = item.getPence();
-            itemsPrice.put(item.getItem(), price);
+        HashMap<String, Integer> itemsPrice = menuHashmap;
+        if (itemsPrice == null) {
+            itemsPrice = new HashMap<String, Integer>();
+            for (MenuItem item : menu){
+                int price = item.getPence();
+                itemsPrice.put(item.getItem(), price);
+            }
+            menuHashmap = itemsPrice;
         }
         return itemsPrice;
     }
@@ -0,0 +1,114 @@
+package uk.ac.ed.inf;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class that represents the memo of the return costs to a depot: for every snapped position the drone was asked to
+ * return from, it keeps the number of moves the drone needs to fly back to the depot. A position is only computed the
+ * first time it is asked for, by flying its return leg, and every later "can the drone still get back" check from the
+ * same position is a constant time lookup. Every day first asks for its delivery locations with {@link #precompute},
+ * and any other position, such as the last stop of a tour, is computed when it is first needed. As the memo only
+ * depends on the no-fly zones and the landmarks, it is owned by the {@link PathFinder} and reused by every day that
+ * shares them.
+ */
+public class ReturnCostMemo {
+
+    /** Integer representing the number of moves returned for positions from which the depot can not be reached */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /** LongLat representing the location of the depot the drone returns to */
+    private final LongLat depot;
+
+    /** PathFinder used to compute the return legs to the depot */
+    private final PathFinder pathFinder;
+
+    /** Map where the keys are the snapped positions and the values the number of moves needed to return from those
+     * positions to the depot */
+    private final Map<FixedPointLongLat, Integer> movesToDepot = new ConcurrentHashMap<>();
+
+
+    /**
+     * Constructor of the ReturnCostMemo class, whose memo starts empty.
+     * @param depot the location of the depot the drone returns to.
+     * @param pathFinder the PathFinder used to compute the return legs to the depot.
+     */
+    public ReturnCostMemo(LongLat depot, PathFinder pathFinder) {
+        this.depot = depot;
+        this.pathFinder = pathFinder;
+    }
+
+    /**
+     * Method that computes, for every given position that is not already in the memo, the number of moves needed to
+     * return to the depot from that position.
+     * @param origins the positions from which the drone may need to return to the depot.
+     */
+    public void precompute(Collection<LongLat> origins) {
+        for (LongLat origin : origins) {
+            getMovesToDepot(origin);
+        }
+    }
+
+    /**
+     * Method that returns the number of moves the drone needs to fly from the given position back to the depot,
+     * including the final hovering move. This is a constant time lookup for every position already in the memo, and any
+     * other position is computed once, without holding any lock of the memo, and then added to it. If another thread
+     * added the same position in the meantime, its number of moves is returned.
+     * @param origin the position the drone would return from.
+     * @return the number of moves needed to return to the depot, or {@value UNREACHABLE} if the depot can not be
+     * reached from the given position.
+     */
+    public int getMovesToDepot(LongLat origin) {
+        FixedPointLongLat key = origin.toFixedPoint();
+        Integer moves = movesToDepot.get(key);
+        if (moves != null) {
+            PlanningMetrics.RETURN_COST_HITS.increment();
+            return moves;
+        }
+        PlanningMetrics.RETURN_COST_MISSES.increment();
+        int computedMoves = computeMovesToDepot(origin);
+        Integer storedMoves = movesToDepot.putIfAbsent(key, computedMoves);
+        return storedMoves != null ? storedMoves : computedMoves;
+    }
+
+    /**
+     * Method that removes the given position from the memo, so that its return leg is flown again the next time it
+     * is needed, for example because the no-fly zones around it changed.
+     * @param origin the position to remove.
+     * @return true if the position was in the memo, false otherwise.
+     */
+    public boolean invalidate(LongLat origin) {
+        return movesToDepot.remove(origin.toFixedPoint()) != null;
+    }
+
+    /**
+     * Method that returns true if the memo already contains the given position.
+     * @param origin the position we want to look for.
+     * @return true if the number of moves from the given position has already been computed, false otherwise.
+     */
+    public boolean contains(LongLat origin) {
+        return movesToDepot.containsKey(origin.toFixedPoint());
+    }
+
+    /**
+     * Helper method that flies the return leg from the given position to the depot and counts its moves.
+     * @param origin the position the drone would return from.
+     * @return the number of moves needed to return to the depot, or {@value UNREACHABLE} if it can not be reached.
+     */
+    private int computeMovesToDepot(LongLat origin) {
+        LegResult returnLeg = pathFinder.getLeg(origin, depot);
+        if (!returnLeg.isReachable()) {
+            return UNREACHABLE;
+        }
+        return returnLeg.getNumberOfMoves();
+    }
+
+    public LongLat getDepot() {
+        return depot;
+    }
+
+    public int size() {
+        return movesToDepot.size();
+    }
+}
@@ -0,0 +1,269 @@
+package uk.ac.ed.inf;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class of the sharded entry point of the application, which plans a range of dates with several worker processes on
+ * the same machine. The range is split into shards of consecutive days kept in a {@link ShardQueue}, every
+ * {@link ShardWorker} leases the shards one at a time, and the coordinator takes back the leases that expire, starts
+ * the workers that stopped again while shards are pending, and merges the outputs of every shard once the queue is
+ * empty. A worker that exits with an error before any shard finishes is started again later and later, and the
+ * coordinator gives up once {@value MAXIMUM_START_FAILURES} workers in a row did so, as they would keep failing in
+ * the same way. A queue folder that already has shards is resumed instead of being split again.
+ */
+public class ShardCoordinator {
+
+    /** String representing the optional argument, followed by a number of days, that sets the length of every shard */
+    private static final String SHARD_DAYS_OPTION = "--shard-days";
+
+    /** Integer representing the default number of days of every shard */
+    private static final int DEFAULT_SHARD_DAYS = 7;
+
+    /** String representing the subfolder of the queue the outputs of every shard are merged in */
+    static final String MERGED = "merged";
+
+    /** String representing the first line of the merged deliveries file */
+    private static final String DELIVERIES_HEADER = "date,orderNo,deliveredTo,costInPence";
+
+    /** String representing the first line of the merged flightpath file */
+    private static final String FLIGHTPATH_HEADER = "date,orderNo,fromLongitude,fromLatitude,angle,toLongitude,toLatitude";
+
+    /** Integer representing the number of milliseconds between two checks of the queue and the workers */
+    private static final long POLL_MILLISECONDS = 500;
+
+    /** Integer representing the number of workers in a row that may exit with an error before any shard finishes,
+     * after which the coordinator stops */
+    private static final int MAXIMUM_START_FAILURES = 5;
+
+    /** Integer representing the largest number of milliseconds a worker that exited with an error before any shard
+     * finished waits before being started again */
+    private static final long MAXIMUM_RESTART_DELAY_MILLISECONDS = 30_000;
+
+    /** String representing the suffix of the name of the log file of every worker */
+    private static final String LOG_FILE_SUFFIX = ".log";
+
+    /** Integer representing the number of positional arguments, after which the optional arguments are given */
+    private static final int NUMBER_OF_POSITIONAL_ARGUMENTS = 6;
+
+
+    /**
+     * Main method that takes as user inputs the first and the last date of the range of dates to plan, in format
+     * YYYY-MM-DD, the web server port number, the database port number, the number of worker processes and the folder
+     * of the queue. Once every shard is done or failed, the .geojson file of every day is copied to
+     * {@value MERGED} in the queue folder, with the rows of the deliveries and flightpath tables of every day in
+     * {@value ShardWorker#DELIVERIES_FILE} and {@value ShardWorker#FLIGHTPATH_FILE}. The process exits with status 1
+     * if a shard failed, or without merging anything if {@value MAXIMUM_START_FAILURES} workers in a row exited with
+     * an error before any shard finished, leaving the queue to be resumed once the cause is fixed.
+     * @param args the arguments given by the user: the first date, the last date, the web server port number, the
+     *             database port number, the number of workers, the queue folder, and optionally
+     *             {@value SHARD_DAYS_OPTION} followed by the number of days of every shard and
+     *             {@value ShardWorker#LEASE_SECONDS_OPTION} followed by the number of seconds after which a lease that
+     *             was not renewed expires. Any other argument is given to the workers, which take the same optional
+     *             arguments as {@link BatchApp} except {@value App#LEG_STORE_OPTION}, as a leg store only has a single
+     *             writer.
+     * @throws IOException if the queue could not be read or written.
+     * @throws InterruptedException if the process was interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LocalDate firstDate = LocalDate.parse(args[0]);
+        LocalDate lastDate = LocalDate.parse(args[1]);
+        String webServerPort = args[2];
+        String databasePort = args[3];
+        int numberOfWorkers = Integer.parseInt(args[4]);
+
+        // The options of the workers are checked here, so that a mistyped option is reported before any worker starts
+        List<String> valueOptions = new ArrayList<>(ShardWorker.VALUE_OPTIONS);
+        valueOptions.add(SHARD_DAYS_OPTION);
+        valueOptions.add(App.LEG_STORE_OPTION);
+        App.checkOptions(args, NUMBER_OF_POSITIONAL_ARGUMENTS, ShardWorker.FLAG_OPTIONS, valueOptions);
+        ShardQueue queue = new ShardQueue(Paths.get(args[5]));
+
+        int shardDays = DEFAULT_SHARD_DAYS;
+        int leaseSeconds = ShardWorker.DEFAULT_LEASE_SECONDS;
+        List<String> workerOptions = new ArrayList<>();
+        for (int i = NUMBER_OF_POSITIONAL_ARGUMENTS; i < args.length; i++) {
+            if (args[i].equals(SHARD_DAYS_OPTION)) {
+                shardDays = App.getPositiveValue(SHARD_DAYS_OPTION, args[++i]);
+            } else if (args[i].equals(ShardWorker.LEASE_SECONDS_OPTION)) {
+                leaseSeconds = App.getPositiveValue(ShardWorker.LEASE_SECONDS_OPTION, args[++i]);
+                workerOptions.add(args[i - 1]);
+                workerOptions.add(args[i]);
+            } else if (args[i].equals(App.LEG_STORE_OPTION)) {
+                System.err.println("The workers do not share a leg store, so " + args[++i] + " is not used");
+            } else {
+                workerOptions.add(args[i]);
+            }
+        }
+
+        long startTime = System.nanoTime();
+        if (queue.hasShards()) {
+            System.out.println("Resuming the shards of " + queue.getFolder());
+        } else {
+            System.out.println("Split the dates into " + queue.createShards(firstDate, lastDate, shardDays) + " shards");
+        }
+
+        Process[] workers = new Process[numberOfWorkers];
+        // Number of shards finished when every worker was started, and time before which it is not started again
+        int[] numberOfFinishedShardsAtStart = new int[numberOfWorkers];
+        long[] restartTimes = new long[numberOfWorkers];
+        int numberOfStartFailures = 0;
+        int numberOfFinishedShards = queue.count(ShardQueue.DONE) + queue.count(ShardQueue.FAILED);
+        long leaseMillis = leaseSeconds * 1000L;
+        while (true) {
+            int numberOfReapedShards = queue.reapExpiredLeases(leaseMillis);
+            if (numberOfReapedShards > 0) {
+                System.err.println("Took back " + numberOfReapedShards + " expired leases");
+            }
+            int newNumberOfFinishedShards = queue.count(ShardQueue.DONE) + queue.count(ShardQueue.FAILED);
+            if (newNumberOfFinishedShards > numberOfFinishedShards) {
+                numberOfStartFailures = 0;
+            }
+            numberOfFinishedShards = newNumberOfFinishedShards;
+            boolean hasPendingShards = queue.count(ShardQueue.PENDING) > 0;
+            boolean hasRunningWorkers = false;
+            for (int i = 0; i < numberOfWorkers; i++) {
+                if (workers[i] != null && workers[i].isAlive()) {
+                    hasRunningWorkers = true;
+                    continue;
+                }
+                if (workers[i] != null) {
+                    int exitValue = workers[i].exitValue();
+                    if (exitValue != 0 && numberOfFinishedShards == numberOfFinishedShardsAtStart[i]) {
+                        numberOfStartFailures++;
+                        long restartDelay = Math.min(MAXIMUM_RESTART_DELAY_MILLISECONDS,
+                                POLL_MILLISECONDS << numberOfStartFailures);
+                        restartTimes[i] = System.currentTimeMillis() + restartDelay;
+                        System.err.println("worker-" + i + " exited with status " + exitValue + " before any shard"
+                                + " finished, so it is started again in " + restartDelay + " ms");
+                    } else {
+                        if (exitValue != 0) {
+                            System.err.println("worker-" + i + " exited with status " + exitValue
+                                    + ", so it is started again");
+                        }
+                        numberOfStartFailures = 0;
+                    }
+                    workers[i] = null;
+                }
+                if (hasPendingShards && numberOfStartFailures < MAXIMUM_START_FAILURES
+                        && System.currentTimeMillis() >= restartTimes[i]) {
+                    workers[i] = startWorker(queue, i, webServerPort, databasePort, workerOptions);
+                    numberOfFinishedShardsAtStart[i] = numberOfFinishedShards;
+                    hasRunningWorkers = true;
+                }
+            }
+            if (numberOfStartFailures >= MAXIMUM_START_FAILURES) {
+                System.err.println(numberOfStartFailures + " workers in a row exited with an error before any shard"
+                        + " finished, so the shards are not planned. The logs of the workers are in "
+                        + queue.getFolder().resolve(ShardQueue.LOGS) + ", and the queue is resumed by running again");
+                for (Process worker : workers) {
+                    if (worker != null) {
+                        worker.destroy();
+                    }
+                }
+                System.exit(1);
+            }
+            if (!hasPendingShards && queue.count(ShardQueue.LEASED) + queue.count(ShardQueue.COMPLETING) == 0
+                    && !hasRunningWorkers) {
+                break;
+            }
+            Thread.sleep(POLL_MILLISECONDS);
+        }
+
+        int numberOfMergedDays = mergeOutputs(queue);
+        int numberOfFailedShards = queue.count(ShardQueue.FAILED);
+        long elapsedMilliseconds = (System.nanoTime() - startTime) / 1_000_000;
+        System.out.println("Merged " + numberOfMergedDays + " days of " + queue.count(ShardQueue.DONE)
+                + " shards in " + elapsedMilliseconds + " ms using " + numberOfWorkers + " workers, "
+                + numberOfFailedShards + " shards failed");
+        if (numberOfFailedShards > 0) {
+            System.exit(1);
+        }
+    }
+
+
+    /**
+     * Helper method that starts a worker process with the same Java runtime and class path as the coordinator, writing
+     * its output to its log file in the queue.
+     * @param queue the queue of the shards.
+     * @param index the index of the worker.
+     * @param webServerPort the web server port number.
+     * @param databasePort the database port number.
+     * @param workerOptions the optional arguments given to the worker.
+     * @return the Process of the worker.
+     * @throws IOException if the process could not be started.
+     */
+    private static Process startWorker(ShardQueue queue, int index, String webServerPort, String databasePort,
+                                       List<String> workerOptions) throws IOException {
+        String workerId = "worker-" + index;
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command()
+                .orElse(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardWorker.class.getName());
+        command.add(queue.getFolder().toString());
+        command.add(workerId);
+        command.add(webServerPort);
+        command.add(databasePort);
+        command.addAll(workerOptions);
+        File logFile = queue.getFolder().resolve(ShardQueue.LOGS).resolve(workerId + LOG_FILE_SUFFIX).toFile();
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(logFile))
+                .start();
+    }
+
+    /**
+     * Helper method that merges the outputs of every shard that is done in the {@value MERGED} subfolder of the queue,
+     * which is written again from scratch.
+     * @param queue the queue of the shards.
+     * @return the number of .geojson files merged.
+     * @throws IOException if an output could not be read or written.
+     */
+    private static int mergeOutputs(ShardQueue queue) throws IOException {
+        Path mergedFolder = Files.createDirectories(queue.getFolder().resolve(MERGED));
+        int numberOfGeoJSONFiles = 0;
+        try (BufferedWriter deliveries = Files.newBufferedWriter(mergedFolder.resolve(ShardWorker.DELIVERIES_FILE));
+             BufferedWriter flightpath = Files.newBufferedWriter(mergedFolder.resolve(ShardWorker.FLIGHTPATH_FILE))) {
+            deliveries.write(DELIVERIES_HEADER);
+            deliveries.newLine();
+            flightpath.write(FLIGHTPATH_HEADER);
+            flightpath.newLine();
+            for (Path outputFolder : queue.getOutputFoldersOfDoneShards()) {
+                try (DirectoryStream<Path> geoJSONFiles = Files.newDirectoryStream(outputFolder, "*.geojson")) {
+                    for (Path geoJSONFile : geoJSONFiles) {
+                        Files.copy(geoJSONFile, mergedFolder.resolve(geoJSONFile.getFileName()),
+                                StandardCopyOption.REPLACE_EXISTING);
+                        numberOfGeoJSONFiles++;
+                    }
+                }
+                appendLines(outputFolder.resolve(ShardWorker.DELIVERIES_FILE), deliveries);
+                appendLines(outputFolder.resolve(ShardWorker.FLIGHTPATH_FILE), flightpath);
+            }
+        }
+        return numberOfGeoJSONFiles;
+    }
+
+    /**
+     * Helper method that appends every line of the given file to the given writer.
+     * @param file the file to read.
+     * @param writer the writer of the merged file.
+     * @throws IOException if the file could not be read or the line could not be written.
+     */
+    private static void appendLines(Path file, BufferedWriter writer) throws IOException {
+        for (String line : Files.readAllLines(file)) {
+            writer.write(line);
+            writer.newLine();
+        }
+    }
+}
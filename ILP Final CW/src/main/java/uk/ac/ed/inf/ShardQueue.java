@@ -0,0 +1,411 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Class that represents the work queue shared by the {@link ShardCoordinator} and its {@link ShardWorker} processes, kept
+ * as files in a folder so that no other service is needed. Every shard is a range of dates, stored as a small
+ * properties file that moves between the subfolders of the queue as its state changes:
+ * <ul>
+ *     <li>{@value #PENDING}: the shard is waiting for a worker.</li>
+ *     <li>{@value #LEASED}: a worker is planning the shard, and renews its lease by touching the file.</li>
+ *     <li>{@value #COMPLETING}: the worker finished the shard and is moving its outputs in place.</li>
+ *     <li>{@value #DONE}: the shard is planned, and its outputs are in the {@value #OUTPUT} subfolder.</li>
+ *     <li>{@value #FAILED}: the shard failed {@value #MAXIMUM_ATTEMPTS} times and is not tried again.</li>
+ * </ul>
+ * Every change of state is an atomic move of the file, so when two processes race for the same shard only one of them
+ * moves it and the other one sees that the file is gone.
+ */
+public class ShardQueue {
+
+    /** Strings representing the subfolders of the queue */
+    static final String PENDING = "pending";
+    static final String LEASED = "leased";
+    static final String COMPLETING = "completing";
+    static final String DONE = "done";
+    static final String FAILED = "failed";
+    static final String OUTPUT = "output";
+    static final String LOGS = "logs";
+
+    /** String representing the subfolder the shards are moved to while the coordinator takes back an expired lease */
+    private static final String REAPING = "reaping";
+
+    /** Integer representing the number of times a shard is tried before it is moved to {@value #FAILED} */
+    static final int MAXIMUM_ATTEMPTS = 3;
+
+    /** String representing the prefix of the name of the file of every shard */
+    private static final String SHARD_FILE_PREFIX = "shard-";
+
+    /** String representing the suffix of the name of the file of every shard */
+    private static final String SHARD_FILE_SUFFIX = ".properties";
+
+    /** Strings representing the properties of the file of every shard */
+    private static final String FIRST_DATE = "firstDate";
+    private static final String LAST_DATE = "lastDate";
+    private static final String ATTEMPTS = "attempts";
+
+    /** Path representing the folder of the queue */
+    private final Path folder;
+
+
+    /**
+     * Constructor of the ShardQueue class, which creates the subfolders of the queue that do not exist yet.
+     * @param folder the folder of the queue.
+     * @throws IOException if a subfolder could not be created.
+     */
+    public ShardQueue(Path folder) throws IOException {
+        this.folder = folder;
+        for (String subfolder : List.of(PENDING, LEASED, COMPLETING, DONE, FAILED, OUTPUT, LOGS, REAPING)) {
+            Files.createDirectories(folder.resolve(subfolder));
+        }
+    }
+
+    /**
+     * Method that splits the given range of dates into shards of the given number of days, and adds them to the
+     * queue as pending shards.
+     * @param firstDate the first date of the range.
+     * @param lastDate the last date of the range.
+     * @param daysPerShard the number of days of every shard, the last one possibly having fewer.
+     * @return the number of shards added.
+     * @throws IOException if a shard could not be written.
+     * @throws IllegalArgumentException if the number of days of every shard is smaller than 1.
+     */
+    public int createShards(LocalDate firstDate, LocalDate lastDate, int daysPerShard) throws IOException {
+        if (daysPerShard < 1) {
+            throw new IllegalArgumentException("Every shard must have at least one day, not " + daysPerShard);
+        }
+        int numberOfShards = 0;
+        for (LocalDate date = firstDate; !date.isAfter(lastDate); date = date.plusDays(daysPerShard)) {
+            LocalDate shardLastDate = date.plusDays(daysPerShard - 1L);
+            Shard shard = new Shard(String.format("%s%05d", SHARD_FILE_PREFIX, ++numberOfShards), date,
+                    shardLastDate.isAfter(lastDate) ? lastDate : shardLastDate, 0);
+            writeShard(folder.resolve(PENDING), shard);
+        }
+        return numberOfShards;
+    }
+
+    /**
+     * Method that returns true if the queue holds any shard, in any state, for example from a previous run that was
+     * stopped before it finished.
+     * @return true if the queue holds a shard, false if it is empty.
+     * @throws IOException if a subfolder could not be read.
+     */
+    public boolean hasShards() throws IOException {
+        return count(PENDING) + count(LEASED) + count(COMPLETING) + count(DONE) + count(FAILED) + count(REAPING) > 0;
+    }
+
+    /**
+     * Method that leases the first pending shard to the calling worker.
+     * @return the leased Shard, or null if no shard is pending.
+     * @throws IOException if the queue could not be read.
+     */
+    public Shard claim() throws IOException {
+        for (Path pendingFile : list(PENDING)) {
+            try {
+                // The file keeps its time when moved, so it is touched first for the lease not to look expired
+                Files.setLastModifiedTime(pendingFile, FileTime.fromMillis(System.currentTimeMillis()));
+                Path leasedFile = folder.resolve(LEASED).resolve(pendingFile.getFileName());
+                Files.move(pendingFile, leasedFile, StandardCopyOption.ATOMIC_MOVE);
+                return readShard(leasedFile);
+            } catch (NoSuchFileException e) {
+                // Another worker leased the shard first
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method that renews the lease of the given shard.
+     * @param shard the leased shard.
+     * @return true if the lease was renewed, false if it had expired and the shard was taken back.
+     * @throws IOException if the lease could not be renewed.
+     */
+    public boolean renew(Shard shard) throws IOException {
+        try {
+            Files.setLastModifiedTime(folder.resolve(LEASED).resolve(shard.getFileName()),
+                    FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Method that marks the given shard as done, after moving its outputs from the given temporary folder to the
+     * {@value #OUTPUT} subfolder, where they replace the outputs of any earlier attempt. The lease is first taken by
+     * moving the shard to {@value #COMPLETING}, so the outputs are only touched by the worker that still holds the
+     * lease, and a worker whose lease expired can not replace the outputs of an attempt that finished after it.
+     * @param shard the leased shard.
+     * @param temporaryOutputFolder the folder the worker wrote the outputs of the shard in, which is deleted if the
+     *                              lease had expired.
+     * @return true if the shard was marked as done, false if its lease had expired and it was taken back.
+     * @throws IOException if the outputs could not be moved.
+     */
+    public boolean complete(Shard shard, Path temporaryOutputFolder) throws IOException {
+        Path leasedFile = folder.resolve(LEASED).resolve(shard.getFileName());
+        Path completingFile = folder.resolve(COMPLETING).resolve(shard.getFileName());
+        try {
+            // The file is touched first, so that the lease does not expire while the outputs are moved
+            Files.setLastModifiedTime(leasedFile, FileTime.fromMillis(System.currentTimeMillis()));
+            Files.move(leasedFile, completingFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            deleteFolder(temporaryOutputFolder);
+            return false;
+        }
+        Path outputFolder = getOutputFolder(shard);
+        deleteFolder(outputFolder);
+        Files.move(temporaryOutputFolder, outputFolder, StandardCopyOption.ATOMIC_MOVE);
+        try {
+            Files.move(completingFile, folder.resolve(DONE).resolve(shard.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Method that gives back the given shard after it failed, so that it is tried again, or moved to
+     * {@value #FAILED} if it has been tried {@value #MAXIMUM_ATTEMPTS} times.
+     * @param shard the leased shard.
+     * @throws IOException if the shard could not be moved.
+     */
+    public void release(Shard shard) throws IOException {
+        retry(folder.resolve(LEASED).resolve(shard.getFileName()));
+    }
+
+    /**
+     * Method that takes back every leased shard whose lease was not renewed for the given time, because its worker
+     * stopped or hangs, and gives it back as {@link #release} does. A shard left in {@value #COMPLETING} for that time,
+     * by a worker stopped while moving its outputs, is given back in the same way.
+     * @param leaseMillis the time in milliseconds after which a lease that was not renewed expires.
+     * @return the number of leases taken back.
+     * @throws IOException if the queue could not be read or a shard could not be moved.
+     */
+    public int reapExpiredLeases(long leaseMillis) throws IOException {
+        int numberOfReapedLeases = 0;
+        long now = System.currentTimeMillis();
+        List<Path> leasedFiles = new ArrayList<>(list(LEASED));
+        leasedFiles.addAll(list(COMPLETING));
+        for (Path leasedFile : leasedFiles) {
+            try {
+                if (now - Files.getLastModifiedTime(leasedFile).toMillis() > leaseMillis) {
+                    retry(leasedFile);
+                    numberOfReapedLeases++;
+                }
+            } catch (NoSuchFileException e) {
+                // The worker finished or gave back the shard in the meantime
+            }
+        }
+        // Shards left here by a coordinator stopped while taking back a lease are given back too
+        for (Path reapingFile : list(REAPING)) {
+            Files.move(reapingFile, folder.resolve(PENDING).resolve(reapingFile.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+        }
+        return numberOfReapedLeases;
+    }
+
+    /**
+     * Method that returns the number of shards in the given subfolder.
+     * @param subfolder one of {@value #PENDING}, {@value #LEASED}, {@value #COMPLETING}, {@value #DONE} or
+     *                  {@value #FAILED}.
+     * @return the number of shards in the subfolder.
+     * @throws IOException if the subfolder could not be read.
+     */
+    public int count(String subfolder) throws IOException {
+        return list(subfolder).size();
+    }
+
+    /**
+     * Method that returns the output folder of every shard that is done, in the order of the shards.
+     * @return a List with the output folder of every shard that is done.
+     * @throws IOException if the queue could not be read.
+     */
+    public List<Path> getOutputFoldersOfDoneShards() throws IOException {
+        List<Path> outputFolders = new ArrayList<>();
+        for (Path doneFile : list(DONE)) {
+            outputFolders.add(getOutputFolder(readShard(doneFile)));
+        }
+        return outputFolders;
+    }
+
+    /**
+     * Method that creates an empty folder the given worker writes the outputs of the given shard in, before they are
+     * moved to the {@value #OUTPUT} subfolder by {@link #complete}.
+     * @param shard the leased shard.
+     * @param workerId the identifier of the worker.
+     * @return the Path of the temporary folder.
+     * @throws IOException if the folder could not be created.
+     */
+    public Path createTemporaryOutputFolder(Shard shard, String workerId) throws IOException {
+        Path temporaryOutputFolder = folder.resolve(OUTPUT).resolve(shard.getName() + "." + workerId + ".tmp");
+        deleteFolder(temporaryOutputFolder);
+        return Files.createDirectories(temporaryOutputFolder);
+    }
+
+    /**
+     * Getter method for the folder of the queue.
+     * @return the Path of the folder of the queue.
+     */
+    public Path getFolder() {
+        return folder;
+    }
+
+
+    /**
+     * Helper method that moves the given leased shard to {@value #PENDING} with one more attempt, or to
+     * {@value #FAILED} if it has been tried {@value #MAXIMUM_ATTEMPTS} times. The shard is first moved out of
+     * {@value #LEASED} or {@value #COMPLETING}, so that its worker can no longer mark it as done.
+     * @param leasedFile the file of the leased or completing shard.
+     * @throws IOException if the shard could not be moved.
+     */
+    private void retry(Path leasedFile) throws IOException {
+        Path reapingFile = folder.resolve(REAPING).resolve(leasedFile.getFileName());
+        Files.move(leasedFile, reapingFile, StandardCopyOption.ATOMIC_MOVE);
+        Shard shard = readShard(reapingFile);
+        Shard retriedShard = new Shard(shard.getName(), shard.getFirstDate(), shard.getLastDate(), shard.getAttempts() + 1);
+        writeShard(folder.resolve(retriedShard.getAttempts() >= MAXIMUM_ATTEMPTS ? FAILED : PENDING), retriedShard);
+        Files.delete(reapingFile);
+    }
+
+    /**
+     * Helper method that returns the files of the shards in the given subfolder, sorted by name.
+     * @param subfolder the subfolder.
+     * @return a List with the files of the shards.
+     * @throws IOException if the subfolder could not be read.
+     */
+    private List<Path> list(String subfolder) throws IOException {
+        List<Path> shardFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder.resolve(subfolder),
+                SHARD_FILE_PREFIX + "*" + SHARD_FILE_SUFFIX)) {
+            files.forEach(shardFiles::add);
+        }
+        Collections.sort(shardFiles);
+        return shardFiles;
+    }
+
+    /**
+     * Helper method that returns the folder the outputs of the given shard are in once it is done.
+     * @param shard the shard.
+     * @return the Path of the output folder of the shard.
+     */
+    private Path getOutputFolder(Shard shard) {
+        return folder.resolve(OUTPUT).resolve(shard.getName());
+    }
+
+    /**
+     * Helper method that writes the given shard to the given subfolder, through a temporary file moved in place so
+     * that no process reads a shard cut short.
+     * @param subfolder the subfolder the shard is written to.
+     * @param shard the shard.
+     * @throws IOException if the shard could not be written.
+     */
+    private void writeShard(Path subfolder, Shard shard) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(FIRST_DATE, shard.getFirstDate().toString());
+        properties.setProperty(LAST_DATE, shard.getLastDate().toString());
+        properties.setProperty(ATTEMPTS, String.valueOf(shard.getAttempts()));
+        Path temporaryFile = Files.createTempFile(folder, shard.getName(), ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporaryFile)) {
+            properties.store(writer, null);
+        }
+        try {
+            Files.move(temporaryFile, subfolder.resolve(shard.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            Files.delete(temporaryFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Helper method that reads the shard of the given file.
+     * @param shardFile the file of the shard.
+     * @return the Shard of the file.
+     * @throws IOException if the file could not be read.
+     */
+    private static Shard readShard(Path shardFile) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(shardFile)) {
+            properties.load(reader);
+        }
+        String fileName = shardFile.getFileName().toString();
+        return new Shard(fileName.substring(0, fileName.length() - SHARD_FILE_SUFFIX.length()),
+                LocalDate.parse(properties.getProperty(FIRST_DATE)), LocalDate.parse(properties.getProperty(LAST_DATE)),
+                Integer.parseInt(properties.getProperty(ATTEMPTS)));
+    }
+
+    /**
+     * Helper method that deletes the given folder and every file in it, if it exists.
+     * @param folderToDelete the folder.
+     * @throws IOException if a file could not be deleted.
+     */
+    private static void deleteFolder(Path folderToDelete) throws IOException {
+        if (!Files.exists(folderToDelete)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folderToDelete)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(folderToDelete);
+    }
+
+
+    /**
+     * Class that represents a shard of the queue: a range of dates and the number of times it has been tried.
+     */
+    public static class Shard {
+
+        /** String representing the name of the shard, which is the name of its file without the suffix */
+        private final String name;
+
+        /** LocalDate representing the first date of the shard */
+        private final LocalDate firstDate;
+
+        /** LocalDate representing the last date of the shard */
+        private final LocalDate lastDate;
+
+        /** Integer representing the number of times the shard has been tried and failed */
+        private final int attempts;
+
+        private Shard(String name, LocalDate firstDate, LocalDate lastDate, int attempts) {
+            this.name = name;
+            this.firstDate = firstDate;
+            this.lastDate = lastDate;
+            this.attempts = attempts;
+        }
+
+        private String getFileName() {
+            return name + SHARD_FILE_SUFFIX;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LocalDate getFirstDate() {
+            return firstDate;
+        }
+
+        public LocalDate getLastDate() {
+            return lastDate;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class of the worker process of the {@link ShardCoordinator}. A worker leases the pending shards of a {@link ShardQueue}
+ * one at a time, plans every day of the shard and writes its outputs in the output folder of the shard: the .geojson
+ * file of every day, and the rows of the deliveries and flightpath tables of every day in {@value #DELIVERIES_FILE}
+ * and {@value #FLIGHTPATH_FILE}, each row starting with its date. The lease is renewed in the background while the
+ * shard is planned. The worker stops once no shard is pending.
+ */
+public class ShardWorker {
+
+    /** String representing the file of the output folder of a shard with the rows of its deliveries tables */
+    static final String DELIVERIES_FILE = "deliveries.csv";
+
+    /** String representing the file of the output folder of a shard with the rows of its flightpath tables */
+    static final String FLIGHTPATH_FILE = "flightpath.csv";
+
+    /** String representing the optional argument, followed by a number of seconds, after which a lease that was not
+     * renewed expires */
+    static final String LEASE_SECONDS_OPTION = "--lease-seconds";
+
+    /** Integer representing the default number of seconds after which a lease that was not renewed expires */
+    static final int DEFAULT_LEASE_SECONDS = 60;
+
+    /** Integer representing the number of times a lease is renewed during its duration */
+    private static final int RENEWALS_PER_LEASE = 4;
+
+    /** Integer representing the number of positional arguments, after which the optional arguments are given */
+    private static final int NUMBER_OF_POSITIONAL_ARGUMENTS = 4;
+
+    /** List of the optional arguments of the worker that are given on their own */
+    static final List<String> FLAG_OPTIONS = List.of(App.OCCUPANCY_GRID_OPTION, App.VIRTUAL_IO_OPTION);
+
+    /** List of the optional arguments of the worker that are followed by a value */
+    static final List<String> VALUE_OPTIONS = List.of(App.OFFLINE_OPTION, App.CONSOLIDATE_OPTION,
+            App.MAXIMUM_STOPS_OPTION, App.PLAN_CACHE_OPTION, LEASE_SECONDS_OPTION, App.IO_TIMEOUT_OPTION,
+            App.HTTP_CACHE_OPTION);
+
+
+    /**
+     * Main method that takes as user inputs the folder of the queue, the identifier of the worker, the web server port
+     * number and the database port number, and plans the pending shards of the queue until none is left.
+     * @param args the arguments given by the coordinator: the queue folder, the worker identifier, the web server port
+     *             number, the database port number, and optionally {@value App#OCCUPANCY_GRID_OPTION},
+     *             {@value App#OFFLINE_OPTION}, {@value App#CONSOLIDATE_OPTION}, {@value App#MAXIMUM_STOPS_OPTION},
+     *             {@value App#PLAN_CACHE_OPTION}, {@value App#VIRTUAL_IO_OPTION}, {@value App#IO_TIMEOUT_OPTION},
+     *             {@value App#HTTP_CACHE_OPTION} and {@value LEASE_SECONDS_OPTION} as for {@link BatchApp}.
+     * @throws IOException if the queue could not be read.
+     * @throws InterruptedException if the process was interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ShardQueue queue = new ShardQueue(Paths.get(args[0]));
+        String workerId = args[1];
+        App.setWebServerPort(args[2]);
+        App.setDatabasePort(args[3]);
+
+        App.checkOptions(args, NUMBER_OF_POSITIONAL_ARGUMENTS, FLAG_OPTIONS, VALUE_OPTIONS);
+        String offlineFolder = App.getOptionValue(args, NUMBER_OF_POSITIONAL_ARGUMENTS, App.OFFLINE_OPTION);
+        if (offlineFolder != null) {
+            App.setOfflineFolder(Paths.get(offlineFolder));
+        }
+        boolean useOccupancyGrid = App.hasOption(args, NUMBER_OF_POSITIONAL_ARGUMENTS, App.OCCUPANCY_GRID_OPTION);
+        String capacity = App.getOptionValue(args, NUMBER_OF_POSITIONAL_ARGUMENTS, App.CONSOLIDATE_OPTION);
+        String maximumStops = App.getOptionValue(args, NUMBER_OF_POSITIONAL_ARGUMENTS, App.MAXIMUM_STOPS_OPTION);
+        String planCacheFolder = App.getOptionValue(args, NUMBER_OF_POSITIONAL_ARGUMENTS, App.PLAN_CACHE_OPTION);
+        String leaseSecondsValue = App.getOptionValue(args, NUMBER_OF_POSITIONAL_ARGUMENTS, LEASE_SECONDS_OPTION);
+        int leaseSeconds = leaseSecondsValue == null ? DEFAULT_LEASE_SECONDS
+                : App.getPositiveValue(LEASE_SECONDS_OPTION, leaseSecondsValue);
+
+        App.setIoMode(App.hasOption(args, NUMBER_OF_POSITIONAL_ARGUMENTS, App.VIRTUAL_IO_OPTION),
+                App.getOptionValue(args, NUMBER_OF_POSITIONAL_ARGUMENTS, App.IO_TIMEOUT_OPTION));
+        App.setHttpCache(App.openHttpCache(App.getOptionValue(args, NUMBER_OF_POSITIONAL_ARGUMENTS,
+                App.HTTP_CACHE_OPTION)));
+        Database database = new Database();
+        PathFinder pathFinder = PathFinder.forZones(HTTPClient.getNoFlyZones().getNoFlyZonesPoints(),
+                HTTPClient.getLandmarks(), useOccupancyGrid);
+        new Menus(App.getMachineName(), App.getWebServerPort());
+        ConsolidationSettings consolidation = App.getConsolidationSettings(capacity, maximumStops);
+        PlanCache planCache = App.openPlanCache(planCacheFolder);
+
+        ScheduledExecutorService leaseRenewer = Executors.newSingleThreadScheduledExecutor();
+        long renewalMillis = leaseSeconds * 1000L / RENEWALS_PER_LEASE;
+        int numberOfShards = 0;
+        ShardQueue.Shard shard;
+        while ((shard = queue.claim()) != null) {
+            ShardQueue.Shard leasedShard = shard;
+            AtomicBoolean leaseLost = new AtomicBoolean(false);
+            var renewal = leaseRenewer.scheduleAtFixedRate(() -> {
+                try {
+                    if (!queue.renew(leasedShard)) {
+                        leaseLost.set(true);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }, renewalMillis, renewalMillis, TimeUnit.MILLISECONDS);
+            try {
+                Path outputFolder = queue.createTemporaryOutputFolder(shard, workerId);
+                planShard(shard, outputFolder, database, pathFinder, consolidation, planCache, leaseLost);
+                renewal.cancel(false);
+                if (leaseLost.get() || !queue.complete(shard, outputFolder)) {
+                    System.err.println("The lease of " + shard.getName() + " expired, so its outputs are dropped");
+                } else {
+                    numberOfShards++;
+                    System.out.println(workerId + " finished " + shard.getName());
+                }
+            } catch (Exception e) {
+                renewal.cancel(false);
+                System.err.println(workerId + " failed on " + shard.getName() + ", which is given back");
+                e.printStackTrace();
+                queue.release(shard);
+            }
+        }
+        leaseRenewer.shutdown();
+        database.close();
+        System.out.println(workerId + " finished " + numberOfShards + " shards");
+    }
+
+
+    /**
+     * Helper method that plans every day of the given shard that has orders and writes its outputs in the given folder.
+     * @param shard the leased shard.
+     * @param outputFolder the folder the outputs of the shard are written in.
+     * @param database the Database from which we read the orders.
+     * @param pathFinder the PathFinder shared by every day.
+     * @param consolidation the consolidation settings of the plans, or null to do the orders one at a time.
+     * @param planCache the PlanCache the plans are restored from or stored in, or null to plan every day.
+     * @param leaseLost set once the lease of the shard has expired, after which the remaining days are not planned.
+     * @throws IOException if an output could not be written.
+     * @throws IllegalStateException if the route of a day is not valid, so that the shard is not completed.
+     */
+    private static void planShard(ShardQueue.Shard shard, Path outputFolder, Database database, PathFinder pathFinder,
+                                  ConsolidationSettings consolidation, PlanCache planCache, AtomicBoolean leaseLost)
+            throws IOException {
+        try (PrintWriter deliveries = new PrintWriter(Files.newBufferedWriter(outputFolder.resolve(DELIVERIES_FILE)));
+             PrintWriter flightpath = new PrintWriter(Files.newBufferedWriter(outputFolder.resolve(FLIGHTPATH_FILE)))) {
+            for (LocalDate date = shard.getFirstDate(); !date.isAfter(shard.getLastDate()) && !leaseLost.get();
+                 date = date.plusDays(1)) {
+                ArrayList<OrderDetails> listOrderDetails = database.getOrderDetails(date.toString());
+                if (listOrderDetails.isEmpty()) {
+                    continue;
+                }
+                OrderDetails.setOrderDetailsFields(listOrderDetails);
+                Drone drone = App.planOrRestore(listOrderDetails, pathFinder, consolidation, planCache);
+                if (!FlightPathValidator.validatePlan(drone, date.toString())) {
+                    throw new IllegalStateException("The route for " + date + " is not valid, so it is not written");
+                }
+
+                OutputFiles.writeGeoJSONFile(outputFolder, String.format("%02d", date.getDayOfMonth()),
+                        String.format("%02d", date.getMonthValue()), String.valueOf(date.getYear()), drone);
+                for (OrderDetails order : drone.getOrderDetailsToDo()) {
+                    deliveries.println(date + "," + order.getOrderNo() + "," + order.getDeliverTo() + "," + order.getPrice());
+                }
+                for (int i = 0; i < drone.getAngles().size(); i++) {
+                    LongLat from = drone.getRoute().get(i);
+                    LongLat to = drone.getRoute().get(i + 1);
+                    flightpath.println(date + "," + drone.getOrderNumbers().get(i) + "," + from.getLongitude() + ","
+                            + from.getLatitude() + "," + drone.getAngles().get(i) + "," + to.getLongitude() + ","
+                            + to.getLatitude());
+                }
+            }
+        }
+    }
+}
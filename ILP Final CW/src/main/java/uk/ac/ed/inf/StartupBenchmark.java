@@ -0,0 +1,156 @@
+package uk.ac.ed.inf;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class of the startup benchmark of the application, which measures the wall-clock time of whole {@link App} runs over a
+ * day of an offline folder, from the start of the process to its exit. It compares a plain JVM run of the shaded jar with
+ * a run using an AppCDS archive of the classes loaded by a training run, and with the native image of the application,
+ * when they are given. Every variant is run once to warm the file cache before it is measured, and the variants take
+ * turns so that a change of the load of the machine affects them alike.
+ */
+public class StartupBenchmark {
+
+    /** String representing the optional argument, followed by a number, that sets the number of measured runs */
+    private static final String RUNS_OPTION = "--runs";
+
+    /** String representing the optional argument, followed by a date in format YYYY-MM-DD, that sets the day planned */
+    private static final String DATE_OPTION = "--date";
+
+    /** String representing the optional argument, followed by a file, that adds a run using that AppCDS archive */
+    private static final String ARCHIVE_OPTION = "--archive";
+
+    /** String representing the optional argument, followed by a file, that adds a run of that native image */
+    private static final String NATIVE_OPTION = "--native";
+
+    /** Integer representing the default number of measured runs of every variant */
+    private static final int DEFAULT_RUNS = 10;
+
+    /** String representing the default day planned, the first day written by the {@link WorkloadGenerator} */
+    private static final String DEFAULT_DATE = "2022-01-01";
+
+
+    /**
+     * Main method that takes as user inputs the shaded jar of the application and the offline folder, and prints the
+     * median and the minimum time of the runs of every variant, with its speedup over the plain JVM run.
+     * @param args the arguments given by the user: the jar, the offline folder, and optionally {@value RUNS_OPTION}
+     *             followed by the number of measured runs, {@value DATE_OPTION} followed by the day planned,
+     *             {@value ARCHIVE_OPTION} followed by an AppCDS archive and {@value NATIVE_OPTION} followed by a native
+     *             image of the application.
+     * @throws IOException if a run could not be started or failed.
+     * @throws InterruptedException if the process was interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String jar = Paths.get(args[0]).toAbsolutePath().toString();
+        String offlineFolder = Paths.get(args[1]).toAbsolutePath().toString();
+        int runs = DEFAULT_RUNS;
+        LocalDate date = LocalDate.parse(DEFAULT_DATE);
+        String archive = null;
+        String nativeImage = null;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals(RUNS_OPTION)) {
+                runs = Integer.parseInt(args[++i]);
+            } else if (args[i].equals(DATE_OPTION)) {
+                date = LocalDate.parse(args[++i]);
+            } else if (args[i].equals(ARCHIVE_OPTION)) {
+                archive = Paths.get(args[++i]).toAbsolutePath().toString();
+            } else if (args[i].equals(NATIVE_OPTION)) {
+                nativeImage = Paths.get(args[++i]).toAbsolutePath().toString();
+            }
+        }
+
+        List<String> appArguments = List.of(String.format("%02d", date.getDayOfMonth()),
+                String.format("%02d", date.getMonthValue()), String.valueOf(date.getYear()), "9898", "9876",
+                App.OFFLINE_OPTION, offlineFolder);
+        String java = ProcessHandle.current().info().command()
+                .orElse(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        List<String> names = new ArrayList<>();
+        List<List<String>> commands = new ArrayList<>();
+        names.add("jvm");
+        commands.add(command(appArguments, java, "-Xshare:auto", "-jar", jar));
+        if (archive != null) {
+            names.add("jvm+appcds");
+            commands.add(command(appArguments, java, "-XX:SharedArchiveFile=" + archive, "-jar", jar));
+        }
+        if (nativeImage != null) {
+            names.add("native");
+            commands.add(command(appArguments, nativeImage));
+        }
+
+        // Every run writes its outputs to the same scratch folder, so that the working directory is left untouched
+        Path workingFolder = Files.createTempDirectory("startup-benchmark");
+        long[][] milliseconds = new long[commands.size()][runs];
+        for (int run = -1; run < runs; run++) {
+            for (int variant = 0; variant < commands.size(); variant++) {
+                long elapsed = time(commands.get(variant), workingFolder);
+                // The first round only warms the file cache
+                if (run >= 0) {
+                    milliseconds[variant][run] = elapsed;
+                }
+            }
+        }
+
+        long baselineMedian = median(milliseconds[0]);
+        for (int variant = 0; variant < commands.size(); variant++) {
+            long median = median(milliseconds[variant]);
+            System.out.println(String.format("%-12s median %5d ms, min %5d ms, %.2fx the jvm run", names.get(variant),
+                    median, Arrays.stream(milliseconds[variant]).min().orElse(0),
+                    median == 0 ? 0 : (double) baselineMedian / median));
+        }
+    }
+
+
+    /**
+     * Helper method that builds the command of a variant.
+     * @param appArguments the arguments of the application.
+     * @param launcher the executable and the arguments before the arguments of the application.
+     * @return the command.
+     */
+    private static List<String> command(List<String> appArguments, String... launcher) {
+        List<String> command = new ArrayList<>(Arrays.asList(launcher));
+        command.addAll(appArguments);
+        return command;
+    }
+
+    /**
+     * Helper method that runs the given command until it exits and returns its wall-clock time.
+     * @param command the command.
+     * @param workingFolder the working directory of the command.
+     * @return the number of milliseconds from the start of the process to its exit.
+     * @throws IOException if the process could not be started or exited with a status other than 0.
+     * @throws InterruptedException if the process was interrupted.
+     */
+    private static long time(List<String> command, Path workingFolder) throws IOException, InterruptedException {
+        long startTime = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(workingFolder.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        int exitValue = process.waitFor();
+        long elapsed = (System.nanoTime() - startTime) / 1_000_000;
+        if (exitValue != 0) {
+            throw new IOException(String.join(" ", command) + " exited with status " + exitValue);
+        }
+        return elapsed;
+    }
+
+    /**
+     * Helper method that returns the median of the given times.
+     * @param milliseconds the times.
+     * @return the median time.
+     */
+    private static long median(long[] milliseconds) {
+        long[] sorted = milliseconds.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -1,10 +1,21 @@
 package uk.ac.ed.inf;
 
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
 /**
  * Class that represents a location using the What3Words representation.
  */
 public class What3Words {
 
+    /** String representing the name of the field of the details of a What3Words location with its coordinates */
+    private static final String COORDINATES_FIELD = "coordinates";
+
+    /** Strings representing the names of the fields of the coordinates with the longitude and the latitude */
+    private static final String LONGITUDE_FIELD = "lng";
+    private static final String LATITUDE_FIELD = "lat";
+
     /** LongLat object representing the what3Words location */
     private LongLat coordinates;
 
@@ -17,4 +28,48 @@ public class What3Words {
     public void setCoordinates(LongLat coordinates) {
         this.coordinates = coordinates;
     }
+
+
+    /**
+     * Method that reads the coordinates from the details of a What3Words location, as given by the web server, without
+     * reading the fields that come after them or building a What3Words object.
+     * @param reader the JsonReader of the details, positioned before the details object.
+     * @return the LongLat location of the coordinates, or null if the details have no complete coordinates.
+     * @throws IOException if the details could not be read.
+     */
+    public static LongLat readCoordinates(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(COORDINATES_FIELD)) {
+                return readLongLat(reader);
+            }
+            reader.skipValue();
+        }
+        return null;
+    }
+
+    /**
+     * Helper method of the {@link #readCoordinates(JsonReader)} method that reads the longitude and the latitude of the
+     * coordinates object.
+     * @param reader the JsonReader, positioned before the coordinates object.
+     * @return the LongLat location, or null if the longitude or the latitude is missing.
+     * @throws IOException if the coordinates could not be read.
+     */
+    private static LongLat readLongLat(JsonReader reader) throws IOException {
+        Double longitude = null;
+        Double latitude = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals(LONGITUDE_FIELD)) {
+                longitude = reader.nextDouble();
+            } else if (name.equals(LATITUDE_FIELD)) {
+                latitude = reader.nextDouble();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return longitude == null || latitude == null ? null : new LongLat(longitude, latitude);
+    }
 }
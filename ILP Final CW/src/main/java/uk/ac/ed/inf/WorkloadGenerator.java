@@ -0,0 +1,416 @@
+package uk.ac.ed.inf;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Class of the synthetic workload generator, which writes a reproducible set of inputs for the planner: the rows of
+ * the orders and orderDetails tables, the menus.json file, a details.json file for every What3Words location, and the
+ * no-fly zones and landmarks. Every input is laid out as in the web server and the database, so the generated inputs
+ * can be served and loaded like the real ones, and the same seed and options always generate the same inputs.
+ */
+public class WorkloadGenerator {
+
+    /** String representing the option with the seed of the generator */
+    private static final String SEED_OPTION = "--seed";
+
+    /** String representing the option with the date of the first day of orders, in format YYYY-MM-DD */
+    private static final String FIRST_DATE_OPTION = "--first-date";
+
+    /** String representing the option with the number of days of orders */
+    private static final String DAYS_OPTION = "--days";
+
+    /** String representing the option with the number of orders of every day */
+    private static final String ORDERS_OPTION = "--orders";
+
+    /** String representing the option with the number of restaurants */
+    private static final String RESTAURANTS_OPTION = "--restaurants";
+
+    /** String representing the option with the maximum number of restaurants an order is picked up from */
+    private static final String RESTAURANTS_PER_ORDER_OPTION = "--restaurants-per-order";
+
+    /** String representing the option with the number of customer delivery locations */
+    private static final String LOCATIONS_OPTION = "--locations";
+
+    /** String representing the option with the number of no-fly zones */
+    private static final String ZONES_OPTION = "--zones";
+
+    /** String representing the option with the number of vertices of every no-fly zone */
+    private static final String ZONE_VERTICES_OPTION = "--zone-vertices";
+
+    /** String representing the option with the number of landmarks */
+    private static final String LANDMARKS_OPTION = "--landmarks";
+
+    /** Integer representing the maximum number of items of an order, as the drone can not carry more than that */
+    private static final int MAXIMUM_ITEMS_PER_ORDER = 4;
+
+    /** Integer representing the number of items of the menu of every restaurant */
+    private static final int ITEMS_PER_MENU = 6;
+
+    /** Double representing the largest radius in degrees of a no-fly zone */
+    private static final double MAXIMUM_ZONE_RADIUS = 0.0005;
+
+    /** Double representing the clearance in degrees kept between no-fly zones, and between them and the locations */
+    private static final double CLEARANCE = 0.0003;
+
+    /** Integer representing the number of attempts made to place a no-fly zone or a location before giving up */
+    private static final int MAXIMUM_ATTEMPTS = 10000;
+
+    /** Array of String representing the consonants used to build the What3Words words */
+    private static final String[] CONSONANTS = {"b", "d", "f", "g", "k", "l", "m", "n", "p", "r", "s", "t", "v", "z"};
+
+    /** Array of String representing the vowels used to build the What3Words words */
+    private static final String[] VOWELS = {"a", "e", "i", "o", "u"};
+
+    /** Random used for every random choice, created from the seed */
+    private final Random random;
+
+    /** Map with the value of every option, starting with the default ones */
+    private final Map<String, String> options;
+
+    /** ArrayList of the centres and radii of the no-fly zones placed so far, as {longitude, latitude, radius} */
+    private final ArrayList<double[]> zoneCircles = new ArrayList<>();
+
+    /** Set of the What3Words locations generated so far, so that no location is generated twice */
+    private final Set<String> usedWords = new HashSet<>();
+
+    /** Map where the keys are the generated What3Words locations and the values their coordinates */
+    private final Map<String, LongLat> locations = new HashMap<>();
+
+    /** Gson used to write the JSON files */
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+
+    /**
+     * Constructor of the WorkloadGenerator class.
+     * @param options the value of every option.
+     */
+    public WorkloadGenerator(Map<String, String> options) {
+        this.options = options;
+        this.random = new Random(getLongOption(SEED_OPTION));
+    }
+
+    /**
+     * Main method that takes as user inputs the folder where the inputs are written and, optionally, any of the
+     * options of the generator followed by its value. The folder gets the subfolders menus, words and buildings of the
+     * web server, and a database subfolder with the rows of the orders and orderDetails tables as .csv files and a
+     * load.sql script that creates and fills both tables from ij.
+     * @param args the arguments given by the user: the output folder, followed by pairs of option and value among
+     *             {@value SEED_OPTION}, {@value FIRST_DATE_OPTION}, {@value DAYS_OPTION}, {@value ORDERS_OPTION},
+     *             {@value RESTAURANTS_OPTION}, {@value RESTAURANTS_PER_ORDER_OPTION}, {@value LOCATIONS_OPTION},
+     *             {@value ZONES_OPTION}, {@value ZONE_VERTICES_OPTION} and {@value LANDMARKS_OPTION}.
+     * @throws IOException if the inputs could not be written.
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = getDefaultOptions();
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (!options.containsKey(args[i])) {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+            options.put(args[i], args[i + 1]);
+        }
+        new WorkloadGenerator(options).generate(Paths.get(args[0]));
+    }
+
+    /**
+     * Method that returns the default value of every option.
+     * @return a Map where the keys are the options and the values their default values.
+     */
+    public static Map<String, String> getDefaultOptions() {
+        Map<String, String> options = new HashMap<>();
+        options.put(SEED_OPTION, "1");
+        options.put(FIRST_DATE_OPTION, "2022-01-01");
+        options.put(DAYS_OPTION, "1");
+        options.put(ORDERS_OPTION, "20");
+        options.put(RESTAURANTS_OPTION, "8");
+        options.put(RESTAURANTS_PER_ORDER_OPTION, "2");
+        options.put(LOCATIONS_OPTION, "40");
+        options.put(ZONES_OPTION, "4");
+        options.put(ZONE_VERTICES_OPTION, "6");
+        options.put(LANDMARKS_OPTION, "2");
+        return options;
+    }
+
+    /**
+     * Method that generates every input and writes it in the given folder.
+     * @param outputFolder the folder where the inputs are written.
+     * @throws IOException if the inputs could not be written.
+     */
+    public void generate(Path outputFolder) throws IOException {
+        // The zones are placed first, so that every location is then placed away from them
+        List<Feature> zones = generateNoFlyZones();
+        List<Feature> landmarks = new ArrayList<>();
+        for (int i = 0; i < getIntOption(LANDMARKS_OPTION); i++) {
+            landmarks.add(Feature.fromGeometry(generateFreeLocation().toPoint()));
+        }
+        List<Restaurant> restaurants = generateRestaurants();
+        List<String> customerLocations = new ArrayList<>();
+        for (int i = 0; i < getIntOption(LOCATIONS_OPTION); i++) {
+            customerLocations.add(generateWhat3WordsLocation());
+        }
+
+        Path buildingsFolder = Files.createDirectories(outputFolder.resolve("buildings"));
+        writeFile(buildingsFolder.resolve("no-fly-zones.geojson"), FeatureCollection.fromFeatures(zones).toJson());
+        writeFile(buildingsFolder.resolve("landmarks.geojson"), FeatureCollection.fromFeatures(landmarks).toJson());
+
+        Path menusFolder = Files.createDirectories(outputFolder.resolve("menus"));
+        writeFile(menusFolder.resolve("menus.json"), gson.toJson(restaurants));
+
+        for (Map.Entry<String, LongLat> location : locations.entrySet()) {
+            writeDetailsFile(outputFolder.resolve("words"), location.getKey(), location.getValue());
+        }
+
+        writeOrders(Files.createDirectories(outputFolder.resolve(Database.OFFLINE_DATABASE_FOLDER)), restaurants,
+                customerLocations);
+        System.out.println("Generated " + zones.size() + " no-fly zones, " + restaurants.size() + " restaurants and "
+                + locations.size() + " locations in " + outputFolder);
+    }
+
+
+    /**
+     * Helper method that places the no-fly zones inside the confinement area, away from each other and from Appleton
+     * Tower. Every zone is a star-shaped polygon with the requested number of vertices, so that the number of vertices
+     * sets the complexity of the polygons.
+     * @return the no-fly zones as mapbox.geojson Features with a name.
+     */
+    private List<Feature> generateNoFlyZones() {
+        int numberOfZones = getIntOption(ZONES_OPTION);
+        int numberOfVertices = getIntOption(ZONE_VERTICES_OPTION);
+        double width = LongLat.EASTERN_LONGITUDE_CONFINEMENT_LIMIT - LongLat.WESTERN_LONGITUDE_CONFINEMENT_LIMIT;
+        double height = LongLat.NORTHERN_LATITUDE_CONFINEMENT_LIMIT - LongLat.SOUTHERN_LATITUDE_CONFINEMENT_LIMIT;
+        // The more zones, the smaller they are, so that they all fit with room to fly between them
+        double maximumRadius = Math.min(MAXIMUM_ZONE_RADIUS, 0.3 * Math.sqrt(width * height / numberOfZones));
+
+        List<Feature> zones = new ArrayList<>();
+        for (int attempt = 0; zones.size() < numberOfZones && attempt < MAXIMUM_ATTEMPTS; attempt++) {
+            double radius = maximumRadius * (0.5 + 0.5 * random.nextDouble());
+            LongLat centre = generateLocation(radius + CLEARANCE);
+            if (centre.distanceTo(Drone.APPLETON_TOWER_COORDINATES) < radius + CLEARANCE
+                    || !isAwayFromZones(centre, radius + CLEARANCE)) {
+                continue;
+            }
+            zoneCircles.add(new double[]{centre.getLongitude(), centre.getLatitude(), radius});
+
+            List<Point> vertices = new ArrayList<>();
+            for (int i = 0; i < numberOfVertices; i++) {
+                double angle = 2 * Math.PI * (i + 0.8 * random.nextDouble()) / numberOfVertices;
+                double vertexRadius = radius * (0.5 + 0.5 * random.nextDouble());
+                vertices.add(new LongLat(centre.getLongitude() + vertexRadius * Math.cos(angle),
+                        centre.getLatitude() + vertexRadius * Math.sin(angle)).toPoint());
+            }
+            vertices.add(vertices.get(0));
+            Feature zone = Feature.fromGeometry(Polygon.fromLngLats(List.of(vertices)));
+            zone.addStringProperty("name", "Zone " + (zones.size() + 1));
+            zone.addStringProperty("fill", "#ff0000");
+            zones.add(zone);
+        }
+        if (zones.size() < numberOfZones) {
+            System.err.println("Only " + zones.size() + " of the " + numberOfZones + " no-fly zones fit");
+        }
+        return zones;
+    }
+
+    /**
+     * Helper method that generates the restaurants, each with its own What3Words location and a menu of
+     * {@value ITEMS_PER_MENU} items with unique names.
+     * @return the restaurants.
+     */
+    private List<Restaurant> generateRestaurants() {
+        List<Restaurant> restaurants = new ArrayList<>();
+        for (int i = 1; i <= getIntOption(RESTAURANTS_OPTION); i++) {
+            List<MenuItem> menu = new ArrayList<>();
+            for (int j = 1; j <= ITEMS_PER_MENU; j++) {
+                menu.add(new MenuItem("Item " + j + " of restaurant " + i, 100 + 10 * random.nextInt(200)));
+            }
+            restaurants.add(new Restaurant("Restaurant " + i, generateWhat3WordsLocation(), menu));
+        }
+        return restaurants;
+    }
+
+    /**
+     * Helper method that writes the rows of the orders and orderDetails tables for every day, and the load.sql script
+     * that creates both tables and imports the rows.
+     * @param databaseFolder the folder where the rows and the script are written.
+     * @param restaurants the restaurants the items of the orders are picked from.
+     * @param customerLocations the What3Words locations the orders are delivered to.
+     * @throws IOException if the files could not be written.
+     */
+    private void writeOrders(Path databaseFolder, List<Restaurant> restaurants, List<String> customerLocations)
+            throws IOException {
+        StringBuilder ordersRows = new StringBuilder();
+        StringBuilder orderDetailsRows = new StringBuilder();
+        int maximumRestaurantsPerOrder = Math.min(getIntOption(RESTAURANTS_PER_ORDER_OPTION), restaurants.size());
+        LocalDate firstDate = LocalDate.parse(options.get(FIRST_DATE_OPTION));
+        Set<String> orderNumbers = new HashSet<>();
+
+        for (int day = 0; day < getIntOption(DAYS_OPTION); day++) {
+            LocalDate date = firstDate.plusDays(day);
+            for (int i = 0; i < getIntOption(ORDERS_OPTION); i++) {
+                String orderNo;
+                do {
+                    orderNo = String.format("%08x", random.nextInt());
+                } while (!orderNumbers.add(orderNo));
+                String customer = String.format("s%07d", random.nextInt(10_000_000));
+                String deliverTo = customerLocations.get(random.nextInt(customerLocations.size()));
+                ordersRows.append(orderNo).append(',').append(date).append(',').append(customer).append(",\"")
+                        .append(deliverTo).append("\"\n");
+
+                List<Restaurant> orderRestaurants = new ArrayList<>(restaurants);
+                Collections.shuffle(orderRestaurants, random);
+                int numberOfRestaurants = 1 + random.nextInt(maximumRestaurantsPerOrder);
+                int numberOfItems = numberOfRestaurants + random.nextInt(MAXIMUM_ITEMS_PER_ORDER - numberOfRestaurants + 1);
+                for (int j = 0; j < numberOfItems; j++) {
+                    // Every restaurant of the order gets at least one item
+                    Restaurant restaurant = orderRestaurants.get(j < numberOfRestaurants ? j : random.nextInt(numberOfRestaurants));
+                    List<String> items = new ArrayList<>(restaurant.getMenuHashmap().keySet());
+                    Collections.sort(items);
+                    orderDetailsRows.append(orderNo).append(",\"").append(items.get(random.nextInt(items.size())))
+                            .append("\"\n");
+                }
+            }
+        }
+
+        Path ordersFile = databaseFolder.resolve(Database.ORDERS_FILE).toAbsolutePath();
+        Path orderDetailsFile = databaseFolder.resolve(Database.ORDER_DETAILS_FILE).toAbsolutePath();
+        writeFile(ordersFile, ordersRows.toString());
+        writeFile(orderDetailsFile, orderDetailsRows.toString());
+        writeFile(databaseFolder.resolve("load.sql"),
+                "-- Run from ij once connected to the database, for example to jdbc:derby://localhost:1527/derbyDB;create=true\n"
+                + Database.CREATE_ORDERS_TABLE + ";\n"
+                + Database.CREATE_ORDER_DETAILS_TABLE + ";\n"
+                + "call SYSCS_UTIL.SYSCS_IMPORT_TABLE(null, 'ORDERS', '" + ordersFile + "', null, null, null, 0);\n"
+                + "call SYSCS_UTIL.SYSCS_IMPORT_TABLE(null, 'ORDERDETAILS', '" + orderDetailsFile + "', null, null, null, 0);\n");
+    }
+
+    /**
+     * Helper method that writes the details.json file of a What3Words location in the words folder, in the folder
+     * given by its three words.
+     * @param wordsFolder the words folder.
+     * @param words the What3Words location.
+     * @param coordinates the coordinates of the location.
+     * @throws IOException if the file could not be written.
+     */
+    private void writeDetailsFile(Path wordsFolder, String words, LongLat coordinates) throws IOException {
+        Path folder = Files.createDirectories(wordsFolder.resolve(words.replace('.', '/')));
+        JsonObject details = new JsonObject();
+        details.addProperty("country", "GB");
+        details.addProperty("nearestPlace", "Edinburgh");
+        details.add("coordinates", gson.toJsonTree(coordinates));
+        details.addProperty("words", words);
+        details.addProperty("language", "en");
+        writeFile(folder.resolve("details.json"), gson.toJson(details));
+    }
+
+    /**
+     * Helper method that generates a new What3Words location, placed in a random location away from the no-fly zones.
+     * @return the new What3Words location.
+     */
+    private String generateWhat3WordsLocation() {
+        String words;
+        do {
+            words = generateWord() + "." + generateWord() + "." + generateWord();
+        } while (!usedWords.add(words));
+        locations.put(words, generateFreeLocation());
+        return words;
+    }
+
+    /**
+     * Helper method that generates a word of two syllables, so that every What3Words location fits in the deliverTo
+     * column of the orders table.
+     * @return the new word.
+     */
+    private String generateWord() {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 2; i++) {
+            word.append(CONSONANTS[random.nextInt(CONSONANTS.length)]).append(VOWELS[random.nextInt(VOWELS.length)]);
+        }
+        return word.toString();
+    }
+
+    /**
+     * Helper method that generates a random location inside the confinement area, away from every no-fly zone.
+     * @return the location.
+     */
+    private LongLat generateFreeLocation() {
+        for (int attempt = 0; attempt < MAXIMUM_ATTEMPTS; attempt++) {
+            LongLat location = generateLocation(CLEARANCE);
+            if (isAwayFromZones(location, CLEARANCE)) {
+                return location;
+            }
+        }
+        throw new IllegalStateException("There is no room left for a location away from the no-fly zones");
+    }
+
+    /**
+     * Helper method that generates a random location inside the confinement area, at least the given margin away from
+     * its limits. The coordinates are rounded to 6 decimal places, as in the real inputs.
+     * @param margin the distance in degrees kept from the limits of the confinement area.
+     * @return the location.
+     */
+    private LongLat generateLocation(double margin) {
+        double west = LongLat.WESTERN_LONGITUDE_CONFINEMENT_LIMIT + margin;
+        double east = LongLat.EASTERN_LONGITUDE_CONFINEMENT_LIMIT - margin;
+        double south = LongLat.SOUTHERN_LATITUDE_CONFINEMENT_LIMIT + margin;
+        double north = LongLat.NORTHERN_LATITUDE_CONFINEMENT_LIMIT - margin;
+        double longitude = west + random.nextDouble() * Math.max(0, east - west);
+        double latitude = south + random.nextDouble() * Math.max(0, north - south);
+        return new LongLat(Math.round(longitude * 1e6) / 1e6, Math.round(latitude * 1e6) / 1e6);
+    }
+
+    /**
+     * Helper method that returns true if the given location is at least the given distance away from the bounding
+     * circle of every no-fly zone placed so far.
+     * @param location the location we want to check.
+     * @param distance the distance in degrees that must be kept from the no-fly zones.
+     * @return true if the location is away from every no-fly zone, false otherwise.
+     */
+    private boolean isAwayFromZones(LongLat location, double distance) {
+        for (double[] zoneCircle : zoneCircles) {
+            LongLat centre = new LongLat(zoneCircle[0], zoneCircle[1]);
+            if (location.distanceTo(centre) < zoneCircle[2] + distance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Helper method that writes the given content to the given file.
+     * @param file the file to write.
+     * @param content the content of the file.
+     * @throws IOException if the file could not be written.
+     */
+    private static void writeFile(Path file, String content) throws IOException {
+        FileWriter writer = new FileWriter(file.toFile());
+        writer.write(content);
+        writer.close();
+    }
+
+    private int getIntOption(String option) {
+        return Integer.parseInt(options.get(option));
+    }
+
+    private long getLongOption(String option) {
+        return Long.parseLong(options.get(option));
+    }
+}
@@ -0,0 +1,84 @@
+package uk.ac.ed.inf;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Class of the tests of the geometric predicates of the {@link FlightPathValidator}.
+ */
+public class FlightPathValidatorTest {
+
+    /**
+     * Test that the orientation is positive to the left of a line, negative to its right and zero on it.
+     */
+    @Test
+    public void orientationOfPointsAroundALine() {
+        assertEquals(1, FlightPathValidator.orientation(0, 0, 1, 0, 0.5, 1));
+        assertEquals(-1, FlightPathValidator.orientation(0, 0, 1, 0, 0.5, -1));
+        assertEquals(0, FlightPathValidator.orientation(0, 0, 1, 0, 2, 0));
+        assertEquals(0, FlightPathValidator.orientation(-3.19, 55.94, -3.19, 55.95, -3.19, 55.9451));
+    }
+
+    /**
+     * Test that the orientation of points too close to the line for doubles to be trusted is computed exactly.
+     */
+    @Test
+    public void orientationCloseToTheLineIsExact() {
+        double ax = -3.192473;
+        double ay = 55.946233;
+        double bx = -3.184319;
+        double by = 55.942617;
+        // The midpoint of the segment, and the same point moved by the smallest step to either side of the line
+        double cx = (ax + bx) / 2;
+        double cy = (ay + by) / 2;
+        int orientation = FlightPathValidator.orientation(ax, ay, bx, by, cx, cy);
+        assertEquals(-orientation, FlightPathValidator.orientation(bx, by, ax, ay, cx, cy));
+        assertEquals(1, FlightPathValidator.orientation(ax, ay, bx, by, cx, Math.nextUp(Math.nextUp(cy))));
+        assertEquals(-1, FlightPathValidator.orientation(ax, ay, bx, by, cx, Math.nextDown(Math.nextDown(cy))));
+    }
+
+    /**
+     * Test that crossing segments touch, and that parallel and separate segments do not.
+     */
+    @Test
+    public void segmentsTouchWhenTheyCross() {
+        assertTrue(FlightPathValidator.segmentsTouch(0, 0, 2, 2, 0, 2, 2, 0));
+        assertFalse(FlightPathValidator.segmentsTouch(0, 0, 2, 0, 0, 1, 2, 1));
+        assertFalse(FlightPathValidator.segmentsTouch(0, 0, 1, 1, 2, 0, 3, -1));
+    }
+
+    /**
+     * Test the segments on vertical edges, where the slope of the edge is infinite.
+     */
+    @Test
+    public void segmentsTouchOnVerticalEdges() {
+        // A horizontal move across a vertical edge
+        assertTrue(FlightPathValidator.segmentsTouch(-1, 1, 1, 1, 0, 0, 0, 2));
+        // A move ending exactly on a vertical edge
+        assertTrue(FlightPathValidator.segmentsTouch(-1, 1, 0, 1, 0, 0, 0, 2));
+        // A move stopping just short of a vertical edge
+        assertFalse(FlightPathValidator.segmentsTouch(-1, 1, -0.0001, 1, 0, 0, 0, 2));
+        // A move passing above the end of a vertical edge
+        assertFalse(FlightPathValidator.segmentsTouch(-1, 3, 1, 3, 0, 0, 0, 2));
+        // Two vertical segments on the same line, apart and then overlapping
+        assertFalse(FlightPathValidator.segmentsTouch(0, 3, 0, 4, 0, 0, 0, 2));
+        assertTrue(FlightPathValidator.segmentsTouch(0, 1, 0, 4, 0, 0, 0, 2));
+        // Two vertical segments on parallel lines
+        assertFalse(FlightPathValidator.segmentsTouch(1, 0, 1, 2, 0, 0, 0, 2));
+    }
+
+    /**
+     * Test the segments on the same line, which only touch if they overlap or share an end.
+     */
+    @Test
+    public void segmentsTouchOnCollinearEdges() {
+        assertTrue(FlightPathValidator.segmentsTouch(0, 0, 2, 2, 1, 1, 3, 3));
+        assertTrue(FlightPathValidator.segmentsTouch(0, 0, 1, 1, 1, 1, 3, 3));
+        assertTrue(FlightPathValidator.segmentsTouch(0, 0, 3, 3, 1, 1, 2, 2));
+        assertFalse(FlightPathValidator.segmentsTouch(0, 0, 1, 1, 2, 2, 3, 3));
+        assertFalse(FlightPathValidator.segmentsTouch(0, 0, 1, 0, 2, 0, 3, 0));
+    }
+}
@@ -0,0 +1,274 @@
+package uk.ac.ed.inf;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.LineString;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Class of the regression suite of the planner, which replans every reference day of a folder of golden .geojson
+ * files, such as the drone-DD-MM-YYYY.geojson files of the golden fixture folder, from the inputs of an offline folder.
+ * For every day, the new plan is compared with the golden route on its number of moves, and with a baseline file on
+ * the number of orders delivered, the percentage monetary value, the planning time and the allocated memory. The suite
+ * fails when any day gets a worse plan or exceeds its allocation budget or its time budget, so that a change to the
+ * planner can not make the plans worse or slower without being noticed. The time budget can be turned off with a
+ * factor of {@value NO_TIME_BUDGET}, so that the planning time is only printed. {@link GoldenRegressionTest} runs the suite on the golden fixture folder, and the
+ * baseline file is written by running this class with {@value RECORD_OPTION}.
+ */
+public class GoldenRegression {
+
+    /** Pattern of the name of the golden .geojson files, whose groups are the day, the month and the year */
+    private static final Pattern GOLDEN_FILE_PATTERN = Pattern.compile("drone-(\\d{2})-(\\d{2})-(\\d{4})\\.geojson");
+
+    /** String representing the optional argument that writes the baseline file instead of checking it */
+    private static final String RECORD_OPTION = "--record";
+
+    /** String representing the optional argument, followed by a factor, that sets the time budget of every day */
+    private static final String TIME_BUDGET_OPTION = "--time-budget";
+
+    /** Double representing the default factor of the baseline planning time every day is allowed to take */
+    private static final double DEFAULT_TIME_BUDGET_FACTOR = 2.0;
+
+    /** Double representing the factor of the time budget with which the planning time is printed but not checked */
+    static final double NO_TIME_BUDGET = 0;
+
+    /** Double representing the factor of the baseline allocated bytes every day is allowed to allocate, as the bytes
+     * allocated by the same plan vary by a few percent from run to run with the work of the compiler */
+    private static final double ALLOCATION_BUDGET_FACTOR = 1.5;
+
+    /** Long representing the milliseconds every day is allowed to take on top of its budget, so that the budget of the
+     * days planned in a few milliseconds is not broken by the noise of the timer and the garbage collector */
+    private static final long TIME_BUDGET_SLACK_MS = 50;
+
+    /** Double representing the largest difference between two percentage monetary values considered equal */
+    private static final double MONETARY_VALUE_TOLERANCE = 1e-9;
+
+    /** Strings representing the properties of every day in the baseline file */
+    private static final String MOVES = "moves";
+    private static final String ORDERS_DELIVERED = "ordersDelivered";
+    private static final String PERCENTAGE_MONETARY_VALUE = "percentageMonetaryValue";
+    private static final String PLANNING_MILLISECONDS = "planningMilliseconds";
+    private static final String ALLOCATED_BYTES = "allocatedBytes";
+
+
+    /**
+     * Main method that takes as user inputs the offline folder the days are replanned from, the folder with the golden
+     * .geojson files and the baseline file, and replans every golden day. It exits with status 1 if any day regressed.
+     * @param args the arguments given by the user: the offline folder, the golden folder, the baseline file, and
+     *             optionally {@value RECORD_OPTION} to write the baseline file from this run, and
+     *             {@value TIME_BUDGET_OPTION} followed by the factor of the baseline planning time every day is allowed
+     *             to take, or {@value NO_TIME_BUDGET} to only print the planning time.
+     * @throws IOException if a golden file or the baseline file could not be read or written.
+     * @throws InterruptedException if the process was interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path offlineFolder = Paths.get(args[0]);
+        Path goldenFolder = Paths.get(args[1]);
+        Path baselineFile = Paths.get(args[2]);
+        boolean record = false;
+        double timeBudgetFactor = DEFAULT_TIME_BUDGET_FACTOR;
+        for (int i = 3; i < args.length; i++) {
+            if (args[i].equals(RECORD_OPTION)) {
+                record = true;
+            } else if (args[i].equals(TIME_BUDGET_OPTION)) {
+                timeBudgetFactor = Double.parseDouble(args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        ArrayList<String> regressions = findRegressions(offlineFolder, goldenFolder, baselineFile, record,
+                timeBudgetFactor);
+        if (!regressions.isEmpty()) {
+            System.err.println(regressions.size() + " regressions:");
+            regressions.forEach(regression -> System.err.println("  " + regression));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Method that replans every golden day of the golden folder, and either compares the new plans with the golden
+     * routes and the baseline file, or writes the baseline file from them.
+     * @param offlineFolder the offline folder the days are replanned from.
+     * @param goldenFolder the folder with the golden .geojson files.
+     * @param baselineFile the baseline file.
+     * @param record true to write the baseline file from this run instead of checking it.
+     * @param timeBudgetFactor the factor of the baseline planning time every day is allowed to take, or
+     *                         {@value NO_TIME_BUDGET} to only print the planning time.
+     * @return a line for every check a day failed, which is empty if no day regressed or the baseline was recorded.
+     * @throws IOException if a golden file or the baseline file could not be read or written.
+     * @throws InterruptedException if the thread was interrupted while reading the inputs.
+     */
+    static ArrayList<String> findRegressions(Path offlineFolder, Path goldenFolder, Path baselineFile, boolean record,
+                                             double timeBudgetFactor) throws IOException, InterruptedException {
+        App.setOfflineFolder(offlineFolder);
+        Map<LocalDate, Integer> goldenMoves = readGoldenMoves(goldenFolder);
+        JsonObject baseline = record || !Files.exists(baselineFile)
+                ? new JsonObject()
+                : JsonParser.parseString(Files.readString(baselineFile)).getAsJsonObject();
+
+        ArrayList<String> regressions = new ArrayList<>();
+        if (goldenMoves.isEmpty()) {
+            regressions.add("There are no golden days in " + goldenFolder);
+            return regressions;
+        }
+        Database database = new Database();
+        ArrayList<ArrayList<LongLat>> noFlyZonesPoints = HTTPClient.getNoFlyZones().getNoFlyZonesPoints();
+        ArrayList<LongLat> landmarks = HTTPClient.getLandmarks();
+
+        JsonObject results = new JsonObject();
+        for (Map.Entry<LocalDate, Integer> golden : goldenMoves.entrySet()) {
+            String date = golden.getKey().toString();
+            ArrayList<OrderDetails> listOrderDetails = database.getOrderDetails(date);
+            if (listOrderDetails.isEmpty()) {
+                regressions.add(date + ": there are no orders in the offline folder");
+                continue;
+            }
+            OrderDetails.setOrderDetailsFields(listOrderDetails);
+            JsonObject result = planDay(listOrderDetails, new PathFinder(noFlyZonesPoints, landmarks));
+            results.add(date, result);
+            if (!record) {
+                JsonObject expected = baseline.has(date) ? baseline.getAsJsonObject(date) : null;
+                checkDay(date, result, golden.getValue(), expected, timeBudgetFactor, regressions);
+            }
+        }
+        database.close();
+
+        if (record) {
+            FileWriter writer = new FileWriter(baselineFile.toFile());
+            writer.write(new GsonBuilder().setPrettyPrinting().create().toJson(results));
+            writer.close();
+            System.out.println("Recorded the baseline of " + results.size() + " days in " + baselineFile);
+        } else if (regressions.isEmpty()) {
+            System.out.println("No regressions over " + goldenMoves.size() + " days");
+        }
+        return regressions;
+    }
+
+
+    /**
+     * Helper method that reads the number of moves of the golden route of every day of the golden folder, which is the
+     * number of points of the LineString of its .geojson file minus the starting point.
+     * @param goldenFolder the folder with the golden .geojson files.
+     * @return a map from the date of every golden day, in chronological order, to the number of moves of its route.
+     * @throws IOException if a golden file could not be read.
+     */
+    private static Map<LocalDate, Integer> readGoldenMoves(Path goldenFolder) throws IOException {
+        Map<LocalDate, Integer> goldenMoves = new TreeMap<>();
+        try (DirectoryStream<Path> goldenFiles = Files.newDirectoryStream(goldenFolder)) {
+            for (Path goldenFile : goldenFiles) {
+                Matcher matcher = GOLDEN_FILE_PATTERN.matcher(goldenFile.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                LocalDate date = LocalDate.of(Integer.parseInt(matcher.group(3)), Integer.parseInt(matcher.group(2)),
+                        Integer.parseInt(matcher.group(1)));
+                FeatureCollection featureCollection = FeatureCollection.fromJson(Files.readString(goldenFile));
+                Feature feature = featureCollection.features().get(0);
+                goldenMoves.put(date, ((LineString) feature.geometry()).coordinates().size() - 1);
+            }
+        }
+        return goldenMoves;
+    }
+
+    /**
+     * Helper method that plans a day with the given PathFinder, and measures the time the planning takes and the bytes
+     * it allocates on the current thread.
+     * @param listOrderDetails the orders of the day.
+     * @param pathFinder a PathFinder that has not computed any leg yet, so that every day is timed the same way.
+     * @return a JSON object with the number of moves, the number of orders delivered, the percentage monetary value,
+     * the planning time and the allocated bytes of the plan.
+     */
+    private static JsonObject planDay(ArrayList<OrderDetails> listOrderDetails, PathFinder pathFinder) {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        long startTime = System.nanoTime();
+        Drone drone = new Drone(listOrderDetails, pathFinder);
+        long elapsedMilliseconds = (System.nanoTime() - startTime) / 1_000_000;
+        long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+        JsonObject result = new JsonObject();
+        result.addProperty(MOVES, drone.getRoute().size() - 1);
+        result.addProperty(ORDERS_DELIVERED, drone.getOrderDetailsToDo().size());
+        result.addProperty(PERCENTAGE_MONETARY_VALUE, drone.getPercentageMonetaryValue());
+        result.addProperty(PLANNING_MILLISECONDS, elapsedMilliseconds);
+        result.addProperty(ALLOCATED_BYTES, allocatedBytes);
+        return result;
+    }
+
+    /**
+     * Helper method that compares the new plan of a day with its golden route and its baseline, and adds a line to the
+     * regressions for every check the plan fails. A plan regresses if it breaks the limit of moves, if it delivers
+     * fewer orders or a lower percentage monetary value than the baseline, if it uses more moves than the golden route
+     * without a higher percentage monetary value, if it allocates more than the allocation budget, or if it takes longer
+     * than the time budget.
+     * @param date the date of the day.
+     * @param result the new plan of the day, as returned by {@link #planDay}.
+     * @param goldenMoves the number of moves of the golden route of the day.
+     * @param expected the baseline of the day, or null if the day is not in the baseline file.
+     * @param timeBudgetFactor the factor of the baseline planning time the day is allowed to take, or
+     *                         {@value NO_TIME_BUDGET} to only print the planning time.
+     * @param regressions the list the regressions found are added to.
+     */
+    private static void checkDay(String date, JsonObject result, int goldenMoves, JsonObject expected,
+                                 double timeBudgetFactor, ArrayList<String> regressions) {
+        int moves = result.get(MOVES).getAsInt();
+        int ordersDelivered = result.get(ORDERS_DELIVERED).getAsInt();
+        double percentageMonetaryValue = result.get(PERCENTAGE_MONETARY_VALUE).getAsDouble();
+        long planningMilliseconds = result.get(PLANNING_MILLISECONDS).getAsLong();
+        long allocatedBytes = result.get(ALLOCATED_BYTES).getAsLong();
+        System.out.println(date + ": " + moves + " moves (golden " + goldenMoves + "), " + ordersDelivered
+                + " orders, value " + percentageMonetaryValue + ", " + planningMilliseconds + " ms, "
+                + allocatedBytes + " bytes allocated");
+
+        if (moves > Drone.MAXIMUM_NUMBER_OF_MOVES) {
+            regressions.add(date + ": " + moves + " moves, over the limit of " + Drone.MAXIMUM_NUMBER_OF_MOVES);
+        }
+        if (expected == null) {
+            regressions.add(date + ": not in the baseline file, record it with " + RECORD_OPTION);
+            return;
+        }
+        int expectedOrders = expected.get(ORDERS_DELIVERED).getAsInt();
+        double expectedValue = expected.get(PERCENTAGE_MONETARY_VALUE).getAsDouble();
+        long expectedMilliseconds = expected.get(PLANNING_MILLISECONDS).getAsLong();
+        long expectedBytes = expected.get(ALLOCATED_BYTES).getAsLong();
+        if (ordersDelivered < expectedOrders) {
+            regressions.add(date + ": " + ordersDelivered + " orders delivered, baseline " + expectedOrders);
+        }
+        if (percentageMonetaryValue < expectedValue - MONETARY_VALUE_TOLERANCE) {
+            regressions.add(date + ": value " + percentageMonetaryValue + ", baseline " + expectedValue);
+        }
+        if (moves > goldenMoves && percentageMonetaryValue <= expectedValue + MONETARY_VALUE_TOLERANCE) {
+            regressions.add(date + ": " + moves + " moves for the same value, golden route " + goldenMoves);
+        }
+        long allocationBudget = (long) (expectedBytes * ALLOCATION_BUDGET_FACTOR);
+        if (allocatedBytes > allocationBudget) {
+            regressions.add(date + ": allocated " + allocatedBytes + " bytes, budget " + allocationBudget + " bytes");
+        }
+        if (timeBudgetFactor == NO_TIME_BUDGET) {
+            return;
+        }
+        long timeBudget = (long) (expectedMilliseconds * timeBudgetFactor) + TIME_BUDGET_SLACK_MS;
+        if (planningMilliseconds > timeBudget) {
+            regressions.add(date + ": planned in " + planningMilliseconds + " ms, budget " + timeBudget + " ms");
+        }
+    }
+}
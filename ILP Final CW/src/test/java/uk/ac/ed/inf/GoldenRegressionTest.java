@@ -0,0 +1,43 @@
+package uk.ac.ed.inf;
+
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Class of the test that runs the {@link GoldenRegression} suite on the golden fixture folder. The folder holds three
+ * days of inputs generated by {@link WorkloadGenerator} with its default options and --days 3, the routes planned
+ * from them as the golden .geojson files, and the baseline recorded from those plans. The planning time is only
+ * printed, as it depends on the machine and on what else runs on it, unless a time budget is set with the system
+ * property {@value TIME_BUDGET_PROPERTY}, for example with mvn test -Dgolden.timeBudget=5.
+ */
+public class GoldenRegressionTest {
+
+    /** String representing the resource folder of the golden fixture */
+    private static final String GOLDEN_FOLDER = "/golden";
+
+    /** String representing the system property with the factor of the baseline planning time every day is allowed to
+     * take */
+    private static final String TIME_BUDGET_PROPERTY = "golden.timeBudget";
+
+
+    /**
+     * Test that replans every golden day and checks that none of them regressed.
+     * @throws Exception if the fixture could not be read.
+     */
+    @Test
+    public void noGoldenDayRegresses() throws Exception {
+        assertNotNull("The golden fixture is missing", GoldenRegressionTest.class.getResource(GOLDEN_FOLDER));
+        Path goldenFolder = Paths.get(GoldenRegressionTest.class.getResource(GOLDEN_FOLDER).toURI());
+        double timeBudgetFactor = Double.parseDouble(System.getProperty(TIME_BUDGET_PROPERTY,
+                String.valueOf(GoldenRegression.NO_TIME_BUDGET)));
+        ArrayList<String> regressions = GoldenRegression.findRegressions(goldenFolder.resolve("inputs"), goldenFolder,
+                goldenFolder.resolve("baseline.json"), false, timeBudgetFactor);
+        assertEquals("Regressions: " + regressions, 0, regressions.size());
+    }
+}
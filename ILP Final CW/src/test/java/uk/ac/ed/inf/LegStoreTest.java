@@ -0,0 +1,171 @@
+package uk.ac.ed.inf;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Class of the tests of the {@link LegStore}, which check that every kind of leg read back from the file, after the
+ * file is closed and opened again, is the leg that was stored, and that a file is only open in one store at a time.
+ */
+public class LegStoreTest {
+
+    /** Long representing the fingerprint every leg of the tests is stored under */
+    private static final long FINGERPRINT = 42L;
+
+    /** LongLat representing the origin of the legs of the tests */
+    private static final LongLat ORIGIN = new LongLat(-3.1869, 55.9445);
+
+    /** LongLat representing the destination of the legs of the tests */
+    private static final LongLat DESTINATION = new LongLat(-3.1862, 55.9447);
+
+    /** Folder the store files of the tests are created in */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    /**
+     * Test that a leg flown straight to its destination, hovering at the end, is read back with the same moves.
+     * @throws Exception if the store could not be written or read.
+     */
+    @Test
+    public void directLegRoundTrip() throws Exception {
+        LegResult leg = fly(ORIGIN, List.of(0, 0, 10, 10, 10, LongLat.HOVERING_ANGLE), -1);
+        LegResult readLeg = roundTrip(leg, new ArrayList<>());
+
+        assertEquals(LegResult.Status.DIRECT, readLeg.getStatus());
+        assertEquals(leg.getAngles(), readLeg.getAngles());
+        assertEquals(leg.getMoves(), readLeg.getMoves());
+        assertEquals(leg.getNumberOfMoves(), readLeg.getNumberOfMoves());
+    }
+
+    /**
+     * Test that a leg flown through a landmark is read back with the same moves and landmark, the moves after the
+     * landmark being replayed from where the drone got close to it.
+     * @throws Exception if the store could not be written or read.
+     */
+    @Test
+    public void landmarkLegRoundTrip() throws Exception {
+        ArrayList<LongLat> landmarks = new ArrayList<>(List.of(new LongLat(-3.1900, 55.9430),
+                new LongLat(-3.1866, 55.9449)));
+        LegResult leg = fly(ORIGIN, List.of(60, 60, 60, 350, 350, LongLat.HOVERING_ANGLE), 3);
+        LegResult readLeg = roundTrip(leg, landmarks);
+
+        assertEquals(LegResult.Status.THROUGH_LANDMARK, readLeg.getStatus());
+        assertEquals(1, readLeg.getLandmarkIndex());
+        assertEquals(3, readLeg.getMovesToLandmark());
+        assertEquals(leg.getAngles(), readLeg.getAngles());
+        assertEquals(leg.getMoves(), readLeg.getMoves());
+        assertEquals(readLeg.getMoves().get(2).nextPosition(350), readLeg.getMoves().get(3));
+    }
+
+    /**
+     * Test that a leg through a landmark whose index does not fit in a byte is read back with the same landmark.
+     * @throws Exception if the store could not be written or read.
+     */
+    @Test
+    public void landmarkIndexOverAByteRoundTrip() throws Exception {
+        ArrayList<LongLat> landmarks = new ArrayList<>();
+        for (int i = 0; i <= 200; i++) {
+            landmarks.add(new LongLat(-3.1900 + i * 1e-5, 55.9430));
+        }
+        LegResult leg = fly(ORIGIN, List.of(60, 60, LongLat.HOVERING_ANGLE), -1);
+        LegResult readLeg = roundTrip(LegResult.throughLandmark(leg.getMoves(), leg.getAngles(), 200, 2), landmarks);
+
+        assertEquals(LegResult.Status.THROUGH_LANDMARK, readLeg.getStatus());
+        assertEquals(200, readLeg.getLandmarkIndex());
+        assertEquals(2, readLeg.getMovesToLandmark());
+    }
+
+    /**
+     * Test that a file already open in a store is not opened in a second one.
+     * @throws Exception if the file is opened in a second store, which is expected.
+     */
+    @Test(expected = IOException.class)
+    public void aStoreIsOnlyOpenOnce() throws Exception {
+        Path file = temporaryFolder.newFolder().toPath().resolve("legs.store");
+        try (LegStore legStore = LegStore.open(file)) {
+            LegStore.open(file).close();
+        }
+    }
+
+    /**
+     * Test that a leg whose destination can not be reached is read back as unreachable.
+     * @throws Exception if the store could not be written or read.
+     */
+    @Test
+    public void unreachableLegRoundTrip() throws Exception {
+        LegResult readLeg = roundTrip(LegResult.unreachable(), new ArrayList<>());
+
+        assertFalse(readLeg.isReachable());
+        assertEquals(LegResult.Status.UNREACHABLE, readLeg.getStatus());
+    }
+
+    /**
+     * Test that a leg over its move cap is not stored, and that a leg is only found under its own fingerprint.
+     * @throws Exception if the store could not be written or read.
+     */
+    @Test
+    public void onlyCompleteLegsOfTheSameFingerprintAreFound() throws Exception {
+        Path file = temporaryFolder.newFolder().toPath().resolve("legs.store");
+        LegStore legStore = LegStore.open(file);
+        legStore.put(FINGERPRINT, ORIGIN, DESTINATION, LegResult.exceedsMoveCap());
+        legStore.put(FINGERPRINT, DESTINATION, ORIGIN, fly(DESTINATION, List.of(180), -1));
+
+        assertEquals(1, legStore.getNumberOfLegs());
+        assertNull(legStore.get(FINGERPRINT, ORIGIN, DESTINATION, new ArrayList<>()));
+        assertNull(legStore.get(FINGERPRINT + 1, DESTINATION, ORIGIN, new ArrayList<>()));
+        legStore.close();
+    }
+
+
+    /**
+     * Helper method that stores the given leg from {@link #ORIGIN} to {@link #DESTINATION}, closes the store, and reads
+     * the leg back from the store opened again.
+     * @param leg the leg to store.
+     * @param landmarks the landmarks the leg may fly through.
+     * @return the leg read back.
+     * @throws Exception if the store could not be written or read.
+     */
+    private LegResult roundTrip(LegResult leg, ArrayList<LongLat> landmarks) throws Exception {
+        Path file = temporaryFolder.newFolder().toPath().resolve("legs.store");
+        LegStore legStore = LegStore.open(file);
+        legStore.put(FINGERPRINT, ORIGIN, DESTINATION, leg);
+        legStore.close();
+
+        LegStore reopenedLegStore = LegStore.open(file);
+        assertEquals(1, reopenedLegStore.getNumberOfLegs());
+        LegResult readLeg = reopenedLegStore.get(FINGERPRINT, ORIGIN, DESTINATION, landmarks);
+        reopenedLegStore.close();
+        return readLeg;
+    }
+
+    /**
+     * Helper method that flies the given angles from the given origin, as the PathFinder does.
+     * @param origin the point the leg starts from.
+     * @param angles the angle of every move.
+     * @param movesToLandmark the number of moves flown before the second landmark, or -1 for a direct leg.
+     * @return the LegResult of the moves.
+     */
+    private static LegResult fly(LongLat origin, List<Integer> angles, int movesToLandmark) {
+        ArrayList<LongLat> moves = new ArrayList<>();
+        LongLat currentPosition = origin;
+        for (int angle : angles) {
+            currentPosition = currentPosition.nextPosition(angle);
+            moves.add(currentPosition);
+        }
+        if (movesToLandmark < 0) {
+            return LegResult.direct(moves, new ArrayList<>(angles));
+        }
+        return LegResult.throughLandmark(moves, new ArrayList<>(angles), 1, movesToLandmark);
+    }
+}
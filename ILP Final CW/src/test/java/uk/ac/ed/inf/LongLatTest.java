@@ -0,0 +1,73 @@
+package uk.ac.ed.inf;
+
+import com.mapbox.geojson.Point;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Class of the tests of the value equality of {@link LongLat} and {@link FixedPointLongLat}, which compare locations
+ * snapped to the fixed-point grid.
+ */
+public class LongLatTest {
+
+    /**
+     * Test that locations differing by less than half a fixed-point unit are equal, with the same hash code.
+     */
+    @Test
+    public void locationsWithinHalfAUnitAreEqual() {
+        LongLat location = new LongLat(-3.186874, 55.944494);
+        LongLat nearLocation = new LongLat(-3.186874 + 0.4e-9, 55.944494 - 0.4e-9);
+
+        assertEquals(location, nearLocation);
+        assertEquals(location.hashCode(), nearLocation.hashCode());
+        assertEquals(location.toFixedPoint(), nearLocation.toFixedPoint());
+        assertEquals(location.toFixedPoint().hashCode(), nearLocation.toFixedPoint().hashCode());
+    }
+
+    /**
+     * Test that locations a fixed-point unit apart are not equal.
+     */
+    @Test
+    public void locationsAUnitApartAreNotEqual() {
+        LongLat location = new LongLat(-3.186874, 55.944494);
+
+        assertNotEquals(location, new LongLat(-3.186874 + FixedPointLongLat.DEGREES_PER_UNIT, 55.944494));
+        assertNotEquals(location, new LongLat(-3.186874, 55.944494 + FixedPointLongLat.DEGREES_PER_UNIT));
+        assertNotEquals(location.toFixedPoint(), new LongLat(-3.186874, 55.944494 + 1e-9).toFixedPoint());
+    }
+
+    /**
+     * Test that a location reached by floating point arithmetic is equal to the same location written out, so that it
+     * is found in the sets and maps keyed on locations.
+     */
+    @Test
+    public void locationsReachedByArithmeticAreFound() {
+        LongLat start = new LongLat(-3.186874, 55.944494);
+        LongLat there = start.nextPosition(0).nextPosition(0).nextPosition(180).nextPosition(180);
+        Set<LongLat> visited = new HashSet<>();
+        visited.add(start);
+
+        assertEquals(start, there);
+        assertTrue(visited.contains(there));
+    }
+
+    /**
+     * Test that a point read from GeoJSON is snapped to the grid, and converts back and forth without changing.
+     */
+    @Test
+    public void pointsAreSnappedToTheGrid() {
+        LongLat location = LongLat.fromPoint(Point.fromLngLat(-3.1868740000000004, 55.94449399999999));
+        FixedPointLongLat fixedPoint = location.toFixedPoint();
+
+        assertEquals(new LongLat(-3.186874, 55.944494), location);
+        assertEquals(-3186874000L, fixedPoint.getLongitudeUnits());
+        assertEquals(55944494000L, fixedPoint.getLatitudeUnits());
+        assertEquals(fixedPoint, fixedPoint.toLongLat().toFixedPoint());
+    }
+}
@@ -0,0 +1,181 @@
+package uk.ac.ed.inf;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Class of the tests of the {@link ShardQueue}, which follow shards through the subfolders of the queue.
+ */
+public class ShardQueueTest {
+
+    /** Folder the queue of every test is created in */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** ShardQueue of the test */
+    private ShardQueue queue;
+
+
+    /**
+     * Method that creates an empty queue before every test.
+     * @throws Exception if the queue could not be created.
+     */
+    @Before
+    public void createQueue() throws Exception {
+        queue = new ShardQueue(temporaryFolder.newFolder("queue").toPath());
+    }
+
+    /**
+     * Test that a range of dates is split into shards of the given number of days, the last one having fewer, and that
+     * the shards are claimed in order.
+     * @throws Exception if the queue could not be read or written.
+     */
+    @Test
+    public void rangeIsSplitIntoShardsClaimedInOrder() throws Exception {
+        assertFalse(queue.hasShards());
+        assertEquals(3, queue.createShards(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 5), 2));
+        assertTrue(queue.hasShards());
+
+        ShardQueue.Shard first = queue.claim();
+        ShardQueue.Shard second = queue.claim();
+        ShardQueue.Shard third = queue.claim();
+        assertNull(queue.claim());
+
+        assertEquals(LocalDate.of(2022, 1, 1), first.getFirstDate());
+        assertEquals(LocalDate.of(2022, 1, 2), first.getLastDate());
+        assertEquals(LocalDate.of(2022, 1, 3), second.getFirstDate());
+        assertEquals(LocalDate.of(2022, 1, 5), third.getFirstDate());
+        assertEquals(LocalDate.of(2022, 1, 5), third.getLastDate());
+        assertEquals(0, first.getAttempts());
+        assertEquals(3, queue.count(ShardQueue.LEASED));
+        assertEquals(0, queue.count(ShardQueue.PENDING));
+    }
+
+    /**
+     * Test that a range of dates is not split into shards of no days, which would never reach the end of the range.
+     * @throws Exception if the queue could not be read or written.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void shardsOfNoDaysAreRejected() throws Exception {
+        queue.createShards(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 5), 0);
+    }
+
+    /**
+     * Test that a completed shard is moved to the done subfolder with its outputs.
+     * @throws Exception if the queue could not be read or written.
+     */
+    @Test
+    public void completedShardKeepsItsOutputs() throws Exception {
+        queue.createShards(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 1), 1);
+        ShardQueue.Shard shard = queue.claim();
+        assertTrue(queue.renew(shard));
+        Path temporaryOutputFolder = queue.createTemporaryOutputFolder(shard, "worker-1");
+        Files.writeString(temporaryOutputFolder.resolve("drone-01-01-2022.geojson"), "{}");
+
+        assertTrue(queue.complete(shard, temporaryOutputFolder));
+        assertEquals(1, queue.count(ShardQueue.DONE));
+        assertEquals(0, queue.count(ShardQueue.LEASED));
+        List<Path> outputFolders = queue.getOutputFoldersOfDoneShards();
+        assertEquals(1, outputFolders.size());
+        assertTrue(Files.exists(outputFolders.get(0).resolve("drone-01-01-2022.geojson")));
+        assertFalse(Files.exists(temporaryOutputFolder));
+    }
+
+    /**
+     * Test that a released shard is tried again with one more attempt, until it fails for good.
+     * @throws Exception if the queue could not be read or written.
+     */
+    @Test
+    public void releasedShardFailsAfterTheMaximumAttempts() throws Exception {
+        queue.createShards(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 1), 1);
+        for (int attempt = 0; attempt < ShardQueue.MAXIMUM_ATTEMPTS; attempt++) {
+            ShardQueue.Shard shard = queue.claim();
+            assertEquals(attempt, shard.getAttempts());
+            queue.release(shard);
+        }
+
+        assertNull(queue.claim());
+        assertEquals(1, queue.count(ShardQueue.FAILED));
+        assertEquals(0, queue.count(ShardQueue.PENDING));
+    }
+
+    /**
+     * Test that an expired lease is taken back, and that its worker can then neither renew it nor complete it.
+     * @throws Exception if the queue could not be read or written.
+     */
+    @Test
+    public void expiredLeaseIsTakenBack() throws Exception {
+        queue.createShards(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 2), 1);
+        ShardQueue.Shard expiredShard = queue.claim();
+        ShardQueue.Shard renewedShard = queue.claim();
+        Path leasedFile;
+        try (Stream<Path> leasedFiles = Files.list(queue.getFolder().resolve(ShardQueue.LEASED))) {
+            leasedFile = leasedFiles.filter(file -> file.getFileName().toString().contains(expiredShard.getName()))
+                    .findFirst().orElseThrow();
+        }
+        Files.setLastModifiedTime(leasedFile, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+
+        assertEquals(1, queue.reapExpiredLeases(30_000));
+        assertFalse(queue.renew(expiredShard));
+        assertTrue(queue.renew(renewedShard));
+        assertFalse(queue.complete(expiredShard, queue.createTemporaryOutputFolder(expiredShard, "worker-1")));
+
+        ShardQueue.Shard retriedShard = queue.claim();
+        assertEquals(expiredShard.getName(), retriedShard.getName());
+        assertEquals(1, retriedShard.getAttempts());
+    }
+
+    /**
+     * Test that a worker whose lease was taken back, and which tries to complete the shard after another worker has
+     * done it, leaves the outputs of the other worker in place.
+     * @throws Exception if the queue could not be read or written.
+     */
+    @Test
+    public void expiredWorkerDoesNotReplaceTheOutputsOfADoneShard() throws Exception {
+        queue.createShards(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 1), 1);
+        ShardQueue.Shard expiredShard = queue.claim();
+        Path expiredOutputFolder = queue.createTemporaryOutputFolder(expiredShard, "worker-1");
+        Files.writeString(expiredOutputFolder.resolve("drone-01-01-2022.geojson"), "worker-1");
+        expireLeases();
+        assertEquals(1, queue.reapExpiredLeases(30_000));
+
+        ShardQueue.Shard retriedShard = queue.claim();
+        Path retriedOutputFolder = queue.createTemporaryOutputFolder(retriedShard, "worker-2");
+        Files.writeString(retriedOutputFolder.resolve("drone-01-01-2022.geojson"), "worker-2");
+        assertTrue(queue.complete(retriedShard, retriedOutputFolder));
+
+        assertFalse(queue.complete(expiredShard, expiredOutputFolder));
+        assertFalse(Files.exists(expiredOutputFolder));
+        assertEquals(1, queue.count(ShardQueue.DONE));
+        assertEquals(0, queue.count(ShardQueue.COMPLETING));
+        List<Path> outputFolders = queue.getOutputFoldersOfDoneShards();
+        assertEquals("worker-2", Files.readString(outputFolders.get(0).resolve("drone-01-01-2022.geojson")));
+    }
+
+
+    /**
+     * Helper method that makes every lease of the queue look as if it was last renewed a minute ago.
+     * @throws Exception if the queue could not be read or written.
+     */
+    private void expireLeases() throws Exception {
+        try (Stream<Path> leasedFiles = Files.list(queue.getFolder().resolve(ShardQueue.LEASED))) {
+            for (Path leasedFile : (Iterable<Path>) leasedFiles::iterator) {
+                Files.setLastModifiedTime(leasedFile, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+            }
+        }
+    }
+}
@@ -0,0 +1,5 @@
+-- Run from ij once connected to the database, for example to jdbc:derby://localhost:1527/derbyDB;create=true
+create table orders(orderNo char(8), deliveryDate date, customer char(8), deliverTo varchar(19));
+create table orderDetails(orderNo char(8), item varchar(58));
+call SYSCS_UTIL.SYSCS_IMPORT_TABLE(null, 'ORDERS', '/root/project/ILP Final CW/src/test/resources/golden/inputs/database/orders.csv', null, null, null, 0);
+call SYSCS_UTIL.SYSCS_IMPORT_TABLE(null, 'ORDERDETAILS', '/root/project/ILP Final CW/src/test/resources/golden/inputs/database/orderDetails.csv', null, null, null, 0);